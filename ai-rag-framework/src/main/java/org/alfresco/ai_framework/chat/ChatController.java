@@ -1,7 +1,5 @@
 package org.alfresco.ai_framework.chat;
 
-import org.springframework.ai.chat.client.advisor.vectorstore.QuestionAnswerAdvisor;
-import org.springframework.ai.content.Content;
 import org.springframework.ai.document.Document;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -40,7 +38,8 @@ public class ChatController {
     @PostMapping("/chat")
     public ResponseEntity<ChatResponseDTO> chat(@RequestBody String query) {
 
-        ChatResponse response = chatService.chat(query);
+        ChatService.ChatResult result = chatService.chat(query);
+        ChatResponse response = result.chatResponse();
 
         if (response == null || response.getResult() == null) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -49,20 +48,19 @@ public class ChatController {
 
         // Extract answer content and associated document metadata
         String answer = response.getResult().getOutput().getText();
-        List<Map<String, Object>> documentMetadata = extractDocumentMetadata(response);
+        List<Map<String, Object>> documentMetadata = extractDocumentMetadata(result.documents());
 
         return ResponseEntity.ok(new ChatResponseDTO(answer, documentMetadata));
     }
 
 
     /**
-     * Extracts metadata from documents retrieved as context in the chat response.
+     * Extracts metadata from documents used as context in the chat response.
      *
-     * @param response The ChatResponse object containing result and metadata.
+     * @param contextDocuments The documents placed in the prompt context.
      * @return A list of metadata maps for each context document.
      */
-    private List<Map<String, Object>> extractDocumentMetadata(ChatResponse response) {
-        List<Document> contextDocuments = response.getMetadata().get(QuestionAnswerAdvisor.RETRIEVED_DOCUMENTS);
+    private List<Map<String, Object>> extractDocumentMetadata(List<Document> contextDocuments) {
         return contextDocuments.stream()
                 .map(Document::getMetadata)
                 .collect(Collectors.toList());
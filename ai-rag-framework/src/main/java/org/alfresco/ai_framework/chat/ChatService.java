@@ -1,58 +1,141 @@
 package org.alfresco.ai_framework.chat;
 
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.alfresco.ai_framework.index.KnnSearcher;
+import org.alfresco.ai_framework.observation.StageObserver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.client.ChatClient;
-import org.springframework.ai.chat.client.advisor.vectorstore.QuestionAnswerAdvisor;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
 import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
 import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+
+import static org.alfresco.ai_framework.observation.StageObserver.CHAT;
+
 /**
  * Service responsible for handling chat interactions with the AI system.
- * Configures chat advisors, such as QuestionAnswerAdvisor and SafeGuardAdvisor,
- * to enrich responses and ensure safe interactions.
+ * Retrieves relevant chunks from the vector store (or through a kNN search with an explicit
+ * number of candidates, when configured), compresses them into a bounded
+ * context through the ContextAssembler and asks the LLM to answer from that context.
+ * Retrieval, prompt assembly and generation are observed as separate stages.
  */
 @Service
 public class ChatService {
 
     private static final Logger logger = LoggerFactory.getLogger(ChatService.class);
 
+    private static final String SYSTEM_PROMPT = """
+            Context information is below, surrounded by ---------------------
+
+            ---------------------
+            %s
+            ---------------------
+
+            Given the context and provided history information and not prior knowledge,
+            reply to the user comment. If the answer is not in the context, inform
+            the user that you can't answer the question.
+            """;
+
     private final ChatClient chatClient;
     private final VectorStore vectorStore;
+    private final ContextAssembler contextAssembler;
+    private final ObjectProvider<KnnSearcher> knnSearcher;
+    private final StageObserver stageObserver;
+    private final DistributionSummary contextTokens;
+
+    @Value("${chat.retrieval.top-k:4}")
+    private int topK;
+
+    @Value("${chat.retrieval.num-candidates:0}")
+    private int numCandidates;
+
+    @Value("${chat.retrieval.similarity-threshold:0.0}")
+    private double similarityThreshold;
 
     /**
      * Constructs the ChatService with a pre-configured ChatClient and VectorStore.
      *
      * @param chatClientBuilder Builder for creating a ChatClient instance.
      * @param vectorStore       Vector store for performing document searches.
+     * @param contextAssembler  Stage compressing retrieved chunks into the prompt context.
+     * @param knnSearcher       Searcher used when a number of kNN candidates is configured, absent with
+     *                          the embedded vector store.
+     * @param stageObserver     Observer timing the chat stages.
+     * @param meterRegistry     Registry for the context size metric.
      */
-    public ChatService(ChatClient.Builder chatClientBuilder, VectorStore vectorStore) {
+    public ChatService(ChatClient.Builder chatClientBuilder, VectorStore vectorStore,
+                       ContextAssembler contextAssembler, ObjectProvider<KnnSearcher> knnSearcher,
+                       StageObserver stageObserver, MeterRegistry meterRegistry) {
         this.chatClient = chatClientBuilder.build();
         this.vectorStore = vectorStore;
+        this.contextAssembler = contextAssembler;
+        this.knnSearcher = knnSearcher;
+        this.stageObserver = stageObserver;
+        this.contextTokens = DistributionSummary.builder("ai.chat.context.tokens")
+                .description("Estimated tokens of the context sent to the LLM")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
         logger.debug("ChatService initialized with ChatClient and VectorStore.");
     }
 
     /**
-     * Processes a chat query by interacting with the AI through configured advisors.
-     * Uses a QuestionAnswerAdvisor for document retrieval.
+     * Processes a chat query: retrieves similar chunks, assembles a compressed context and
+     * calls the LLM with it.
      *
      * @param query The user input to process.
-     * @return The AI-generated ChatResponse, containing the answer and metadata.
+     * @return The AI-generated ChatResponse together with the documents used as context.
      */
-    public ChatResponse chat(String query) {
+    public ChatResult chat(String query) {
         logger.info("Processing chat query: {}", query);
 
-        // Configuring advisors to enhance the response quality
-        ChatResponse response = chatClient
-                .prompt()
-                .advisors(new QuestionAnswerAdvisor(vectorStore))
-                .user(query)
+        List<Document> retrieved = stageObserver.observe(CHAT, "retrieval", null, () -> retrieve(query));
+        ContextAssembler.AssembledContext context = stageObserver.observe(CHAT, "prompt", null,
+                () -> contextAssembler.assemble(query, retrieved));
+        contextTokens.record(context.tokensAfter());
+
+        ChatResponse response = stageObserver.observe(CHAT, "generation", null, () -> chatClient
+                .prompt(new Prompt(List.of(
+                        new SystemMessage(SYSTEM_PROMPT.formatted(context.text())),
+                        new UserMessage(query))))
                 .call()
-                .chatResponse();
+                .chatResponse());
 
         logger.info("Received response from AI");
-        return response;
+        return new ChatResult(response, context.documents());
+    }
+
+    /**
+     * Retrieves the chunks most similar to the query.
+     */
+    private List<Document> retrieve(String query) {
+        KnnSearcher searcher = numCandidates > 0 ? knnSearcher.getIfAvailable() : null;
+        if (searcher != null) {
+            return searcher.search(query, topK, numCandidates, similarityThreshold);
+        }
+        return vectorStore.similaritySearch(SearchRequest.builder()
+                .query(query)
+                .topK(topK)
+                .similarityThreshold(similarityThreshold)
+                .build());
+    }
+
+    /**
+     * Response of the LLM along with the documents that were placed in its context.
+     *
+     * @param chatResponse The AI-generated response.
+     * @param documents    Documents contributing to the prompt context.
+     */
+    public record ChatResult(ChatResponse chatResponse, List<Document> documents) {
     }
 
 }
@@ -0,0 +1,193 @@
+package org.alfresco.ai_framework.chat;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Builds the prompt context from retrieved chunks. Chunks belonging to the same original document are
+ * deduplicated at sentence level, each chunk is reduced to the sentences most relevant to the query,
+ * and the resulting excerpts are added in retrieval order until the token budget is exhausted.
+ */
+@Component
+public class ContextAssembler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContextAssembler.class);
+
+    private static final Pattern SENTENCE_BOUNDARY = Pattern.compile("(?<=[.!?])\\s+|\\n{2,}");
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Set<String> STOP_WORDS = Set.of(
+            "the", "and", "for", "are", "was", "were", "what", "which", "who", "how", "when", "where",
+            "why", "with", "this", "that", "from", "does", "did", "can", "about", "into", "its", "has",
+            "have", "you", "your", "not", "but", "all", "any", "there", "their", "they", "them");
+
+    private final TokenCountEstimator tokenCountEstimator = new JTokkitTokenCountEstimator();
+
+    @Value("${chat.context.max-tokens:2048}")
+    private int maxTokens;
+
+    @Value("${chat.context.max-sentences-per-chunk:6}")
+    private int maxSentencesPerChunk;
+
+    /**
+     * Compresses the retrieved documents into a single context string that fits the token budget.
+     *
+     * @param query     The user query, used to rank sentences by relevance.
+     * @param documents Retrieved documents, ordered by similarity.
+     * @return The assembled context, the documents that contributed to it and the token counts.
+     */
+    public AssembledContext assemble(String query, List<Document> documents) {
+        Set<String> queryTerms = terms(query);
+
+        int tokensBefore = documents.stream()
+                .mapToInt(doc -> tokenCountEstimator.estimate(doc.getText()))
+                .sum();
+
+        // Sentence extraction is independent per chunk, so it runs in parallel
+        List<List<String>> candidates = documents.parallelStream()
+                .map(doc -> selectSentences(doc.getText(), queryTerms))
+                .collect(Collectors.toList());
+
+        Map<String, Set<String>> seenSentences = new LinkedHashMap<>();
+        List<Document> contributing = new ArrayList<>();
+        StringBuilder context = new StringBuilder();
+        int tokensAfter = 0;
+
+        for (int i = 0; i < documents.size() && tokensAfter < maxTokens; i++) {
+            Document doc = documents.get(i);
+            Set<String> seen = seenSentences.computeIfAbsent(sourceId(doc), key -> new HashSet<>());
+
+            StringBuilder excerpt = new StringBuilder();
+            for (String sentence : candidates.get(i)) {
+                if (!seen.add(normalize(sentence))) {
+                    continue; // Overlapping text already emitted for this original document
+                }
+                int sentenceTokens = tokenCountEstimator.estimate(sentence);
+                if (tokensAfter + sentenceTokens > maxTokens) {
+                    // Text without sentence punctuation (tables, CSV, code) is one long sentence:
+                    // keep what fits rather than dropping the chunk
+                    String truncated = truncate(sentence, sentenceTokens, maxTokens - tokensAfter);
+                    if (!truncated.isEmpty()) {
+                        excerpt.append(truncated).append(' ');
+                        tokensAfter += tokenCountEstimator.estimate(truncated);
+                    }
+                    break;
+                }
+                excerpt.append(sentence).append(' ');
+                tokensAfter += sentenceTokens;
+            }
+
+            if (!excerpt.isEmpty()) {
+                context.append(excerpt.toString().trim()).append("\n\n");
+                contributing.add(doc);
+            }
+        }
+
+        logger.info("Context compressed from {} to {} tokens using {} of {} retrieved chunks",
+                tokensBefore, tokensAfter, contributing.size(), documents.size());
+        return new AssembledContext(context.toString().trim(), contributing, tokensBefore, tokensAfter);
+    }
+
+    /**
+     * Returns the most query-relevant sentences of a chunk, preserving their original order.
+     * Falls back to the leading sentences when no sentence shares a term with the query.
+     */
+    private List<String> selectSentences(String text, Set<String> queryTerms) {
+        List<String> sentences = Arrays.stream(SENTENCE_BOUNDARY.split(text))
+                .map(String::strip)
+                .filter(sentence -> !sentence.isEmpty())
+                .toList();
+
+        int[] scores = sentences.stream()
+                .mapToInt(sentence -> score(sentence, queryTerms))
+                .toArray();
+
+        List<Integer> selected = IntStream.range(0, sentences.size())
+                .filter(i -> scores[i] > 0)
+                .boxed()
+                .sorted(Comparator.comparingInt((Integer i) -> scores[i]).reversed())
+                .limit(maxSentencesPerChunk)
+                .sorted()
+                .toList();
+
+        if (selected.isEmpty()) {
+            return sentences.subList(0, Math.min(maxSentencesPerChunk, sentences.size()));
+        }
+        return selected.stream().map(sentences::get).toList();
+    }
+
+    /**
+     * Cuts a sentence at a whitespace to at most the given number of tokens, starting from the
+     * proportional length and shortening it until it fits.
+     */
+    private String truncate(String sentence, int sentenceTokens, int budget) {
+        if (budget <= 0) {
+            return "";
+        }
+        int length = (int) ((long) sentence.length() * budget / sentenceTokens);
+        while (length > 0) {
+            int end = sentence.lastIndexOf(' ', length);
+            String truncated = sentence.substring(0, end > 0 ? end : length).strip();
+            if (tokenCountEstimator.estimate(truncated) <= budget) {
+                return truncated;
+            }
+            length = length * 9 / 10;
+        }
+        return "";
+    }
+
+    private static int score(String sentence, Set<String> queryTerms) {
+        Set<String> sentenceTerms = terms(sentence);
+        sentenceTerms.retainAll(queryTerms);
+        return sentenceTerms.size();
+    }
+
+    private static Set<String> terms(String text) {
+        return Arrays.stream(NON_WORD.split(text.toLowerCase(Locale.ROOT)))
+                .filter(term -> term.length() > 2 && !STOP_WORDS.contains(term))
+                .collect(Collectors.toCollection(HashSet::new));
+    }
+
+    private static String normalize(String sentence) {
+        return NON_WORD.matcher(sentence.toLowerCase(Locale.ROOT)).replaceAll(" ").strip();
+    }
+
+    /**
+     * Identifies the original document a chunk was split from, so overlapping chunks can be merged.
+     */
+    private static String sourceId(Document doc) {
+        Object original = doc.getMetadata().get("original_document_id");
+        if (original == null) {
+            original = doc.getMetadata().getOrDefault("documentId", doc.getId());
+        }
+        return String.valueOf(original);
+    }
+
+    /**
+     * Result of the context assembly stage.
+     *
+     * @param text         Compressed context to be placed in the prompt.
+     * @param documents    Retrieved documents that contributed at least one sentence.
+     * @param tokensBefore Token count of the raw retrieved chunks.
+     * @param tokensAfter  Token count of the compressed context.
+     */
+    public record AssembledContext(String text, List<Document> documents, int tokensBefore, int tokensAfter) {
+    }
+}
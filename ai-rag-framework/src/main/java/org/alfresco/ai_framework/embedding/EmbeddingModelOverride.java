@@ -0,0 +1,31 @@
+package org.alfresco.ai_framework.embedding;
+
+/**
+ * Embedding model used instead of the configured one for chunks and queries, once a reindex with
+ * another model has been swapped in ({@link org.alfresco.ai_framework.index.ReindexJob}). It is
+ * restored from the metadata of the document index when the index is checked at startup, so the
+ * configuration can be updated at the next deployment. Only the Ollama backend takes the model of a
+ * request into account.
+ */
+public class EmbeddingModelOverride {
+
+    /**
+     * @param name       Name of the embedding model
+     * @param dimensions Dimensions of its embeddings
+     */
+    public record Model(String name, int dimensions) {
+    }
+
+    private volatile Model model;
+
+    /**
+     * Returns the model used instead of the configured one, or null when there is none.
+     */
+    public Model get() {
+        return model;
+    }
+
+    public void set(Model model) {
+        this.model = model;
+    }
+}
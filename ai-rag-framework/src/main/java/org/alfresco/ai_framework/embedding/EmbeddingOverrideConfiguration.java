@@ -0,0 +1,31 @@
+package org.alfresco.ai_framework.embedding;
+
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Wraps the embedding models so that the model swapped in by a reindex can be used without a restart,
+ * see {@link EmbeddingModelOverride}.
+ */
+@Configuration
+public class EmbeddingOverrideConfiguration {
+
+    @Bean
+    public static EmbeddingModelOverride embeddingModelOverride() {
+        return new EmbeddingModelOverride();
+    }
+
+    @Bean
+    public static BeanPostProcessor overridableEmbeddingModelPostProcessor(EmbeddingModelOverride embeddingModelOverride) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof EmbeddingModel model && !(bean instanceof OverridableEmbeddingModel)
+                        ? new OverridableEmbeddingModel(model, embeddingModelOverride)
+                        : bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,39 @@
+package org.alfresco.ai_framework.embedding;
+
+import ai.onnxruntime.OrtException;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Embeds chunks and queries in process with {@link OnnxEmbeddingModel} when {@code embedding.backend}
+ * is {@code onnx}. The bean takes precedence over the Ollama embedding model, which stays available
+ * for chat. ONNX Runtime and the tokenizers are only packaged with the {@code onnx} Maven profile,
+ * {@link OnnxRuntimeCheck} fails the startup without them.
+ */
+@Configuration
+@ConditionalOnProperty(name = "embedding.backend", havingValue = "onnx")
+@ConditionalOnClass(name = {OnnxRuntimeCheck.ORT_ENVIRONMENT, OnnxRuntimeCheck.TOKENIZER})
+public class OnnxEmbeddingConfiguration {
+
+    @Bean
+    @Primary
+    public OnnxEmbeddingModel onnxEmbeddingModel(@Value("${embedding.onnx.model}") Path model,
+                                                 @Value("${embedding.onnx.tokenizer}") Path tokenizer,
+                                                 @Value("${embedding.onnx.max-tokens:1024}") int maxTokens,
+                                                 @Value("${embedding.onnx.batch-size:16}") int batchSize,
+                                                 @Value("${embedding.onnx.intra-op-threads:0}") int intraOpThreads,
+                                                 @Value("${embedding.onnx.buffers:2}") int buffers,
+                                                 MeterRegistry meterRegistry) throws OrtException, IOException {
+        int threads = intraOpThreads > 0 ? intraOpThreads
+                : Math.max(1, Runtime.getRuntime().availableProcessors() / Math.max(1, buffers));
+        return new OnnxEmbeddingModel(model, tokenizer, maxTokens, batchSize, threads, buffers, meterRegistry);
+    }
+}
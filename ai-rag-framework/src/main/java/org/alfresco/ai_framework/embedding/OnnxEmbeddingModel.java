@@ -0,0 +1,294 @@
+package org.alfresco.ai_framework.embedding;
+
+import ai.djl.huggingface.tokenizers.Encoding;
+import ai.djl.huggingface.tokenizers.HuggingFaceTokenizer;
+import ai.onnxruntime.NodeInfo;
+import ai.onnxruntime.OnnxTensor;
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import ai.onnxruntime.TensorInfo;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.LongBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Embedding model running an ONNX export of a sentence embedding model (e.g. nomic-embed-text) in
+ * process on CPU with ONNX Runtime, instead of a JSON round trip to Ollama per request.
+ *
+ * Texts of a request are tokenized together, sorted by length and run in batches padded to their
+ * longest text, so that short chunks do not pay for long ones. Token IDs are written to direct
+ * buffers taken from a fixed pool and handed to ONNX Runtime without copying; the pool size also
+ * bounds the number of inferences running at the same time, each using the configured intra-op
+ * threads. Token embeddings are mean-pooled over the attention mask and normalized, unless the
+ * model already outputs pooled sentence embeddings.
+ */
+public class OnnxEmbeddingModel implements EmbeddingModel, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(OnnxEmbeddingModel.class);
+
+    private static final String INPUT_IDS = "input_ids";
+    private static final String ATTENTION_MASK = "attention_mask";
+    private static final String TOKEN_TYPE_IDS = "token_type_ids";
+
+    /**
+     * Direct buffers holding the inputs of one batch, reused across inferences.
+     */
+    private record TensorBuffers(LongBuffer inputIds, LongBuffer attentionMask, LongBuffer typeIds) {
+
+        static TensorBuffers allocate(int capacity) {
+            return new TensorBuffers(allocateLongs(capacity), allocateLongs(capacity), allocateLongs(capacity));
+        }
+
+        private static LongBuffer allocateLongs(int capacity) {
+            return ByteBuffer.allocateDirect(capacity * Long.BYTES).order(ByteOrder.nativeOrder()).asLongBuffer();
+        }
+    }
+
+    private final OrtEnvironment environment;
+    private final OrtSession session;
+    private final HuggingFaceTokenizer tokenizer;
+    private final String outputName;
+    private final boolean typeIdsInput;
+    private final int batchSize;
+    private final BlockingQueue<TensorBuffers> buffers;
+    private final Timer inferenceTimer;
+    private final Counter tokenCounter;
+    private final int dimensions;
+
+    /**
+     * @param modelPath      ONNX model file
+     * @param tokenizerPath  tokenizer.json of the model
+     * @param maxTokens      Tokens per text, longer texts are truncated
+     * @param batchSize      Texts per inference
+     * @param intraOpThreads Threads used by one inference
+     * @param poolSize       Input buffers, i.e. inferences running at the same time
+     */
+    public OnnxEmbeddingModel(Path modelPath, Path tokenizerPath, int maxTokens, int batchSize,
+                              int intraOpThreads, int poolSize, MeterRegistry meterRegistry)
+            throws OrtException, IOException {
+        this.environment = OrtEnvironment.getEnvironment();
+        try (OrtSession.SessionOptions options = new OrtSession.SessionOptions()) {
+            options.setIntraOpNumThreads(intraOpThreads);
+            options.setInterOpNumThreads(1);
+            options.setExecutionMode(OrtSession.SessionOptions.ExecutionMode.SEQUENTIAL);
+            options.setOptimizationLevel(OrtSession.SessionOptions.OptLevel.ALL_OPT);
+            this.session = environment.createSession(modelPath.toString(), options);
+        }
+        this.tokenizer = HuggingFaceTokenizer.newInstance(tokenizerPath, Map.of(
+                "maxLength", String.valueOf(maxTokens),
+                "truncation", "true",
+                "padding", "false"));
+        this.outputName = session.getOutputNames().iterator().next();
+        this.typeIdsInput = session.getInputNames().contains(TOKEN_TYPE_IDS);
+        this.batchSize = batchSize;
+
+        this.buffers = new ArrayBlockingQueue<>(poolSize);
+        for (int i = 0; i < poolSize; i++) {
+            buffers.add(TensorBuffers.allocate(batchSize * maxTokens));
+        }
+
+        this.inferenceTimer = Timer.builder("ai.embedding.inference")
+                .description("Duration of one batch inference of the ONNX embedding model")
+                .register(meterRegistry);
+        this.tokenCounter = Counter.builder("ai.embedding.tokens")
+                .description("Tokens embedded by the ONNX embedding model")
+                .register(meterRegistry);
+
+        NodeInfo output = session.getOutputInfo().get(outputName);
+        long[] shape = ((TensorInfo) output.getInfo()).getShape();
+        this.dimensions = shape[shape.length - 1] > 0 ? (int) shape[shape.length - 1] : embed("dimensions").length;
+
+        logger.info("Loaded ONNX embedding model {} ({} dimensions, output {}, batch size {}, {} intra-op threads, {} buffers)",
+                modelPath, dimensions, outputName, batchSize, intraOpThreads, poolSize);
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        List<String> texts = request.getInstructions();
+        Encoding[] encodings = tokenizer.batchEncode(texts);
+
+        // Batches of texts of similar length keep padding low
+        int[] order = IntStream.range(0, encodings.length).boxed()
+                .sorted(Comparator.comparingInt(i -> encodings[i].getIds().length))
+                .mapToInt(Integer::intValue)
+                .toArray();
+
+        float[][] vectors = new float[texts.size()][];
+        for (int start = 0; start < order.length; start += batchSize) {
+            int[] batch = Arrays.copyOfRange(order, start, Math.min(order.length, start + batchSize));
+            float[][] embedded = infer(encodings, batch);
+            for (int i = 0; i < batch.length; i++) {
+                vectors[batch[i]] = embedded[i];
+            }
+        }
+
+        List<Embedding> embeddings = new ArrayList<>(vectors.length);
+        for (int i = 0; i < vectors.length; i++) {
+            embeddings.add(new Embedding(vectors[i], i));
+        }
+        return new EmbeddingResponse(embeddings);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return embed(document.getText());
+    }
+
+    @Override
+    public int dimensions() {
+        return dimensions;
+    }
+
+    /**
+     * Runs one batch, padded to its longest text, and returns the normalized embedding of each text.
+     */
+    private float[][] infer(Encoding[] encodings, int[] batch) {
+        int length = 1;
+        for (int index : batch) {
+            length = Math.max(length, encodings[index].getIds().length);
+        }
+        long[] shape = {batch.length, length};
+
+        TensorBuffers input = acquire();
+        long start = System.nanoTime();
+        try {
+            fill(input, encodings, batch, length);
+            Map<String, OnnxTensor> tensors = new HashMap<>();
+            try {
+                tensors.put(INPUT_IDS, OnnxTensor.createTensor(environment, input.inputIds(), shape));
+                tensors.put(ATTENTION_MASK, OnnxTensor.createTensor(environment, input.attentionMask(), shape));
+                if (typeIdsInput) {
+                    tensors.put(TOKEN_TYPE_IDS, OnnxTensor.createTensor(environment, input.typeIds(), shape));
+                }
+                try (OrtSession.Result result = session.run(tensors)) {
+                    OnnxTensor output = (OnnxTensor) result.get(outputName)
+                            .orElseThrow(() -> new IllegalStateException("Missing model output " + outputName));
+                    long[] outputShape = output.getInfo().getShape();
+                    return outputShape.length == 3
+                            ? meanPool(output.getFloatBuffer(), encodings, batch, length, (int) outputShape[2])
+                            : rows(output.getFloatBuffer(), batch.length, (int) outputShape[1]);
+                }
+            } finally {
+                tensors.values().forEach(OnnxTensor::close);
+            }
+        } catch (OrtException e) {
+            throw new IllegalStateException("ONNX embedding inference failed", e);
+        } finally {
+            buffers.add(input);
+            inferenceTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private TensorBuffers acquire() {
+        try {
+            return buffers.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for an embedding buffer", e);
+        }
+    }
+
+    private void fill(TensorBuffers input, Encoding[] encodings, int[] batch, int length) {
+        input.inputIds().clear();
+        input.attentionMask().clear();
+        input.typeIds().clear();
+        long tokens = 0;
+        for (int index : batch) {
+            Encoding encoding = encodings[index];
+            long[] ids = encoding.getIds();
+            input.inputIds().put(ids);
+            input.attentionMask().put(encoding.getAttentionMask());
+            input.typeIds().put(encoding.getTypeIds());
+            for (int padding = ids.length; padding < length; padding++) {
+                input.inputIds().put(0);
+                input.attentionMask().put(0);
+                input.typeIds().put(0);
+            }
+            tokens += ids.length;
+        }
+        input.inputIds().flip();
+        input.attentionMask().flip();
+        input.typeIds().flip();
+        tokenCounter.increment(tokens);
+    }
+
+    /**
+     * Averages the token embeddings of each text over its attention mask, then normalizes them.
+     */
+    private static float[][] meanPool(FloatBuffer hidden, Encoding[] encodings, int[] batch, int length, int dims) {
+        float[][] vectors = new float[batch.length][dims];
+        for (int i = 0; i < batch.length; i++) {
+            long[] mask = encodings[batch[i]].getAttentionMask();
+            float[] vector = vectors[i];
+            int tokens = 0;
+            for (int t = 0; t < mask.length; t++) {
+                if (mask[t] == 0) {
+                    continue;
+                }
+                int offset = (i * length + t) * dims;
+                for (int d = 0; d < dims; d++) {
+                    vector[d] += hidden.get(offset + d);
+                }
+                tokens++;
+            }
+            for (int d = 0; d < dims; d++) {
+                vector[d] /= Math.max(1, tokens);
+            }
+            normalize(vector);
+        }
+        return vectors;
+    }
+
+    private static float[][] rows(FloatBuffer pooled, int count, int dims) {
+        float[][] vectors = new float[count][dims];
+        for (int i = 0; i < count; i++) {
+            pooled.get(i * dims, vectors[i]);
+            normalize(vectors[i]);
+        }
+        return vectors;
+    }
+
+    private static void normalize(float[] vector) {
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        if (norm > 0) {
+            float scale = (float) (1 / Math.sqrt(norm));
+            for (int d = 0; d < vector.length; d++) {
+                vector[d] *= scale;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws OrtException {
+        session.close();
+        tokenizer.close();
+    }
+}
@@ -0,0 +1,27 @@
+package org.alfresco.ai_framework.embedding;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.ClassUtils;
+
+import java.util.stream.Stream;
+
+/**
+ * Fails the startup when {@code embedding.backend} is {@code onnx} but the application was packaged
+ * without ONNX Runtime or the Hugging Face tokenizers, which only the {@code onnx} Maven profile includes.
+ */
+@Configuration
+@ConditionalOnProperty(name = "embedding.backend", havingValue = "onnx")
+public class OnnxRuntimeCheck {
+
+    static final String ORT_ENVIRONMENT = "ai.onnxruntime.OrtEnvironment";
+    static final String TOKENIZER = "ai.djl.huggingface.tokenizers.HuggingFaceTokenizer";
+
+    public OnnxRuntimeCheck() {
+        ClassLoader classLoader = getClass().getClassLoader();
+        if (Stream.of(ORT_ENVIRONMENT, TOKENIZER).anyMatch(name -> !ClassUtils.isPresent(name, classLoader))) {
+            throw new IllegalStateException("embedding.backend is onnx, but ONNX Runtime is not packaged: "
+                    + "build with the onnx Maven profile (mvn -Ponnx package) or use embedding.backend: ollama");
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package org.alfresco.ai_framework.embedding;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptions;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.ollama.api.OllamaOptions;
+
+/**
+ * Embedding model sending requests without an explicit model to the {@link EmbeddingModelOverride}
+ * model when one is set, and to the model it wraps otherwise. The model is passed as Ollama options,
+ * the only backend taking it into account.
+ */
+class OverridableEmbeddingModel implements EmbeddingModel, AutoCloseable {
+
+    private final EmbeddingModel delegate;
+    private final EmbeddingModelOverride override;
+
+    OverridableEmbeddingModel(EmbeddingModel delegate, EmbeddingModelOverride override) {
+        this.delegate = delegate;
+        this.override = override;
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        EmbeddingModelOverride.Model model = override.get();
+        EmbeddingOptions options = request.getOptions();
+        if (model == null || (options != null && options.getModel() != null)) {
+            return delegate.call(request);
+        }
+        return delegate.call(new EmbeddingRequest(request.getInstructions(),
+                OllamaOptions.builder().model(model.name()).build()));
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return override.get() == null ? delegate.embed(document) : embed(document.getText());
+    }
+
+    @Override
+    public int dimensions() {
+        EmbeddingModelOverride.Model model = override.get();
+        return model == null ? delegate.dimensions() : model.dimensions();
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (delegate instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package org.alfresco.ai_framework.embedding.dedup;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.alfresco.ai_framework.ingestion.TextChunker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Skips the embedding of chunks that are near duplicates of chunks already embedded, such as
+ * boilerplate, templates and copies of the same document in several folders, by reusing their
+ * embedding. Enabled with {@code ingestion.dedup.enabled}.
+ *
+ * Chunks of at least {@code ingestion.dedup.min-tokens} tokens are compared by {@link SimHash}
+ * signature, up to {@code ingestion.dedup.max-distance} differing bits, with the chunks of the same
+ * request and with the last {@code ingestion.dedup.max-entries} chunks embedded, kept in a
+ * {@link SignatureIndex}. Duplicates are still stored as chunks of their own document, so deletes and
+ * filters by {@code documentId} and {@code folderId} are unchanged.
+ *
+ * Only embeddings requested within {@link #run(Runnable)}, i.e. the index stage of the ingestion,
+ * are deduplicated: chat queries always reach the model.
+ */
+@Component
+public class ChunkDeduplicator {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChunkDeduplicator.class);
+
+    private static final ThreadLocal<ChunkDeduplicator> ACTIVE = new ThreadLocal<>();
+
+    private final boolean enabled;
+    private final int maxDistance;
+    private final int minTokens;
+    private final SignatureIndex index;
+    private final Counter embedded;
+    private final Counter reused;
+
+    public ChunkDeduplicator(MeterRegistry meterRegistry,
+                             @Value("${ingestion.dedup.enabled:false}") boolean enabled,
+                             @Value("${ingestion.dedup.max-distance:3}") int maxDistance,
+                             @Value("${ingestion.dedup.min-tokens:32}") int minTokens,
+                             @Value("${ingestion.dedup.max-entries:10000}") int maxEntries) {
+        this.enabled = enabled;
+        this.maxDistance = Math.min(Math.max(0, maxDistance), SignatureIndex.MAX_DISTANCE);
+        this.minTokens = minTokens;
+        this.index = enabled ? new SignatureIndex(Math.max(1, maxEntries)) : null;
+        this.embedded = Counter.builder("ai.ingestion.dedup.embedded")
+                .description("Chunks embedded by the model while deduplication is enabled")
+                .register(meterRegistry);
+        this.reused = Counter.builder("ai.ingestion.dedup.reused")
+                .description("Chunks reusing the embedding of a near duplicate, i.e. embedding calls saved")
+                .register(meterRegistry);
+        if (enabled) {
+            Gauge.builder("ai.ingestion.dedup.index.entries", index, SignatureIndex::size)
+                    .description("Chunk signatures in the deduplication index")
+                    .register(meterRegistry);
+            Gauge.builder("ai.ingestion.dedup.index.bytes", index, SignatureIndex::sizeInBytes)
+                    .description("Approximate memory used by the deduplication index")
+                    .baseUnit("bytes")
+                    .register(meterRegistry);
+            logger.info("Chunk deduplication enabled: up to {} differing bits, chunks of {} tokens or more, {} entries",
+                    this.maxDistance, minTokens, maxEntries);
+        }
+    }
+
+    /**
+     * Runs an action with the embeddings it requests deduplicated, when deduplication is enabled.
+     */
+    public void run(Runnable action) {
+        if (!enabled) {
+            action.run();
+            return;
+        }
+        ACTIVE.set(this);
+        try {
+            action.run();
+        } finally {
+            ACTIVE.remove();
+        }
+    }
+
+    /**
+     * Forgets the embeddings indexed so far, when chunks are embedded with another model.
+     */
+    public void clear() {
+        if (enabled) {
+            index.clear();
+        }
+    }
+
+    /**
+     * Returns the deduplicator running on the current thread, or null outside of {@link #run(Runnable)}.
+     */
+    static ChunkDeduplicator active() {
+        return ACTIVE.get();
+    }
+
+    /**
+     * Embeds the texts of a request, sending to the model only those without a near duplicate.
+     *
+     * @param request Embedding request
+     * @param model   Model embedding the remaining texts
+     * @return Embeddings of all the texts, in the order of the request
+     */
+    EmbeddingResponse embed(EmbeddingRequest request, EmbeddingModel model) {
+        List<String> texts = request.getInstructions();
+        float[][] vectors = new float[texts.size()][];
+        long[] signatures = new long[texts.size()];
+        boolean[] signed = new boolean[texts.size()];
+        // Index of the text embedded for each text, for duplicates within the request
+        int[] sources = new int[texts.size()];
+        List<Integer> misses = new ArrayList<>();
+
+        for (int i = 0; i < texts.size(); i++) {
+            sources[i] = i;
+            String text = texts.get(i);
+            if (TextChunker.estimateTokens(text) < minTokens) {
+                misses.add(i);
+                continue;
+            }
+            signatures[i] = SimHash.of(text);
+            signed[i] = true;
+            vectors[i] = index.find(signatures[i], maxDistance);
+            if (vectors[i] == null) {
+                int source = findMiss(misses, signatures, signed, signatures[i]);
+                if (source < 0) {
+                    misses.add(i);
+                } else {
+                    sources[i] = source;
+                }
+            }
+        }
+
+        EmbeddingResponse response = null;
+        if (!misses.isEmpty()) {
+            List<String> missTexts = misses.stream().map(texts::get).toList();
+            response = model.call(new EmbeddingRequest(missTexts, request.getOptions()));
+            List<Embedding> results = response.getResults();
+            for (int j = 0; j < misses.size(); j++) {
+                int i = misses.get(j);
+                vectors[i] = results.get(j).getOutput();
+                if (signed[i]) {
+                    index.put(signatures[i], vectors[i]);
+                }
+            }
+        }
+
+        List<Embedding> embeddings = new ArrayList<>(texts.size());
+        for (int i = 0; i < texts.size(); i++) {
+            if (vectors[i] == null) {
+                vectors[i] = vectors[sources[i]];
+            }
+            embeddings.add(new Embedding(vectors[i], i));
+        }
+        embedded.increment(misses.size());
+        reused.increment(texts.size() - misses.size());
+        return response == null ? new EmbeddingResponse(embeddings)
+                : new EmbeddingResponse(embeddings, response.getMetadata());
+    }
+
+    /**
+     * Returns the first text of the request to be embedded that is a near duplicate of the signature,
+     * or -1 when there is none.
+     */
+    private int findMiss(List<Integer> misses, long[] signatures, boolean[] signed, long signature) {
+        for (int miss : misses) {
+            if (signed[miss] && SimHash.distance(signatures[miss], signature) <= maxDistance) {
+                return miss;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,45 @@
+package org.alfresco.ai_framework.embedding.dedup;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+/**
+ * Embedding model handing the requests made within {@link ChunkDeduplicator#run(Runnable)} to the
+ * deduplicator, and all other requests straight to the model it wraps.
+ *
+ * The vector stores embed chunks through {@link #call(EmbeddingRequest)}, including in their batched
+ * {@code embed} calls, so only this method is intercepted.
+ */
+public class DeduplicatingEmbeddingModel implements EmbeddingModel, AutoCloseable {
+
+    private final EmbeddingModel delegate;
+
+    public DeduplicatingEmbeddingModel(EmbeddingModel delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        ChunkDeduplicator deduplicator = ChunkDeduplicator.active();
+        return deduplicator == null ? delegate.call(request) : deduplicator.embed(request, delegate);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return delegate.embed(document);
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (delegate instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package org.alfresco.ai_framework.embedding.dedup;
+
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Wraps the embedding models in a {@link DeduplicatingEmbeddingModel} when {@code ingestion.dedup.enabled}
+ * is true, whichever backend provides them.
+ */
+@Configuration
+@ConditionalOnProperty(name = "ingestion.dedup.enabled", havingValue = "true")
+public class DeduplicationConfiguration {
+
+    @Bean
+    public static BeanPostProcessor deduplicatingEmbeddingModelPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof EmbeddingModel model && !(bean instanceof DeduplicatingEmbeddingModel)
+                        ? new DeduplicatingEmbeddingModel(model)
+                        : bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,127 @@
+package org.alfresco.ai_framework.embedding.dedup;
+
+import java.util.Arrays;
+
+/**
+ * Bounded in-memory index of chunk signatures and their embeddings, finding a signature within a
+ * Hamming distance of at most {@link #MAX_DISTANCE} bits.
+ *
+ * Signatures are split into {@link #BANDS} bands of 16 bits: two signatures differing in at most
+ * {@code BANDS - 1} bits share at least one band, so candidates are only looked up in the buckets of
+ * the bands of the signature. Buckets are linked lists threaded through arrays indexed by slot,
+ * which keeps the overhead to a few bytes per entry besides the embedding. When full, the oldest
+ * entry is replaced.
+ */
+public class SignatureIndex {
+
+    static final int BANDS = 4;
+    static final int MAX_DISTANCE = BANDS - 1;
+
+    private static final int BAND_BITS = Long.SIZE / BANDS;
+    private static final int BUCKETS = 1 << BAND_BITS;
+    private static final int NONE = -1;
+
+    private final int capacity;
+    private final long[] signatures;
+    private final float[][] embeddings;
+    private final int[][] heads = new int[BANDS][BUCKETS];
+    private final int[][] next;
+    private int size;
+    private int cursor;
+    private long embeddingBytes;
+
+    public SignatureIndex(int capacity) {
+        this.capacity = capacity;
+        this.signatures = new long[capacity];
+        this.embeddings = new float[capacity][];
+        this.next = new int[BANDS][capacity];
+        for (int[] band : heads) {
+            Arrays.fill(band, NONE);
+        }
+    }
+
+    /**
+     * Returns the embedding of an indexed signature within the distance, or null when there is none.
+     *
+     * @param signature   Signature to look up
+     * @param maxDistance Maximum number of differing bits, at most {@link #MAX_DISTANCE}
+     */
+    public synchronized float[] find(long signature, int maxDistance) {
+        for (int band = 0; band < BANDS; band++) {
+            for (int slot = heads[band][bucket(signature, band)]; slot != NONE; slot = next[band][slot]) {
+                if (SimHash.distance(signatures[slot], signature) <= maxDistance) {
+                    return embeddings[slot];
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Indexes the embedding of a signature, replacing the oldest entry when the index is full.
+     */
+    public synchronized void put(long signature, float[] embedding) {
+        int slot = cursor;
+        if (size == capacity) {
+            unlink(slot);
+            embeddingBytes -= (long) embeddings[slot].length * Float.BYTES;
+        } else {
+            size++;
+        }
+        signatures[slot] = signature;
+        embeddings[slot] = embedding;
+        embeddingBytes += (long) embedding.length * Float.BYTES;
+        for (int band = 0; band < BANDS; band++) {
+            int bucket = bucket(signature, band);
+            next[band][slot] = heads[band][bucket];
+            heads[band][bucket] = slot;
+        }
+        cursor = (cursor + 1) % capacity;
+    }
+
+    /**
+     * Removes all the entries.
+     */
+    public synchronized void clear() {
+        for (int[] band : heads) {
+            Arrays.fill(band, NONE);
+        }
+        Arrays.fill(embeddings, null);
+        size = 0;
+        cursor = 0;
+        embeddingBytes = 0;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Returns the approximate memory used by the index, embeddings included.
+     */
+    public synchronized long sizeInBytes() {
+        long arrays = (long) capacity * (Long.BYTES + Integer.BYTES * BANDS + Integer.BYTES)
+                + (long) BANDS * BUCKETS * Integer.BYTES;
+        return arrays + embeddingBytes;
+    }
+
+    private void unlink(int slot) {
+        for (int band = 0; band < BANDS; band++) {
+            int bucket = bucket(signatures[slot], band);
+            if (heads[band][bucket] == slot) {
+                heads[band][bucket] = next[band][slot];
+                continue;
+            }
+            for (int previous = heads[band][bucket]; previous != NONE; previous = next[band][previous]) {
+                if (next[band][previous] == slot) {
+                    next[band][previous] = next[band][slot];
+                    break;
+                }
+            }
+        }
+    }
+
+    private static int bucket(long signature, int band) {
+        return (int) (signature >>> (band * BAND_BITS)) & (BUCKETS - 1);
+    }
+}
@@ -0,0 +1,94 @@
+package org.alfresco.ai_framework.embedding.dedup;
+
+/**
+ * 64-bit SimHash of a text over its word shingles, so that texts sharing most of their shingles
+ * have signatures differing in a few bits only.
+ *
+ * Words are runs of letters and digits, lower-cased; each shingle of {@link #SHINGLE_WORDS}
+ * consecutive words votes for the bits of its hash. Texts with fewer words use their words alone.
+ */
+public final class SimHash {
+
+    static final int SHINGLE_WORDS = 3;
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private SimHash() {
+    }
+
+    /**
+     * Returns the signature of a text, 0 when it has no words.
+     */
+    public static long of(CharSequence text) {
+        int[] votes = new int[Long.SIZE];
+        long[] window = new long[SHINGLE_WORDS];
+        int words = 0;
+        long hash = FNV_OFFSET;
+        boolean inWord = false;
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                hash = (hash ^ Character.toLowerCase(c)) * FNV_PRIME;
+                inWord = true;
+            } else if (inWord) {
+                window[words % SHINGLE_WORDS] = hash;
+                words++;
+                if (words >= SHINGLE_WORDS) {
+                    vote(votes, shingle(window, words));
+                }
+                hash = FNV_OFFSET;
+                inWord = false;
+            }
+        }
+        if (words < SHINGLE_WORDS) {
+            for (int i = 0; i < words; i++) {
+                vote(votes, mix(window[i]));
+            }
+        }
+
+        long signature = 0;
+        for (int bit = 0; bit < Long.SIZE; bit++) {
+            if (votes[bit] > 0) {
+                signature |= 1L << bit;
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * Returns the number of bits differing between two signatures.
+     */
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+    /**
+     * Hashes the last {@link #SHINGLE_WORDS} words, in order.
+     */
+    private static long shingle(long[] window, int words) {
+        long hash = 0;
+        for (int i = words - SHINGLE_WORDS; i < words; i++) {
+            hash = Long.rotateLeft(hash, 21) ^ window[i % SHINGLE_WORDS];
+        }
+        return mix(hash);
+    }
+
+    private static void vote(int[] votes, long hash) {
+        for (int bit = 0; bit < Long.SIZE; bit++) {
+            votes[bit] += ((hash >>> bit) & 1) != 0 ? 1 : -1;
+        }
+    }
+
+    /**
+     * Finalizer of MurmurHash3, spreading the FNV hashes over all bits.
+     */
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,297 @@
+package org.alfresco.ai_framework.index;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.alfresco.ai_framework.index.embedded.EmbeddedVectorStore;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.RestClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Writes chunks to the vector store in bulk requests sized by bytes, and manages the bulk-load mode
+ * of the document index. While bulk-load mode is on, refresh is disabled and replicas are dropped so
+ * that an initial sync does not pay for them on every bulk request; turning it off restores the
+ * previous settings and forces a refresh.
+ *
+ * Bulk requests only split the chunks of one document: chunks of different documents are not
+ * combined, since an ingestion returns once its document is written and a later delete must not race
+ * with buffered chunks. Most documents fit in a single request either way, so what bulk-load mode
+ * saves comes from the refresh and replica settings, not from the larger bulk size.
+ *
+ * With the embedded vector store there are no index settings to relax: bulk-load mode only switches
+ * to the larger bulk size, and turning it off commits the buffered chunks.
+ *
+ * Bulk-load mode is held by requesters, such as the replicas of the sync service running an initial
+ * sync: it is turned on by the first one and off once the last one releases it. Remote requesters hold
+ * it for a renewable lease, so that a replica dying during its sync does not leave it on for good.
+ */
+@Service
+public class BulkIndexer implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkIndexer.class);
+
+    private static final String REFRESH_INTERVAL = "index.refresh_interval";
+    private static final String NUMBER_OF_REPLICAS = "index.number_of_replicas";
+    // Approximate JSON size of one vector component, e.g. "-0.012345678,"
+    private static final int BYTES_PER_DIMENSION = 13;
+
+    private final VectorStore vectorStore;
+    private final ObjectProvider<RestClient> restClient;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final String indexName;
+    private final int dimensions;
+    private final DataSize maxBulkSize;
+    private final DataSize bulkLoadMaxBulkSize;
+
+    private final AtomicBoolean bulkMode = new AtomicBoolean(false);
+    private final Map<String, String> savedSettings = new LinkedHashMap<>();
+    // Requesters holding bulk-load mode and the end of their lease, guarded by this
+    private final Map<String, Instant> holders = new HashMap<>();
+    private final ScheduledExecutorService leaseExecutor;
+
+    public BulkIndexer(VectorStore vectorStore,
+                       ObjectProvider<RestClient> restClient,
+                       ObjectMapper objectMapper,
+                       MeterRegistry meterRegistry,
+                       @Value("${spring.ai.vectorstore.elasticsearch.index-name}") String indexName,
+                       @Value("${spring.ai.vectorstore.elasticsearch.dimensions}") int dimensions,
+                       @Value("${index.bulk.max-size:5MB}") DataSize maxBulkSize,
+                       @Value("${index.bulk.bulk-load-max-size:20MB}") DataSize bulkLoadMaxBulkSize) {
+        this.vectorStore = vectorStore;
+        this.restClient = restClient;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.indexName = indexName;
+        this.dimensions = dimensions;
+        this.maxBulkSize = maxBulkSize;
+        this.bulkLoadMaxBulkSize = bulkLoadMaxBulkSize;
+        meterRegistry.gauge("ai.index.bulk.mode", Tags.of("index", indexName), bulkMode, mode -> mode.get() ? 1 : 0);
+        this.leaseExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "index-bulk-lease");
+            thread.setDaemon(true);
+            return thread;
+        });
+        leaseExecutor.scheduleWithFixedDelay(this::expireLeases, 1, 1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Adds documents to the vector store, splitting them into bulk requests bounded by bytes.
+     */
+    public void add(List<Document> documents) {
+        String mode = bulkMode.get() ? "bulk-load" : "normal";
+        long maxBytes = (bulkMode.get() ? bulkLoadMaxBulkSize : maxBulkSize).toBytes();
+
+        List<Document> batch = new ArrayList<>();
+        long batchBytes = 0;
+        for (Document doc : documents) {
+            long docBytes = estimateBytes(doc);
+            if (!batch.isEmpty() && batchBytes + docBytes > maxBytes) {
+                write(batch, batchBytes, mode);
+                batch = new ArrayList<>();
+                batchBytes = 0;
+            }
+            batch.add(doc);
+            batchBytes += docBytes;
+        }
+        if (!batch.isEmpty()) {
+            write(batch, batchBytes, mode);
+        }
+    }
+
+    public boolean isBulkMode() {
+        return bulkMode.get();
+    }
+
+    /**
+     * Holds bulk-load mode for a requester, turning it on if nobody held it. Holding it again renews the lease.
+     *
+     * @param requester Name of the requester, released with {@link #disableBulkMode(String)}
+     * @param lease     Time after which the requester no longer holds bulk-load mode, null to hold it until released
+     */
+    public synchronized void enableBulkMode(String requester, Duration lease) throws IOException {
+        if (!bulkMode.get()) {
+            applyBulkMode();
+        }
+        holders.put(requester, lease == null ? Instant.MAX : Instant.now().plus(lease));
+        logger.info("Bulk-load mode held by {} on index {} (holders: {})", requester, indexName, holders.keySet());
+    }
+
+    /**
+     * Releases bulk-load mode for a requester, turning it off once no other requester holds it.
+     */
+    public synchronized void disableBulkMode(String requester) throws IOException {
+        holders.remove(requester);
+        if (!holders.isEmpty()) {
+            logger.info("Bulk-load mode released by {}, still held on index {} by {}", requester, indexName, holders.keySet());
+            return;
+        }
+        restoreSettings();
+    }
+
+    @Override
+    public void destroy() {
+        leaseExecutor.shutdownNow();
+    }
+
+    /**
+     * Drops the requesters whose lease ended, turning bulk-load mode off when none is left.
+     */
+    private synchronized void expireLeases() {
+        Instant now = Instant.now();
+        boolean expired = holders.entrySet().removeIf(holder -> {
+            if (holder.getValue().isBefore(now)) {
+                logger.warn("Bulk-load mode lease of {} expired on index {}", holder.getKey(), indexName);
+                return true;
+            }
+            return false;
+        });
+        if (expired && holders.isEmpty()) {
+            try {
+                restoreSettings();
+            } catch (IOException | RuntimeException e) {
+                logger.error("Failed to turn off bulk-load mode of index {}", indexName, e);
+            }
+        }
+    }
+
+    /**
+     * Relaxes refresh interval and replicas on the document index, remembering the current values.
+     */
+    private void applyBulkMode() throws IOException {
+        if (vectorStore instanceof EmbeddedVectorStore) {
+            bulkMode.set(true);
+            logger.info("Bulk-load mode enabled for the embedded vector store");
+            return;
+        }
+
+        JsonNode settings = getSettings();
+        savedSettings.clear();
+        // A refresh interval of -1 means a previous bulk load was interrupted: restore defaults later
+        if (!"-1".equals(settings.path(REFRESH_INTERVAL).asText())) {
+            savedSettings.put(REFRESH_INTERVAL, settings.path(REFRESH_INTERVAL).asText(null));
+            savedSettings.put(NUMBER_OF_REPLICAS, settings.path(NUMBER_OF_REPLICAS).asText(null));
+        }
+
+        putSettings(Map.of(REFRESH_INTERVAL, "-1", NUMBER_OF_REPLICAS, "0"));
+        bulkMode.set(true);
+        logger.info("Bulk-load mode enabled for index {} (saved settings: {})", indexName, savedSettings);
+    }
+
+    /**
+     * Restores the settings saved when bulk-load mode was enabled and refreshes the index. When bulk-load
+     * mode is off, only settings left by an interrupted bulk load (refresh disabled) are reset to the
+     * defaults; otherwise the index is left as it is.
+     */
+    private void restoreSettings() throws IOException {
+        if (!bulkMode.get()) {
+            if (!(vectorStore instanceof EmbeddedVectorStore)
+                    && "-1".equals(getSettings().path(REFRESH_INTERVAL).asText())) {
+                Map<String, String> defaults = new LinkedHashMap<>();
+                defaults.put(REFRESH_INTERVAL, null);
+                defaults.put(NUMBER_OF_REPLICAS, null);
+                putSettings(defaults);
+                restClient.getObject().performRequest(new Request("POST", "/" + indexName + "/_refresh"));
+                logger.info("Reset settings left by an interrupted bulk load on index {}", indexName);
+            } else {
+                logger.info("Bulk-load mode already disabled for index {}", indexName);
+            }
+            return;
+        }
+        if (vectorStore instanceof EmbeddedVectorStore embeddedVectorStore) {
+            embeddedVectorStore.commit();
+            bulkMode.set(false);
+            logger.info("Bulk-load mode disabled for the embedded vector store");
+            return;
+        }
+        Map<String, String> restored = new LinkedHashMap<>();
+        restored.put(REFRESH_INTERVAL, savedSettings.get(REFRESH_INTERVAL));
+        restored.put(NUMBER_OF_REPLICAS, savedSettings.get(NUMBER_OF_REPLICAS));
+        putSettings(restored);
+
+        restClient.getObject().performRequest(new Request("POST", "/" + indexName + "/_refresh"));
+        bulkMode.set(false);
+        savedSettings.clear();
+        logger.info("Bulk-load mode disabled for index {} (restored settings: {})", indexName, restored);
+    }
+
+    private void write(List<Document> batch, long batchBytes, String mode) {
+        Timer.builder("ai.index.bulk")
+                .description("Duration of bulk writes to the document index")
+                .tags("index", indexName, "mode", mode)
+                .register(meterRegistry)
+                .record(() -> vectorStore.add(batch));
+
+        Counter.builder("ai.index.documents")
+                .description("Chunks written to the document index")
+                .tags("index", indexName, "mode", mode)
+                .register(meterRegistry)
+                .increment(batch.size());
+        Counter.builder("ai.index.bytes")
+                .description("Estimated bytes written to the document index")
+                .baseUnit("bytes")
+                .tags("index", indexName, "mode", mode)
+                .register(meterRegistry)
+                .increment(batchBytes);
+
+        logger.debug("Indexed bulk of {} chunks (~{} bytes) in {} mode", batch.size(), batchBytes, mode);
+    }
+
+    private long estimateBytes(Document doc) {
+        long textBytes = doc.getText() == null ? 0 : doc.getText().length();
+        return textBytes + doc.getMetadata().toString().length() + (long) dimensions * BYTES_PER_DIMENSION;
+    }
+
+    /**
+     * Returns the flat settings of the index, resolving aliases to the concrete index.
+     */
+    private JsonNode getSettings() throws IOException {
+        Request request = new Request("GET", "/" + indexName + "/_settings");
+        request.addParameter("flat_settings", "true");
+        Response response = restClient.getObject().performRequest(request);
+        JsonNode body = objectMapper.readTree(response.getEntity().getContent());
+        if (!body.fields().hasNext()) {
+            throw new IllegalStateException("Index not found: " + indexName);
+        }
+        return body.fields().next().getValue().path("settings");
+    }
+
+    private void putSettings(Map<String, String> settings) throws IOException {
+        Request request = new Request("PUT", "/" + indexName + "/_settings");
+        try {
+            // Null values reset a setting to its default
+            request.setJsonEntity(objectMapper.writeValueAsString(settings));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+        restClient.getObject().performRequest(request);
+    }
+}
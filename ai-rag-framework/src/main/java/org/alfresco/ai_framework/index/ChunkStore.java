@@ -0,0 +1,68 @@
+package org.alfresco.ai_framework.index;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads and writes the chunks of the document index together with their embeddings, without going
+ * through the embedding model, so that an index can be copied to another environment.
+ */
+public interface ChunkStore {
+
+    /**
+     * Chunk as stored in the index.
+     *
+     * @param id        Chunk ID
+     * @param content   Chunk text
+     * @param metadata  Chunk metadata, including {@code documentId} and {@code folderId}
+     * @param embedding Embedding of the chunk
+     */
+    record StoredChunk(String id, String content, Map<String, Object> metadata, float[] embedding) {
+    }
+
+    /**
+     * Receives the chunks read from the store, one page at a time.
+     */
+    @FunctionalInterface
+    interface PageConsumer {
+
+        void accept(List<StoredChunk> page) throws IOException;
+    }
+
+    /**
+     * Returns the dimensions of the embeddings of the store.
+     */
+    int dimensions() throws IOException;
+
+    /**
+     * Returns the number of chunks in the store.
+     */
+    long count() throws IOException;
+
+    /**
+     * Reads every chunk of the store.
+     *
+     * @param pageSize Maximum number of chunks per page
+     * @param consumer Consumer of the pages, called from the calling thread
+     */
+    void read(int pageSize, PageConsumer consumer) throws IOException;
+
+    /**
+     * Writes chunks with their embeddings, replacing chunks with the same IDs. Safe to call from several threads.
+     */
+    void write(List<StoredChunk> chunks) throws IOException;
+
+    /**
+     * Deletes every chunk whose metadata field has the given value, however many chunks match.
+     *
+     * @param key   Metadata field, {@code documentId} or {@code folderId}
+     * @param value Identifier of the document or folder
+     */
+    void delete(String key, String value) throws IOException;
+
+    /**
+     * Makes the chunks written so far durable and searchable.
+     */
+    void commit() throws IOException;
+}
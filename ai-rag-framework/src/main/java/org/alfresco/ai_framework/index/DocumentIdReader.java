@@ -0,0 +1,28 @@
+package org.alfresco.ai_framework.index;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Pages through the distinct document IDs indexed for a folder, in ascending order.
+ */
+public interface DocumentIdReader {
+
+    /**
+     * Returns a page of document IDs of a folder.
+     *
+     * @param folderId Folder whose documents are listed
+     * @param after    Last document ID of the previous page, or null for the first page
+     * @param size     Maximum number of IDs in the page
+     */
+    DocumentIdPage read(String folderId, String after, int size) throws IOException;
+
+    /**
+     * Page of document IDs.
+     *
+     * @param documentIds Document IDs in ascending order
+     * @param after       Value to request the next page with, or null if this is the last page
+     */
+    record DocumentIdPage(List<String> documentIds, String after) {
+    }
+}
@@ -0,0 +1,188 @@
+package org.alfresco.ai_framework.index;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.alfresco.ai_framework.embedding.EmbeddingModelOverride;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.RestClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Creates the document index with an explicit mapping instead of relying on the Spring AI schema
+ * initialization, so that the dense vector quantization and the HNSW graph parameters can be configured.
+ *
+ * Supported vector types are {@code hnsw} (float32), {@code int8_hnsw}, {@code int4_hnsw} and
+ * {@code bbq_hnsw}. Changing them for an existing index requires a reindex.
+ *
+ * The index is checked at startup, or by {@link org.alfresco.ai_framework.startup.StartupWarmUp} when
+ * {@code startup.warm-up} is {@code background}. When the index was built by a {@link ReindexJob} with
+ * another embedding model, that model is used instead of the configured one.
+ */
+@Component
+@ConditionalOnProperty(name = "index.store", havingValue = "elasticsearch", matchIfMissing = true)
+public class DocumentIndexManager implements InitializingBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(DocumentIndexManager.class);
+
+    private final RestClient restClient;
+    private final ObjectMapper objectMapper;
+    private final EmbeddingModelOverride embeddingModelOverride;
+    private final String indexName;
+    private final int dimensions;
+    private final String similarity;
+    private final String vectorType;
+    private final int m;
+    private final int efConstruction;
+    private final boolean deferred;
+    private final boolean ollamaEmbedding;
+
+    public DocumentIndexManager(RestClient restClient,
+                                ObjectMapper objectMapper,
+                                EmbeddingModelOverride embeddingModelOverride,
+                                @Value("${spring.ai.vectorstore.elasticsearch.index-name}") String indexName,
+                                @Value("${spring.ai.vectorstore.elasticsearch.dimensions}") int dimensions,
+                                @Value("${spring.ai.vectorstore.elasticsearch.similarity:cosine}") String similarity,
+                                @Value("${index.mapping.vector-type:hnsw}") String vectorType,
+                                @Value("${index.mapping.m:16}") int m,
+                                @Value("${index.mapping.ef-construction:100}") int efConstruction,
+                                @Value("${startup.warm-up:blocking}") String warmUp,
+                                @Value("${embedding.backend:ollama}") String embeddingBackend) {
+        this.restClient = restClient;
+        this.objectMapper = objectMapper;
+        this.embeddingModelOverride = embeddingModelOverride;
+        this.indexName = indexName;
+        this.dimensions = dimensions;
+        this.similarity = similarity;
+        this.vectorType = vectorType;
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.deferred = "background".equals(warmUp);
+        this.ollamaEmbedding = "ollama".equals(embeddingBackend);
+    }
+
+    @Override
+    public void afterPropertiesSet() throws IOException {
+        if (deferred) {
+            logger.info("Check of document index {} deferred to the background warm-up", indexName);
+        } else {
+            ensureIndex();
+        }
+    }
+
+    /**
+     * Creates the document index unless it already exists, and applies the embedding model it was built with.
+     */
+    public void ensureIndex() throws IOException {
+        if (exists(indexName)) {
+            logger.info("Document index {} already exists, keeping its mapping", indexName);
+            restoreEmbeddingModel();
+        } else {
+            createIndex(indexName, dimensions);
+        }
+    }
+
+    /**
+     * Uses the embedding model recorded in the index metadata by a reindex, if any.
+     */
+    private void restoreEmbeddingModel() throws IOException {
+        JsonNode model = getMeta(indexName).path(ReindexJob.META_EMBEDDING);
+        if (!model.hasNonNull("model")) {
+            return;
+        }
+        if (!ollamaEmbedding) {
+            logger.warn("Index {} was embedded with {}, which is ignored by the configured embedding backend",
+                    indexName, model.path("model").asText());
+            return;
+        }
+        embeddingModelOverride.set(new EmbeddingModelOverride.Model(
+                model.path("model").asText(), model.path("dimensions").asInt()));
+        logger.info("Index {} was embedded with {}, using it instead of the configured model",
+                indexName, model.path("model").asText());
+    }
+
+    /**
+     * Returns the {@code _meta} of the mapping of an index, resolving aliases to the concrete index.
+     */
+    public JsonNode getMeta(String name) throws IOException {
+        Response response = restClient.performRequest(new Request("GET", "/" + name + "/_mapping"));
+        JsonNode body = objectMapper.readTree(response.getEntity().getContent());
+        return body.fields().hasNext()
+                ? body.fields().next().getValue().path("mappings").path("_meta")
+                : objectMapper.missingNode();
+    }
+
+    /**
+     * Replaces the {@code _meta} of the mapping of an index.
+     */
+    public void putMeta(String name, Map<String, Object> meta) throws IOException {
+        Request request = new Request("PUT", "/" + name + "/_mapping");
+        request.setJsonEntity(toJson(Map.of("_meta", meta)));
+        restClient.performRequest(request);
+    }
+
+    public boolean exists(String name) throws IOException {
+        Response response = restClient.performRequest(new Request("HEAD", "/" + name));
+        return response.getStatusLine().getStatusCode() == 200;
+    }
+
+    /**
+     * Creates an index with the document mapping and the configured vector index options.
+     */
+    public void createIndex(String name, int vectorDimensions) throws IOException {
+        Request request = new Request("PUT", "/" + name);
+        request.setJsonEntity(toJson(Map.of("mappings", mapping(vectorDimensions))));
+        restClient.performRequest(request);
+        logger.info("Created index {} with {} vectors of {} dimensions (m: {}, ef_construction: {})",
+                name, vectorType, vectorDimensions, m, efConstruction);
+    }
+
+    /**
+     * Builds the document mapping. Text fields used as identifiers keep the keyword sub-field that
+     * dynamic mapping would create, so queries work the same on indexes created by older versions.
+     */
+    Map<String, Object> mapping(int vectorDimensions) {
+        Map<String, Object> indexOptions = new LinkedHashMap<>();
+        indexOptions.put("type", vectorType);
+        indexOptions.put("m", m);
+        indexOptions.put("ef_construction", efConstruction);
+
+        Map<String, Object> embedding = new LinkedHashMap<>();
+        embedding.put("type", "dense_vector");
+        embedding.put("dims", vectorDimensions);
+        embedding.put("index", true);
+        embedding.put("similarity", similarity);
+        embedding.put("index_options", indexOptions);
+
+        return Map.of("properties", Map.of(
+                "id", keywordText(),
+                "content", Map.of("type", "text"),
+                "embedding", embedding,
+                "metadata", Map.of("properties", Map.of(
+                        "documentId", keywordText(),
+                        "folderId", keywordText()))));
+    }
+
+    private static Map<String, Object> keywordText() {
+        return Map.of("type", "text", "fields", Map.of("keyword", Map.of("type", "keyword", "ignore_above", 256)));
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
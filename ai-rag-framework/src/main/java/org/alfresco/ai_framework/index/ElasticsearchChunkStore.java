@@ -0,0 +1,121 @@
+package org.alfresco.ai_framework.index;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.RestClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the chunks of the Elasticsearch document index from a point in time in chunk ID order, and
+ * writes chunks with bulk requests in the document format of the Spring AI vector store.
+ */
+@Component
+@ConditionalOnProperty(name = "index.store", havingValue = "elasticsearch", matchIfMissing = true)
+public class ElasticsearchChunkStore implements ChunkStore {
+
+    private static final TypeReference<Map<String, Object>> METADATA_TYPE = new TypeReference<>() {
+    };
+
+    private final RestClient restClient;
+    private final ObjectMapper objectMapper;
+    private final ElasticsearchChunks chunks;
+    private final String indexName;
+
+    public ElasticsearchChunkStore(RestClient restClient,
+                                   ObjectMapper objectMapper,
+                                   @Value("${spring.ai.vectorstore.elasticsearch.index-name}") String indexName) {
+        this.restClient = restClient;
+        this.objectMapper = objectMapper;
+        this.chunks = new ElasticsearchChunks(restClient, objectMapper);
+        this.indexName = indexName;
+    }
+
+    @Override
+    public int dimensions() throws IOException {
+        JsonNode mappings = read(new Request("GET", "/" + indexName + "/_mapping"));
+        if (!mappings.fields().hasNext()) {
+            throw new IllegalStateException("Index not found: " + indexName);
+        }
+        return mappings.fields().next().getValue()
+                .path("mappings").path("properties").path("embedding").path("dims").asInt();
+    }
+
+    @Override
+    public long count() throws IOException {
+        return read(new Request("GET", "/" + indexName + "/_count")).path("count").asLong();
+    }
+
+    @Override
+    public void read(int pageSize, PageConsumer consumer) throws IOException {
+        try {
+            chunks.read(indexName, null, pageSize, true, null, (hits, pit) -> {
+                List<StoredChunk> page = new ArrayList<>(hits.size());
+                for (JsonNode hit : hits) {
+                    page.add(toChunk(hit));
+                }
+                consumer.accept(page);
+                return true;
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading index " + indexName);
+        }
+    }
+
+    @Override
+    public void write(List<StoredChunk> chunks) throws IOException {
+        Map<String, Object> documents = new LinkedHashMap<>();
+        for (StoredChunk chunk : chunks) {
+            Map<String, Object> document = new LinkedHashMap<>();
+            document.put("id", chunk.id());
+            document.put("content", chunk.content());
+            document.put("metadata", chunk.metadata());
+            document.put("embedding", chunk.embedding());
+            documents.put(chunk.id(), document);
+        }
+        this.chunks.bulk(indexName, documents);
+    }
+
+    @Override
+    public void delete(String key, String value) throws IOException {
+        Request request = new Request("POST", "/" + indexName + "/_delete_by_query");
+        request.addParameter("conflicts", "proceed");
+        request.setJsonEntity(objectMapper.writeValueAsString(
+                Map.of("query", Map.of("term", Map.of("metadata." + key + ".keyword", value)))));
+        restClient.performRequest(request);
+    }
+
+    @Override
+    public void commit() throws IOException {
+        restClient.performRequest(new Request("POST", "/" + indexName + "/_refresh"));
+    }
+
+    private StoredChunk toChunk(JsonNode hit) {
+        JsonNode source = hit.path("_source");
+        JsonNode vector = source.path("embedding");
+        float[] embedding = new float[vector.size()];
+        for (int i = 0; i < embedding.length; i++) {
+            embedding[i] = (float) vector.get(i).asDouble();
+        }
+        Map<String, Object> metadata = objectMapper.convertValue(source.path("metadata"), METADATA_TYPE);
+        return new StoredChunk(hit.path("_id").asText(), source.path("content").asText(""),
+                metadata == null ? Map.of() : metadata, embedding);
+    }
+
+    private JsonNode read(Request request) throws IOException {
+        Response response = restClient.performRequest(request);
+        return objectMapper.readTree(response.getEntity().getContent());
+    }
+}
@@ -0,0 +1,161 @@
+package org.alfresco.ai_framework.index;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.RestClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the chunks of an Elasticsearch index from a point in time in chunk ID order, and writes chunks
+ * with bulk requests. Shared by {@link ElasticsearchChunkStore} and {@link ReindexJob}.
+ */
+final class ElasticsearchChunks {
+
+    private static final Logger logger = LoggerFactory.getLogger(ElasticsearchChunks.class);
+
+    private static final String SORT_FIELD = "id.keyword";
+    private static final String KEEP_ALIVE = "5m";
+
+    /**
+     * Receives the hits read from a point in time, one page at a time.
+     */
+    @FunctionalInterface
+    interface PageHandler {
+
+        /**
+         * @param hits Hits of the page, never empty
+         * @param pit  Point in time being read, to keep alive while the page takes long to handle
+         * @return false to stop reading
+         */
+        boolean accept(JsonNode hits, PointInTime pit) throws IOException, InterruptedException;
+    }
+
+    /**
+     * Point in time being read, extended by every search.
+     */
+    final class PointInTime {
+
+        private String id;
+
+        private PointInTime(String id) {
+            this.id = id;
+        }
+
+        /**
+         * Extends the point in time with an empty search, during long waits between pages.
+         */
+        void keepAlive() throws IOException {
+            Request request = new Request("POST", "/_search");
+            request.setJsonEntity(objectMapper.writeValueAsString(Map.of("size", 0, "track_total_hits", false,
+                    "pit", Map.of("id", id, "keep_alive", KEEP_ALIVE))));
+            id = read(request).path("pit_id").asText(id);
+        }
+    }
+
+    private final RestClient restClient;
+    private final ObjectMapper objectMapper;
+
+    ElasticsearchChunks(RestClient restClient, ObjectMapper objectMapper) {
+        this.restClient = restClient;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Reads the chunks of an index matching a query from a point in time, in chunk ID order.
+     *
+     * @param index      Index to read
+     * @param query      Query the chunks match, or null for all of them
+     * @param pageSize   Maximum number of chunks per page
+     * @param embeddings Whether the hits include the embeddings
+     * @param after      Chunk ID to start after, or null to start from the first one
+     * @param handler    Handler of the pages, called from the calling thread
+     */
+    void read(String index, Map<String, Object> query, int pageSize, boolean embeddings, String after,
+              PageHandler handler) throws IOException, InterruptedException {
+        PointInTime pit = new PointInTime(read(new Request("POST", "/" + index + "/_pit?keep_alive=" + KEEP_ALIVE))
+                .path("id").asText());
+        try {
+            while (true) {
+                Map<String, Object> body = new LinkedHashMap<>();
+                body.put("size", pageSize);
+                body.put("pit", Map.of("id", pit.id, "keep_alive", KEEP_ALIVE));
+                if (query != null) {
+                    body.put("query", query);
+                }
+                body.put("sort", List.of(Map.of(SORT_FIELD, "asc")));
+                body.put("track_total_hits", false);
+                if (!embeddings) {
+                    body.put("_source", Map.of("excludes", List.of("embedding")));
+                }
+                if (after != null) {
+                    body.put("search_after", List.of(after));
+                }
+                Request request = new Request("POST", "/_search");
+                request.setJsonEntity(objectMapper.writeValueAsString(body));
+                JsonNode response = read(request);
+                pit.id = response.path("pit_id").asText(pit.id);
+
+                JsonNode hits = response.path("hits").path("hits");
+                if (hits.isEmpty() || !handler.accept(hits, pit)) {
+                    return;
+                }
+                after = hits.get(hits.size() - 1).path("sort").path(0).asText();
+            }
+        } finally {
+            close(pit);
+        }
+    }
+
+    /**
+     * Writes chunks to an index, replacing chunks with the same IDs.
+     *
+     * @param documents Source of the chunks, by chunk ID
+     * @throws IOException if a chunk could not be written
+     */
+    void bulk(String index, Map<String, ?> documents) throws IOException {
+        if (documents.isEmpty()) {
+            return;
+        }
+        StringBuilder body = new StringBuilder();
+        for (Map.Entry<String, ?> document : documents.entrySet()) {
+            body.append(objectMapper.writeValueAsString(Map.of("index", Map.of("_index", index, "_id", document.getKey()))))
+                    .append('\n')
+                    .append(objectMapper.writeValueAsString(document.getValue()))
+                    .append('\n');
+        }
+        Request request = new Request("POST", "/_bulk");
+        request.setJsonEntity(body.toString());
+        JsonNode response = read(request);
+        if (response.path("errors").asBoolean()) {
+            for (JsonNode item : response.path("items")) {
+                JsonNode error = item.path("index").path("error");
+                if (!error.isMissingNode()) {
+                    throw new IOException("Bulk write to " + index + " failed: " + error.path("reason").asText());
+                }
+            }
+        }
+    }
+
+    private void close(PointInTime pit) {
+        try {
+            Request request = new Request("DELETE", "/_pit");
+            request.setJsonEntity(objectMapper.writeValueAsString(Map.of("id", pit.id)));
+            restClient.performRequest(request);
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Could not close point in time: {}", e.getMessage());
+        }
+    }
+
+    private JsonNode read(Request request) throws IOException {
+        Response response = restClient.performRequest(request);
+        return objectMapper.readTree(response.getEntity().getContent());
+    }
+}
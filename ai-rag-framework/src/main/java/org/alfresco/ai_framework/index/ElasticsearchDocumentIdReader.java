@@ -0,0 +1,65 @@
+package org.alfresco.ai_framework.index;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.RestClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the document IDs of a folder from Elasticsearch, in ascending order, with a composite
+ * aggregation. Memory use is bounded by the page size whatever the number of chunks in the folder.
+ */
+@Component
+@ConditionalOnProperty(name = "index.store", havingValue = "elasticsearch", matchIfMissing = true)
+public class ElasticsearchDocumentIdReader implements DocumentIdReader {
+
+    private static final String DOCUMENT_ID_FIELD = "metadata.documentId.keyword";
+    private static final String FOLDER_ID_FIELD = "metadata.folderId.keyword";
+
+    private final RestClient restClient;
+    private final ObjectMapper objectMapper;
+    private final String indexName;
+
+    public ElasticsearchDocumentIdReader(RestClient restClient,
+                                         ObjectMapper objectMapper,
+                                         @Value("${spring.ai.vectorstore.elasticsearch.index-name}") String indexName) {
+        this.restClient = restClient;
+        this.objectMapper = objectMapper;
+        this.indexName = indexName;
+    }
+
+    @Override
+    public DocumentIdPage read(String folderId, String after, int size) throws IOException {
+        Map<String, Object> composite = new LinkedHashMap<>();
+        composite.put("size", size);
+        composite.put("sources", List.of(Map.of("documentId", Map.of("terms", Map.of("field", DOCUMENT_ID_FIELD)))));
+        if (after != null) {
+            composite.put("after", Map.of("documentId", after));
+        }
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("size", 0);
+        body.put("query", Map.of("term", Map.of(FOLDER_ID_FIELD, folderId)));
+        body.put("aggs", Map.of("ids", Map.of("composite", composite)));
+
+        Request request = new Request("POST", "/" + indexName + "/_search");
+        request.setJsonEntity(objectMapper.writeValueAsString(body));
+        Response response = restClient.performRequest(request);
+
+        JsonNode ids = objectMapper.readTree(response.getEntity().getContent()).path("aggregations").path("ids");
+        List<String> documentIds = new ArrayList<>();
+        ids.path("buckets").forEach(bucket -> documentIds.add(bucket.path("key").path("documentId").asText()));
+        String next = documentIds.size() < size ? null : ids.path("after_key").path("documentId").asText(null);
+        return new DocumentIdPage(documentIds, next);
+    }
+}
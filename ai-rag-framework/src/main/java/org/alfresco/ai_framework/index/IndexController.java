@@ -0,0 +1,85 @@
+package org.alfresco.ai_framework.index;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * REST controller for maintenance operations on the document index.
+ */
+@RestController
+public class IndexController {
+
+    private static final Logger logger = LoggerFactory.getLogger(IndexController.class);
+
+    private final BulkIndexer bulkIndexer;
+    private final DocumentIdReader documentIdReader;
+    private final Duration bulkModeLease;
+
+    public IndexController(BulkIndexer bulkIndexer, DocumentIdReader documentIdReader,
+                           @Value("${index.bulk.lease:10m}") Duration bulkModeLease) {
+        this.bulkIndexer = bulkIndexer;
+        this.documentIdReader = documentIdReader;
+        this.bulkModeLease = bulkModeLease;
+    }
+
+    /**
+     * Returns whether bulk-load mode is enabled.
+     */
+    @GetMapping("/index/bulk-mode")
+    public ResponseEntity<String> getBulkMode() {
+        return ResponseEntity.ok(String.valueOf(bulkIndexer.isBulkMode()));
+    }
+
+    /**
+     * Holds or releases bulk-load mode for a requester. Bulk-load mode is on while any requester holds it,
+     * each one for a lease renewed by holding it again; once the last one releases it, index settings are
+     * restored and a refresh is forced.
+     */
+    @PutMapping("/index/bulk-mode")
+    public ResponseEntity<String> setBulkMode(@RequestParam("enabled") boolean enabled,
+                                              @RequestParam(value = "requester", defaultValue = "default") String requester) {
+        try {
+            if (enabled) {
+                bulkIndexer.enableBulkMode(requester, bulkModeLease);
+            } else {
+                bulkIndexer.disableBulkMode(requester);
+            }
+            return ResponseEntity.ok("Bulk-load mode " + (enabled ? "enabled" : "disabled"));
+        } catch (IOException | RuntimeException e) {
+            return handleException("Failed to change bulk-load mode: ", e, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Lists the IDs of the documents indexed for a folder, one page at a time, in ascending order.
+     * Pass the {@code after} value of a page to get the next one.
+     */
+    @GetMapping("/folders/documents")
+    public ResponseEntity<?> getDocumentIds(@RequestParam("folderId") String folderId,
+                                            @RequestParam(value = "after", required = false) String after,
+                                            @RequestParam(value = "size", defaultValue = "1000") int size) {
+        try {
+            return ResponseEntity.ok(documentIdReader.read(folderId, after, size));
+        } catch (IOException | RuntimeException e) {
+            return handleException("Failed to list documents of folder: ", e, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Handles exceptions and creates a ResponseEntity with the given message and status.
+     */
+    private ResponseEntity<String> handleException(String message, Exception e, HttpStatus status) {
+        logger.error("Message: {}, status: {}", message, status, e);
+        return ResponseEntity.status(status).body(message + e.getMessage());
+    }
+}
@@ -0,0 +1,120 @@
+package org.alfresco.ai_framework.index;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.RestClient;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs approximate kNN searches on the document index with an explicit {@code num_candidates},
+ * which the generic VectorStore search does not expose.
+ *
+ * The similarity threshold is a score between 0 and 1, the {@code _score} of the hits, so that a result
+ * passes it when its {@code distance} metadata ({@code 1 - _score}) is at most {@code 1 - threshold}.
+ * It is converted to the scale of the kNN {@code similarity} parameter, which is the raw vector
+ * similarity: {@code _score = (1 + cosine) / 2} for cosine and dot product, {@code 1 / (1 + l2²)} for l2.
+ */
+@Component
+@ConditionalOnProperty(name = "index.store", havingValue = "elasticsearch", matchIfMissing = true)
+public class KnnSearcher {
+
+    private static final TypeReference<Map<String, Object>> METADATA_TYPE = new TypeReference<>() {
+    };
+
+    private final RestClient restClient;
+    private final ObjectMapper objectMapper;
+    private final EmbeddingModel embeddingModel;
+    private final String indexName;
+    private final String similarity;
+
+    public KnnSearcher(RestClient restClient,
+                       ObjectMapper objectMapper,
+                       EmbeddingModel embeddingModel,
+                       @Value("${spring.ai.vectorstore.elasticsearch.index-name}") String indexName,
+                       @Value("${spring.ai.vectorstore.elasticsearch.similarity:cosine}") String similarity) {
+        this.restClient = restClient;
+        this.objectMapper = objectMapper;
+        this.embeddingModel = embeddingModel;
+        this.indexName = indexName;
+        this.similarity = similarity;
+    }
+
+    /**
+     * Embeds the query and returns the {@code topK} nearest chunks.
+     *
+     * @param query               Query text.
+     * @param topK                Number of results.
+     * @param numCandidates       Candidates explored per shard; higher values trade latency for recall.
+     * @param similarityThreshold Minimum score of a result, between 0 and 1, or 0 to accept all.
+     */
+    public List<Document> search(String query, int topK, int numCandidates, double similarityThreshold) {
+        Map<String, Object> knn = new LinkedHashMap<>();
+        knn.put("field", "embedding");
+        knn.put("query_vector", embeddingModel.embed(query));
+        knn.put("k", topK);
+        knn.put("num_candidates", Math.max(topK, numCandidates));
+        if (similarityThreshold > 0) {
+            knn.put("similarity", toVectorSimilarity(similarityThreshold));
+        }
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("knn", knn);
+        body.put("size", topK);
+        body.put("_source", Map.of("excludes", List.of("embedding")));
+
+        try {
+            Request request = new Request("POST", "/" + indexName + "/_search");
+            request.setJsonEntity(objectMapper.writeValueAsString(body));
+            Response response = restClient.performRequest(request);
+            return toDocuments(objectMapper.readTree(response.getEntity().getContent()));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        } catch (IOException e) {
+            throw new UncheckedIOException("kNN search failed on index " + indexName, e);
+        }
+    }
+
+    /**
+     * Converts a minimum {@code _score} to the minimum similarity (or maximum l2 distance) of the kNN search.
+     */
+    private double toVectorSimilarity(double score) {
+        return switch (similarity) {
+            case "l2_norm" -> Math.sqrt(1 / score - 1);
+            case "max_inner_product" -> score < 1 ? 1 - 1 / score : score - 1;
+            default -> 2 * score - 1;
+        };
+    }
+
+    private List<Document> toDocuments(JsonNode body) {
+        List<Document> documents = new ArrayList<>();
+        for (JsonNode hit : body.path("hits").path("hits")) {
+            JsonNode source = hit.path("_source");
+            Map<String, Object> metadata = source.has("metadata")
+                    ? new HashMap<>(objectMapper.convertValue(source.get("metadata"), METADATA_TYPE))
+                    : new HashMap<>();
+            metadata.put("distance", 1 - hit.path("_score").asDouble());
+            documents.add(Document.builder()
+                    .id(hit.path("_id").asText())
+                    .text(source.path("content").asText())
+                    .metadata(metadata)
+                    .build());
+        }
+        return documents;
+    }
+}
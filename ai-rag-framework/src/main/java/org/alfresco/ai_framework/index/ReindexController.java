@@ -0,0 +1,81 @@
+package org.alfresco.ai_framework.index;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+
+/**
+ * REST controller starting, following and cancelling a {@link ReindexJob} of the Elasticsearch document index.
+ */
+@RestController
+@ConditionalOnProperty(name = "index.store", havingValue = "elasticsearch", matchIfMissing = true)
+public class ReindexController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReindexController.class);
+
+    private final ReindexJob reindexJob;
+
+    public ReindexController(ReindexJob reindexJob) {
+        this.reindexJob = reindexJob;
+    }
+
+    /**
+     * Starts a reindex, embedding the chunks with the given model or copying their embeddings when
+     * there is none, or resumes the one that failed (an unfinished one from a previous run starts over).
+     */
+    @PostMapping("/index/reindex")
+    public ResponseEntity<?> start(@RequestParam(value = "model", required = false) String model) {
+        try {
+            return ResponseEntity.accepted().body(reindexJob.start(model));
+        } catch (IllegalArgumentException e) {
+            return handleException("Invalid reindex request: ", e, HttpStatus.BAD_REQUEST);
+        } catch (IllegalStateException e) {
+            return handleException("Cannot start reindex: ", e, HttpStatus.CONFLICT);
+        } catch (IOException | RuntimeException e) {
+            return handleException("Failed to start reindex: ", e, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Returns the progress of the running or last reindex.
+     */
+    @GetMapping("/index/reindex")
+    public ResponseEntity<?> getStatus() {
+        try {
+            ReindexJob.ReindexStatus status = reindexJob.getStatus();
+            return status == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(status);
+        } catch (IOException | RuntimeException e) {
+            return handleException("Failed to read reindex status: ", e, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Stops the running or unfinished reindex and deletes the index being built.
+     */
+    @DeleteMapping("/index/reindex")
+    public ResponseEntity<?> cancel() {
+        try {
+            ReindexJob.ReindexStatus status = reindexJob.cancel();
+            return status == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(status);
+        } catch (IOException | RuntimeException e) {
+            return handleException("Failed to cancel reindex: ", e, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Handles exceptions and creates a ResponseEntity with the given message and status.
+     */
+    private ResponseEntity<String> handleException(String message, Exception e, HttpStatus status) {
+        logger.error("Message: {}, status: {}", message, status, e);
+        return ResponseEntity.status(status).body(message + e.getMessage());
+    }
+}
@@ -0,0 +1,819 @@
+package org.alfresco.ai_framework.index;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.alfresco.ai_framework.embedding.EmbeddingModelOverride;
+import org.alfresco.ai_framework.embedding.dedup.ChunkDeduplicator;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.RestClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.ollama.api.OllamaOptions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Rebuilds the document index into a new index while the service keeps serving from the current one,
+ * to change the embedding model or the index mapping (vector type, HNSW parameters) without dropping
+ * the index and syncing everything again from Alfresco.
+ *
+ * Chunks are read from a point in time of the current index, one page of {@code index.reindex.page-size}
+ * chunks at a time in chunk ID order, and written to the new index in batches of
+ * {@code index.reindex.batch-size} on {@code index.reindex.parallelism} threads, at most
+ * {@code index.reindex.max-chunks-per-second} (0 for no limit). With a model, the chunk text is
+ * embedded again with it (Ollama backend only); without, the stored embeddings are copied.
+ *
+ * Documents ingested or deleted while the job runs are written to both indexes: their chunks are
+ * replaced in the new index and skipped when read from the point in time. Those whose write to the new
+ * index failed are copied again from the current index before the swap, or the job fails. When all chunks
+ * are copied, the index name is moved to the new index in a single alias update, which removes the previous index
+ * when the name was a concrete index, and the new model is used from then on. The progress is
+ * checkpointed in the {@code _meta} of the new index. A job that failed resumes after the last chunk
+ * copied when it is started again. A job left unfinished by a previous process starts over into a new
+ * index, since the documents changed while no job was running were not written to its index; this
+ * happens automatically at startup with {@code index.reindex.auto-resume}.
+ *
+ * Ingestions handled by other replicas of the service are not written to the new index, so the job
+ * should run while a single replica ingests.
+ */
+@Component
+@ConditionalOnProperty(name = "index.store", havingValue = "elasticsearch", matchIfMissing = true)
+public class ReindexJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReindexJob.class);
+
+    static final String META_EMBEDDING = "embedding";
+    static final String META_REINDEX = "reindex";
+
+    static final String RUNNING = "running";
+    static final String COMPLETE = "complete";
+    static final String FAILED = "failed";
+    static final String CANCELLED = "cancelled";
+
+    private static final String DOCUMENT_ID_FIELD = "metadata.documentId.keyword";
+    private static final String FOLDER_ID_FIELD = "metadata.folderId.keyword";
+    // Longest throttling pause before the point in time is kept alive, well below its keep-alive
+    private static final Duration MAX_THROTTLE_SLEEP = Duration.ofMinutes(1);
+    private static final Duration CHECKPOINT_INTERVAL = Duration.ofSeconds(30);
+    private static final DateTimeFormatter TARGET_SUFFIX = DateTimeFormatter.ofPattern("yyyyMMddHHmmss").withZone(ZoneOffset.UTC);
+
+    /**
+     * Progress of a reindex, as reported by {@code GET /index/reindex}.
+     */
+    public record ReindexStatus(String status, String source, String target, String model, int dimensions,
+                                long total, long copied, long skipped, long mirrored, double progress,
+                                double chunksPerSecond, Instant startedAt, String error) {
+    }
+
+    /**
+     * State of a reindex, checkpointed in the metadata of the target index.
+     */
+    private static final class Run {
+
+        final String source;
+        final String target;
+        final String model;
+        final int dimensions;
+        // Model the chunks of the target are embedded with, when it is not the configured one
+        final EmbeddingModelOverride.Model embedding;
+        final String replicas;
+        final Instant startedAt;
+        final long total;
+        final AtomicLong copied = new AtomicLong();
+        final AtomicLong skipped = new AtomicLong();
+        final AtomicLong mirrored = new AtomicLong();
+        final Set<String> touchedDocuments = ConcurrentHashMap.newKeySet();
+        final Set<String> touchedFolders = ConcurrentHashMap.newKeySet();
+        // Documents and folders whose last write to the target failed, copied again before the swap
+        final Set<String> unmirroredDocuments = ConcurrentHashMap.newKeySet();
+        final Set<String> unmirroredFolders = ConcurrentHashMap.newKeySet();
+        volatile String cursor;
+        volatile String status = RUNNING;
+        volatile String error;
+        volatile boolean cancelled;
+        volatile Thread thread;
+        volatile long resumedNanos = System.nanoTime();
+        volatile long resumedCopied;
+
+        Run(String source, String target, String model, int dimensions, EmbeddingModelOverride.Model embedding,
+            String replicas, Instant startedAt, long total) {
+            this.source = source;
+            this.target = target;
+            this.model = model;
+            this.dimensions = dimensions;
+            this.embedding = embedding;
+            this.replicas = replicas;
+            this.startedAt = startedAt;
+            this.total = total;
+        }
+
+        boolean isMirrored() {
+            return RUNNING.equals(status) || FAILED.equals(status);
+        }
+
+        Set<String> unmirrored(String field) {
+            return FOLDER_ID_FIELD.equals(field) ? unmirroredFolders : unmirroredDocuments;
+        }
+    }
+
+    private final RestClient restClient;
+    private final ObjectMapper objectMapper;
+    private final ElasticsearchChunks elasticsearchChunks;
+    private final DocumentIndexManager indexManager;
+    private final EmbeddingModel embeddingModel;
+    private final EmbeddingModelOverride embeddingModelOverride;
+    private final ChunkDeduplicator chunkDeduplicator;
+    private final String indexName;
+    private final boolean ollamaEmbedding;
+    private final int pageSize;
+    private final int batchSize;
+    private final double maxChunksPerSecond;
+    private final boolean autoResume;
+    private final boolean deleteSource;
+    private final ExecutorService executor;
+    private final Counter copiedChunks;
+    private final Counter mirroredDocuments;
+
+    // Held by ingestions while they write to both indexes, and exclusively while the alias is swapped
+    private final ReentrantReadWriteLock swapLock = new ReentrantReadWriteLock();
+    // Held by copied batches while they are written, and exclusively while a mirrored document is removed
+    private final ReentrantReadWriteLock copyLock = new ReentrantReadWriteLock();
+
+    private volatile Run current;
+    // Operation writing to the current index without mirroring, during which no reindex starts
+    private String blockedBy;
+
+    public ReindexJob(RestClient restClient,
+                      ObjectMapper objectMapper,
+                      DocumentIndexManager indexManager,
+                      EmbeddingModel embeddingModel,
+                      EmbeddingModelOverride embeddingModelOverride,
+                      ChunkDeduplicator chunkDeduplicator,
+                      MeterRegistry meterRegistry,
+                      @Value("${spring.ai.vectorstore.elasticsearch.index-name}") String indexName,
+                      @Value("${embedding.backend:ollama}") String embeddingBackend,
+                      @Value("${index.reindex.page-size:1000}") int pageSize,
+                      @Value("${index.reindex.batch-size:100}") int batchSize,
+                      @Value("${index.reindex.parallelism:4}") int parallelism,
+                      @Value("${index.reindex.max-chunks-per-second:0}") double maxChunksPerSecond,
+                      @Value("${index.reindex.auto-resume:true}") boolean autoResume,
+                      @Value("${index.reindex.delete-source:false}") boolean deleteSource) {
+        this.restClient = restClient;
+        this.objectMapper = objectMapper;
+        this.elasticsearchChunks = new ElasticsearchChunks(restClient, objectMapper);
+        this.indexManager = indexManager;
+        this.embeddingModel = embeddingModel;
+        this.embeddingModelOverride = embeddingModelOverride;
+        this.chunkDeduplicator = chunkDeduplicator;
+        this.indexName = indexName;
+        this.ollamaEmbedding = "ollama".equals(embeddingBackend);
+        this.pageSize = pageSize;
+        this.batchSize = batchSize;
+        this.maxChunksPerSecond = maxChunksPerSecond;
+        this.autoResume = autoResume;
+        this.deleteSource = deleteSource;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, parallelism), runnable -> {
+            Thread thread = new Thread(runnable, "index-reindex-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.copiedChunks = Counter.builder("ai.index.reindex.chunks")
+                .description("Chunks copied to the index being rebuilt")
+                .register(meterRegistry);
+        this.mirroredDocuments = Counter.builder("ai.index.reindex.mirrored")
+                .description("Documents ingested or deleted during a reindex and written to both indexes")
+                .register(meterRegistry);
+        Gauge.builder("ai.index.reindex.progress", this, job -> job.progress(job.current))
+                .description("Share of the chunks copied by the running reindex, 0 to 1")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts over a reindex interrupted by the previous shutdown once the application is ready.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resume() {
+        if (!autoResume) {
+            return;
+        }
+        try {
+            Run run = findUnfinished();
+            if (run != null && RUNNING.equals(run.status)) {
+                synchronized (this) {
+                    launch(restart(run));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not check for an interrupted reindex: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Starts a reindex, resumes the one that failed in this process, or starts over one left unfinished
+     * by a previous process with the same model.
+     *
+     * @param model Embedding model to embed the chunks with, or null to copy the stored embeddings
+     * @return Status of the job
+     * @throws IllegalArgumentException if a model is given with a backend other than Ollama
+     * @throws IllegalStateException    if a reindex is running or blocked, or an unfinished one uses another model
+     */
+    public synchronized ReindexStatus start(String model) throws IOException {
+        if (blockedBy != null) {
+            throw new IllegalStateException("A " + blockedBy + " is running, start the reindex once it is complete");
+        }
+        String targetModel = model == null || model.isBlank() ? null : model.trim();
+        if (targetModel != null && !ollamaEmbedding) {
+            throw new IllegalArgumentException("Reindexing with another model requires the ollama embedding backend");
+        }
+        if (current != null && current.thread != null && current.thread.isAlive()) {
+            throw new IllegalStateException("A reindex into " + current.target + " is already running");
+        }
+
+        // A job that failed in this process keeps the documents written to both indexes since its start
+        boolean inProcess = current != null && FAILED.equals(current.status);
+        Run run = inProcess ? current : findUnfinished();
+        if (run != null) {
+            if (targetModel != null && !targetModel.equals(run.model)) {
+                throw new IllegalStateException("The unfinished reindex into " + run.target + " uses model "
+                        + run.model + ", cancel it first");
+            }
+            if (inProcess) {
+                logger.info("Resuming reindex of {} into {} after chunk {}", run.source, run.target, run.cursor);
+            } else {
+                run = restart(run);
+            }
+        } else {
+            run = create(targetModel);
+        }
+        launch(run);
+        return status(run);
+    }
+
+    /**
+     * Returns the status of the running or last reindex, or null when there is none.
+     */
+    public ReindexStatus getStatus() throws IOException {
+        Run run = current != null ? current : findUnfinished();
+        return run == null ? null : status(run);
+    }
+
+    /**
+     * Stops the running or unfinished reindex and deletes the index being built.
+     *
+     * @return Status of the cancelled job, or null when there was none
+     */
+    public synchronized ReindexStatus cancel() throws IOException {
+        Run run = current != null && current.isMirrored() ? current : findUnfinished();
+        if (run == null) {
+            return null;
+        }
+        run.cancelled = true;
+        Thread thread = run.thread;
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        run.status = CANCELLED;
+        restClient.performRequest(new Request("DELETE", "/" + run.target));
+        logger.info("Reindex into {} cancelled, index deleted", run.target);
+        return status(run);
+    }
+
+    /**
+     * Keeps a reindex from starting while an operation writes to the current index without going through
+     * this job, until {@link #unblock()}.
+     *
+     * @param operation Name of the operation, for error messages
+     * @throws IllegalStateException if a reindex is running, or failed and can be resumed
+     */
+    public synchronized void block(String operation) {
+        if (current != null && current.isMirrored()) {
+            throw new IllegalStateException("A reindex into " + current.target + " is " + current.status
+                    + ", run the " + operation + " once it is complete or cancelled");
+        }
+        if (blockedBy != null) {
+            throw new IllegalStateException("A " + blockedBy + " is running");
+        }
+        blockedBy = operation;
+    }
+
+    /**
+     * Lets a reindex start again after {@link #block(String)}.
+     */
+    public synchronized void unblock() {
+        blockedBy = null;
+    }
+
+    /**
+     * Runs the replacement of the chunks of a document in the current index, then writes the new chunks to
+     * the index being built, if any.
+     *
+     * @param documentId Document whose chunks are replaced
+     * @param chunks     Chunks written by the action
+     * @param write      Replacement of the chunks in the current index
+     */
+    public void replaceDocument(String documentId, List<Document> chunks, Runnable write) {
+        swapLock.readLock().lock();
+        try {
+            write.run();
+            Run run = current;
+            if (run != null && run.isMirrored()) {
+                mirror(run, DOCUMENT_ID_FIELD, documentId, chunks.stream().map(Document::getId).toList());
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Runs the deletion of the chunks of a document or folder in the current index, then deletes them
+     * from the index being built, if any.
+     *
+     * @param key    {@code documentId} or {@code folderId}
+     * @param value  Identifier of the document or folder
+     * @param delete Deletion of the chunks in the current index
+     */
+    public void deleteDocuments(String key, String value, Runnable delete) {
+        swapLock.readLock().lock();
+        try {
+            delete.run();
+            Run run = current;
+            if (run != null && run.isMirrored()) {
+                mirror(run, "folderId".equals(key) ? FOLDER_ID_FIELD : DOCUMENT_ID_FIELD, value, List.of());
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Creates the target index, with the dimensions of the model or of the current index.
+     */
+    private Run create(String model) throws IOException {
+        String source = concreteIndex(indexName);
+        JsonNode settings = read(new Request("GET", "/" + source + "/_settings"))
+                .path(source).path("settings").path("index");
+        int dimensions = model != null
+                ? embed(model, List.of("dimensions")).get(0).length
+                : read(new Request("GET", "/" + source + "/_mapping"))
+                        .path(source).path("mappings").path("properties").path("embedding").path("dims").asInt();
+        long total = read(new Request("GET", "/" + source + "/_count")).path("count").asLong();
+
+        Instant startedAt = Instant.now();
+        String target = indexName + "-reindex-" + TARGET_SUFFIX.format(startedAt);
+        indexManager.createIndex(target, dimensions);
+        putSettings(target, Map.of("index.refresh_interval", "-1", "index.number_of_replicas", "0"));
+
+        // Copied embeddings keep the model of the current index
+        EmbeddingModelOverride.Model embedding = model != null
+                ? new EmbeddingModelOverride.Model(model, dimensions)
+                : embeddingModelOverride.get();
+        Run run = new Run(source, target, model, dimensions, embedding, settings.path("number_of_replicas").asText("1"),
+                startedAt, total);
+        checkpoint(run);
+        logger.info("Reindexing {} chunks of {} into {} ({})", total, source, target,
+                model == null ? "copying embeddings" : "embedding with " + model + ", " + dimensions + " dimensions");
+        return run;
+    }
+
+    /**
+     * Replaces a reindex left unfinished by a previous process with a new one using the same model.
+     * Documents ingested or deleted while no job was running were not written to its index, so the
+     * chunks it copied cannot be trusted.
+     */
+    private Run restart(Run stale) throws IOException {
+        logger.info("Starting over the reindex of {} into {}, left unfinished after chunk {} by a previous process",
+                stale.source, stale.target, stale.cursor);
+        restClient.performRequest(new Request("DELETE", "/" + stale.target));
+        return create(stale.model);
+    }
+
+    private void launch(Run run) {
+        run.status = RUNNING;
+        run.error = null;
+        run.cancelled = false;
+        run.resumedNanos = System.nanoTime();
+        run.resumedCopied = run.copied.get();
+        current = run;
+        Thread thread = new Thread(() -> execute(run), "index-reindex");
+        thread.setDaemon(true);
+        run.thread = thread;
+        thread.start();
+    }
+
+    private void execute(Run run) {
+        try {
+            copy(run);
+            if (run.cancelled) {
+                return;
+            }
+            recopy(run);
+            swap(run);
+        } catch (Exception e) {
+            if (run.cancelled) {
+                return;
+            }
+            run.status = FAILED;
+            run.error = e.getMessage();
+            logger.error("Reindex into {} failed after {} chunks, start it again to resume", run.target, run.copied.get(), e);
+            try {
+                checkpoint(run);
+            } catch (IOException | RuntimeException checkpointError) {
+                logger.warn("Could not checkpoint reindex into {}: {}", run.target, checkpointError.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Copies the chunks of the point in time page by page, checkpointing the last chunk ID copied.
+     */
+    private void copy(Run run) throws IOException, InterruptedException {
+        AtomicLong lastCheckpoint = new AtomicLong(System.nanoTime());
+        elasticsearchChunks.read(run.source, null, pageSize, run.model == null, run.cursor, (hits, pit) -> {
+            if (run.cancelled) {
+                return false;
+            }
+            List<CompletableFuture<Void>> batches = new ArrayList<>();
+            List<JsonNode> batch = new ArrayList<>();
+            for (JsonNode hit : hits) {
+                batch.add(hit);
+                if (batch.size() == batchSize) {
+                    batches.add(submit(run, batch));
+                    batch = new ArrayList<>();
+                }
+            }
+            if (!batch.isEmpty()) {
+                batches.add(submit(run, batch));
+            }
+            try {
+                CompletableFuture.allOf(batches.toArray(CompletableFuture[]::new)).join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof IOException ioException) {
+                    throw ioException;
+                }
+                throw e;
+            }
+            run.cursor = hits.get(hits.size() - 1).path("sort").path(0).asText();
+
+            if (System.nanoTime() - lastCheckpoint.get() > CHECKPOINT_INTERVAL.toNanos()) {
+                checkpoint(run);
+                lastCheckpoint.set(System.nanoTime());
+                logger.info("Reindex into {}: {} of {} chunks copied", run.target, run.copied.get(), run.total);
+            }
+            throttle(run, pit);
+            return !run.cancelled;
+        });
+    }
+
+    private CompletableFuture<Void> submit(Run run, List<JsonNode> hits) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                List<ObjectNode> chunks = prepare(run, hits);
+                copyLock.readLock().lock();
+                try {
+                    // Documents changed since the point in time have been written by the ingestion
+                    List<ObjectNode> unchanged = chunks.stream().filter(chunk -> !isTouched(run, chunk)).toList();
+                    bulk(run.target, unchanged);
+                    run.copied.addAndGet(unchanged.size());
+                    run.skipped.addAndGet(chunks.size() - unchanged.size());
+                    copiedChunks.increment(unchanged.size());
+                } finally {
+                    copyLock.readLock().unlock();
+                }
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Returns the chunks to write to the target index, embedded with the target model if any.
+     */
+    private List<ObjectNode> prepare(Run run, List<JsonNode> hits) {
+        List<ObjectNode> chunks = new ArrayList<>(hits.size());
+        for (JsonNode hit : hits) {
+            ObjectNode chunk = ((ObjectNode) hit.path("_source")).deepCopy();
+            chunk.put("id", hit.path("_id").asText());
+            chunks.add(chunk);
+        }
+        if (run.model != null && !chunks.isEmpty()) {
+            List<float[]> embeddings = embed(run.model, chunks.stream().map(chunk -> chunk.path("content").asText("")).toList());
+            for (int i = 0; i < chunks.size(); i++) {
+                ArrayNode vector = chunks.get(i).putArray("embedding");
+                for (float value : embeddings.get(i)) {
+                    vector.add(value);
+                }
+            }
+        }
+        return chunks;
+    }
+
+    private boolean isTouched(Run run, ObjectNode chunk) {
+        JsonNode metadata = chunk.path("metadata");
+        return run.touchedDocuments.contains(metadata.path("documentId").asText())
+                || run.touchedFolders.contains(metadata.path("folderId").asText());
+    }
+
+    /**
+     * Replaces the chunks of a document or folder in the target index with those of the current index.
+     * A failure is recorded on the run, so that the document or folder is copied again before the swap.
+     */
+    private void mirror(Run run, String field, String value, List<String> chunkIds) {
+        try {
+            copyLock.writeLock().lock();
+            try {
+                (FOLDER_ID_FIELD.equals(field) ? run.touchedFolders : run.touchedDocuments).add(value);
+                deleteFromTarget(run, field, value);
+            } finally {
+                copyLock.writeLock().unlock();
+            }
+            if (!chunkIds.isEmpty()) {
+                Request get = new Request("POST", "/" + run.source + "/_mget");
+                if (run.model != null) {
+                    get.addParameter("_source_excludes", "embedding");
+                }
+                get.setJsonEntity(objectMapper.writeValueAsString(Map.of("ids", chunkIds)));
+                List<JsonNode> found = new ArrayList<>();
+                read(get).path("docs").forEach(doc -> {
+                    if (doc.path("found").asBoolean()) {
+                        found.add(doc);
+                    }
+                });
+                bulk(run.target, prepare(run, found));
+            }
+            run.unmirrored(field).remove(value);
+            run.mirrored.incrementAndGet();
+            mirroredDocuments.increment();
+        } catch (IOException | RuntimeException e) {
+            run.unmirrored(field).add(value);
+            logger.error("Failed to write {} {} to the index being rebuilt {}, it will be copied again before the swap",
+                    field, value, run.target, e);
+        }
+    }
+
+    /**
+     * Copies again the documents and folders whose write to the target index failed, with ingestion held.
+     */
+    private void recopy(Run run) throws IOException, InterruptedException {
+        swapLock.writeLock().lock();
+        try {
+            for (String folderId : List.copyOf(run.unmirroredFolders)) {
+                recopy(run, FOLDER_ID_FIELD, folderId);
+            }
+            for (String documentId : List.copyOf(run.unmirroredDocuments)) {
+                recopy(run, DOCUMENT_ID_FIELD, documentId);
+            }
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the chunks of a document or folder in the target index with all of its chunks in the current index.
+     */
+    private void recopy(Run run, String field, String value) throws IOException, InterruptedException {
+        deleteFromTarget(run, field, value);
+        elasticsearchChunks.read(run.source, Map.of("term", Map.of(field, value)), pageSize, run.model == null, null,
+                (hits, pit) -> {
+                    List<JsonNode> page = new ArrayList<>(hits.size());
+                    hits.forEach(page::add);
+                    bulk(run.target, prepare(run, page));
+                    return true;
+                });
+        run.unmirrored(field).remove(value);
+        logger.info("Copied {} {} again to the index being rebuilt {}", field, value, run.target);
+    }
+
+    /**
+     * Deletes the chunks of a document or folder from the target index.
+     */
+    private void deleteFromTarget(Run run, String field, String value) throws IOException {
+        // Make the chunks copied so far visible to the delete
+        restClient.performRequest(new Request("POST", "/" + run.target + "/_refresh"));
+        Request delete = new Request("POST", "/" + run.target + "/_delete_by_query");
+        delete.addParameter("conflicts", "proceed");
+        delete.setJsonEntity(objectMapper.writeValueAsString(Map.of("query", Map.of("term", Map.of(field, value)))));
+        restClient.performRequest(delete);
+    }
+
+    /**
+     * Moves the index name to the target index and switches to the target model.
+     */
+    private void swap(Run run) throws IOException {
+        Map<String, String> settings = new LinkedHashMap<>();
+        settings.put("index.refresh_interval", null);
+        settings.put("index.number_of_replicas", run.replicas);
+        putSettings(run.target, settings);
+        restClient.performRequest(new Request("POST", "/" + run.target + "/_refresh"));
+
+        List<Map<String, Object>> actions = new ArrayList<>();
+        boolean concrete = run.source.equals(indexName);
+        if (concrete) {
+            actions.add(Map.of("add", Map.of("index", run.target, "alias", indexName)));
+            actions.add(Map.of("remove_index", Map.of("index", run.source)));
+        } else {
+            actions.add(Map.of("remove", Map.of("index", run.source, "alias", indexName)));
+            actions.add(Map.of("add", Map.of("index", run.target, "alias", indexName)));
+        }
+        Request request = new Request("POST", "/_aliases");
+        request.setJsonEntity(objectMapper.writeValueAsString(Map.of("actions", actions)));
+
+        swapLock.writeLock().lock();
+        try {
+            int unmirrored = run.unmirroredDocuments.size() + run.unmirroredFolders.size();
+            if (unmirrored > 0) {
+                throw new IOException(unmirrored + " documents or folders written during the reindex are missing from "
+                        + run.target + ", start it again to copy them");
+            }
+            restClient.performRequest(request);
+            if (run.model != null) {
+                embeddingModelOverride.set(new EmbeddingModelOverride.Model(run.model, run.dimensions));
+                chunkDeduplicator.clear();
+            }
+            run.status = COMPLETE;
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+        checkpoint(run);
+        logger.info("Reindex complete: {} now points to {} ({} chunks copied, {} documents written during the reindex)",
+                indexName, run.target, run.copied.get(), run.mirrored.get());
+
+        if (!concrete && deleteSource) {
+            restClient.performRequest(new Request("DELETE", "/" + run.source));
+            logger.info("Deleted previous index {}", run.source);
+        }
+    }
+
+    /**
+     * Waits until the copy is back to the maximum rate, keeping the point in time alive during long waits.
+     */
+    private void throttle(Run run, ElasticsearchChunks.PointInTime pit) throws IOException, InterruptedException {
+        if (maxChunksPerSecond <= 0) {
+            return;
+        }
+        while (!run.cancelled) {
+            long expectedNanos = (long) ((run.copied.get() - run.resumedCopied) / maxChunksPerSecond * 1_000_000_000L);
+            long aheadNanos = expectedNanos - (System.nanoTime() - run.resumedNanos);
+            if (aheadNanos <= 0) {
+                break;
+            }
+            long sleepNanos = Math.min(aheadNanos, MAX_THROTTLE_SLEEP.toNanos());
+            Thread.sleep(sleepNanos / 1_000_000, (int) (sleepNanos % 1_000_000));
+            if (sleepNanos < aheadNanos) {
+                pit.keepAlive();
+            }
+        }
+    }
+
+    private List<float[]> embed(String model, List<String> texts) {
+        return embeddingModel.call(new EmbeddingRequest(texts, OllamaOptions.builder().model(model).build()))
+                .getResults().stream()
+                .map(Embedding::getOutput)
+                .toList();
+    }
+
+    private void bulk(String index, List<ObjectNode> chunks) throws IOException {
+        Map<String, ObjectNode> documents = new LinkedHashMap<>();
+        for (ObjectNode chunk : chunks) {
+            documents.put(chunk.path("id").asText(), chunk);
+        }
+        elasticsearchChunks.bulk(index, documents);
+    }
+
+    /**
+     * Writes the state of the job to the metadata of the target index.
+     */
+    private void checkpoint(Run run) throws IOException {
+        Map<String, Object> reindex = new LinkedHashMap<>();
+        reindex.put("status", run.status);
+        reindex.put("source", run.source);
+        reindex.put("model", run.model);
+        reindex.put("dimensions", run.dimensions);
+        reindex.put("replicas", run.replicas);
+        reindex.put("startedAt", run.startedAt.toString());
+        reindex.put("total", run.total);
+        reindex.put("copied", run.copied.get());
+        reindex.put("cursor", run.cursor);
+        Map<String, Object> meta = new LinkedHashMap<>();
+        meta.put(META_REINDEX, reindex);
+        if (run.embedding != null) {
+            meta.put(META_EMBEDDING, Map.of("model", run.embedding.name(), "dimensions", run.embedding.dimensions()));
+        }
+        indexManager.putMeta(run.target, meta);
+    }
+
+    /**
+     * Returns the last reindex that is running or failed according to its checkpoint, or null.
+     */
+    private Run findUnfinished() throws IOException {
+        Request request = new Request("GET", "/" + indexName + "-reindex-*/_mapping");
+        request.addParameter("allow_no_indices", "true");
+        request.addParameter("ignore_unavailable", "true");
+        Run found = null;
+        for (Iterator<Map.Entry<String, JsonNode>> it = read(request).fields(); it.hasNext(); ) {
+            Map.Entry<String, JsonNode> index = it.next();
+            JsonNode meta = index.getValue().path("mappings").path("_meta");
+            JsonNode reindex = meta.path(META_REINDEX);
+            String status = reindex.path("status").asText();
+            if (!RUNNING.equals(status) && !FAILED.equals(status)) {
+                continue;
+            }
+            if (found != null && found.target.compareTo(index.getKey()) > 0) {
+                continue;
+            }
+            JsonNode embedding = meta.path(META_EMBEDDING);
+            Run run = new Run(reindex.path("source").asText(), index.getKey(),
+                    reindex.hasNonNull("model") ? reindex.path("model").asText() : null,
+                    reindex.path("dimensions").asInt(),
+                    embedding.hasNonNull("model")
+                            ? new EmbeddingModelOverride.Model(embedding.path("model").asText(), embedding.path("dimensions").asInt())
+                            : null,
+                    reindex.path("replicas").asText("1"),
+                    Instant.parse(reindex.path("startedAt").asText()),
+                    reindex.path("total").asLong());
+            run.copied.set(reindex.path("copied").asLong());
+            run.cursor = reindex.hasNonNull("cursor") ? reindex.path("cursor").asText() : null;
+            run.status = status;
+            found = run;
+        }
+        return found;
+    }
+
+    /**
+     * Returns the concrete index behind a name, which is the name itself unless it is an alias.
+     */
+    private String concreteIndex(String name) throws IOException {
+        Iterator<String> names = read(new Request("GET", "/" + name + "/_mapping")).fieldNames();
+        if (!names.hasNext()) {
+            throw new IllegalStateException("Index not found: " + name);
+        }
+        return names.next();
+    }
+
+    private void putSettings(String index, Map<String, String> settings) throws IOException {
+        Request request = new Request("PUT", "/" + index + "/_settings");
+        request.setJsonEntity(objectMapper.writeValueAsString(settings));
+        restClient.performRequest(request);
+    }
+
+    private JsonNode read(Request request) throws IOException {
+        Response response = restClient.performRequest(request);
+        return objectMapper.readTree(response.getEntity().getContent());
+    }
+
+    private double progress(Run run) {
+        return run == null || run.total == 0 ? 0 : Math.min(1.0, (double) run.copied.get() / run.total);
+    }
+
+    private ReindexStatus status(Run run) {
+        double seconds = (System.nanoTime() - run.resumedNanos) / 1e9;
+        double rate = RUNNING.equals(run.status) && seconds > 0 ? (run.copied.get() - run.resumedCopied) / seconds : 0;
+        return new ReindexStatus(run.status, run.source, run.target, run.model, run.dimensions, run.total,
+                run.copied.get(), run.skipped.get(), run.mirrored.get(), progress(run), rate, run.startedAt, run.error);
+    }
+}
@@ -0,0 +1,57 @@
+package org.alfresco.ai_framework.index.embedded;
+
+import org.alfresco.ai_framework.index.ChunkStore;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link ChunkStore} of the embedded vector store. Embeddings are read normalized, as stored.
+ */
+class EmbeddedChunkStore implements ChunkStore {
+
+    private final EmbeddedVectorStore store;
+
+    EmbeddedChunkStore(EmbeddedVectorStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public int dimensions() {
+        return store.dimensions();
+    }
+
+    @Override
+    public long count() {
+        return store.size();
+    }
+
+    @Override
+    public void read(int pageSize, PageConsumer consumer) throws IOException {
+        store.readChunks(pageSize, consumer);
+    }
+
+    @Override
+    public void write(List<StoredChunk> chunks) {
+        List<Document> documents = new ArrayList<>(chunks.size());
+        List<float[]> embeddings = new ArrayList<>(chunks.size());
+        for (StoredChunk chunk : chunks) {
+            documents.add(Document.builder().id(chunk.id()).text(chunk.content()).metadata(chunk.metadata()).build());
+            embeddings.add(chunk.embedding());
+        }
+        store.add(documents, embeddings);
+    }
+
+    @Override
+    public void delete(String key, String value) {
+        store.delete(new FilterExpressionBuilder().eq(key, value).build());
+    }
+
+    @Override
+    public void commit() throws IOException {
+        store.commit();
+    }
+}
@@ -0,0 +1,832 @@
+package org.alfresco.ai_framework.index.embedded;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.alfresco.ai_framework.index.ChunkStore;
+import org.alfresco.ai_framework.index.DocumentIdReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+import java.util.stream.Stream;
+
+import static org.alfresco.ai_framework.index.embedded.MetadataFilter.DOCUMENT_ID;
+import static org.alfresco.ai_framework.index.embedded.MetadataFilter.FOLDER_ID;
+
+/**
+ * In-process VectorStore keeping chunks in memory-mapped segments searched through HNSW graphs, an
+ * alternative to Elasticsearch for deployments of a few million chunks.
+ *
+ * Writes are appended to a {@link WriteAheadLog} and buffered in memory, where they are searched exactly.
+ * When the buffer reaches the flush threshold, or at the commit interval, it is written as a new
+ * {@link Segment} and a new manifest is committed by atomic rename. The manifest lists the segments,
+ * the generation of their deletes and the first log still needed, so a restart after a crash recovers
+ * the last manifest and replays the logs written since. A background task merges the smallest segments
+ * when there are more than the merge factor, which bounds the number of graphs searched per query.
+ *
+ * Filters are supported on {@code documentId} and {@code folderId}. Scores follow the Elasticsearch
+ * cosine convention, {@code (1 + cosine) / 2}, and the similarity threshold applies to the cosine.
+ */
+public class EmbeddedVectorStore implements VectorStore, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddedVectorStore.class);
+
+    private static final String MANIFEST = "manifest.json";
+    private static final String SEGMENT_PREFIX = "seg-";
+    // Filters matching fewer chunks than this in a segment are searched exactly instead of through the graph
+    private static final int EXACT_SEARCH_LIMIT = 4096;
+    private static final TypeReference<Map<String, Object>> METADATA_TYPE = new TypeReference<>() {
+    };
+
+    /**
+     * Committed state of the store.
+     *
+     * @param walGeneration First write-ahead log generation not contained in the segments
+     */
+    record Manifest(long generation, int dimensions, long walGeneration, int nextSegment, List<SegmentEntry> segments) {
+    }
+
+    record SegmentEntry(String name, long deletesGeneration) {
+    }
+
+    /**
+     * Search hit, either an ordinal of a segment or a buffered chunk.
+     */
+    private record Hit(Segment segment, int ord, Segment.Chunk chunk, float cosine) {
+    }
+
+    private final EmbeddingModel embeddingModel;
+    private final ObjectMapper objectMapper;
+    private final Path directory;
+    private final int dimensions;
+    private final int m;
+    private final int efConstruction;
+    private final int efSearch;
+    private final int flushThreshold;
+    private final int mergeFactor;
+    private final int maxSegmentChunks;
+    private final Timer flushTimer;
+    private final Timer mergeTimer;
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final ReentrantLock mergeLock = new ReentrantLock();
+    private final ScheduledExecutorService executor;
+
+    private volatile List<Segment> segments = List.of();
+    private volatile List<Segment.Chunk> buffer = List.of();
+    private volatile List<Segment.Chunk> flushing = List.of();
+    private final Set<String> flushingDeletes = ConcurrentHashMap.newKeySet();
+    private final List<Path> obsoleteFiles = new ArrayList<>();
+    private WriteAheadLog wal;
+    private long manifestGeneration;
+    private long walGeneration;
+    private int nextSegment;
+
+    /**
+     * Opens the store, creating the directory if needed, and replays the write-ahead logs.
+     *
+     * @param directory        Directory of the segments, logs and manifest
+     * @param dimensions       Dimensions of the embeddings
+     * @param m                HNSW neighbours per node (twice as many on the bottom level)
+     * @param efConstruction   HNSW candidate list size while building segments
+     * @param efSearch         HNSW candidate list size while searching, at least top-k
+     * @param flushThreshold   Buffered chunks that trigger writing a segment
+     * @param mergeFactor      Segments above which the smallest ones are merged
+     * @param maxSegmentChunks Chunks above which segments are no longer merged
+     * @param commitInterval   Interval of the background commit of buffered chunks and deletes
+     */
+    public EmbeddedVectorStore(EmbeddingModel embeddingModel, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                               Path directory, int dimensions, int m, int efConstruction, int efSearch,
+                               int flushThreshold, int mergeFactor, int maxSegmentChunks,
+                               Duration commitInterval) throws IOException {
+        this.embeddingModel = embeddingModel;
+        this.objectMapper = objectMapper;
+        this.directory = directory;
+        this.dimensions = dimensions;
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.efSearch = efSearch;
+        this.flushThreshold = flushThreshold;
+        this.mergeFactor = Math.max(2, mergeFactor);
+        this.maxSegmentChunks = maxSegmentChunks;
+        this.flushTimer = Timer.builder("ai.index.embedded.flush")
+                .description("Duration of writing buffered chunks as a segment")
+                .register(meterRegistry);
+        this.mergeTimer = Timer.builder("ai.index.embedded.merge")
+                .description("Duration of segment merges")
+                .register(meterRegistry);
+
+        open();
+
+        Gauge.builder("ai.index.embedded.segments", this, store -> store.segments.size())
+                .description("Segments of the embedded vector store")
+                .register(meterRegistry);
+        Gauge.builder("ai.index.embedded.chunks", this, EmbeddedVectorStore::size)
+                .description("Live chunks of the embedded vector store, buffered ones included")
+                .register(meterRegistry);
+
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "embedded-vector-store");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = commitInterval.toMillis();
+        executor.scheduleWithFixedDelay(this::commitQuietly, interval, interval, TimeUnit.MILLISECONDS);
+        scheduleMerge();
+    }
+
+    private void open() throws IOException {
+        Files.createDirectories(directory);
+        Path manifestFile = directory.resolve(MANIFEST);
+        Set<String> liveFiles = new HashSet<>(Set.of(MANIFEST));
+        if (Files.exists(manifestFile)) {
+            Manifest manifest = objectMapper.readValue(manifestFile.toFile(), Manifest.class);
+            if (manifest.dimensions() != dimensions) {
+                throw new IllegalStateException("Embedded vector store in " + directory + " holds vectors of "
+                        + manifest.dimensions() + " dimensions, " + dimensions + " configured");
+            }
+            manifestGeneration = manifest.generation();
+            walGeneration = manifest.walGeneration();
+            nextSegment = manifest.nextSegment();
+            List<Segment> opened = new ArrayList<>();
+            for (SegmentEntry entry : manifest.segments()) {
+                Segment segment = Segment.open(directory, entry.name(), dimensions, entry.deletesGeneration());
+                opened.add(segment);
+                segment.files(directory).forEach(file -> liveFiles.add(file.getFileName().toString()));
+            }
+            segments = List.copyOf(opened);
+        }
+
+        // Files of uncommitted flushes and merges, and previous generations of deletes and logs
+        TreeMap<Long, Path> logs = new TreeMap<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                String name = file.getFileName().toString();
+                long generation = WriteAheadLog.generationOf(name);
+                if (generation >= walGeneration) {
+                    logs.put(generation, file);
+                } else if (!liveFiles.contains(name)) {
+                    logger.info("Removing obsolete file {}", file);
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+
+        WriteAheadLog.Replay replay = new WriteAheadLog.Replay() {
+            @Override
+            public void added(List<Segment.Chunk> chunks) {
+                applyAdds(chunks);
+            }
+
+            @Override
+            public void deleted(List<String> ids) {
+                applyDeletes(ids);
+            }
+        };
+        for (Path log : logs.values()) {
+            WriteAheadLog.replay(log, replay);
+        }
+        long generation = logs.isEmpty() ? walGeneration : logs.lastKey() + 1;
+        wal = new WriteAheadLog(directory, generation);
+
+        logger.info("Opened embedded vector store in {} with {} segments and {} buffered chunks ({} live chunks)",
+                directory, segments.size(), buffer.size(), size());
+    }
+
+    @Override
+    public void add(List<Document> documents) {
+        if (documents.isEmpty()) {
+            return;
+        }
+        add(documents, embeddingModel.embed(documents.stream().map(Document::getText).toList()));
+    }
+
+    /**
+     * Adds documents with precomputed embeddings. A document replaces any chunk with the same ID.
+     */
+    public void add(List<Document> documents, List<float[]> embeddings) {
+        List<Segment.Chunk> chunks = new ArrayList<>(documents.size());
+        for (int i = 0; i < documents.size(); i++) {
+            Document document = documents.get(i);
+            float[] vector = embeddings.get(i);
+            if (vector.length != dimensions) {
+                throw new IllegalArgumentException("Embedding of " + vector.length + " dimensions, "
+                        + dimensions + " expected");
+            }
+            Map<String, Object> metadata = document.getMetadata();
+            chunks.add(new Segment.Chunk(document.getId(),
+                    String.valueOf(metadata.getOrDefault(DOCUMENT_ID, "")),
+                    String.valueOf(metadata.getOrDefault(FOLDER_ID, "")),
+                    document.getText(), toJson(metadata), normalize(vector.clone())));
+        }
+
+        writeLock.lock();
+        try {
+            wal.appendAdds(chunks);
+            applyAdds(chunks);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to log chunks to the embedded vector store", e);
+        } finally {
+            writeLock.unlock();
+        }
+        flushIfFull();
+    }
+
+    @Override
+    public void delete(List<String> idList) {
+        if (idList.isEmpty()) {
+            return;
+        }
+        writeLock.lock();
+        try {
+            wal.appendDeletes(idList);
+            applyDeletes(idList);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to log deletes to the embedded vector store", e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Deletes every chunk matching the filter.
+     */
+    public void delete(Filter.Expression filterExpression) {
+        MetadataFilter.validate(filterExpression);
+        delete(match(filterExpression, Integer.MAX_VALUE).stream().map(this::chunkId).toList());
+    }
+
+    @Override
+    public List<Document> similaritySearch(SearchRequest request) {
+        Filter.Expression filter = request.getFilterExpression();
+        if (filter != null) {
+            MetadataFilter.validate(filter);
+        }
+        // Filter-only requests, such as lookups before a delete, need no embedding
+        if ((request.getQuery() == null || request.getQuery().isBlank()) && filter != null) {
+            return match(filter, request.getTopK()).stream().map(hit -> toDocument(hit, false)).toList();
+        }
+        return search(embeddingModel.embed(request.getQuery()), request.getTopK(),
+                Math.max(efSearch, request.getTopK()), request.getSimilarityThreshold(), filter);
+    }
+
+    /**
+     * Returns the chunks nearest to a query vector.
+     *
+     * @param ef                  HNSW candidate list size per segment, trading latency for recall
+     * @param similarityThreshold Minimum score {@code (1 + cosine) / 2}, between 0 and 1, or 0 to accept all
+     * @param filter              Filter on documentId and folderId, or null
+     */
+    public List<Document> search(float[] embedding, int topK, int ef, double similarityThreshold, Filter.Expression filter) {
+        float[] query = normalize(embedding.clone());
+        PriorityQueue<Hit> top = new PriorityQueue<>(topK + 1, Comparator.comparingDouble(Hit::cosine));
+
+        for (Segment segment : segments) {
+            IntPredicate accept = filter == null ? null : ord -> MetadataFilter.test(filter, fields(segment, ord));
+            Optional<MetadataFilter.Term> term = filter == null ? Optional.empty() : MetadataFilter.term(filter);
+            if (term.isPresent() && count(segment, term.get()) <= EXACT_SEARCH_LIMIT) {
+                forEachOrd(segment, term.get(), ord -> {
+                    if (segment.isLive(ord) && accept.test(ord)) {
+                        offer(top, topK, new Hit(segment, ord, null, segment.dot(ord, query)));
+                    }
+                });
+            } else {
+                for (long key : segment.search(query, Math.max(ef, topK), accept)) {
+                    offer(top, topK, new Hit(segment, HnswGraph.ordOf(key), null, HnswGraph.scoreOf(key)));
+                }
+            }
+        }
+        forEachBuffered(chunk -> {
+            if (filter == null || MetadataFilter.test(filter, fields(chunk))) {
+                offer(top, topK, new Hit(null, -1, chunk, dot(chunk.vector(), query)));
+            }
+        });
+
+        List<Hit> hits = new ArrayList<>(top);
+        hits.sort(Comparator.comparingDouble(Hit::cosine).reversed());
+        return hits.stream()
+                .filter(hit -> similarityThreshold <= 0 || (1 + hit.cosine()) / 2 >= similarityThreshold)
+                .map(hit -> toDocument(hit, true))
+                .toList();
+    }
+
+    /**
+     * Pages through the distinct document IDs of a folder, in ascending order.
+     */
+    public DocumentIdReader.DocumentIdPage documentIds(String folderId, String after, int size) {
+        TreeSet<String> documentIds = new TreeSet<>();
+        for (Segment segment : segments) {
+            segment.forEachFolderOrd(folderId, ord -> {
+                if (segment.isLive(ord)) {
+                    documentIds.add(segment.documentId(ord));
+                }
+            });
+        }
+        forEachBuffered(chunk -> {
+            if (folderId.equals(chunk.folderId())) {
+                documentIds.add(chunk.documentId());
+            }
+        });
+        NavigableSet<String> remaining = after == null ? documentIds : documentIds.tailSet(after, false);
+        List<String> page = remaining.stream().limit(size).toList();
+        return new DocumentIdReader.DocumentIdPage(page, page.size() < size ? null : page.get(page.size() - 1));
+    }
+
+    /**
+     * Live chunks, buffered ones included.
+     */
+    public long size() {
+        long size = buffer.size() + flushing.size() - flushingDeletes.size();
+        for (Segment segment : segments) {
+            size += segment.liveCount();
+        }
+        return size;
+    }
+
+    public int dimensions() {
+        return dimensions;
+    }
+
+    /**
+     * Reads every live chunk with its normalized embedding, segment by segment and then the buffered ones.
+     * Segments merged meanwhile stay mapped, so the chunks read are those live when the read started
+     * less the ones deleted since.
+     */
+    public void readChunks(int pageSize, ChunkStore.PageConsumer consumer) throws IOException {
+        List<ChunkStore.StoredChunk> page = new ArrayList<>(pageSize);
+        for (Segment segment : segments) {
+            for (int ord = 0; ord < segment.size(); ord++) {
+                if (segment.isLive(ord)) {
+                    page.add(toStoredChunk(segment.chunk(ord, true)));
+                    if (page.size() == pageSize) {
+                        consumer.accept(page);
+                        page = new ArrayList<>(pageSize);
+                    }
+                }
+            }
+        }
+        List<Segment.Chunk> buffered = new ArrayList<>();
+        forEachBuffered(buffered::add);
+        for (Segment.Chunk chunk : buffered) {
+            page.add(toStoredChunk(chunk));
+            if (page.size() == pageSize) {
+                consumer.accept(page);
+                page = new ArrayList<>(pageSize);
+            }
+        }
+        if (!page.isEmpty()) {
+            consumer.accept(page);
+        }
+    }
+
+    /**
+     * Writes buffered chunks as a segment and commits pending deletes.
+     */
+    public void commit() throws IOException {
+        flushLock.lock();
+        try {
+            flush();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException, InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+        commit();
+        wal.close();
+        logger.info("Closed embedded vector store in {}", directory);
+    }
+
+    private void applyAdds(List<Segment.Chunk> chunks) {
+        applyDeletes(chunks.stream().map(Segment.Chunk::id).toList());
+        List<Segment.Chunk> updated = new ArrayList<>(buffer.size() + chunks.size());
+        updated.addAll(buffer);
+        updated.addAll(chunks);
+        buffer = List.copyOf(updated);
+    }
+
+    private void applyDeletes(Collection<String> ids) {
+        Set<String> idSet = new HashSet<>(ids);
+        List<Segment.Chunk> kept = buffer.stream().filter(chunk -> !idSet.contains(chunk.id())).toList();
+        if (kept.size() != buffer.size()) {
+            buffer = kept;
+        }
+        for (Segment.Chunk chunk : flushing) {
+            if (idSet.contains(chunk.id())) {
+                flushingDeletes.add(chunk.id());
+            }
+        }
+        for (Segment segment : segments) {
+            for (String id : idSet) {
+                segment.deleteById(id);
+            }
+        }
+    }
+
+    private void flushIfFull() {
+        int buffered = buffer.size();
+        if (buffered < flushThreshold) {
+            return;
+        }
+        // Writers only wait for a flush in progress when the buffer has grown to twice the threshold
+        if (buffered >= 2 * flushThreshold) {
+            flushLock.lock();
+        } else if (!flushLock.tryLock()) {
+            return;
+        }
+        try {
+            if (buffer.size() >= flushThreshold) {
+                flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to flush the embedded vector store", e);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Writes the buffer as a new segment. New writes go to a new log and a fresh buffer meanwhile, and
+     * the chunks being written stay searchable until the segment is installed. Requires the flush lock.
+     */
+    private void flush() throws IOException {
+        List<Segment.Chunk> chunks;
+        WriteAheadLog previousLog;
+        String name;
+        writeLock.lock();
+        try {
+            chunks = buffer;
+            if (chunks.isEmpty()) {
+                writeManifest(false);
+                return;
+            }
+            flushing = chunks;
+            buffer = List.of();
+            previousLog = wal;
+            wal = new WriteAheadLog(directory, previousLog.generation() + 1);
+            name = SEGMENT_PREFIX + nextSegment++;
+        } finally {
+            writeLock.unlock();
+        }
+        previousLog.close();
+
+        Segment segment;
+        long start = System.nanoTime();
+        try {
+            segment = Segment.write(directory, name, chunks.size(), chunks::get, dimensions, m, efConstruction);
+        } catch (IOException | RuntimeException e) {
+            writeLock.lock();
+            try {
+                List<Segment.Chunk> restored = new ArrayList<>();
+                chunks.stream().filter(chunk -> !flushingDeletes.contains(chunk.id())).forEach(restored::add);
+                restored.addAll(buffer);
+                buffer = List.copyOf(restored);
+                flushing = List.of();
+                flushingDeletes.clear();
+            } finally {
+                writeLock.unlock();
+            }
+            throw e;
+        }
+        flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        writeLock.lock();
+        try {
+            flushingDeletes.forEach(segment::deleteById);
+            List<Segment> updated = new ArrayList<>(segments);
+            updated.add(segment);
+            segments = List.copyOf(updated);
+            flushing = List.of();
+            flushingDeletes.clear();
+            walGeneration = wal.generation();
+            writeManifest(true);
+        } finally {
+            writeLock.unlock();
+        }
+        logger.debug("Flushed {} chunks to segment {}", chunks.size(), name);
+        scheduleMerge();
+    }
+
+    private void commitQuietly() {
+        try {
+            commit();
+        } catch (IOException | RuntimeException e) {
+            logger.error("Commit of the embedded vector store failed, buffered chunks remain in the log", e);
+        }
+    }
+
+    private void scheduleMerge() {
+        if (segments.size() > mergeFactor && !executor.isShutdown()) {
+            executor.execute(() -> {
+                try {
+                    while (merge()) {
+                        logger.debug("Merged segments, {} remaining", segments.size());
+                    }
+                } catch (IOException | RuntimeException e) {
+                    logger.error("Merge of the embedded vector store failed", e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Merges the smallest segments into one, leaving out deleted chunks.
+     *
+     * @return True if segments were merged
+     */
+    private boolean merge() throws IOException {
+        if (!mergeLock.tryLock()) {
+            return false;
+        }
+        try {
+            List<Segment> candidates = new ArrayList<>(segments);
+            if (candidates.size() <= mergeFactor) {
+                return false;
+            }
+            candidates.sort(Comparator.comparingInt(Segment::liveCount));
+            List<Segment> sources = new ArrayList<>();
+            long total = 0;
+            long metadataBytes = 0;
+            for (Segment segment : candidates) {
+                // The merged metadata file is no larger than those of its sources, and must fit a mapped buffer
+                if (sources.size() == mergeFactor
+                        || (sources.size() >= 2 && total + segment.liveCount() > maxSegmentChunks)
+                        || metadataBytes + segment.metadataBytes() > Segment.MAX_MAPPED_BYTES) {
+                    break;
+                }
+                sources.add(segment);
+                total += segment.liveCount();
+                metadataBytes += segment.metadataBytes();
+            }
+            if (sources.size() < 2) {
+                return false;
+            }
+
+            // Live chunks when the merge starts; later deletes are carried over when installing
+            Segment[] sourceSegments = new Segment[(int) total];
+            int[] sourceOrds = new int[(int) total];
+            int count = 0;
+            for (Segment segment : sources) {
+                for (int ord = 0; ord < segment.size() && count < total; ord++) {
+                    if (segment.isLive(ord)) {
+                        sourceSegments[count] = segment;
+                        sourceOrds[count++] = ord;
+                    }
+                }
+            }
+            int merged = count;
+
+            String name;
+            writeLock.lock();
+            try {
+                name = SEGMENT_PREFIX + nextSegment++;
+            } finally {
+                writeLock.unlock();
+            }
+            long start = System.nanoTime();
+            Segment segment = Segment.write(directory, name, merged,
+                    i -> sourceSegments[i].chunk(sourceOrds[i], true), dimensions, m, efConstruction);
+            mergeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+            writeLock.lock();
+            try {
+                for (int i = 0; i < merged; i++) {
+                    if (!sourceSegments[i].isLive(sourceOrds[i])) {
+                        segment.delete(i);
+                    }
+                }
+                List<Segment> updated = new ArrayList<>(segments);
+                updated.removeAll(sources);
+                updated.add(segment);
+                segments = List.copyOf(updated);
+                sources.forEach(source -> obsoleteFiles.addAll(source.files(directory)));
+                writeManifest(true);
+            } finally {
+                writeLock.unlock();
+            }
+            logger.info("Merged {} segments into {} ({} chunks)", sources.size(), name, merged);
+            return true;
+        } finally {
+            mergeLock.unlock();
+        }
+    }
+
+    /**
+     * Persists changed deletes and commits a new manifest by atomic rename, then removes the files it no
+     * longer references. Requires the write lock.
+     *
+     * @param force Write the manifest even if no deletes changed
+     */
+    private void writeManifest(boolean force) throws IOException {
+        boolean changed = force;
+        for (Segment segment : segments) {
+            long generation = segment.deletesGeneration();
+            Path previous = segment.commitDeletes(directory);
+            if (previous != null) {
+                obsoleteFiles.add(previous);
+            }
+            changed |= segment.deletesGeneration() != generation;
+        }
+        if (!changed) {
+            return;
+        }
+
+        Manifest manifest = new Manifest(++manifestGeneration, dimensions, walGeneration, nextSegment,
+                segments.stream().map(segment -> new SegmentEntry(segment.name(), segment.deletesGeneration())).toList());
+        Path temporary = directory.resolve(MANIFEST + ".tmp");
+        Files.write(temporary, objectMapper.writeValueAsBytes(manifest));
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temporary, directory.resolve(MANIFEST), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        syncDirectory();
+
+        obsoleteFiles.removeIf(file -> {
+            try {
+                Files.deleteIfExists(file);
+                return true;
+            } catch (IOException e) {
+                // Still mapped on some platforms, retried after the next commit or at startup
+                return false;
+            }
+        });
+        for (long generation = walGeneration - 1; generation >= 0; generation--) {
+            if (!Files.deleteIfExists(WriteAheadLog.file(directory, generation))) {
+                break;
+            }
+        }
+    }
+
+    private void syncDirectory() {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Not supported on every platform
+            logger.trace("Directory sync not supported: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Chunks matching a filter, without scores, up to a limit.
+     */
+    private List<Hit> match(Filter.Expression filter, int limit) {
+        List<Hit> hits = new ArrayList<>();
+        Optional<MetadataFilter.Term> term = MetadataFilter.term(filter);
+        for (Segment segment : segments) {
+            IntPredicate accept = ord -> segment.isLive(ord) && MetadataFilter.test(filter, fields(segment, ord));
+            if (term.isPresent()) {
+                forEachOrd(segment, term.get(), ord -> {
+                    if (hits.size() < limit && accept.test(ord)) {
+                        hits.add(new Hit(segment, ord, null, Float.NaN));
+                    }
+                });
+            } else {
+                for (int ord = 0; ord < segment.size() && hits.size() < limit; ord++) {
+                    if (accept.test(ord)) {
+                        hits.add(new Hit(segment, ord, null, Float.NaN));
+                    }
+                }
+            }
+        }
+        forEachBuffered(chunk -> {
+            if (hits.size() < limit && MetadataFilter.test(filter, fields(chunk))) {
+                hits.add(new Hit(null, -1, chunk, Float.NaN));
+            }
+        });
+        return hits;
+    }
+
+    private void forEachBuffered(Consumer<Segment.Chunk> consumer) {
+        for (Segment.Chunk chunk : flushing) {
+            if (!flushingDeletes.contains(chunk.id())) {
+                consumer.accept(chunk);
+            }
+        }
+        buffer.forEach(consumer);
+    }
+
+    private static int count(Segment segment, MetadataFilter.Term term) {
+        return DOCUMENT_ID.equals(term.field()) ? segment.documentCount(term.value()) : segment.folderCount(term.value());
+    }
+
+    private static void forEachOrd(Segment segment, MetadataFilter.Term term, IntConsumer consumer) {
+        if (DOCUMENT_ID.equals(term.field())) {
+            segment.forEachDocumentOrd(term.value(), consumer);
+        } else {
+            segment.forEachFolderOrd(term.value(), consumer);
+        }
+    }
+
+    private static Function<String, String> fields(Segment segment, int ord) {
+        return field -> DOCUMENT_ID.equals(field) ? segment.documentId(ord) : segment.folderId(ord);
+    }
+
+    private static Function<String, String> fields(Segment.Chunk chunk) {
+        return field -> DOCUMENT_ID.equals(field) ? chunk.documentId() : chunk.folderId();
+    }
+
+    private static void offer(PriorityQueue<Hit> top, int topK, Hit hit) {
+        if (top.size() < topK) {
+            top.add(hit);
+        } else if (hit.cosine() > top.peek().cosine()) {
+            top.poll();
+            top.add(hit);
+        }
+    }
+
+    private String chunkId(Hit hit) {
+        return hit.chunk() != null ? hit.chunk().id() : hit.segment().id(hit.ord());
+    }
+
+    private Document toDocument(Hit hit, boolean scored) {
+        Segment.Chunk chunk = hit.chunk() != null ? hit.chunk() : hit.segment().chunk(hit.ord(), false);
+        Map<String, Object> metadata = new HashMap<>(fromJson(chunk.metadataJson()));
+        Document.Builder builder = Document.builder().id(chunk.id()).text(chunk.text());
+        if (scored) {
+            double score = (1 + hit.cosine()) / 2;
+            metadata.put("distance", 1 - score);
+            builder.score(score);
+        }
+        return builder.metadata(metadata).build();
+    }
+
+    private ChunkStore.StoredChunk toStoredChunk(Segment.Chunk chunk) {
+        return new ChunkStore.StoredChunk(chunk.id(), chunk.text(), fromJson(chunk.metadataJson()), chunk.vector());
+    }
+
+    private String toJson(Map<String, Object> metadata) {
+        try {
+            return objectMapper.writeValueAsString(metadata);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Map<String, Object> fromJson(String json) {
+        try {
+            return json.isEmpty() ? Map.of() : objectMapper.readValue(json, METADATA_TYPE);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static float[] normalize(float[] vector) {
+        float norm = (float) Math.sqrt(dot(vector, vector));
+        if (norm > 0) {
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] /= norm;
+            }
+        }
+        return vector;
+    }
+
+    private static float dot(float[] a, float[] b) {
+        float sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,51 @@
+package org.alfresco.ai_framework.index.embedded;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.alfresco.ai_framework.index.ChunkStore;
+import org.alfresco.ai_framework.index.DocumentIdReader;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Replaces the Elasticsearch vector store with the embedded one when {@code index.store} is
+ * {@code embedded}. The {@code embedded} profile sets it and disables the Elasticsearch clients.
+ */
+@Configuration
+@ConditionalOnProperty(name = "index.store", havingValue = "embedded")
+public class EmbeddedVectorStoreConfiguration {
+
+    @Bean
+    public EmbeddedVectorStore embeddedVectorStore(EmbeddingModel embeddingModel,
+                                                   ObjectMapper objectMapper,
+                                                   MeterRegistry meterRegistry,
+                                                   @Value("${index.embedded.directory:data/index}") Path directory,
+                                                   @Value("${spring.ai.vectorstore.elasticsearch.dimensions}") int dimensions,
+                                                   @Value("${index.embedded.m:16}") int m,
+                                                   @Value("${index.embedded.ef-construction:100}") int efConstruction,
+                                                   @Value("${index.embedded.ef-search:64}") int efSearch,
+                                                   @Value("${index.embedded.flush-threshold:10000}") int flushThreshold,
+                                                   @Value("${index.embedded.merge-factor:8}") int mergeFactor,
+                                                   @Value("${index.embedded.max-segment-chunks:2000000}") int maxSegmentChunks,
+                                                   @Value("${index.embedded.commit-interval:30s}") Duration commitInterval) throws IOException {
+        return new EmbeddedVectorStore(embeddingModel, objectMapper, meterRegistry, directory, dimensions,
+                m, efConstruction, efSearch, flushThreshold, mergeFactor, maxSegmentChunks, commitInterval);
+    }
+
+    @Bean
+    public DocumentIdReader embeddedDocumentIdReader(EmbeddedVectorStore embeddedVectorStore) {
+        return embeddedVectorStore::documentIds;
+    }
+
+    @Bean
+    public ChunkStore embeddedChunkStore(EmbeddedVectorStore embeddedVectorStore) {
+        return new EmbeddedChunkStore(embeddedVectorStore);
+    }
+}
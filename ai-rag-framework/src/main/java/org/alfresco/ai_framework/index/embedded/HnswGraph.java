@@ -0,0 +1,490 @@
+package org.alfresco.ai_framework.index.embedded;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.SplittableRandom;
+import java.util.function.IntPredicate;
+
+/**
+ * Hierarchical Navigable Small World graph over the vectors of one segment.
+ *
+ * The graph is built once, when a segment is written, and is read-only afterwards. Level 0 holds every
+ * node in fixed slots of {@code 1 + 2m} ints (count followed by neighbours) so it can be memory-mapped
+ * from the segment file; the upper levels hold a small fraction of the nodes and are kept on the heap.
+ * Vectors are normalized, so similarity is the dot product.
+ */
+final class HnswGraph {
+
+    private static final int MAGIC = 0x484e5357;
+
+    /**
+     * Vectors indexed by the graph, addressed by ordinal.
+     */
+    interface Vectors {
+
+        int size();
+
+        float[] vector(int ord);
+
+        float dot(int ord, float[] query);
+    }
+
+    private final int size;
+    private final int m;
+    private final int slot;
+    private final IntBuffer level0;
+    private final int[][][] upper;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    private HnswGraph(int size, int m, IntBuffer level0, int[][][] upper) {
+        this.size = size;
+        this.m = m;
+        this.slot = 1 + 2 * m;
+        this.level0 = level0;
+        this.upper = upper;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Builds the graph by inserting every vector in ordinal order.
+     *
+     * @param vectors        Vectors to index, kept on the heap during the build
+     * @param m              Maximum neighbours per node on the upper levels, twice as many on level 0
+     * @param efConstruction Size of the candidate list used to select the neighbours of a new node
+     */
+    static HnswGraph build(Vectors vectors, int m, int efConstruction) {
+        int size = vectors.size();
+        HnswGraph graph = new HnswGraph(size, m, IntBuffer.allocate(Math.multiplyExact(size, 1 + 2 * m)), new int[size][][]);
+        SplittableRandom random = new SplittableRandom(size);
+        double levelMultiplier = 1 / Math.log(Math.max(2, m));
+        for (int ord = 0; ord < size; ord++) {
+            int level = (int) (-Math.log(1 - random.nextDouble()) * levelMultiplier);
+            graph.insert(vectors, ord, level, efConstruction);
+        }
+        return graph;
+    }
+
+    private void insert(Vectors vectors, int ord, int level, int efConstruction) {
+        if (level > 0) {
+            upper[ord] = new int[level][];
+            for (int l = 0; l < level; l++) {
+                upper[ord][l] = new int[m + 1];
+            }
+        }
+        if (entryPoint < 0) {
+            entryPoint = ord;
+            maxLevel = level;
+            return;
+        }
+
+        float[] vector = vectors.vector(ord);
+        int entry = entryPoint;
+        for (int l = maxLevel; l > level; l--) {
+            entry = greedy(vectors, vector, entry, l);
+        }
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            long[] candidates = searchLayer(vectors, vector, entry, efConstruction, l, null).drainDescending();
+            int[] selected = selectNeighbours(vectors, candidates, maxConnections(l));
+            setNeighbours(ord, l, selected, selected.length);
+            for (int neighbour : selected) {
+                link(vectors, neighbour, ord, l);
+            }
+            entry = ordOf(candidates[0]);
+        }
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = ord;
+        }
+    }
+
+    /**
+     * Adds a reverse link, pruning the neighbour list with the selection heuristic when it is full.
+     */
+    private void link(Vectors vectors, int node, int neighbour, int level) {
+        int count = neighbourCount(node, level);
+        int max = maxConnections(level);
+        if (count < max) {
+            setNeighbour(node, level, count, neighbour);
+            setNeighbourCount(node, level, count + 1);
+            return;
+        }
+        float[] vector = vectors.vector(node);
+        LongHeap candidates = new LongHeap(count + 1);
+        for (int i = 0; i < count; i++) {
+            int existing = neighbour(node, level, i);
+            candidates.push(key(vectors.dot(existing, vector), existing));
+        }
+        candidates.push(key(vectors.dot(neighbour, vector), neighbour));
+        int[] selected = selectNeighbours(vectors, candidates.drainDescending(), max);
+        setNeighbours(node, level, selected, selected.length);
+    }
+
+    /**
+     * Keeps candidates, best first, that are closer to the base node than to any neighbour already
+     * selected, which preserves connectivity between clusters.
+     */
+    private static int[] selectNeighbours(Vectors vectors, long[] candidatesDescending, int max) {
+        int[] selected = new int[Math.min(max, candidatesDescending.length)];
+        float[][] selectedVectors = new float[selected.length][];
+        int count = 0;
+        for (long candidate : candidatesDescending) {
+            if (count == selected.length) {
+                break;
+            }
+            int ord = ordOf(candidate);
+            float similarityToBase = scoreOf(candidate);
+            boolean diverse = true;
+            for (int i = 0; i < count && diverse; i++) {
+                diverse = vectors.dot(ord, selectedVectors[i]) < similarityToBase;
+            }
+            if (diverse) {
+                selected[count] = ord;
+                selectedVectors[count++] = vectors.vector(ord);
+            }
+        }
+        // Fill remaining slots with the closest pruned candidates
+        for (int i = 0; i < candidatesDescending.length && count < selected.length; i++) {
+            int ord = ordOf(candidatesDescending[i]);
+            if (!contains(selected, count, ord)) {
+                selected[count++] = ord;
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Returns the best {@code ef} nodes accepted by the filter, as (score, ordinal) keys in descending order.
+     *
+     * @param accept Accepted ordinals, or null to accept all; rejected nodes are still traversed
+     * @param live   Live ordinals, or null when nothing is deleted
+     */
+    long[] search(Vectors vectors, float[] query, int ef, IntPredicate accept, IntPredicate live) {
+        if (entryPoint < 0) {
+            return new long[0];
+        }
+        int entry = entryPoint;
+        for (int l = maxLevel; l > 0; l--) {
+            entry = greedy(vectors, query, entry, l);
+        }
+        IntPredicate collect = accept == null ? live : live == null ? accept : accept.and(live);
+        return searchLayer(vectors, query, entry, ef, 0, collect).drainDescending();
+    }
+
+    private int greedy(Vectors vectors, float[] query, int entry, int level) {
+        int best = entry;
+        float bestScore = vectors.dot(entry, query);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            int current = best;
+            int count = neighbourCount(current, level);
+            for (int i = 0; i < count; i++) {
+                int candidate = neighbour(current, level, i);
+                float score = vectors.dot(candidate, query);
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = candidate;
+                    improved = true;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Best-first search of one level. Candidates are kept in a min-heap of complemented keys, so the
+     * best candidate comes first, and results in a min-heap bounded to {@code ef}, worst result first.
+     */
+    private LongHeap searchLayer(Vectors vectors, float[] query, int entry, int ef, int level, IntPredicate collect) {
+        BitSet visited = new BitSet(size);
+        LongHeap candidates = new LongHeap(ef * 2);
+        LongHeap results = new LongHeap(ef + 1);
+
+        long entryKey = key(vectors.dot(entry, query), entry);
+        visited.set(entry);
+        candidates.push(~entryKey);
+        if (collect == null || collect.test(entry)) {
+            results.push(entryKey);
+        }
+
+        while (!candidates.isEmpty()) {
+            long best = ~candidates.pop();
+            if (results.size() >= ef && scoreOf(best) < scoreOf(results.peek())) {
+                break;
+            }
+            int node = ordOf(best);
+            int count = neighbourCount(node, level);
+            for (int i = 0; i < count; i++) {
+                int neighbour = neighbour(node, level, i);
+                if (visited.get(neighbour)) {
+                    continue;
+                }
+                visited.set(neighbour);
+                float score = vectors.dot(neighbour, query);
+                if (results.size() < ef || score > scoreOf(results.peek())) {
+                    long neighbourKey = key(score, neighbour);
+                    candidates.push(~neighbourKey);
+                    if (collect == null || collect.test(neighbour)) {
+                        results.push(neighbourKey);
+                        if (results.size() > ef) {
+                            results.pop();
+                        }
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    private int maxConnections(int level) {
+        return level == 0 ? 2 * m : m;
+    }
+
+    private int neighbourCount(int ord, int level) {
+        if (level == 0) {
+            return level0.get(ord * slot);
+        }
+        int[][] levels = upper[ord];
+        return levels == null || levels.length < level ? 0 : levels[level - 1][0];
+    }
+
+    private int neighbour(int ord, int level, int i) {
+        return level == 0 ? level0.get(ord * slot + 1 + i) : upper[ord][level - 1][1 + i];
+    }
+
+    private void setNeighbour(int ord, int level, int i, int neighbour) {
+        if (level == 0) {
+            level0.put(ord * slot + 1 + i, neighbour);
+        } else {
+            upper[ord][level - 1][1 + i] = neighbour;
+        }
+    }
+
+    private void setNeighbourCount(int ord, int level, int count) {
+        if (level == 0) {
+            level0.put(ord * slot, count);
+        } else {
+            upper[ord][level - 1][0] = count;
+        }
+    }
+
+    private void setNeighbours(int ord, int level, int[] neighbours, int count) {
+        for (int i = 0; i < count; i++) {
+            setNeighbour(ord, level, i, neighbours[i]);
+        }
+        setNeighbourCount(ord, level, count);
+    }
+
+    /**
+     * Writes the header and level 0 in the layout read by {@link #read}, followed by the upper levels.
+     */
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(size);
+        out.writeInt(m);
+        out.writeInt(maxLevel);
+        out.writeInt(entryPoint);
+        ByteBuffer buffer = ByteBuffer.allocate(slot * 4).order(ByteOrder.LITTLE_ENDIAN);
+        for (int ord = 0; ord < size; ord++) {
+            buffer.clear();
+            for (int i = 0; i < slot; i++) {
+                buffer.putInt(level0.get(ord * slot + i));
+            }
+            out.write(buffer.array());
+        }
+        for (int ord = 0; ord < size; ord++) {
+            int[][] levels = upper[ord];
+            out.writeInt(levels == null ? 0 : levels.length);
+            if (levels != null) {
+                for (int[] neighbours : levels) {
+                    out.writeInt(neighbours[0]);
+                    for (int i = 1; i <= neighbours[0]; i++) {
+                        out.writeInt(neighbours[i]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Opens a graph written by {@link #write}, mapping level 0 and loading the upper levels.
+     *
+     * @param mapped Memory-mapped graph file
+     */
+    static HnswGraph read(ByteBuffer mapped) throws IOException {
+        ByteBuffer header = mapped.duplicate().order(ByteOrder.BIG_ENDIAN);
+        if (header.getInt() != MAGIC) {
+            throw new IOException("Not an HNSW graph file");
+        }
+        int size = header.getInt();
+        int m = header.getInt();
+        int maxLevel = header.getInt();
+        int entryPoint = header.getInt();
+        int level0Bytes = Math.multiplyExact(size, (1 + 2 * m) * 4);
+
+        IntBuffer level0 = mapped.duplicate().position(header.position()).limit(header.position() + level0Bytes)
+                .slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+
+        int[][][] upper = new int[size][][];
+        DataInputStream in = new DataInputStream(new ByteBufferInputStream(
+                mapped.duplicate().position(header.position() + level0Bytes).slice()));
+        for (int ord = 0; ord < size; ord++) {
+            int levels = in.readInt();
+            if (levels > 0) {
+                upper[ord] = new int[levels][];
+                for (int l = 0; l < levels; l++) {
+                    int count = in.readInt();
+                    upper[ord][l] = new int[m + 1];
+                    upper[ord][l][0] = count;
+                    for (int i = 1; i <= count; i++) {
+                        upper[ord][l][i] = in.readInt();
+                    }
+                }
+            }
+        }
+        HnswGraph graph = new HnswGraph(size, m, level0, upper);
+        graph.maxLevel = maxLevel;
+        graph.entryPoint = entryPoint;
+        return graph;
+    }
+
+    /**
+     * Encodes a score and an ordinal in a long whose natural order is the score order.
+     */
+    static long key(float score, int ord) {
+        int bits = Float.floatToIntBits(score);
+        bits ^= (bits >> 31) & 0x7fffffff;
+        return ((long) bits << 32) | (ord & 0xffffffffL);
+    }
+
+    static float scoreOf(long key) {
+        int bits = (int) (key >>> 32);
+        bits ^= (bits >> 31) & 0x7fffffff;
+        return Float.intBitsToFloat(bits);
+    }
+
+    static int ordOf(long key) {
+        return (int) key;
+    }
+
+    private static boolean contains(int[] values, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sequential reader of the upper levels, which follow level 0 in the mapped file.
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+    }
+
+    /**
+     * Binary min-heap of longs.
+     */
+    static final class LongHeap {
+
+        private long[] heap;
+        private int size;
+
+        LongHeap(int capacity) {
+            heap = new long[Math.max(2, capacity)];
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        long peek() {
+            return heap[0];
+        }
+
+        void push(long value) {
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (heap[parent] <= value) {
+                    break;
+                }
+                heap[i] = heap[parent];
+                i = parent;
+            }
+            heap[i] = value;
+        }
+
+        long pop() {
+            long top = heap[0];
+            long last = heap[--size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && heap[child + 1] < heap[child]) {
+                    child++;
+                }
+                if (heap[child] >= last) {
+                    break;
+                }
+                heap[i] = heap[child];
+                i = child;
+            }
+            heap[i] = last;
+            return top;
+        }
+
+        /**
+         * Empties the heap, returning its values from the largest to the smallest.
+         */
+        long[] drainDescending() {
+            long[] values = new long[size];
+            for (int i = values.length - 1; i >= 0; i--) {
+                values[i] = pop();
+            }
+            return values;
+        }
+    }
+}
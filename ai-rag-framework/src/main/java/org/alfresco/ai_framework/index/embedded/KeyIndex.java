@@ -0,0 +1,76 @@
+package org.alfresco.ai_framework.index.embedded;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+
+/**
+ * Open-addressing hash index from a string key (chunk, document or folder ID) to the ordinals of a
+ * segment holding it. Only ordinals are kept on the heap; keys are read back from the segment metadata
+ * to resolve collisions. Ordinals sharing a key are chained in ascending order.
+ */
+final class KeyIndex {
+
+    private final int[] table;
+    private final int[] next;
+    private final IntFunction<String> keys;
+    private final int mask;
+
+    /**
+     * @param initialKeys Key of every ordinal, only used while building the index
+     * @param keys        Reads the key of an ordinal from the segment
+     */
+    KeyIndex(String[] initialKeys, IntFunction<String> keys) {
+        this.keys = keys;
+        int capacity = Integer.highestOneBit(Math.max(2, initialKeys.length) * 2 - 1) << 1;
+        this.table = new int[capacity];
+        this.mask = capacity - 1;
+        this.next = new int[initialKeys.length];
+        Arrays.fill(next, -1);
+        for (int ord = initialKeys.length - 1; ord >= 0; ord--) {
+            int slot = slot(initialKeys[ord], i -> initialKeys[i]);
+            if (table[slot] != 0) {
+                next[ord] = table[slot] - 1;
+            }
+            table[slot] = ord + 1;
+        }
+    }
+
+    /**
+     * Returns the first ordinal holding the key, or -1.
+     */
+    int first(String key) {
+        int head = table[slot(key, keys)];
+        return head - 1;
+    }
+
+    /**
+     * Calls the consumer with every ordinal holding the key, in ascending order.
+     */
+    void forEach(String key, IntConsumer consumer) {
+        for (int ord = first(key); ord >= 0; ord = next[ord]) {
+            consumer.accept(ord);
+        }
+    }
+
+    int count(String key) {
+        int count = 0;
+        for (int ord = first(key); ord >= 0; ord = next[ord]) {
+            count++;
+        }
+        return count;
+    }
+
+    private int slot(String key, IntFunction<String> keyOf) {
+        int slot = mix(key.hashCode()) & mask;
+        while (table[slot] != 0 && !key.equals(keyOf.apply(table[slot] - 1))) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static int mix(int hash) {
+        hash *= 0x9e3779b9;
+        return hash ^ (hash >>> 16);
+    }
+}
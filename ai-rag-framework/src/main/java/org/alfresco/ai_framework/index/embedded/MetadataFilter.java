@@ -0,0 +1,130 @@
+package org.alfresco.ai_framework.index.embedded;
+
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Evaluates Spring AI filter expressions on the metadata fields indexed by the embedded store,
+ * {@code documentId} and {@code folderId}, with the ==, !=, in, nin, and, or and not operators.
+ */
+final class MetadataFilter {
+
+    static final String DOCUMENT_ID = "documentId";
+    static final String FOLDER_ID = "folderId";
+
+    private static final Set<String> FIELDS = Set.of(DOCUMENT_ID, FOLDER_ID);
+
+    /**
+     * Equality on an indexed field that every match must satisfy, used to look candidates up by key.
+     */
+    record Term(String field, String value) {
+    }
+
+    private MetadataFilter() {
+    }
+
+    /**
+     * Checks that the expression only uses supported fields and operators.
+     *
+     * @throws IllegalArgumentException otherwise
+     */
+    static void validate(Filter.Expression expression) {
+        switch (expression.type()) {
+            case AND, OR -> {
+                validate(operand(expression.left()));
+                validate(operand(expression.right()));
+            }
+            case NOT -> validate(operand(expression.left()));
+            case EQ, NE -> {
+                field(expression);
+                value(expression);
+            }
+            case IN, NIN -> {
+                field(expression);
+                values(expression);
+            }
+            default -> throw unsupported(expression);
+        }
+    }
+
+    /**
+     * Evaluates the expression on a chunk.
+     *
+     * @param fields Reads an indexed field of the chunk
+     */
+    static boolean test(Filter.Expression expression, Function<String, String> fields) {
+        return switch (expression.type()) {
+            case AND -> test(operand(expression.left()), fields) && test(operand(expression.right()), fields);
+            case OR -> test(operand(expression.left()), fields) || test(operand(expression.right()), fields);
+            case NOT -> !test(operand(expression.left()), fields);
+            case EQ -> Objects.equals(fields.apply(field(expression)), value(expression));
+            case NE -> !Objects.equals(fields.apply(field(expression)), value(expression));
+            case IN -> values(expression).contains(fields.apply(field(expression)));
+            case NIN -> !values(expression).contains(fields.apply(field(expression)));
+            default -> throw unsupported(expression);
+        };
+    }
+
+    private static IllegalArgumentException unsupported(Filter.Expression expression) {
+        return new IllegalArgumentException("Unsupported filter operator " + expression.type()
+                + ", the embedded vector store supports ==, !=, in, nin, and, or and not");
+    }
+
+    /**
+     * Returns an equality on an indexed field implied by the whole expression, i.e. at the top level or
+     * in a branch of a conjunction.
+     */
+    static Optional<Term> term(Filter.Expression expression) {
+        return switch (expression.type()) {
+            case EQ -> Optional.of(new Term(field(expression), value(expression)));
+            case AND -> term(operand(expression.left())).or(() -> term(operand(expression.right())));
+            default -> Optional.empty();
+        };
+    }
+
+    private static Filter.Expression operand(Filter.Operand operand) {
+        if (operand instanceof Filter.Group group) {
+            return group.content();
+        }
+        if (operand instanceof Filter.Expression expression) {
+            return expression;
+        }
+        throw new IllegalArgumentException("Expected a filter expression, found " + operand);
+    }
+
+    private static String field(Filter.Expression expression) {
+        if (!(expression.left() instanceof Filter.Key key)) {
+            throw new IllegalArgumentException("Expected a metadata key, found " + expression.left());
+        }
+        // Keys written as quoted identifiers may keep their quotes
+        String field = key.key().replaceAll("^['\"]|['\"]$", "");
+        if (!FIELDS.contains(field)) {
+            throw new IllegalArgumentException("Unsupported filter key " + field
+                    + ", the embedded vector store can filter on " + FIELDS);
+        }
+        return field;
+    }
+
+    private static String value(Filter.Expression expression) {
+        if (!(expression.right() instanceof Filter.Value value)) {
+            throw new IllegalArgumentException("Expected a value, found " + expression.right());
+        }
+        return String.valueOf(value.value());
+    }
+
+    private static Collection<String> values(Filter.Expression expression) {
+        if (!(expression.right() instanceof Filter.Value value)) {
+            throw new IllegalArgumentException("Expected a list of values, found " + expression.right());
+        }
+        if (value.value() instanceof Collection<?> collection) {
+            return collection.stream().map(String::valueOf).toList();
+        }
+        return List.of(String.valueOf(value.value()));
+    }
+}
@@ -0,0 +1,440 @@
+package org.alfresco.ai_framework.index.embedded;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+
+/**
+ * Immutable set of chunks written at once by a flush or a merge, made of three memory-mapped files:
+ * <ul>
+ *     <li>{@code <name>.vec}: normalized float32 vectors, little-endian, in ordinal order</li>
+ *     <li>{@code <name>.meta}: chunk ID, document ID, folder ID, text and metadata JSON of every chunk,
+ *     followed by the offset of every record and the chunk count</li>
+ *     <li>{@code <name>.hnsw}: the {@link HnswGraph} over the vectors</li>
+ * </ul>
+ * The vector file is mapped in several regions, so a segment can hold more than 2 GB of vectors; the
+ * metadata and graph files are mapped at once and each limited to {@link #MAX_MAPPED_BYTES}.
+ *
+ * Deletions are the only mutable state. They are kept in a bitset and persisted at commit time to
+ * {@code <name>_<generation>.del}, a new file per generation, so a committed manifest always points to
+ * complete files.
+ */
+final class Segment implements HnswGraph.Vectors {
+
+    static final String VECTORS = ".vec";
+    static final String METADATA = ".meta";
+    static final String GRAPH = ".hnsw";
+    static final String DELETES = ".del";
+
+    /**
+     * Size limit of a single mapped buffer.
+     */
+    static final long MAX_MAPPED_BYTES = Integer.MAX_VALUE;
+
+    /**
+     * Chunk as stored in a segment; the vector is null when only the stored fields were read.
+     */
+    record Chunk(String id, String documentId, String folderId, String text, String metadataJson, float[] vector) {
+    }
+
+    private final String name;
+    private final int size;
+    private final int dimensions;
+    private final MappedVectors vectors;
+    private final ByteBuffer metadata;
+    private final long recordTable;
+    private final HnswGraph graph;
+    private final KeyIndex ids;
+    private final KeyIndex documentIds;
+    private final KeyIndex folderIds;
+    private final AtomicLongArray deleted;
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private volatile int deletedCount;
+    private long deletesGeneration;
+
+    private Segment(Path directory, String name, int dimensions, long deletesGeneration) throws IOException {
+        this.name = name;
+        this.dimensions = dimensions;
+        this.deletesGeneration = deletesGeneration;
+
+        this.metadata = map(directory.resolve(name + METADATA));
+        this.size = metadata.getInt(metadata.capacity() - 4);
+        this.recordTable = metadata.capacity() - 4 - (size + 1L) * 8;
+        Path vectorFile = directory.resolve(name + VECTORS);
+        if (Files.size(vectorFile) != (long) size * dimensions * Float.BYTES) {
+            throw new IOException("Segment " + name + " holds vectors of another dimension than " + dimensions);
+        }
+        this.vectors = new MappedVectors(vectorFile, dimensions, size);
+        this.graph = HnswGraph.read(map(directory.resolve(name + GRAPH)));
+
+        String[] chunkIds = new String[size];
+        String[] chunkDocumentIds = new String[size];
+        String[] chunkFolderIds = new String[size];
+        for (int ord = 0; ord < size; ord++) {
+            ByteBuffer record = record(ord);
+            chunkIds[ord] = readString(record);
+            chunkDocumentIds[ord] = readString(record);
+            chunkFolderIds[ord] = readString(record);
+        }
+        this.ids = new KeyIndex(chunkIds, this::id);
+        this.documentIds = new KeyIndex(chunkDocumentIds, this::documentId);
+        this.folderIds = new KeyIndex(chunkFolderIds, this::folderId);
+
+        this.deleted = new AtomicLongArray((size + 63) / 64);
+        if (deletesGeneration >= 0) {
+            ByteBuffer bits = map(deletesFile(directory, name, deletesGeneration));
+            int count = 0;
+            for (int i = 0; i < deleted.length(); i++) {
+                long word = bits.getLong(i * 8);
+                deleted.set(i, word);
+                count += Long.bitCount(word);
+            }
+            this.deletedCount = count;
+        }
+    }
+
+    /**
+     * Writes a segment and opens it. Vectors are written first and the graph is built on the mapped
+     * vector file, so a merge does not need the vectors on the heap. The files written are removed if
+     * the segment cannot be completed.
+     *
+     * @param chunks Reads chunk {@code i}, vector included; called twice per chunk
+     */
+    static Segment write(Path directory, String name, int count, IntFunction<Chunk> chunks, int dimensions,
+                         int m, int efConstruction) throws IOException {
+        try {
+            writeFiles(directory, name, count, chunks, dimensions, m, efConstruction);
+            return open(directory, name, dimensions, -1);
+        } catch (IOException | RuntimeException e) {
+            for (String extension : List.of(VECTORS, METADATA, GRAPH)) {
+                try {
+                    Files.deleteIfExists(directory.resolve(name + extension));
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+            }
+            throw e;
+        }
+    }
+
+    private static void writeFiles(Path directory, String name, int count, IntFunction<Chunk> chunks, int dimensions,
+                                   int m, int efConstruction) throws IOException {
+        Path vectorFile = directory.resolve(name + VECTORS);
+        try (FileChannel channel = FileChannel.open(vectorFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(dimensions * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < count; i++) {
+                float[] vector = chunks.apply(i).vector();
+                buffer.clear();
+                for (int d = 0; d < dimensions; d++) {
+                    buffer.putFloat(vector[d]);
+                }
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            channel.force(true);
+        }
+
+        Path metadataFile = directory.resolve(name + METADATA);
+        try (FileOutputStream file = new FileOutputStream(metadataFile.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+            long[] offsets = new long[count + 1];
+            for (int i = 0; i < count; i++) {
+                offsets[i] = out.size();
+                Chunk chunk = chunks.apply(i);
+                writeString(out, chunk.id());
+                writeString(out, chunk.documentId());
+                writeString(out, chunk.folderId());
+                writeString(out, chunk.text());
+                writeString(out, chunk.metadataJson());
+                // DataOutputStream saturates its byte count at Integer.MAX_VALUE, the limit of a mapped buffer
+                if (out.size() + (count + 1L) * 8 + 4 > MAX_MAPPED_BYTES) {
+                    throw new IOException("Segment " + name + " exceeds the maximum metadata size");
+                }
+            }
+            offsets[count] = out.size();
+            for (long offset : offsets) {
+                out.writeLong(offset);
+            }
+            out.writeInt(count);
+            out.flush();
+            file.getFD().sync();
+        }
+
+        HnswGraph graph = HnswGraph.build(new MappedVectors(vectorFile, dimensions, count), m, efConstruction);
+        try (FileOutputStream file = new FileOutputStream(directory.resolve(name + GRAPH).toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+            graph.write(out);
+            out.flush();
+            file.getFD().sync();
+        }
+    }
+
+    /**
+     * Opens a committed segment.
+     *
+     * @param deletesGeneration Generation of the deletes file, or -1 if nothing was deleted
+     */
+    static Segment open(Path directory, String name, int dimensions, long deletesGeneration) throws IOException {
+        return new Segment(directory, name, dimensions, deletesGeneration);
+    }
+
+    static Path deletesFile(Path directory, String name, long generation) {
+        return directory.resolve(name + "_" + generation + DELETES);
+    }
+
+    String name() {
+        return name;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    int liveCount() {
+        return size - deletedCount;
+    }
+
+    long deletesGeneration() {
+        return deletesGeneration;
+    }
+
+    /**
+     * Size of the metadata file, which bounds the metadata of a merge of this segment.
+     */
+    long metadataBytes() {
+        return metadata.capacity();
+    }
+
+    @Override
+    public float[] vector(int ord) {
+        return vectors.vector(ord);
+    }
+
+    @Override
+    public float dot(int ord, float[] query) {
+        return vectors.dot(ord, query);
+    }
+
+    String id(int ord) {
+        return readString(record(ord));
+    }
+
+    String documentId(int ord) {
+        ByteBuffer record = record(ord);
+        skipString(record);
+        return readString(record);
+    }
+
+    String folderId(int ord) {
+        ByteBuffer record = record(ord);
+        skipString(record);
+        skipString(record);
+        return readString(record);
+    }
+
+    /**
+     * Reads the stored fields of a chunk, with its vector if requested.
+     */
+    Chunk chunk(int ord, boolean withVector) {
+        ByteBuffer record = record(ord);
+        return new Chunk(readString(record), readString(record), readString(record), readString(record),
+                readString(record), withVector ? vector(ord) : null);
+    }
+
+    boolean isLive(int ord) {
+        return (deleted.get(ord >>> 6) & (1L << ord)) == 0;
+    }
+
+    boolean hasDeletions() {
+        return deletedCount > 0;
+    }
+
+    /**
+     * Marks a chunk as deleted.
+     *
+     * @return True if the chunk was live
+     */
+    boolean delete(int ord) {
+        long bit = 1L << ord;
+        long word;
+        do {
+            word = deleted.get(ord >>> 6);
+            if ((word & bit) != 0) {
+                return false;
+            }
+        } while (!deleted.compareAndSet(ord >>> 6, word, word | bit));
+        synchronized (this) {
+            deletedCount++;
+        }
+        dirty.set(true);
+        return true;
+    }
+
+    /**
+     * Deletes the chunk with the given ID, if this segment holds it.
+     */
+    boolean deleteById(String id) {
+        int ord = ids.first(id);
+        return ord >= 0 && delete(ord);
+    }
+
+    void forEachDocumentOrd(String documentId, IntConsumer consumer) {
+        documentIds.forEach(documentId, consumer);
+    }
+
+    void forEachFolderOrd(String folderId, IntConsumer consumer) {
+        folderIds.forEach(folderId, consumer);
+    }
+
+    int documentCount(String documentId) {
+        return documentIds.count(documentId);
+    }
+
+    int folderCount(String folderId) {
+        return folderIds.count(folderId);
+    }
+
+    /**
+     * Approximate search of the graph, skipping deleted chunks.
+     *
+     * @return (score, ordinal) keys, best first
+     */
+    long[] search(float[] query, int ef, IntPredicate accept) {
+        return graph.search(this, query, ef, accept, hasDeletions() ? this::isLive : null);
+    }
+
+    /**
+     * Persists the deletions to a new generation if they changed since the last commit.
+     *
+     * @return The file of the previous generation, now obsolete, or null
+     */
+    Path commitDeletes(Path directory) throws IOException {
+        if (!dirty.getAndSet(false)) {
+            return null;
+        }
+        long generation = deletesGeneration + 1;
+        ByteBuffer buffer = ByteBuffer.allocate(deleted.length() * 8);
+        for (int i = 0; i < deleted.length(); i++) {
+            buffer.putLong(deleted.get(i));
+        }
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(deletesFile(directory, name, generation),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Path previous = deletesGeneration >= 0 ? deletesFile(directory, name, deletesGeneration) : null;
+        deletesGeneration = generation;
+        return previous;
+    }
+
+    /**
+     * Files of the segment, for the cleanup after a merge.
+     */
+    List<Path> files(Path directory) {
+        return deletesGeneration >= 0
+                ? List.of(directory.resolve(name + VECTORS), directory.resolve(name + METADATA),
+                        directory.resolve(name + GRAPH), deletesFile(directory, name, deletesGeneration))
+                : List.of(directory.resolve(name + VECTORS), directory.resolve(name + METADATA),
+                        directory.resolve(name + GRAPH));
+    }
+
+    private ByteBuffer record(int ord) {
+        int offset = (int) metadata.getLong((int) (recordTable + ord * 8L));
+        return metadata.duplicate().position(offset);
+    }
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void skipString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        buffer.position(buffer.position() + length);
+    }
+
+    private static ByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, Files.size(file));
+        }
+    }
+
+    /**
+     * Vectors read from a vector file, mapped in regions of whole vectors that each fit a mapped buffer.
+     */
+    private static final class MappedVectors implements HnswGraph.Vectors {
+
+        private final FloatBuffer[] regions;
+        private final int vectorsPerRegion;
+        private final int dimensions;
+        private final int size;
+
+        MappedVectors(Path file, int dimensions, int size) throws IOException {
+            long vectorBytes = (long) dimensions * Float.BYTES;
+            this.vectorsPerRegion = (int) (MAX_MAPPED_BYTES / vectorBytes);
+            this.dimensions = dimensions;
+            this.size = size;
+            this.regions = new FloatBuffer[(int) ((size + (long) vectorsPerRegion - 1) / vectorsPerRegion)];
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                for (int region = 0; region < regions.length; region++) {
+                    long first = (long) region * vectorsPerRegion;
+                    long count = Math.min(vectorsPerRegion, size - first);
+                    regions[region] = channel.map(FileChannel.MapMode.READ_ONLY, first * vectorBytes, count * vectorBytes)
+                            .order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+                }
+            }
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public float[] vector(int ord) {
+            float[] vector = new float[dimensions];
+            regions[ord / vectorsPerRegion].get((ord % vectorsPerRegion) * dimensions, vector);
+            return vector;
+        }
+
+        @Override
+        public float dot(int ord, float[] query) {
+            FloatBuffer region = regions[ord / vectorsPerRegion];
+            int base = (ord % vectorsPerRegion) * dimensions;
+            float sum = 0;
+            for (int i = 0; i < dimensions; i++) {
+                sum += region.get(base + i) * query[i];
+            }
+            return sum;
+        }
+    }
+}
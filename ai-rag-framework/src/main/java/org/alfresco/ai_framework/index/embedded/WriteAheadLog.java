@@ -0,0 +1,178 @@
+package org.alfresco.ai_framework.index.embedded;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of the adds and deletes not yet part of a committed segment, so that an acknowledged
+ * write survives a crash. Each call appends one record (length, CRC32, payload) and forces it to disk.
+ *
+ * A new log generation is started when a flush begins; the manifest records the first generation
+ * still needed, and older logs are deleted once the manifest is committed. Replay stops at the first
+ * truncated or corrupt record, which can only be the tail written during a crash.
+ */
+final class WriteAheadLog implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteAheadLog.class);
+
+    private static final byte ADD = 1;
+    private static final byte DELETE = 2;
+    private static final String PREFIX = "wal-";
+    private static final String SUFFIX = ".log";
+
+    /**
+     * Receives the records of a log in order.
+     */
+    interface Replay {
+
+        void added(List<Segment.Chunk> chunks);
+
+        void deleted(List<String> ids);
+    }
+
+    private final long generation;
+    private final FileChannel channel;
+
+    WriteAheadLog(Path directory, long generation) throws IOException {
+        this.generation = generation;
+        this.channel = FileChannel.open(file(directory, generation),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    static Path file(Path directory, long generation) {
+        return directory.resolve(PREFIX + generation + SUFFIX);
+    }
+
+    /**
+     * Returns the generation of a log file name, or -1 if it is not a log.
+     */
+    static long generationOf(String fileName) {
+        if (!fileName.startsWith(PREFIX) || !fileName.endsWith(SUFFIX)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(fileName.substring(PREFIX.length(), fileName.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    long generation() {
+        return generation;
+    }
+
+    synchronized void appendAdds(List<Segment.Chunk> chunks) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(ADD);
+        out.writeInt(chunks.size());
+        for (Segment.Chunk chunk : chunks) {
+            Segment.writeString(out, chunk.id());
+            Segment.writeString(out, chunk.documentId());
+            Segment.writeString(out, chunk.folderId());
+            Segment.writeString(out, chunk.text());
+            Segment.writeString(out, chunk.metadataJson());
+            out.writeInt(chunk.vector().length);
+            for (float value : chunk.vector()) {
+                out.writeFloat(value);
+            }
+        }
+        append(bytes.toByteArray());
+    }
+
+    synchronized void appendDeletes(Collection<String> ids) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(DELETE);
+        out.writeInt(ids.size());
+        for (String id : ids) {
+            Segment.writeString(out, id);
+        }
+        append(bytes.toByteArray());
+    }
+
+    private void append(byte[] payload) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer record = ByteBuffer.allocate(8 + payload.length);
+        record.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+        while (record.hasRemaining()) {
+            channel.write(record);
+        }
+        channel.force(false);
+    }
+
+    /**
+     * Replays a log file, stopping at a truncated or corrupt tail.
+     */
+    static void replay(Path file, Replay replay) throws IOException {
+        ByteBuffer log = ByteBuffer.wrap(Files.readAllBytes(file));
+        int records = 0;
+        while (log.remaining() >= 8) {
+            int length = log.getInt();
+            int checksum = log.getInt();
+            if (length < 0 || length > log.remaining()) {
+                break;
+            }
+            ByteBuffer payload = log.slice(log.position(), length);
+            CRC32 crc = new CRC32();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            log.position(log.position() + length);
+            read(payload, replay);
+            records++;
+        }
+        if (log.hasRemaining()) {
+            logger.warn("Ignored {} bytes of incomplete records at the end of {}", log.remaining(), file);
+        }
+        logger.info("Replayed {} records from {}", records, file);
+    }
+
+    private static void read(ByteBuffer payload, Replay replay) {
+        byte type = payload.get();
+        int count = payload.getInt();
+        if (type == ADD) {
+            List<Segment.Chunk> chunks = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String id = Segment.readString(payload);
+                String documentId = Segment.readString(payload);
+                String folderId = Segment.readString(payload);
+                String text = Segment.readString(payload);
+                String metadataJson = Segment.readString(payload);
+                float[] vector = new float[payload.getInt()];
+                for (int d = 0; d < vector.length; d++) {
+                    vector[d] = payload.getFloat();
+                }
+                chunks.add(new Segment.Chunk(id, documentId, folderId, text, metadataJson, vector));
+            }
+            replay.added(chunks);
+        } else if (type == DELETE) {
+            List<String> ids = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                ids.add(Segment.readString(payload));
+            }
+            replay.deleted(ids);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,105 @@
+package org.alfresco.ai_framework.index.snapshot;
+
+import org.alfresco.ai_framework.index.snapshot.SnapshotFormat.CorruptSnapshotException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+
+/**
+ * REST controller exporting the document index to snapshots, importing and verifying them.
+ */
+@RestController
+public class SnapshotController {
+
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotController.class);
+
+    private final SnapshotService snapshotService;
+
+    public SnapshotController(SnapshotService snapshotService) {
+        this.snapshotService = snapshotService;
+    }
+
+    /**
+     * Lists the snapshots of the snapshot directory.
+     */
+    @GetMapping("/index/snapshots")
+    public ResponseEntity<?> list() {
+        try {
+            return ResponseEntity.ok(snapshotService.list());
+        } catch (IOException | RuntimeException e) {
+            return handleException("Failed to list snapshots: ", e, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Exports the index to a new snapshot, with float32 or int8 vectors.
+     */
+    @PostMapping("/index/snapshot/export")
+    public ResponseEntity<?> export(@RequestParam("name") String name,
+                                    @RequestParam(value = "vectors", defaultValue = "float32") String vectors) {
+        try {
+            return ResponseEntity.status(HttpStatus.CREATED).body(snapshotService.export(name, vectors));
+        } catch (IllegalArgumentException e) {
+            return handleException("Invalid export request: ", e, HttpStatus.BAD_REQUEST);
+        } catch (IllegalStateException e) {
+            return handleException("Cannot export snapshot: ", e, HttpStatus.CONFLICT);
+        } catch (IOException | RuntimeException e) {
+            return handleException("Failed to export snapshot: ", e, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Imports a snapshot into the index, also when it was embedded with another model if forced.
+     */
+    @PostMapping("/index/snapshot/import")
+    public ResponseEntity<?> importSnapshot(@RequestParam("name") String name,
+                                            @RequestParam(value = "force", defaultValue = "false") boolean force) {
+        try {
+            return ResponseEntity.ok(snapshotService.importSnapshot(name, force));
+        } catch (IllegalArgumentException e) {
+            return handleException("Invalid import request: ", e, HttpStatus.BAD_REQUEST);
+        } catch (NoSuchFileException e) {
+            return handleException("Snapshot not found: ", e, HttpStatus.NOT_FOUND);
+        } catch (IllegalStateException e) {
+            return handleException("Cannot import snapshot: ", e, HttpStatus.CONFLICT);
+        } catch (CorruptSnapshotException e) {
+            return handleException("Corrupt snapshot: ", e, HttpStatus.UNPROCESSABLE_ENTITY);
+        } catch (IOException | RuntimeException e) {
+            return handleException("Failed to import snapshot: ", e, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Checks the checksums and counts of a snapshot without importing it.
+     */
+    @GetMapping("/index/snapshot/verify")
+    public ResponseEntity<?> verify(@RequestParam("name") String name) {
+        try {
+            return ResponseEntity.ok(snapshotService.verify(name));
+        } catch (IllegalArgumentException e) {
+            return handleException("Invalid verify request: ", e, HttpStatus.BAD_REQUEST);
+        } catch (NoSuchFileException e) {
+            return handleException("Snapshot not found: ", e, HttpStatus.NOT_FOUND);
+        } catch (CorruptSnapshotException e) {
+            return handleException("Corrupt snapshot: ", e, HttpStatus.UNPROCESSABLE_ENTITY);
+        } catch (IOException | RuntimeException e) {
+            return handleException("Failed to verify snapshot: ", e, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Handles exceptions and creates a ResponseEntity with the given message and status.
+     */
+    private ResponseEntity<String> handleException(String message, Exception e, HttpStatus status) {
+        logger.error("Message: {}, status: {}", message, status, e);
+        return ResponseEntity.status(status).body(message + e.getMessage());
+    }
+}
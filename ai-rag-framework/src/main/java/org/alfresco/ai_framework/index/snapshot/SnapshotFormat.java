@@ -0,0 +1,269 @@
+package org.alfresco.ai_framework.index.snapshot;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.luben.zstd.Zstd;
+import org.alfresco.ai_framework.index.ChunkStore.StoredChunk;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary snapshot format of the document index: a header, blocks of chunks and a trailer.
+ *
+ * <pre>
+ * header   "AISNAP" (6 bytes), version (short), dimensions (int), vector encoding (byte),
+ *          embedding model (UTF), creation time in milliseconds (long)
+ * block    block magic (int), chunks (int), raw length (int), compressed length (int),
+ *          CRC32C of the compressed bytes (int), payload compressed with zstd
+ * trailer  end magic (int), blocks (int), chunks (long), SHA-256 of the header, blocks and end magic (32 bytes)
+ * </pre>
+ *
+ * Framing integers are big-endian. The payload of a block is columnar and little-endian, so that
+ * vectors are stored as raw blocks and each column compresses with its own kind of values:
+ * <ul>
+ *     <li>vectors: {@code float32} as chunks × dimensions floats, or {@code int8} as one float scale
+ *     per chunk followed by chunks × dimensions bytes, the component being the byte times the scale</li>
+ *     <li>columns id, documentId, folderId, content and the other metadata as JSON, each as one
+ *     (int length, UTF-8 bytes) per chunk, length -1 standing for null</li>
+ * </ul>
+ */
+final class SnapshotFormat {
+
+    static final byte[] MAGIC = "AISNAP".getBytes(StandardCharsets.US_ASCII);
+    static final short VERSION = 1;
+    static final int BLOCK_MAGIC = 0x424c4b31;
+    static final int END_MAGIC = 0x454e4431;
+    static final String DIGEST = "SHA-256";
+    static final int DIGEST_LENGTH = 32;
+    // Upper bound of a block, so that a corrupted length cannot exhaust the heap
+    static final int MAX_BLOCK_BYTES = 1 << 30;
+
+    private static final String DOCUMENT_ID = "documentId";
+    private static final String FOLDER_ID = "folderId";
+    private static final TypeReference<Map<String, Object>> METADATA_TYPE = new TypeReference<>() {
+    };
+
+    private SnapshotFormat() {
+    }
+
+    /**
+     * Encoding of the vectors of a snapshot. {@code INT8} quantizes each vector with its own scale,
+     * a quarter of the size for a small loss of precision.
+     */
+    enum VectorEncoding {
+        FLOAT32, INT8;
+
+        static VectorEncoding parse(String value) {
+            try {
+                return valueOf(value.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown vector encoding " + value + ", float32 or int8 expected");
+            }
+        }
+    }
+
+    /**
+     * @param dimensions Dimensions of the embeddings
+     * @param encoding   Encoding of the vectors
+     * @param model      Embedding model of the exported index
+     * @param createdAt  Creation time of the snapshot, in milliseconds
+     */
+    record Header(int dimensions, VectorEncoding encoding, String model, long createdAt) {
+    }
+
+    /**
+     * Compressed block of chunks as stored in the snapshot.
+     */
+    record Block(int chunks, int rawLength, byte[] compressed, int crc) {
+
+        static Block compress(byte[] raw, int chunks, int level) {
+            byte[] compressed = Zstd.compress(raw, level);
+            return new Block(chunks, raw.length, compressed, crc(compressed));
+        }
+
+        /**
+         * Returns the payload of the block, checking its CRC first.
+         */
+        byte[] decompress() throws IOException {
+            if (crc(compressed) != crc) {
+                throw new CorruptSnapshotException("Block checksum mismatch");
+            }
+            byte[] raw = Zstd.decompress(compressed, rawLength);
+            if (raw.length != rawLength) {
+                throw new CorruptSnapshotException("Block of " + raw.length + " bytes, " + rawLength + " expected");
+            }
+            return raw;
+        }
+
+        private static int crc(byte[] bytes) {
+            CRC32C crc32c = new CRC32C();
+            crc32c.update(bytes);
+            return (int) crc32c.getValue();
+        }
+    }
+
+    /**
+     * Thrown when a snapshot does not match its checksums or its structure.
+     */
+    static class CorruptSnapshotException extends IOException {
+
+        CorruptSnapshotException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Encodes chunks as the payload of a block.
+     */
+    static byte[] encode(List<StoredChunk> chunks, Header header, ObjectMapper objectMapper) throws IOException {
+        int count = chunks.size();
+        int dimensions = header.dimensions();
+        byte[][][] columns = new byte[5][count][];
+        long size = header.encoding() == VectorEncoding.FLOAT32
+                ? (long) count * dimensions * Float.BYTES
+                : (long) count * (Float.BYTES + dimensions);
+        for (int i = 0; i < count; i++) {
+            StoredChunk chunk = chunks.get(i);
+            if (chunk.embedding().length != dimensions) {
+                throw new IllegalStateException("Chunk " + chunk.id() + " has an embedding of "
+                        + chunk.embedding().length + " dimensions, " + dimensions + " expected");
+            }
+            Map<String, Object> metadata = new HashMap<>(chunk.metadata());
+            Object documentId = metadata.remove(DOCUMENT_ID);
+            Object folderId = metadata.remove(FOLDER_ID);
+            columns[0][i] = utf8(chunk.id());
+            columns[1][i] = documentId == null ? null : utf8(documentId.toString());
+            columns[2][i] = folderId == null ? null : utf8(folderId.toString());
+            columns[3][i] = utf8(chunk.content());
+            columns[4][i] = metadata.isEmpty() ? null : objectMapper.writeValueAsBytes(metadata);
+            for (byte[][] column : columns) {
+                size += Integer.BYTES + (column[i] == null ? 0 : column[i].length);
+            }
+        }
+        if (size > MAX_BLOCK_BYTES) {
+            throw new IllegalStateException("Block of " + size + " bytes, lower snapshot.block-chunks");
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+        if (header.encoding() == VectorEncoding.FLOAT32) {
+            for (StoredChunk chunk : chunks) {
+                buffer.asFloatBuffer().put(chunk.embedding());
+                buffer.position(buffer.position() + dimensions * Float.BYTES);
+            }
+        } else {
+            byte[][] quantized = new byte[count][];
+            for (int i = 0; i < count; i++) {
+                float[] vector = chunks.get(i).embedding();
+                float scale = maxAbs(vector) / 127f;
+                quantized[i] = quantize(vector, scale);
+                buffer.putFloat(scale);
+            }
+            for (byte[] vector : quantized) {
+                buffer.put(vector);
+            }
+        }
+        for (byte[][] column : columns) {
+            for (byte[] value : column) {
+                if (value == null) {
+                    buffer.putInt(-1);
+                } else {
+                    buffer.putInt(value.length).put(value);
+                }
+            }
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Decodes the payload of a block.
+     */
+    static List<StoredChunk> decode(byte[] raw, int count, Header header, ObjectMapper objectMapper) throws IOException {
+        int dimensions = header.dimensions();
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(raw).order(ByteOrder.LITTLE_ENDIAN);
+            float[][] vectors = new float[count][dimensions];
+            if (header.encoding() == VectorEncoding.FLOAT32) {
+                for (float[] vector : vectors) {
+                    buffer.asFloatBuffer().get(vector);
+                    buffer.position(buffer.position() + dimensions * Float.BYTES);
+                }
+            } else {
+                float[] scales = new float[count];
+                for (int i = 0; i < count; i++) {
+                    scales[i] = buffer.getFloat();
+                }
+                for (int i = 0; i < count; i++) {
+                    for (int d = 0; d < dimensions; d++) {
+                        vectors[i][d] = buffer.get() * scales[i];
+                    }
+                }
+            }
+            String[][] columns = new String[5][count];
+            for (String[] column : columns) {
+                for (int i = 0; i < count; i++) {
+                    column[i] = readString(buffer);
+                }
+            }
+            if (buffer.hasRemaining()) {
+                throw new CorruptSnapshotException("Block has " + buffer.remaining() + " trailing bytes");
+            }
+
+            List<StoredChunk> chunks = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                Map<String, Object> metadata = columns[4][i] == null
+                        ? new HashMap<>() : objectMapper.readValue(columns[4][i], METADATA_TYPE);
+                if (columns[1][i] != null) {
+                    metadata.put(DOCUMENT_ID, columns[1][i]);
+                }
+                if (columns[2][i] != null) {
+                    metadata.put(FOLDER_ID, columns[2][i]);
+                }
+                chunks.add(new StoredChunk(columns[0][i], columns[3][i], metadata, vectors[i]));
+            }
+            return chunks;
+        } catch (RuntimeException e) {
+            throw new CorruptSnapshotException("Malformed block: " + e.getMessage());
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static float maxAbs(float[] vector) {
+        float max = 0;
+        for (float component : vector) {
+            max = Math.max(max, Math.abs(component));
+        }
+        return max;
+    }
+
+    private static byte[] quantize(float[] vector, float scale) {
+        byte[] quantized = new byte[vector.length];
+        if (scale > 0) {
+            for (int d = 0; d < vector.length; d++) {
+                quantized[d] = (byte) Math.max(-127, Math.min(127, Math.round(vector[d] / scale)));
+            }
+        }
+        return quantized;
+    }
+}
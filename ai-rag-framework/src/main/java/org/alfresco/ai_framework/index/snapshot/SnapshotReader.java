@@ -0,0 +1,148 @@
+package org.alfresco.ai_framework.index.snapshot;
+
+import org.alfresco.ai_framework.index.snapshot.SnapshotFormat.Block;
+import org.alfresco.ai_framework.index.snapshot.SnapshotFormat.CorruptSnapshotException;
+import org.alfresco.ai_framework.index.snapshot.SnapshotFormat.Header;
+import org.alfresco.ai_framework.index.snapshot.SnapshotFormat.VectorEncoding;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+
+/**
+ * Reads a snapshot file block by block, checking its structure and, once the trailer is reached,
+ * its SHA-256 and counts. Block checksums are checked when blocks are decompressed, which callers
+ * can do in parallel.
+ */
+class SnapshotReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final DigestInputStream digestStream;
+    private final DataInputStream in;
+    private final Header header;
+    private int blocks;
+    private long chunks;
+    private String sha256;
+
+    SnapshotReader(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance(SnapshotFormat.DIGEST);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        this.digestStream = new DigestInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE), digest);
+        this.in = new DataInputStream(digestStream);
+        try {
+            byte[] magic = new byte[SnapshotFormat.MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(magic, SnapshotFormat.MAGIC)) {
+                throw new CorruptSnapshotException("Not a snapshot file");
+            }
+            short version = in.readShort();
+            if (version != SnapshotFormat.VERSION) {
+                throw new CorruptSnapshotException("Unsupported snapshot version " + version);
+            }
+            int dimensions = in.readInt();
+            int encoding = in.readByte();
+            if (dimensions <= 0 || encoding < 0 || encoding >= VectorEncoding.values().length) {
+                throw new CorruptSnapshotException("Malformed snapshot header");
+            }
+            String model = in.readUTF();
+            this.header = new Header(dimensions, VectorEncoding.values()[encoding],
+                    model.isEmpty() ? null : model, in.readLong());
+        } catch (IOException e) {
+            in.close();
+            throw e instanceof EOFException ? new CorruptSnapshotException("Truncated snapshot header") : e;
+        }
+    }
+
+    Header header() {
+        return header;
+    }
+
+    /**
+     * Returns the next block, or null once the trailer has been read and checked.
+     */
+    Block next() throws IOException {
+        if (sha256 != null) {
+            return null;
+        }
+        try {
+            int magic = in.readInt();
+            if (magic == SnapshotFormat.END_MAGIC) {
+                readTrailer();
+                return null;
+            }
+            if (magic != SnapshotFormat.BLOCK_MAGIC) {
+                throw new CorruptSnapshotException("Malformed block " + blocks);
+            }
+            int count = in.readInt();
+            int rawLength = in.readInt();
+            int compressedLength = in.readInt();
+            int crc = in.readInt();
+            long minLength = (long) count * header.dimensions();
+            if (count <= 0 || rawLength < minLength || rawLength > SnapshotFormat.MAX_BLOCK_BYTES
+                    || compressedLength <= 0 || compressedLength > SnapshotFormat.MAX_BLOCK_BYTES) {
+                throw new CorruptSnapshotException("Malformed block " + blocks);
+            }
+            byte[] compressed = new byte[compressedLength];
+            in.readFully(compressed);
+            blocks++;
+            chunks += count;
+            return new Block(count, rawLength, compressed, crc);
+        } catch (EOFException e) {
+            throw new CorruptSnapshotException("Truncated snapshot after " + blocks + " blocks");
+        }
+    }
+
+    private void readTrailer() throws IOException {
+        digestStream.on(false);
+        byte[] digest = digestStream.getMessageDigest().digest();
+        int expectedBlocks = in.readInt();
+        long expectedChunks = in.readLong();
+        byte[] expectedDigest = new byte[SnapshotFormat.DIGEST_LENGTH];
+        in.readFully(expectedDigest);
+        if (in.read() != -1) {
+            throw new CorruptSnapshotException("Trailing data after the snapshot trailer");
+        }
+        if (expectedBlocks != blocks || expectedChunks != chunks) {
+            throw new CorruptSnapshotException("Snapshot has " + blocks + " blocks and " + chunks + " chunks, "
+                    + expectedBlocks + " and " + expectedChunks + " expected");
+        }
+        if (!MessageDigest.isEqual(digest, expectedDigest)) {
+            throw new CorruptSnapshotException("Snapshot SHA-256 mismatch");
+        }
+        sha256 = HexFormat.of().formatHex(digest);
+    }
+
+    int blocks() {
+        return blocks;
+    }
+
+    long chunks() {
+        return chunks;
+    }
+
+    /**
+     * Returns the SHA-256 of the snapshot, once the trailer has been checked.
+     */
+    String sha256() {
+        return sha256;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,377 @@
+package org.alfresco.ai_framework.index.snapshot;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.alfresco.ai_framework.embedding.EmbeddingModelOverride;
+import org.alfresco.ai_framework.index.BulkIndexer;
+import org.alfresco.ai_framework.index.ChunkStore;
+import org.alfresco.ai_framework.index.ChunkStore.StoredChunk;
+import org.alfresco.ai_framework.index.ReindexJob;
+import org.alfresco.ai_framework.index.snapshot.SnapshotFormat.Block;
+import org.alfresco.ai_framework.index.snapshot.SnapshotFormat.Header;
+import org.alfresco.ai_framework.index.snapshot.SnapshotFormat.VectorEncoding;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+/**
+ * Exports the document index, chunks with their embeddings and metadata, to a snapshot file and
+ * imports it into another index, so that a new environment is populated at disk speed instead of
+ * extracting and embedding every document again. The file format is described in {@link SnapshotFormat}.
+ *
+ * Snapshots are named files under {@code snapshot.directory}. Chunks are read from the {@link ChunkStore}
+ * in blocks of {@code snapshot.block-chunks}, which are encoded and compressed on
+ * {@code snapshot.parallelism} threads and written in order. An import reads the blocks in order while
+ * they are checked, decoded and written to the store on the same threads, in bulk-load mode unless it
+ * is already on. Every block is checked against its CRC32C before it is written, and the SHA-256 and
+ * counts of the trailer at the end; {@code verify} runs the same checks without writing.
+ *
+ * The embedding model of the index is recorded in the snapshot, and a snapshot embedded with another
+ * model than the one in use is only imported when forced. Chunks with the ID of an existing chunk
+ * replace it, so importing the same snapshot twice is harmless.
+ */
+@Service
+public class SnapshotService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotService.class);
+
+    private static final Pattern NAME = Pattern.compile("[A-Za-z0-9][A-Za-z0-9._-]*");
+    private static final String EXTENSION = ".snapshot";
+    private static final String BULK_MODE_REQUESTER = "snapshot-import";
+
+    /**
+     * Outcome of an export, import or verification.
+     *
+     * @param indexedChunks Chunks in the index after an import, null otherwise
+     */
+    public record SnapshotReport(String name, String model, int dimensions, String encoding, int blocks,
+                                 long chunks, long bytes, String sha256, long millis, Long indexedChunks) {
+    }
+
+    private final ChunkStore chunkStore;
+    private final BulkIndexer bulkIndexer;
+    private final EmbeddingModelOverride embeddingModelOverride;
+    private final ObjectProvider<ReindexJob> reindexJob;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final Path directory;
+    private final int blockChunks;
+    private final int compressionLevel;
+    private final int parallelism;
+    private final String configuredModel;
+    private final ExecutorService executor;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public SnapshotService(ChunkStore chunkStore,
+                           BulkIndexer bulkIndexer,
+                           EmbeddingModelOverride embeddingModelOverride,
+                           ObjectProvider<ReindexJob> reindexJob,
+                           ObjectMapper objectMapper,
+                           MeterRegistry meterRegistry,
+                           @Value("${snapshot.directory:data/snapshots}") Path directory,
+                           @Value("${snapshot.block-chunks:1000}") int blockChunks,
+                           @Value("${snapshot.compression-level:3}") int compressionLevel,
+                           @Value("${snapshot.parallelism:4}") int parallelism,
+                           @Value("${embedding.backend:ollama}") String embeddingBackend,
+                           @Value("${spring.ai.ollama.embedding.options.model:}") String ollamaModel,
+                           @Value("${embedding.onnx.model:}") String onnxModel) {
+        this.chunkStore = chunkStore;
+        this.bulkIndexer = bulkIndexer;
+        this.embeddingModelOverride = embeddingModelOverride;
+        this.reindexJob = reindexJob;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.directory = directory;
+        this.blockChunks = Math.max(1, blockChunks);
+        this.compressionLevel = compressionLevel;
+        this.parallelism = Math.max(1, parallelism);
+        this.configuredModel = "onnx".equals(embeddingBackend) ? Path.of(onnxModel).getFileName().toString() : ollamaModel;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(this.parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "index-snapshot-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Exports the whole index to a new snapshot.
+     *
+     * @param name     Snapshot name, letters, digits, dots, dashes and underscores
+     * @param encoding Vector encoding, {@code float32} or {@code int8}
+     */
+    public SnapshotReport export(String name, String encoding) throws IOException {
+        Path file = resolve(name);
+        VectorEncoding vectorEncoding = VectorEncoding.parse(encoding);
+        return locked("export", () -> {
+            if (Files.exists(file)) {
+                throw new IllegalStateException("Snapshot " + name + " already exists");
+            }
+            long start = System.nanoTime();
+            Header header = new Header(chunkStore.dimensions(), vectorEncoding, currentModel(), System.currentTimeMillis());
+            Files.createDirectories(directory);
+            Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+            try (SnapshotWriter writer = new SnapshotWriter(temporary, header)) {
+                Deque<Future<Block>> pending = new ArrayDeque<>();
+                chunkStore.read(blockChunks, page -> {
+                    pending.add(executor.submit(() ->
+                            Block.compress(SnapshotFormat.encode(page, header, objectMapper), page.size(), compressionLevel)));
+                    // Blocks are written in order, with a bounded number compressed ahead
+                    while (pending.size() > 2 * parallelism) {
+                        writer.write(await(pending.poll()));
+                    }
+                });
+                while (!pending.isEmpty()) {
+                    writer.write(await(pending.poll()));
+                }
+                writer.finish();
+                writer.close();
+                Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+
+                SnapshotReport report = report(name, header, writer.blocks(), writer.chunks(), Files.size(file),
+                        writer.sha256(), start, null);
+                logger.info("Exported {} chunks in {} blocks to snapshot {} ({} bytes, {} ms)",
+                        report.chunks(), report.blocks(), file, report.bytes(), report.millis());
+                return report;
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        });
+    }
+
+    /**
+     * Imports a snapshot into the index.
+     *
+     * @param name  Snapshot name
+     * @param force Import a snapshot embedded with another model than the one in use
+     */
+    public SnapshotReport importSnapshot(String name, boolean force) throws IOException {
+        Path file = resolveExisting(name);
+        ReindexJob job = reindexJob.getIfAvailable();
+        return locked("import", () -> {
+            // Imported chunks are not written to an index being rebuilt, so no reindex may run meanwhile
+            if (job != null) {
+                job.block("snapshot import");
+            }
+            long start = System.nanoTime();
+            try (SnapshotReader reader = new SnapshotReader(file)) {
+                Header header = reader.header();
+                int dimensions = chunkStore.dimensions();
+                if (header.dimensions() != dimensions) {
+                    throw new IllegalStateException("Snapshot " + name + " has embeddings of " + header.dimensions()
+                            + " dimensions, the index " + dimensions);
+                }
+                String model = currentModel();
+                if (!force && header.model() != null && !header.model().equals(model)) {
+                    throw new IllegalStateException("Snapshot " + name + " was embedded with " + header.model()
+                            + " and the index uses " + model + ", import it with force to proceed");
+                }
+
+                bulkIndexer.enableBulkMode(BULK_MODE_REQUESTER, null);
+                try {
+                    load(reader, header);
+                } finally {
+                    bulkIndexer.disableBulkMode(BULK_MODE_REQUESTER);
+                    if (bulkIndexer.isBulkMode()) {
+                        chunkStore.commit();
+                    }
+                }
+
+                SnapshotReport report = report(name, header, reader.blocks(), reader.chunks(), Files.size(file),
+                        reader.sha256(), start, chunkStore.count());
+                logger.info("Imported {} chunks in {} blocks from snapshot {} ({} ms), {} chunks in the index",
+                        report.chunks(), report.blocks(), file, report.millis(), report.indexedChunks());
+                return report;
+            } finally {
+                if (job != null) {
+                    job.unblock();
+                }
+            }
+        });
+    }
+
+    /**
+     * Checks the checksums, structure and counts of a snapshot without importing it.
+     */
+    public SnapshotReport verify(String name) throws IOException {
+        Path file = resolveExisting(name);
+        long start = System.nanoTime();
+        try (SnapshotReader reader = new SnapshotReader(file)) {
+            Header header = reader.header();
+            Deque<Future<?>> pending = new ArrayDeque<>();
+            Block block;
+            while ((block = reader.next()) != null) {
+                Block next = block;
+                pending.add(executor.submit(() ->
+                        SnapshotFormat.decode(next.decompress(), next.chunks(), header, objectMapper)));
+                while (pending.size() > 2 * parallelism) {
+                    await(pending.poll());
+                }
+            }
+            while (!pending.isEmpty()) {
+                await(pending.poll());
+            }
+            return report(name, header, reader.blocks(), reader.chunks(), Files.size(file), reader.sha256(), start, null);
+        }
+    }
+
+    /**
+     * Returns the names of the snapshots, in alphabetical order.
+     */
+    public List<String> list() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (var files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(fileName -> fileName.endsWith(EXTENSION))
+                    .map(fileName -> fileName.substring(0, fileName.length() - EXTENSION.length()))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /**
+     * Writes the blocks to the store on the pool, a bounded number at a time, stopping at the first failure.
+     */
+    private void load(SnapshotReader reader, Header header) throws IOException {
+        Semaphore permits = new Semaphore(2 * parallelism);
+        List<Future<?>> writes = new ArrayList<>();
+        try {
+            Block block;
+            while ((block = reader.next()) != null) {
+                permits.acquire();
+                Block next = block;
+                writes.add(executor.submit(() -> {
+                    try {
+                        List<StoredChunk> chunks = SnapshotFormat.decode(next.decompress(), next.chunks(), header, objectMapper);
+                        chunkStore.write(chunks);
+                        return null;
+                    } finally {
+                        permits.release();
+                    }
+                }));
+                // Completed writes are checked as the import goes, so that a failure stops it early
+                while (!writes.isEmpty() && writes.get(0).isDone()) {
+                    await(writes.remove(0));
+                }
+            }
+            for (Future<?> write : writes) {
+                await(write);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Snapshot import interrupted");
+        } finally {
+            writes.forEach(write -> write.cancel(true));
+        }
+    }
+
+    private SnapshotReport report(String name, Header header, int blocks, long chunks, long bytes, String sha256,
+                                  long start, Long indexedChunks) {
+        return new SnapshotReport(name, header.model(), header.dimensions(),
+                header.encoding().name().toLowerCase(Locale.ROOT), blocks, chunks, bytes, sha256,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), indexedChunks);
+    }
+
+    /**
+     * Returns the embedding model of the index: the one of the last reindex, or the configured one.
+     */
+    private String currentModel() {
+        EmbeddingModelOverride.Model override = embeddingModelOverride.get();
+        return override != null ? override.name() : configuredModel;
+    }
+
+    private Path resolve(String name) {
+        if (name == null || !NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("Invalid snapshot name: " + name);
+        }
+        return directory.resolve(name + EXTENSION);
+    }
+
+    private Path resolveExisting(String name) throws NoSuchFileException {
+        Path file = resolve(name);
+        if (!Files.isRegularFile(file)) {
+            throw new NoSuchFileException(file.toString(), null, "Snapshot " + name + " not found");
+        }
+        return file;
+    }
+
+    /**
+     * Runs an export or import, one at a time, timed as {@code ai.index.snapshot}.
+     */
+    private SnapshotReport locked(String operation, SnapshotAction action) throws IOException {
+        if (!lock.tryLock()) {
+            throw new IllegalStateException("Another snapshot export or import is running");
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "failure";
+        try {
+            SnapshotReport report = action.run();
+            outcome = "success";
+            return report;
+        } finally {
+            sample.stop(Timer.builder("ai.index.snapshot")
+                    .description("Duration of snapshot exports and imports of the document index")
+                    .tags("operation", operation, "outcome", outcome)
+                    .register(meterRegistry));
+            lock.unlock();
+        }
+    }
+
+    private static <T> T await(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Snapshot operation interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = Objects.requireNonNullElse(e.getCause(), e);
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    @FunctionalInterface
+    private interface SnapshotAction {
+
+        SnapshotReport run() throws IOException;
+    }
+}
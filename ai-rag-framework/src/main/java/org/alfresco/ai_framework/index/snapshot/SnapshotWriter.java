@@ -0,0 +1,91 @@
+package org.alfresco.ai_framework.index.snapshot;
+
+import org.alfresco.ai_framework.index.snapshot.SnapshotFormat.Block;
+import org.alfresco.ai_framework.index.snapshot.SnapshotFormat.Header;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Writes a snapshot file: the header when opened, blocks in order, and the trailer on {@link #finish()}.
+ */
+class SnapshotWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final DigestOutputStream digestStream;
+    private final DataOutputStream out;
+    private int blocks;
+    private long chunks;
+    private String sha256;
+
+    SnapshotWriter(Path file, Header header) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance(SnapshotFormat.DIGEST);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        this.digestStream = new DigestOutputStream(new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE), digest);
+        this.out = new DataOutputStream(digestStream);
+        out.write(SnapshotFormat.MAGIC);
+        out.writeShort(SnapshotFormat.VERSION);
+        out.writeInt(header.dimensions());
+        out.writeByte(header.encoding().ordinal());
+        out.writeUTF(header.model() == null ? "" : header.model());
+        out.writeLong(header.createdAt());
+    }
+
+    void write(Block block) throws IOException {
+        out.writeInt(SnapshotFormat.BLOCK_MAGIC);
+        out.writeInt(block.chunks());
+        out.writeInt(block.rawLength());
+        out.writeInt(block.compressed().length);
+        out.writeInt(block.crc());
+        out.write(block.compressed());
+        blocks++;
+        chunks += block.chunks();
+    }
+
+    /**
+     * Writes the trailer and flushes the file to disk.
+     */
+    void finish() throws IOException {
+        out.writeInt(SnapshotFormat.END_MAGIC);
+        digestStream.on(false);
+        byte[] digest = digestStream.getMessageDigest().digest();
+        out.writeInt(blocks);
+        out.writeLong(chunks);
+        out.write(digest);
+        out.flush();
+        sha256 = HexFormat.of().formatHex(digest);
+    }
+
+    int blocks() {
+        return blocks;
+    }
+
+    long chunks() {
+        return chunks;
+    }
+
+    /**
+     * Returns the SHA-256 of the snapshot, once finished.
+     */
+    String sha256() {
+        return sha256;
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,146 @@
+package org.alfresco.ai_framework.ingestion;
+
+import com.github.luben.zstd.ZstdInputStream;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Decompresses uploaded files sent with a content encoding (gzip or zstd) as they are read by the
+ * ingestion, without buffering the decompressed content. The encodings accepted are advertised to
+ * clients in the Accept-Encoding header of the upload responses. Decoding fails with a
+ * {@link ContentTooLargeException} past {@code ingestion.max-decoded-size}, so a small compressed
+ * upload cannot expand without bound.
+ *
+ * Bytes received and saved by compression are published as {@code ai.ingestion.transfer.received}
+ * and {@code ai.ingestion.transfer.saved} once a decompressed file has been read.
+ */
+@Component
+public class ContentDecoder {
+
+    private static final String GZIP = "gzip";
+    private static final String ZSTD = "zstd";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final MeterRegistry meterRegistry;
+    private final List<String> encodings;
+    private final DataSize maxDecodedSize;
+
+    public ContentDecoder(MeterRegistry meterRegistry,
+                          @Value("${ingestion.encodings:zstd,gzip}") List<String> encodings,
+                          @Value("${ingestion.max-decoded-size:1000MB}") DataSize maxDecodedSize) {
+        this.meterRegistry = meterRegistry;
+        this.maxDecodedSize = maxDecodedSize;
+        this.encodings = encodings.stream()
+                .map(encoding -> encoding.trim().toLowerCase(Locale.ROOT))
+                .filter(encoding -> encoding.equals(GZIP) || encoding.equals(ZSTD))
+                .toList();
+    }
+
+    /**
+     * Returns the value of the Accept-Encoding header advertising the accepted encodings.
+     */
+    public String getAcceptEncoding() {
+        return String.join(", ", encodings);
+    }
+
+    /**
+     * Returns whether files sent with the encoding can be decoded, no encoding meaning identity.
+     */
+    public boolean supports(String encoding) {
+        return encoding == null || encoding.isBlank() || encodings.contains(encoding.trim().toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Wraps an uploaded file stream to decode it while it is read.
+     *
+     * @param in            Uploaded file content
+     * @param encoding      Content encoding of the file, null or blank for none
+     * @param receivedBytes Size of the uploaded file
+     * @return Decoded content, failing with a ContentTooLargeException past the maximum decoded size
+     * @throws IOException if the compressed stream header cannot be read
+     */
+    public InputStream decode(InputStream in, String encoding, long receivedBytes) throws IOException {
+        if (encoding == null || encoding.isBlank()) {
+            return in;
+        }
+        String coding = encoding.trim().toLowerCase(Locale.ROOT);
+        InputStream decoded = ZSTD.equals(coding) ? new ZstdInputStream(in) : new GZIPInputStream(in, BUFFER_SIZE);
+        return new CountingInputStream(decoded, coding, receivedBytes);
+    }
+
+    /**
+     * Counts the decoded bytes, enforcing the maximum decoded size, and records the transfer metrics when closed.
+     */
+    private final class CountingInputStream extends FilterInputStream {
+
+        private final String encoding;
+        private final long receivedBytes;
+        private long decodedBytes;
+        private boolean closed;
+
+        CountingInputStream(InputStream in, String encoding, long receivedBytes) {
+            super(in);
+            this.encoding = encoding;
+            this.receivedBytes = receivedBytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = super.read();
+            if (value >= 0) {
+                decodedBytes++;
+                checkSize();
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                decodedBytes += read;
+                checkSize();
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            decodedBytes += skipped;
+            checkSize();
+            return skipped;
+        }
+
+        private void checkSize() throws ContentTooLargeException {
+            if (decodedBytes > maxDecodedSize.toBytes()) {
+                throw new ContentTooLargeException("Decoded " + encoding + " content exceeds " + maxDecodedSize);
+            }
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                meterRegistry.counter("ai.ingestion.transfer.received", "encoding", encoding).increment(receivedBytes);
+                meterRegistry.counter("ai.ingestion.transfer.saved", "encoding", encoding)
+                        .increment(Math.max(0, decodedBytes - receivedBytes));
+            }
+            super.close();
+        }
+    }
+}
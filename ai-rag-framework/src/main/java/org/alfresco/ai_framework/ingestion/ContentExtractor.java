@@ -0,0 +1,431 @@
+package org.alfresco.ai_framework.ingestion;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.tika.exception.TikaException;
+import org.apache.tika.exception.WriteLimitReachedException;
+import org.apache.tika.extractor.EmbeddedDocumentExtractor;
+import org.apache.tika.io.TikaInputStream;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.metadata.TikaCoreProperties;
+import org.apache.tika.mime.MediaType;
+import org.apache.tika.parser.AutoDetectParser;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.sax.BodyContentHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Extracts text from uploaded files with Apache Tika on a dedicated fork-join pool.
+ *
+ * Containers (archives and emails) are opened once to spool their embedded parts to temporary
+ * files, and each part is then parsed as its own task, recursively. PDFs are split per page.
+ * Every resulting Document carries the part and page it comes from in its metadata.
+ *
+ * The expansion of an upload is bounded by the {@code ingestion.extraction.*} limits: size of a part,
+ * size of all the parts, number of parts, nesting depth of containers and characters extracted.
+ * Reaching one fails the ingestion with a {@link ContentTooLargeException}, so that an archive bomb
+ * cannot fill the temporary folder nor hold the extraction threads.
+ */
+@Component
+public class ContentExtractor implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContentExtractor.class);
+
+    public static final String SOURCE = "source";
+    public static final String PART_NAME = "part_name";
+    public static final String PART_INDEX = "part_index";
+    public static final String PAGE_NUMBER = "page_number";
+
+    private static final MediaType PDF = MediaType.application("pdf");
+    private static final Set<MediaType> CONTAINERS = Set.of(
+            MediaType.application("zip"),
+            MediaType.application("x-tar"),
+            MediaType.application("gzip"),
+            MediaType.application("x-7z-compressed"),
+            MediaType.application("vnd.ms-outlook"),
+            MediaType.application("mbox"),
+            MediaType.parse("message/rfc822"));
+
+    // Loading the Tika parsers takes seconds: done on first use, or earlier by warmUp()
+    private volatile AutoDetectParser parser;
+    private final ForkJoinPool pool;
+    private final Counter bytes;
+    private final long maxPartBytes;
+    private final long maxTotalBytes;
+    private final int maxParts;
+    private final int maxDepth;
+    private final int maxChars;
+
+    public ContentExtractor(MeterRegistry meterRegistry,
+                            @Value("${ingestion.extraction.parallelism:0}") int parallelism,
+                            @Value("${ingestion.extraction.max-part-size:100MB}") DataSize maxPartSize,
+                            @Value("${ingestion.extraction.max-total-size:1000MB}") DataSize maxTotalSize,
+                            @Value("${ingestion.extraction.max-parts:1000}") int maxParts,
+                            @Value("${ingestion.extraction.max-depth:5}") int maxDepth,
+                            @Value("${ingestion.extraction.max-chars:50000000}") int maxChars) {
+        this.maxPartBytes = maxPartSize.toBytes();
+        this.maxTotalBytes = maxTotalSize.toBytes();
+        this.maxParts = maxParts;
+        this.maxDepth = maxDepth;
+        this.maxChars = maxChars;
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.pool = new ForkJoinPool(threads, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("content-extractor-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+        this.bytes = Counter.builder("ai.ingestion.bytes")
+                .description("Bytes of the files received for ingestion")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        logger.info("ContentExtractor initialized with parallelism {}", threads);
+    }
+
+    /**
+     * Loads the Tika parsers ahead of the first extraction.
+     */
+    public void warmUp() {
+        parser();
+    }
+
+    private AutoDetectParser parser() {
+        AutoDetectParser loaded = parser;
+        if (loaded == null) {
+            synchronized (this) {
+                loaded = parser;
+                if (loaded == null) {
+                    long start = System.nanoTime();
+                    parser = loaded = new AutoDetectParser();
+                    logger.info("Loaded Tika parsers in {} ms", (System.nanoTime() - start) / 1_000_000);
+                }
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Extracts the text of a file, one Document per embedded part or PDF page.
+     */
+    public List<Document> extract(Resource file) throws IOException {
+        Path spooled = Files.createTempFile("ingestion-", ".bin");
+        try {
+            try (InputStream in = file.getInputStream()) {
+                bytes.increment(Files.copy(in, spooled, StandardCopyOption.REPLACE_EXISTING));
+            }
+            Map<String, Object> rootMetadata = new HashMap<>();
+            rootMetadata.put(SOURCE, file.getFilename());
+            return pool.invoke(new PartTask(spooled, file.getFilename(), null, rootMetadata, 0, new Budget()));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            Files.deleteIfExists(spooled);
+        }
+    }
+
+    /**
+     * Applies a transformation to every extracted part on the extraction pool, keeping part order.
+     */
+    public List<Document> transformParts(List<Document> parts, Function<Document, List<Document>> transformer) {
+        return pool.submit(() -> parts.parallelStream()
+                .map(transformer)
+                .flatMap(List::stream)
+                .toList()).join();
+    }
+
+    @Override
+    public void destroy() {
+        pool.shutdown();
+    }
+
+    /**
+     * Parses one file: containers fan out to a subtask per embedded part, PDFs yield one Document per page.
+     */
+    private final class PartTask extends RecursiveTask<List<Document>> {
+
+        private final Path path;
+        private final String name;
+        private final String partIndex;
+        private final Map<String, Object> baseMetadata;
+        // Containers this part is nested in
+        private final int depth;
+        private final Budget budget;
+
+        PartTask(Path path, String name, String partIndex, Map<String, Object> baseMetadata, int depth, Budget budget) {
+            this.path = path;
+            this.name = name;
+            this.partIndex = partIndex;
+            this.baseMetadata = baseMetadata;
+            this.depth = depth;
+            this.budget = budget;
+        }
+
+        @Override
+        protected List<Document> compute() {
+            Metadata metadata = new Metadata();
+            if (name != null) {
+                metadata.set(TikaCoreProperties.RESOURCE_NAME_KEY, name);
+            }
+
+            try (TikaInputStream stream = TikaInputStream.get(path)) {
+                MediaType type = parser().getDetector().detect(stream, metadata).getBaseType();
+                if (PDF.equals(type)) {
+                    return parsePages(stream, metadata);
+                }
+                if (CONTAINERS.contains(type)) {
+                    return parseContainer(stream, metadata);
+                }
+                return toDocuments(parseBody(stream, metadata, new ParseContext()), null);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (SAXException | TikaException e) {
+                ContentTooLargeException limit = limitReached(e);
+                if (limit != null) {
+                    throw new UncheckedIOException(limit);
+                }
+                throw new IllegalStateException("Failed to extract text from " + name, e);
+            }
+        }
+
+        private List<Document> parsePages(TikaInputStream stream, Metadata metadata)
+                throws IOException, SAXException, TikaException {
+            PageCollector pages = new PageCollector(maxChars);
+            parser().parse(stream, pages, metadata, new ParseContext());
+            budget.addChars(pages.chars);
+            List<Document> documents = new ArrayList<>();
+            for (int i = 0; i < pages.pages.size(); i++) {
+                documents.addAll(toDocuments(pages.pages.get(i), i + 1));
+            }
+            return documents;
+        }
+
+        private List<Document> parseContainer(TikaInputStream stream, Metadata metadata)
+                throws IOException, SAXException, TikaException {
+            if (depth >= maxDepth) {
+                throw new ContentTooLargeException("Containers nested deeper than " + maxDepth + " levels in " + name);
+            }
+            PartSpooler spooler = new PartSpooler(budget);
+            ParseContext context = new ParseContext();
+            context.set(EmbeddedDocumentExtractor.class, spooler);
+            try {
+                List<Document> documents = new ArrayList<>(toDocuments(parseBody(stream, metadata, context), null));
+
+                List<PartTask> tasks = new ArrayList<>();
+                for (int i = 0; i < spooler.parts.size(); i++) {
+                    SpooledPart part = spooler.parts.get(i);
+                    String index = partIndex == null ? String.valueOf(i + 1) : partIndex + "." + (i + 1);
+                    Map<String, Object> partMetadata = new HashMap<>(baseMetadata);
+                    partMetadata.put(PART_NAME, part.name());
+                    partMetadata.put(PART_INDEX, index);
+                    tasks.add(new PartTask(part.path(), part.name(), index, partMetadata, depth + 1, budget));
+                }
+
+                tasks.forEach(ForkJoinTask::fork);
+                for (PartTask task : tasks) {
+                    try {
+                        documents.addAll(task.join());
+                    } catch (UncheckedIOException e) {
+                        if (e.getCause() instanceof ContentTooLargeException) {
+                            tasks.forEach(other -> other.cancel(false));
+                            throw e;
+                        }
+                        logger.warn("Skipping unreadable part {} of {}", task.name, name, e);
+                    } catch (RuntimeException e) {
+                        logger.warn("Skipping unreadable part {} of {}", task.name, name, e);
+                    }
+                }
+                return documents;
+            } finally {
+                for (SpooledPart part : spooler.parts) {
+                    Files.deleteIfExists(part.path());
+                }
+            }
+        }
+
+        private String parseBody(TikaInputStream stream, Metadata metadata, ParseContext context)
+                throws IOException, SAXException, TikaException {
+            BodyContentHandler handler = new BodyContentHandler(maxChars);
+            parser().parse(stream, handler, metadata, context);
+            String text = handler.toString();
+            budget.addChars(text.length());
+            return text;
+        }
+
+        private List<Document> toDocuments(String text, Integer pageNumber) {
+            if (text == null || text.isBlank()) {
+                return List.of();
+            }
+            Map<String, Object> metadata = new HashMap<>(baseMetadata);
+            if (pageNumber != null) {
+                metadata.put(PAGE_NUMBER, pageNumber);
+            }
+            return List.of(new Document(text, metadata));
+        }
+    }
+
+    /**
+     * Returns the limit reached while parsing, if that is why the parse failed.
+     */
+    private ContentTooLargeException limitReached(Throwable e) {
+        if (WriteLimitReachedException.isWriteLimitReached(e)) {
+            return new ContentTooLargeException("Extracted text exceeds " + maxChars + " characters");
+        }
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ContentTooLargeException limit) {
+                return limit;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Expansion of one upload so far, shared by the tasks of all its parts.
+     */
+    private final class Budget {
+
+        private final AtomicLong spooledBytes = new AtomicLong();
+        private final AtomicInteger parts = new AtomicInteger();
+        private final AtomicLong chars = new AtomicLong();
+
+        void addPart() throws ContentTooLargeException {
+            if (parts.incrementAndGet() > maxParts) {
+                throw new ContentTooLargeException("Containers hold more than " + maxParts + " parts");
+            }
+        }
+
+        void addBytes(long count) throws ContentTooLargeException {
+            if (spooledBytes.addAndGet(count) > maxTotalBytes) {
+                throw new ContentTooLargeException("Container parts exceed " + DataSize.ofBytes(maxTotalBytes) + " in total");
+            }
+        }
+
+        void addChars(long count) throws ContentTooLargeException {
+            if (chars.addAndGet(count) > maxChars) {
+                throw new ContentTooLargeException("Extracted text exceeds " + maxChars + " characters");
+            }
+        }
+    }
+
+    private record SpooledPart(String name, Path path) {
+    }
+
+    /**
+     * Copies every embedded document of a container to a temporary file instead of parsing it inline,
+     * within the part limits.
+     */
+    private final class PartSpooler implements EmbeddedDocumentExtractor {
+
+        private final List<SpooledPart> parts = new ArrayList<>();
+        private final Budget budget;
+
+        PartSpooler(Budget budget) {
+            this.budget = budget;
+        }
+
+        @Override
+        public boolean shouldParseEmbedded(Metadata metadata) {
+            return true;
+        }
+
+        @Override
+        public void parseEmbedded(InputStream stream, ContentHandler handler, Metadata metadata, boolean outputHtml)
+                throws IOException {
+            budget.addPart();
+            String name = metadata.get(TikaCoreProperties.RESOURCE_NAME_KEY);
+            Path path = Files.createTempFile("ingestion-part-", ".bin");
+            // Added first, so the file is removed with the others whatever happens
+            parts.add(new SpooledPart(name != null ? name : "part-" + (parts.size() + 1), path));
+            try (OutputStream out = Files.newOutputStream(path)) {
+                byte[] buffer = new byte[64 * 1024];
+                long partBytes = 0;
+                int read;
+                while ((read = stream.read(buffer)) != -1) {
+                    partBytes += read;
+                    if (partBytes > maxPartBytes) {
+                        throw new ContentTooLargeException("Part " + name + " exceeds " + DataSize.ofBytes(maxPartBytes));
+                    }
+                    budget.addBytes(read);
+                    out.write(buffer, 0, read);
+                }
+            }
+        }
+    }
+
+    /**
+     * Collects the text of each {@code <div class="page">} emitted by the Tika PDF parser.
+     */
+    private static final class PageCollector extends DefaultHandler {
+
+        private final List<String> pages = new ArrayList<>();
+        private final StringBuilder current = new StringBuilder();
+        private final int maxChars;
+        private long chars;
+        private int depth;
+        private int pageDepth = -1;
+
+        PageCollector(int maxChars) {
+            this.maxChars = maxChars;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            depth++;
+            if (pageDepth < 0 && "div".equals(localName) && "page".equals(attributes.getValue("class"))) {
+                pageDepth = depth;
+                current.setLength(0);
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            if (depth == pageDepth) {
+                pages.add(current.toString());
+                pageDepth = -1;
+            } else if (pageDepth >= 0 && "p".equals(localName)) {
+                current.append('\n');
+            }
+            depth--;
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) throws SAXException {
+            if (pageDepth >= 0) {
+                chars += length;
+                if (chars > maxChars) {
+                    throw new SAXException(new ContentTooLargeException("Extracted text exceeds " + maxChars + " characters"));
+                }
+                current.append(ch, start, length);
+            }
+        }
+    }
+}
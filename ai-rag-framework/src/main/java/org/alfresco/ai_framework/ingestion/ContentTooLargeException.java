@@ -0,0 +1,13 @@
+package org.alfresco.ai_framework.ingestion;
+
+import java.io.IOException;
+
+/**
+ * Thrown while reading uploaded content that exceeds an ingestion limit, answered with 413.
+ */
+public class ContentTooLargeException extends IOException {
+
+    public ContentTooLargeException(String message) {
+        super(message);
+    }
+}
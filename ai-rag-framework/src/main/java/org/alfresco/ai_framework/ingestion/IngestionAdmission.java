@@ -0,0 +1,80 @@
+package org.alfresco.ai_framework.ingestion;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounds the number of ingestions running at the same time. Requests beyond that limit wait in a
+ * bounded queue; when the queue is full, or a request waits for too long, it is rejected so the
+ * controller can answer 503 with a Retry-After header instead of letting latency grow until clients
+ * time out.
+ */
+@Component
+public class IngestionAdmission {
+
+    private static final Logger logger = LoggerFactory.getLogger(IngestionAdmission.class);
+
+    private final Semaphore running;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final int maxQueued;
+    private final Duration maxWait;
+    private final Duration retryAfter;
+
+    public IngestionAdmission(MeterRegistry meterRegistry,
+                              @Value("${ingestion.admission.max-concurrent:0}") int maxConcurrent,
+                              @Value("${ingestion.admission.max-queued:32}") int maxQueued,
+                              @Value("${ingestion.admission.max-wait:30s}") Duration maxWait,
+                              @Value("${ingestion.admission.retry-after:10s}") Duration retryAfter) {
+        int permits = maxConcurrent > 0 ? maxConcurrent : Runtime.getRuntime().availableProcessors();
+        this.running = new Semaphore(permits, true);
+        this.maxQueued = maxQueued;
+        this.maxWait = maxWait;
+        this.retryAfter = retryAfter;
+        meterRegistry.gauge("ai.ingestion.queued", queued);
+        meterRegistry.gauge("ai.ingestion.running", running, semaphore -> permits - semaphore.availablePermits());
+        logger.info("IngestionAdmission initialized with {} concurrent ingestions and {} queued", permits, maxQueued);
+    }
+
+    /**
+     * Waits for an ingestion slot.
+     *
+     * @return true if the caller may ingest and must call {@link #release()} afterwards,
+     * false if the service is overloaded
+     */
+    public boolean tryAcquire() {
+        if (running.tryAcquire()) {
+            return true;
+        }
+        if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            return false;
+        }
+        try {
+            return running.tryAcquire(maxWait.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            queued.decrementAndGet();
+        }
+    }
+
+    public void release() {
+        running.release();
+    }
+
+    /**
+     * Delay clients are asked to wait before retrying a rejected request.
+     */
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -2,8 +2,10 @@ package org.alfresco.ai_framework.ingestion;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.InputStreamResource;
 import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -13,6 +15,10 @@ import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 
 /**
  * REST controller for handling document ingestion requests, including upload and delete operations.
@@ -23,29 +29,122 @@ public class IngestionController {
     private static final Logger logger = LoggerFactory.getLogger(IngestionController.class);
 
     private final IngestionService ingestionService;
+    private final IngestionAdmission ingestionAdmission;
+    private final ContentDecoder contentDecoder;
+    private final int maxTextChars;
 
-    public IngestionController(IngestionService ingestionService) {
+    public IngestionController(IngestionService ingestionService, IngestionAdmission ingestionAdmission,
+                               ContentDecoder contentDecoder,
+                               @Value("${ingestion.text.max-chars:10000000}") int maxTextChars) {
         this.ingestionService = ingestionService;
+        this.ingestionAdmission = ingestionAdmission;
+        this.contentDecoder = contentDecoder;
+        this.maxTextChars = maxTextChars;
     }
 
     /**
      * Uploads a document to the system, ingesting it by the provided document and folder IDs.
+     * The file may be compressed with one of the encodings listed in the Accept-Encoding header of
+     * the responses, named by the encoding parameter.
+     * Answers 503 with a Retry-After header when the ingestion queue is full, and 413 when the file
+     * decompresses past the maximum decoded size.
      */
     @PostMapping("/documents")
     public ResponseEntity<String> uploadDocument(
             @RequestParam("documentId") String documentId,
             @RequestParam("folderId") String folderId,
             @RequestParam("fileName") String fileName,
-            @RequestParam("file") MultipartFile file
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "encoding", required = false) String encoding
     ) {
-        try {
-            ingestionService.ingest(documentId, folderId, fileName, createFileResource(file));
-            return ResponseEntity.ok("Document uploaded successfully with ID: " + documentId);
+        return upload(documentId, file, encoding, content -> {
+            ingestionService.ingest(documentId, folderId, fileName, createFileResource(content, file));
+            return "Document uploaded successfully with ID: " + documentId;
+        });
+    }
+
+    /**
+     * Ingests the text of a document extracted by the client, as a UTF-8 text file that may be compressed
+     * like uploaded documents. The text replaces the chunks of the document, as an upload does.
+     * Answers 413 when the text is longer than {@code ingestion.text.max-chars}.
+     */
+    @PostMapping("/documents/text")
+    public ResponseEntity<String> uploadText(
+            @RequestParam("documentId") String documentId,
+            @RequestParam("folderId") String folderId,
+            @RequestParam("fileName") String fileName,
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "encoding", required = false) String encoding
+    ) {
+        return upload(documentId, file, encoding, content -> {
+            ingestionService.ingestText(documentId, folderId, fileName, readText(content));
+            return "Document text uploaded successfully with ID: " + documentId;
+        });
+    }
+
+    /**
+     * Ingestion of the decoded content of an uploaded file.
+     */
+    @FunctionalInterface
+    private interface UploadAction {
+
+        /**
+         * @return Message of the successful response
+         */
+        String ingest(InputStream content) throws IOException;
+    }
+
+    /**
+     * Decodes an uploaded file and ingests it under the admission limit, encapsulating the common upload
+     * logic. Responses list the accepted encodings in the Accept-Encoding header.
+     */
+    private ResponseEntity<String> upload(String documentId, MultipartFile file, String encoding, UploadAction action) {
+        ResponseEntity<String> response = ingest(documentId, file, encoding, action);
+        return ResponseEntity.status(response.getStatusCode())
+                .headers(response.getHeaders())
+                .header(HttpHeaders.ACCEPT_ENCODING, contentDecoder.getAcceptEncoding())
+                .body(response.getBody());
+    }
+
+    private ResponseEntity<String> ingest(String documentId, MultipartFile file, String encoding, UploadAction action) {
+        if (!contentDecoder.supports(encoding)) {
+            logger.warn("Unsupported encoding {}, rejecting document ID: {}", encoding, documentId);
+            return ResponseEntity.status(HttpStatus.UNSUPPORTED_MEDIA_TYPE).body("Unsupported encoding: " + encoding);
+        }
+        if (!ingestionAdmission.tryAcquire()) {
+            logger.warn("Ingestion queue full, rejecting document ID: {}", documentId);
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(ingestionAdmission.getRetryAfter().toSeconds()))
+                    .body("Ingestion queue is full, retry later");
+        }
+        try (InputStream content = contentDecoder.decode(file.getInputStream(), encoding, file.getSize())) {
+            return ResponseEntity.ok(action.ingest(content));
+        } catch (ContentTooLargeException e) {
+            return handleException("File too large: ", e, HttpStatus.PAYLOAD_TOO_LARGE);
         } catch (IOException e) {
             return handleException("Failed to process file: ", e, HttpStatus.BAD_REQUEST);
         } catch (RuntimeException e) {
             return handleException("Failed to ingest document: ", e, HttpStatus.INTERNAL_SERVER_ERROR);
+        } finally {
+            ingestionAdmission.release();
+        }
+    }
+
+    /**
+     * Reads UTF-8 text, failing as soon as it is longer than the maximum text length.
+     */
+    private String readText(InputStream in) throws IOException {
+        Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8);
+        StringBuilder text = new StringBuilder();
+        char[] buffer = new char[8192];
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+            text.append(buffer, 0, read);
+            if (text.length() > maxTextChars) {
+                throw new ContentTooLargeException("Text exceeds " + maxTextChars + " characters");
+            }
         }
+        return text.toString();
     }
 
     /**
@@ -65,10 +164,10 @@ public class IngestionController {
     }
 
     /**
-     * Creates a Resource from the MultipartFile to be ingested.
+     * Creates a Resource from the decoded content of the MultipartFile to be ingested.
      */
-    private Resource createFileResource(MultipartFile file) throws IOException {
-        return new InputStreamResource(file.getInputStream()) {
+    private Resource createFileResource(InputStream content, MultipartFile file) {
+        return new InputStreamResource(content) {
             @Override
             public String getFilename() {
                 return file.getOriginalFilename();
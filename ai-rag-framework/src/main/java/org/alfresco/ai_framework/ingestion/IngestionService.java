@@ -1,45 +1,124 @@
 package org.alfresco.ai_framework.ingestion;
 
+import io.micrometer.common.KeyValue;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.alfresco.ai_framework.embedding.dedup.ChunkDeduplicator;
+import org.alfresco.ai_framework.index.BulkIndexer;
+import org.alfresco.ai_framework.index.ChunkStore;
+import org.alfresco.ai_framework.index.ReindexJob;
+import org.alfresco.ai_framework.observation.StageObserver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.document.Document;
-import org.springframework.ai.reader.tika.TikaDocumentReader;
 import org.springframework.ai.transformer.splitter.TokenTextSplitter;
-import org.springframework.ai.vectorstore.SearchRequest;
-import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+
+import static org.alfresco.ai_framework.observation.StageObserver.INGESTION;
 
 /**
  * Service for ingesting documents into the vector store, utilizing document parsing and transformation.
+ * Each stage (parse, split, delete, index) is observed through the StageObserver.
  */
 @Service
 public class IngestionService {
 
     private static final Logger logger = LoggerFactory.getLogger(IngestionService.class);
 
-    private final VectorStore vectorStore;
-
-    public IngestionService(VectorStore vectorStore) {
-        this.vectorStore = vectorStore;
+    private static final String LEGACY_CHUNKING = "legacy";
+
+    private final ChunkStore chunkStore;
+    private final BulkIndexer bulkIndexer;
+    private final ContentExtractor contentExtractor;
+    private final TextChunker textChunker;
+    private final boolean legacyChunking;
+    private final StageObserver stageObserver;
+    private final ChunkDeduplicator chunkDeduplicator;
+    private final ObjectProvider<ReindexJob> reindexJob;
+    private final Counter chunks;
+    private final Counter tokens;
+
+    public IngestionService(ChunkStore chunkStore,
+                            BulkIndexer bulkIndexer,
+                            ContentExtractor contentExtractor,
+                            StageObserver stageObserver,
+                            ChunkDeduplicator chunkDeduplicator,
+                            ObjectProvider<ReindexJob> reindexJob,
+                            MeterRegistry meterRegistry,
+                            @Value("${ingestion.chunking.strategy:single-pass}") String chunkingStrategy,
+                            @Value("${ingestion.chunking.max-tokens:800}") int maxTokens,
+                            @Value("${ingestion.chunking.overlap-tokens:0}") int overlapTokens) {
+        this.chunkStore = chunkStore;
+        this.bulkIndexer = bulkIndexer;
+        this.contentExtractor = contentExtractor;
+        this.textChunker = new TextChunker(maxTokens, overlapTokens);
+        this.legacyChunking = LEGACY_CHUNKING.equals(chunkingStrategy);
+        this.stageObserver = stageObserver;
+        this.chunkDeduplicator = chunkDeduplicator;
+        this.reindexJob = reindexJob;
+        this.chunks = Counter.builder("ai.ingestion.chunks")
+                .description("Chunks produced by ingestion")
+                .register(meterRegistry);
+        this.tokens = Counter.builder("ai.ingestion.tokens")
+                .description("Estimated tokens of the chunks produced by ingestion")
+                .register(meterRegistry);
     }
 
     /**
      * Ingests a document into the vector store by reading, transforming, and storing it.
      */
-    public void ingest(String documentId, String folderId, String fileName, Resource file) {
+    public void ingest(String documentId, String folderId, String fileName, Resource file) throws IOException {
         logger.info("Starting ingestion for document ID: {}, folder: {}", documentId, folderId);
 
-        List<Document> documents = transformDocument(file);
-        addMetadata(documents, documentId, folderId, fileName);
+        KeyValue context = KeyValue.of("documentId", documentId);
+        List<Document> documents = stageObserver.observeChecked(INGESTION, "parse", context,
+                () -> contentExtractor.extract(file));
+        index(documents, documentId, folderId, fileName, context);
+    }
 
-        List<Document> processedDocs = DocumentSplitter.splitLargeDocuments(documents);
+    /**
+     * Ingests the text of a document already extracted by the client (edge extraction), skipping the parse stage.
+     */
+    public void ingestText(String documentId, String folderId, String fileName, String text) {
+        logger.info("Starting text ingestion for document ID: {}, folder: {}", documentId, folderId);
 
-        deleteByDocumentId(documentId);
-        vectorStore.add(processedDocs);
+        List<Document> documents = text.isBlank()
+                ? List.of()
+                : List.of(new Document(text, new HashMap<>(Map.of(ContentExtractor.SOURCE, fileName))));
+        index(documents, documentId, folderId, fileName, KeyValue.of("documentId", documentId));
+    }
+
+    /**
+     * Splits the extracted documents and replaces the chunks of the document in the vector store, and
+     * in the index being rebuilt while a reindex runs.
+     */
+    private void index(List<Document> documents, String documentId, String folderId, String fileName, KeyValue context) {
+        addMetadata(documents, documentId, folderId, fileName);
+
+        List<Document> processedDocs = split(documents, context);
+        chunks.increment(processedDocs.size());
+        tokens.increment(processedDocs.stream().mapToLong(doc -> TextChunker.estimateTokens(doc.getText())).sum());
+
+        Runnable write = () -> {
+            deleteDocuments("documentId", documentId);
+            // Embedding is observed by Spring AI within this stage, near-duplicate chunks reuse an embedding
+            stageObserver.observe(INGESTION, "index", context,
+                    () -> chunkDeduplicator.run(() -> bulkIndexer.add(processedDocs)));
+        };
+        ReindexJob job = reindexJob.getIfAvailable();
+        if (job == null) {
+            write.run();
+        } else {
+            job.replaceDocument(documentId, processedDocs, write);
+        }
 
         logger.info("Ingestion complete for document ID: {}", documentId);
     }
@@ -48,22 +127,42 @@ public class IngestionService {
      * Deletes documents from the vector store matching the specified document ID.
      */
     public void deleteByDocumentId(String documentId) {
-        deleteDocuments("documentId", documentId);
+        delete("documentId", documentId);
     }
 
     /**
      * Deletes documents from the vector store matching the specified folder ID.
      */
     public void deleteByFolderId(String folderId) {
-        deleteDocuments("folderId", folderId);
+        delete("folderId", folderId);
     }
 
     /**
-     * Reads and transforms a document from the provided file resource.
+     * Deletes documents from the vector store, and from the index being rebuilt while a reindex runs.
      */
-    private List<Document> transformDocument(Resource file) {
-        List<Document> documentText = new TikaDocumentReader(file).get();
-        return TokenTextSplitter.builder().build().apply(documentText);
+    private void delete(String key, String value) {
+        ReindexJob job = reindexJob.getIfAvailable();
+        if (job == null) {
+            deleteDocuments(key, value);
+        } else {
+            job.deleteDocuments(key, value, () -> deleteDocuments(key, value));
+        }
+    }
+
+    /**
+     * Splits extracted text into chunks. The single-pass chunker is used by default and runs per
+     * extracted part on the extraction pool; the legacy strategy runs TokenTextSplitter followed by
+     * DocumentSplitter.
+     */
+    private List<Document> split(List<Document> documents, KeyValue context) {
+        if (legacyChunking) {
+            List<Document> tokenChunks = stageObserver.observe(INGESTION, "token-split", context,
+                    () -> TokenTextSplitter.builder().build().apply(documents));
+            return stageObserver.observe(INGESTION, "document-split", context,
+                    () -> DocumentSplitter.splitLargeDocuments(tokenChunks));
+        }
+        return stageObserver.observe(INGESTION, "chunk", context,
+                () -> contentExtractor.transformParts(documents, part -> textChunker.split(List.of(part))));
     }
 
     /**
@@ -78,23 +177,19 @@ public class IngestionService {
     }
 
     /**
-     * Deletes documents from the vector store that match the specified metadata key and value.
+     * Deletes every chunk of the vector store that matches the specified metadata key and value,
+     * with a delete by filter rather than a search, which would only find the top matches.
      */
     private void deleteDocuments(String key, String value) {
         logger.info("Deleting documents with {}: {}", key, value);
 
         try {
-            List<Document> documents = vectorStore.similaritySearch(
-                    SearchRequest.builder().filterExpression("'" + key + "' == '" + value + "'").build()
-            );
-
-            if (!documents.isEmpty()) {
-                vectorStore.delete(documents.stream().map(Document::getId).collect(Collectors.toList()));
-                logger.info("Deleted {} document(s) with {}: {}", documents.size(), key, value);
-            } else {
-                logger.info("No documents found with {}: {}", key, value);
-            }
-        } catch (RuntimeException e) {
+            stageObserver.observeChecked(INGESTION, "delete", KeyValue.of(key, value), () -> {
+                chunkStore.delete(key, value);
+                return null;
+            });
+            logger.info("Deleted documents with {}: {}", key, value);
+        } catch (IOException | RuntimeException e) {
             logger.error("Error deleting documents with {}: {}", key, value, e);
         }
     }
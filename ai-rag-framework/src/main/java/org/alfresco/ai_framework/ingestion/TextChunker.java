@@ -0,0 +1,315 @@
+package org.alfresco.ai_framework.ingestion;
+
+import org.springframework.ai.document.Document;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Single-pass splitter enforcing a token budget per chunk.
+ *
+ * The text is scanned once, front to back, to build an index of paragraph and sentence break
+ * positions together with the running token count at each break. Chunk boundaries are then
+ * resolved with a binary search over that index, preferring a paragraph break in the last 20%
+ * of the budget, so no character is revisited. Text is only materialized when a chunk is emitted.
+ *
+ * Tokens are estimated in place: a run of letters or digits counts as one token per
+ * {@value #CHARS_PER_WORD_TOKEN} characters, and every other non-whitespace character counts as one.
+ */
+public class TextChunker {
+
+    private static final int CHARS_PER_WORD_TOKEN = 6;
+    private static final double PARAGRAPH_LOOKBACK = 0.8;
+    private static final int MIN_CHUNK_CHARS = 5;
+
+    private final int maxTokens;
+    private final int overlapTokens;
+
+    /**
+     * @param maxTokens     Maximum number of tokens per chunk.
+     * @param overlapTokens Number of trailing tokens of a chunk, rounded to sentence breaks,
+     *                      repeated at the start of the next chunk.
+     */
+    public TextChunker(int maxTokens, int overlapTokens) {
+        if (maxTokens <= 0 || overlapTokens < 0 || overlapTokens >= maxTokens) {
+            throw new IllegalArgumentException("Invalid chunk budget: maxTokens=" + maxTokens + ", overlapTokens=" + overlapTokens);
+        }
+        this.maxTokens = maxTokens;
+        this.overlapTokens = overlapTokens;
+    }
+
+    /**
+     * Estimates the number of tokens of a text with the same rule used to size chunks.
+     */
+    public static int estimateTokens(CharSequence text) {
+        if (text == null) {
+            return 0;
+        }
+        TokenCounter counter = new TokenCounter();
+        for (int i = 0; i < text.length(); i++) {
+            counter.accept(text.charAt(i));
+        }
+        return counter.tokensAtBoundary();
+    }
+
+    public List<Document> split(List<Document> documents) {
+        List<Document> result = new ArrayList<>();
+        for (Document doc : documents) {
+            splitDocument(doc, result);
+        }
+        return result;
+    }
+
+    private void splitDocument(Document doc, List<Document> result) {
+        CharSequence content = doc.getText();
+        if (content == null || content.isEmpty()) {
+            return;
+        }
+
+        BreakIndex breaks = BreakIndex.scan(content);
+        int length = content.length();
+        int start = 0;
+        int startTokens = 0;
+        int partNumber = 1;
+
+        while (start < length) {
+            int end;
+            int endTokens;
+            int endBreak = breaks.lastWithin(startTokens + maxTokens);
+
+            if (endBreak < 0 || breaks.position(endBreak) <= start) {
+                // No break fits in the budget: cut at the last whitespace that does
+                long cut = hardSplit(content, start, maxTokens);
+                end = (int) (cut >>> 32);
+                endTokens = startTokens + (int) cut;
+                endBreak = -1;
+            } else {
+                endBreak = preferParagraph(breaks, endBreak, startTokens);
+                end = breaks.position(endBreak);
+                endTokens = breaks.tokens(endBreak);
+            }
+
+            if (emit(doc, content, start, end, partNumber, result)) {
+                partNumber++;
+            }
+
+            int next = endBreak < 0 ? -1 : overlapStart(breaks, endBreak, start);
+            if (next < 0) {
+                start = end;
+                startTokens = endTokens;
+            } else {
+                start = breaks.position(next);
+                startTokens = breaks.tokens(next);
+            }
+        }
+    }
+
+    /**
+     * Walks back from the furthest fitting break to a paragraph break within the lookback window.
+     */
+    private int preferParagraph(BreakIndex breaks, int endBreak, int startTokens) {
+        int minTokens = startTokens + (int) (maxTokens * PARAGRAPH_LOOKBACK);
+        for (int i = endBreak; i >= 0 && breaks.tokens(i) >= minTokens; i--) {
+            if (breaks.isParagraph(i)) {
+                return i;
+            }
+        }
+        return endBreak;
+    }
+
+    /**
+     * Returns the earliest break after {@code start} whose distance to the chunk end is within the
+     * overlap budget, or -1 when the next chunk should start exactly at the end of this one.
+     */
+    private int overlapStart(BreakIndex breaks, int endBreak, int start) {
+        if (overlapTokens == 0) {
+            return -1;
+        }
+        int first = breaks.firstAtLeast(breaks.tokens(endBreak) - overlapTokens);
+        while (first < endBreak && breaks.position(first) <= start) {
+            first++;
+        }
+        return first < endBreak ? first : -1;
+    }
+
+    private boolean emit(Document doc, CharSequence content, int start, int end, int partNumber, List<Document> result) {
+        while (start < end && Character.isWhitespace(content.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(content.charAt(end - 1))) {
+            end--;
+        }
+        if (end - start < MIN_CHUNK_CHARS) {
+            return false;
+        }
+
+        Map<String, Object> metadata = new HashMap<>(doc.getMetadata().size() + 4);
+        metadata.putAll(doc.getMetadata());
+        metadata.put("original_document_id", doc.getId());
+        metadata.put("part_number", partNumber);
+
+        result.add(Document.builder()
+                .id(doc.getId() + "_part" + partNumber)
+                .text(content.subSequence(start, end).toString())
+                .media(doc.getMedia())
+                .metadata(metadata)
+                .build());
+        return true;
+    }
+
+    /**
+     * Scans forward from {@code start} and returns the last whitespace position keeping the chunk
+     * within {@code budget} tokens, packed as {@code (position << 32) | tokens}.
+     */
+    private static long hardSplit(CharSequence content, int start, int budget) {
+        TokenCounter counter = new TokenCounter();
+        int lastCut = -1;
+        int lastCutTokens = 0;
+        int i = start;
+        for (; i < content.length(); i++) {
+            char c = content.charAt(i);
+            if (Character.isWhitespace(c) && i > start) {
+                lastCut = i;
+                lastCutTokens = counter.tokensAtBoundary();
+            }
+            counter.accept(c);
+            if (counter.tokensAtBoundary() > budget) {
+                break;
+            }
+        }
+        if (i == content.length()) {
+            return ((long) i << 32) | counter.tokensAtBoundary();
+        }
+        if (lastCut < 0) {
+            // A single word longer than the budget: cut where the budget ran out
+            return ((long) Math.max(i, start + 1) << 32) | budget;
+        }
+        return ((long) lastCut << 32) | lastCutTokens;
+    }
+
+    /**
+     * Incremental token estimator over a character stream.
+     */
+    private static final class TokenCounter {
+        private int tokens;
+        private int wordLength;
+
+        void accept(char c) {
+            if (Character.isLetterOrDigit(c)) {
+                wordLength++;
+                return;
+            }
+            closeWord();
+            if (!Character.isWhitespace(c)) {
+                tokens++;
+            }
+        }
+
+        int tokensAtBoundary() {
+            return wordLength == 0 ? tokens : tokens + 1 + (wordLength - 1) / CHARS_PER_WORD_TOKEN;
+        }
+
+        private void closeWord() {
+            if (wordLength > 0) {
+                tokens += 1 + (wordLength - 1) / CHARS_PER_WORD_TOKEN;
+                wordLength = 0;
+            }
+        }
+    }
+
+    /**
+     * Forward index of break positions and the cumulative token count at each of them.
+     * The end of the text is always the last break.
+     */
+    static final class BreakIndex {
+        private int[] positions = new int[64];
+        private int[] tokens = new int[64];
+        private final BitSet paragraphs = new BitSet();
+        private int size;
+
+        static BreakIndex scan(CharSequence content) {
+            BreakIndex index = new BreakIndex();
+            TokenCounter counter = new TokenCounter();
+            int length = content.length();
+            for (int i = 0; i < length; i++) {
+                char c = content.charAt(i);
+                counter.accept(c);
+                if (i + 1 < length) {
+                    char next = content.charAt(i + 1);
+                    if (c == '\n' && next == '\n') {
+                        index.add(i + 1, counter.tokensAtBoundary(), true);
+                    } else if ((c == '.' || c == '!' || c == '?') && Character.isWhitespace(next)) {
+                        index.add(i + 1, counter.tokensAtBoundary(), false);
+                    }
+                }
+            }
+            index.add(length, counter.tokensAtBoundary(), false);
+            return index;
+        }
+
+        private void add(int position, int tokenCount, boolean paragraph) {
+            if (size == positions.length) {
+                positions = Arrays.copyOf(positions, size * 2);
+                tokens = Arrays.copyOf(tokens, size * 2);
+            }
+            positions[size] = position;
+            tokens[size] = tokenCount;
+            if (paragraph) {
+                paragraphs.set(size);
+            }
+            size++;
+        }
+
+        int position(int i) {
+            return positions[i];
+        }
+
+        int tokens(int i) {
+            return tokens[i];
+        }
+
+        boolean isParagraph(int i) {
+            return paragraphs.get(i);
+        }
+
+        /**
+         * Index of the last break whose cumulative token count is at most {@code limit}, or -1.
+         */
+        int lastWithin(int limit) {
+            int low = 0;
+            int high = size - 1;
+            int found = -1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (tokens[mid] <= limit) {
+                    found = mid;
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return found;
+        }
+
+        /**
+         * Index of the first break whose cumulative token count is at least {@code limit}.
+         */
+        int firstAtLeast(int limit) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (tokens[mid] < limit) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package org.alfresco.ai_framework.observation;
+
+import io.micrometer.common.KeyValue;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+/**
+ * Observes the stages of the ingestion and chat pipelines. Every stage produces a timer named after
+ * its pipeline ({@value #INGESTION} or {@value #CHAT}) tagged with the stage, and a tracing span
+ * carrying the document or folder it works on. Identifiers are kept out of the metric tags.
+ *
+ * Embedding and LLM calls are observed by Spring AI itself ({@code gen_ai.client.operation} and
+ * {@code gen_ai.client.token.usage}), within the span of the stage that makes them.
+ */
+@Component
+public class StageObserver {
+
+    public static final String INGESTION = "ai.ingestion.stage";
+    public static final String CHAT = "ai.chat.stage";
+
+    private final ObservationRegistry observationRegistry;
+
+    public StageObserver(ObservationRegistry observationRegistry) {
+        this.observationRegistry = observationRegistry;
+    }
+
+    /**
+     * Runs a stage within an observation.
+     *
+     * @param pipeline {@link #INGESTION} or {@link #CHAT}
+     * @param stage    Stage name, used as low cardinality tag
+     * @param context  Identifier added to the span only, or null
+     */
+    public <T> T observe(String pipeline, String stage, KeyValue context, Supplier<T> action) {
+        return create(pipeline, stage, context).observe(action);
+    }
+
+    public void observe(String pipeline, String stage, KeyValue context, Runnable action) {
+        create(pipeline, stage, context).observe(action);
+    }
+
+    /**
+     * Runs a stage that may throw a checked exception within an observation.
+     */
+    public <T, E extends Throwable> T observeChecked(String pipeline, String stage, KeyValue context,
+                                                     Observation.CheckedCallable<T, E> action) throws E {
+        return create(pipeline, stage, context).observeChecked(action);
+    }
+
+    private Observation create(String pipeline, String stage, KeyValue context) {
+        Observation observation = Observation.createNotStarted(pipeline, observationRegistry)
+                .contextualName(pipeline.substring(0, pipeline.lastIndexOf('.')) + " " + stage)
+                .lowCardinalityKeyValue("stage", stage);
+        return context == null ? observation : observation.highCardinalityKeyValue(context);
+    }
+}
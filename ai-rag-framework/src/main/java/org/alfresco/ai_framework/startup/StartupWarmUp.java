@@ -0,0 +1,145 @@
+package org.alfresco.ai_framework.startup;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import org.alfresco.ai_framework.index.DocumentIndexManager;
+import org.alfresco.ai_framework.ingestion.ContentExtractor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.ollama.api.OllamaApi;
+import org.springframework.ai.ollama.management.OllamaModelManager;
+import org.springframework.ai.ollama.management.PullModelStrategy;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the slow startup steps in the background when {@code startup.warm-up} is {@code background}
+ * (fast-startup profile): pulling the Ollama models, checking the document index, loading the Tika
+ * parsers and a first embedding. The HTTP server starts without waiting for them, and this health
+ * indicator keeps the readiness probe out of service until every step has succeeded.
+ *
+ * Failed steps are retried at a fixed delay, so the service becomes ready on its own once Ollama
+ * or Elasticsearch are reachable. The JVM uptime when the service became ready is published as
+ * {@code ai.startup.ready}.
+ */
+@Component
+@ConditionalOnProperty(name = "startup.warm-up", havingValue = "background")
+public class StartupWarmUp implements HealthIndicator {
+
+    private static final Logger logger = LoggerFactory.getLogger(StartupWarmUp.class);
+
+    private interface Step {
+        void run() throws Exception;
+    }
+
+    private final Map<String, Step> steps = new LinkedHashMap<>();
+    private final Duration retryDelay;
+    private final Map<String, String> failures = new LinkedHashMap<>();
+    private volatile List<String> pending;
+    private volatile long readyMillis = -1;
+
+    public StartupWarmUp(ObjectProvider<OllamaApi> ollamaApi,
+                         ObjectProvider<DocumentIndexManager> indexManager,
+                         ContentExtractor contentExtractor,
+                         EmbeddingModel embeddingModel,
+                         MeterRegistry meterRegistry,
+                         @Value("${spring.ai.ollama.chat.options.model}") String chatModel,
+                         @Value("${spring.ai.ollama.embedding.options.model}") String embeddingModelName,
+                         @Value("${embedding.backend:ollama}") String embeddingBackend,
+                         @Value("${startup.retry-delay:10s}") Duration retryDelay) {
+        this.retryDelay = retryDelay;
+
+        List<String> models = new ArrayList<>(List.of(chatModel));
+        if ("ollama".equals(embeddingBackend)) {
+            models.add(embeddingModelName);
+        }
+        OllamaApi api = ollamaApi.getIfAvailable();
+        if (api != null) {
+            steps.put("models", () -> {
+                OllamaModelManager modelManager = new OllamaModelManager(api);
+                models.forEach(model -> modelManager.pullModel(model, PullModelStrategy.WHEN_MISSING));
+            });
+        }
+        DocumentIndexManager manager = indexManager.getIfAvailable();
+        if (manager != null) {
+            steps.put("index", manager::ensureIndex);
+        }
+        steps.put("extraction", contentExtractor::warmUp);
+        steps.put("embedding", () -> embeddingModel.embed("warm-up"));
+        this.pending = List.copyOf(steps.keySet());
+
+        TimeGauge.builder("ai.startup.ready", this, TimeUnit.MILLISECONDS, warmUp -> warmUp.readyMillis)
+                .description("JVM uptime when the background warm-up completed, -1 until then")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationStartedEvent.class)
+    public void start() {
+        Thread thread = new Thread(this::warmUp, "startup-warm-up");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void warmUp() {
+        List<String> remaining = new ArrayList<>(steps.keySet());
+        while (!remaining.isEmpty()) {
+            String name = remaining.get(0);
+            long start = System.nanoTime();
+            try {
+                steps.get(name).run();
+                logger.info("Warm-up step {} done in {} ms", name, (System.nanoTime() - start) / 1_000_000);
+                remaining.remove(0);
+                if (!remaining.isEmpty()) {
+                    pending = List.copyOf(remaining);
+                }
+                synchronized (failures) {
+                    failures.remove(name);
+                }
+            } catch (Exception e) {
+                logger.warn("Warm-up step {} failed, retrying in {}: {}", name, retryDelay, e.getMessage());
+                synchronized (failures) {
+                    failures.put(name, e.getMessage());
+                }
+                try {
+                    Thread.sleep(retryDelay.toMillis());
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+        readyMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+        pending = List.of();
+        logger.info("Warm-up complete, ready to serve {} ms after JVM start", readyMillis);
+    }
+
+    @Override
+    public Health health() {
+        List<String> remaining = pending;
+        if (remaining.isEmpty()) {
+            return Health.up().withDetail("readyMillis", readyMillis).build();
+        }
+        Health.Builder health = Health.outOfService().withDetail("pending", remaining);
+        synchronized (failures) {
+            if (!failures.isEmpty()) {
+                health.withDetail("failures", new LinkedHashMap<>(failures));
+            }
+        }
+        return health.build();
+    }
+}
@@ -1,10 +1,16 @@
 package org.alfresco;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.alfresco.ai.AIClient;
+import org.alfresco.cluster.PartitionManager;
+import org.alfresco.cluster.PartitionsChangedEvent;
 import org.alfresco.events.handler.ContentHandler;
 import org.alfresco.repo.event.v1.model.DataAttributes;
 import org.alfresco.repo.event.v1.model.RepoEvent;
 import org.alfresco.repo.event.v1.model.Resource;
 import org.alfresco.service.AlfrescoClient;
+import org.alfresco.service.AlfrescoSyncFolder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,10 +18,21 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -23,8 +40,13 @@ import java.util.concurrent.atomic.AtomicInteger;
 /**
  * Main application class for initializing synchronization and processing events.
  * It performs an initial synchronization for folders and processes queued events using a thread pool.
+ * Documents of the initial sync run on the backlog lanes of the WorkScheduler, newest first, while live
+ * events are handled ahead of them once the cluster members are known.
+ * With asynchronous startup (fast-startup profile), the initial synchronization runs in the background
+ * once the application is ready instead of delaying it.
  */
 @SpringBootApplication
+@EnableScheduling
 public class App implements CommandLineRunner {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(App.class);
@@ -33,6 +55,15 @@ public class App implements CommandLineRunner {
     @Value("${alfresco.ai.sync.parallel.threads}")
     private int parallelThreads;
 
+    @Value("${alfresco.ai.sync.bulkLoad:true}")
+    private boolean bulkLoad;
+
+    @Value("${alfresco.ai.sync.bulkLoadRenewInterval:120000}")
+    private long bulkLoadRenewIntervalMillis;
+
+    @Value("${alfresco.ai.sync.startup.async:false}")
+    private boolean asyncStartup;
+
     @Autowired
     private AtomicBoolean isInitialSyncComplete;
 
@@ -45,6 +76,29 @@ public class App implements CommandLineRunner {
     @Autowired
     private ContentHandler contentHandler;
 
+    @Autowired
+    private AIClient aiClient;
+
+    @Autowired
+    private PartitionManager partitionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Syncs folders taken over from other replicas, one rebalance at a time
+    private final ExecutorService rebalanceExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "sync-rebalance");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Renews the bulk-load mode lease held on the AI service during the initial sync
+    private final ScheduledExecutorService bulkModeExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "sync-bulk-mode");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     public static void main(String... args) {
         SpringApplication.run(App.class, args);
     }
@@ -56,30 +110,158 @@ public class App implements CommandLineRunner {
      * @param args Command-line arguments
      */
     @Override
-    public void run(String... args) {
+    public void run(String... args) throws IOException {
+        if (asyncStartup) {
+            LOGGER.info("Initial sync deferred until the application is ready.");
+            return;
+        }
+        synchronizeOnStartup();
+    }
+
+    /**
+     * Reports the time to ready and, with asynchronous startup, starts the initial synchronization
+     * in the background.
+     *
+     * @param event Application ready event
+     */
+    @EventListener
+    public void onApplicationReady(ApplicationReadyEvent event) {
+        LOGGER.info("Application ready in {} ms", event.getTimeTaken().toMillis());
+        if (asyncStartup) {
+            Thread thread = new Thread(() -> {
+                try {
+                    synchronizeOnStartup();
+                } catch (Exception e) {
+                    LOGGER.error("Initial sync failed", e);
+                }
+            }, "initial-sync");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Runs the initial synchronization once the cluster members are known: right away without
+     * partitioning, otherwise in the background after the settle time, so that startup is not blocked.
+     */
+    private void synchronizeOnStartup() throws IOException {
+        CompletableFuture<Void> membersKnown = partitionManager.start();
+        if (membersKnown.isDone()) {
+            initialSync();
+            return;
+        }
+        LOGGER.info("Initial sync deferred until the cluster members are known.");
+        membersKnown.thenRunAsync(this::initialSync, runnable -> {
+            Thread thread = new Thread(runnable, "initial-sync");
+            thread.setDaemon(true);
+            thread.start();
+        }).exceptionally(e -> {
+            LOGGER.error("Initial sync failed", e);
+            return null;
+        });
+    }
+
+    /**
+     * Runs the initial synchronization, then processes the events queued before the cluster members were known.
+     */
+    private void initialSync() {
         LOGGER.info("Starting initial sync process.");
+        long start = System.nanoTime();
         performInitialSync();
         isInitialSyncComplete.set(true);
-        LOGGER.info("Finished initial sync process.");
+        Timer.builder("alfresco.sync.initial")
+                .description("Duration of the initial synchronization")
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        LOGGER.info("Finished initial sync process in {} ms.", (System.nanoTime() - start) / 1_000_000);
         processQueuedEvents();
     }
 
     /**
-     * Performs the initial synchronization of documents from folders.
-     * Updates the synchronization timestamp for each folder.
+     * Performs the initial synchronization of documents from the folders owned by this replica.
+     * Folders are paged concurrently, so that the recent documents of every folder reach the scheduler
+     * while the backlog lane is full. Updates the synchronization timestamp for each folder.
+     * When bulk load is enabled, this replica holds the bulk-load mode of the AI service index for the duration
+     * of the sync, renewing its lease; the index leaves bulk-load mode once every replica has released it.
      */
     private void performInitialSync() {
-        alfrescoClient.getFoldersToSync().forEach(folder -> {
-            LOGGER.info("Starting initial synchronization for folder: {}", folder);
-            var processedCount = new AtomicInteger(0);
-            alfrescoClient.synchronizeDocuments(processedCount, folder);
-            LOGGER.info("Initial synchronization for folder {} complete. Processed {} documents", folder, processedCount.get());
-            alfrescoClient.updateTime(folder.id(), true);
+        List<AlfrescoSyncFolder> folders = alfrescoClient.getFoldersToSync(partitionManager::ownsFolder);
+        if (folders.isEmpty()) {
+            return;
+        }
+
+        String requester = partitionManager.getMemberId();
+        boolean bulkMode = bulkLoad && setBulkMode(true, requester);
+        ScheduledFuture<?> renewal = bulkMode
+                ? bulkModeExecutor.scheduleWithFixedDelay(() -> setBulkMode(true, requester),
+                        bulkLoadRenewIntervalMillis, bulkLoadRenewIntervalMillis, TimeUnit.MILLISECONDS)
+                : null;
+        var executor = Executors.newFixedThreadPool(Math.min(parallelThreads, folders.size()));
+        try {
+            CompletableFuture.allOf(folders.stream()
+                            .map(folder -> CompletableFuture.runAsync(() -> synchronizeFolder(folder), executor)
+                                    .exceptionally(e -> {
+                                        LOGGER.error("Initial synchronization for folder {} failed", folder, e);
+                                        return null;
+                                    }))
+                            .toArray(CompletableFuture[]::new))
+                    .join();
+        } finally {
+            shutdownExecutor(executor);
+            if (bulkMode) {
+                renewal.cancel(false);
+                setBulkMode(false, requester);
+            }
+        }
+    }
+
+    /**
+     * Synchronizes the folders taken over from other replicas after a rebalance.
+     * Before the initial sync completes, they are already covered by it.
+     *
+     * @param event Folders acquired by this replica
+     */
+    @EventListener
+    public void onPartitionsChanged(PartitionsChangedEvent event) {
+        if (!isInitialSyncComplete.get()) {
+            return;
+        }
+        rebalanceExecutor.submit(() -> {
+            try {
+                alfrescoClient.getFoldersToSync(event.acquiredFolders()::contains).forEach(this::synchronizeFolder);
+            } catch (Exception e) {
+                LOGGER.error("Failed to synchronize folders acquired from members {}", event.members(), e);
+            }
         });
     }
 
+    private void synchronizeFolder(AlfrescoSyncFolder folder) {
+        LOGGER.info("Starting initial synchronization for folder: {}", folder);
+        var processedCount = new AtomicInteger(0);
+        alfrescoClient.synchronizeDocuments(processedCount, folder);
+        LOGGER.info("Initial synchronization for folder {} complete. Processed {} documents", folder, processedCount.get());
+        alfrescoClient.updateTime(folder.id(), true);
+    }
+
+    /**
+     * Holds or releases the bulk-load mode of the AI service index. Failures are logged and do not stop the sync.
+     *
+     * @param enabled   Whether bulk-load mode should be held
+     * @param requester Identifier of this replica
+     * @return true if the AI service accepted the change
+     */
+    private boolean setBulkMode(boolean enabled, String requester) {
+        try {
+            LOGGER.info("Setting AI service bulk-load mode to {}: {}", enabled, aiClient.setBulkMode(enabled, requester));
+            return true;
+        } catch (IOException e) {
+            LOGGER.error("Failed to set AI service bulk-load mode to {}", enabled, e);
+            return false;
+        }
+    }
+
     /**
-     * Processes any events that were queued during the initial synchronization.
+     * Processes any events that were queued before the cluster members were known.
      * Events are processed using a fixed thread pool of the specified size.
      */
     private void processQueuedEvents() {
@@ -100,15 +282,17 @@ public class App implements CommandLineRunner {
 
     /**
      * Processes each event in the queue using the provided executor service.
+     * Events of the same node are processed sequentially in the order they were received.
      *
      * @param executor ExecutorService responsible for parallel event processing
      */
     private void processEventQueue(ExecutorService executor) {
+        Map<String, List<RepoEvent<DataAttributes<Resource>>>> eventsByNode = new LinkedHashMap<>();
         RepoEvent<DataAttributes<Resource>> event;
         while ((event = eventQueue.poll()) != null) {
-            RepoEvent<DataAttributes<Resource>> finalEvent = event;
-            executor.submit(() -> handleEvent(finalEvent));
+            eventsByNode.computeIfAbsent(event.getData().getResource().getId(), id -> new ArrayList<>()).add(event);
         }
+        eventsByNode.values().forEach(events -> executor.submit(() -> events.forEach(this::handleEvent)));
     }
 
     /**
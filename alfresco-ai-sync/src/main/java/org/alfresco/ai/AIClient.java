@@ -1,39 +1,115 @@
 package org.alfresco.ai;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.tracing.TraceContext;
+import io.micrometer.tracing.Tracer;
+import io.micrometer.tracing.propagation.Propagator;
+import org.alfresco.policy.ContentPolicy;
 import org.apache.hc.client5.http.classic.methods.HttpDelete;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
 import org.apache.hc.client5.http.classic.methods.HttpPost;
+import org.apache.hc.client5.http.classic.methods.HttpPut;
+import org.apache.hc.client5.http.config.RequestConfig;
 import org.apache.hc.client5.http.entity.mime.MultipartEntityBuilder;
 import org.apache.hc.client5.http.impl.classic.BasicHttpClientResponseHandler;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.core5.http.ClassicHttpResponse;
 import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 /**
  * REST client for interacting with the Alfresco AI service.
  * This service handles document upload and deletion operations.
+ *
+ * Uploads of compressible mimetypes are compressed with the first encoding of
+ * {@code alfresco.ai.upload.compression.encodings} that the AI service lists in the Accept-Encoding
+ * header of its upload responses, so content is sent uncompressed until the service has answered once.
+ *
+ * Uploads carry the current trace context (W3C {@code traceparent} header), so the ingestion spans of
+ * the AI service join the trace of the synchronized document.
  */
 @Service
 public class AIClient {
 
     private static final String DOCUMENTS_ENDPOINT = "/documents";
+    private static final String TEXT_ENDPOINT = "/documents/text";
+    private static final String TEXT_MIME_TYPE = "text/plain";
     private static final String DOCUMENT_ID_PARAM = "documentId";
     private static final String FOLDERS_ENDPOINT = "/folders";
     private static final String FOLDER_ID_PARAM = "folderId";
     private static final String FILE_NAME_PARAM = "fileName";
     private static final String FILE_PARAM = "file";
+    private static final String ENCODING_PARAM = "encoding";
+    private static final String FOLDER_DOCUMENTS_ENDPOINT = "/folders/documents";
+    private static final String AFTER_PARAM = "after";
+    private static final String SIZE_PARAM = "size";
+    private static final String BULK_MODE_ENDPOINT = "/index/bulk-mode";
+    private static final String ENABLED_PARAM = "enabled";
+    private static final String REQUESTER_PARAM = "requester";
 
     @Value("${alfresco.ai.base.url}")
     private String aiBaseUrl;
 
+    @Value("${alfresco.ai.upload.timeoutSeconds:300}")
+    private long uploadTimeoutSeconds;
+
+    @Value("${alfresco.ai.upload.compression.enabled:true}")
+    private boolean compressionEnabled;
+
+    @Value("${alfresco.ai.upload.compression.encodings:zstd,gzip}")
+    private List<String> compressionEncodings;
+
+    @Value("${alfresco.ai.upload.compression.mimetypes:text/*,application/json,application/xml,message/rfc822}")
+    private List<String> compressibleMimetypes;
+
+    // Request encodings advertised by the AI service in its last upload response
+    private volatile Set<String> acceptedEncodings = Set.of();
+
+    @Autowired
+    private AdaptiveConcurrencyLimiter concurrencyLimiter;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private Tracer tracer;
+
+    @Autowired
+    private Propagator propagator;
+
     /**
      * Uploads a document to the AI service.
+     * The number of concurrent uploads is bounded by the adaptive concurrency limiter, which backs off
+     * when the service answers 429/503, times out or slows down.
      *
      * @param documentId   Unique identifier for the document (required)
      * @param syncFolderId Unique identifier for the synchronization folder (required)
@@ -41,15 +117,129 @@ public class AIClient {
      * @param inputStream  Input stream containing the file data (required)
      * @return Response from the AI service
      * @throws IllegalArgumentException if any required parameters are null or empty
+     * @throws AIServiceOverloadedException if the AI service is overloaded
      * @throws IOException if there's an error during the upload process
      */
     public String uploadDocument(String documentId, String syncFolderId, String fileName, InputStream inputStream) throws IOException {
-        try (CloseableHttpClient httpClient = HttpClients.createDefault()) {
-            HttpPost httpPost = createUploadRequest(documentId, syncFolderId, fileName, inputStream);
-            return httpClient.execute(httpPost, new BasicHttpClientResponseHandler());
+        return uploadDocument(documentId, syncFolderId, fileName, null, inputStream);
+    }
+
+    /**
+     * Uploads a document to the AI service, compressing it when its mimetype is compressible
+     * and the AI service accepts a configured encoding.
+     *
+     * @param documentId   Unique identifier for the document (required)
+     * @param syncFolderId Unique identifier for the synchronization folder (required)
+     * @param fileName     Name of the file being uploaded (required)
+     * @param mimeType     Mimetype of the content, may be null
+     * @param inputStream  Input stream containing the file data (required)
+     * @return Response from the AI service
+     * @throws AIServiceOverloadedException if the AI service is overloaded
+     * @throws IOException if there's an error during the upload process
+     */
+    public String uploadDocument(String documentId, String syncFolderId, String fileName, String mimeType,
+                                 InputStream inputStream) throws IOException {
+        return upload(DOCUMENTS_ENDPOINT, documentId, syncFolderId, fileName, mimeType, inputStream);
+    }
+
+    /**
+     * Uploads the text of a document extracted by the sync service, replacing the document in the AI service.
+     * The text is compressed like text documents, under the same concurrency limit as uploads.
+     *
+     * @param documentId   Unique identifier for the document (required)
+     * @param syncFolderId Unique identifier for the synchronization folder (required)
+     * @param fileName     Name of the document (required)
+     * @param text         Extracted text, possibly empty
+     * @return Response from the AI service
+     * @throws AIServiceOverloadedException if the AI service is overloaded
+     * @throws IOException if there's an error during the upload process
+     */
+    public String uploadText(String documentId, String syncFolderId, String fileName, String text) throws IOException {
+        return upload(TEXT_ENDPOINT, documentId, syncFolderId, fileName, TEXT_MIME_TYPE,
+                new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private String upload(String endpoint, String documentId, String syncFolderId, String fileName, String mimeType,
+                          InputStream inputStream) throws IOException {
+        try {
+            concurrencyLimiter.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for an upload slot");
+        }
+
+        long start = System.nanoTime();
+        CountingInputStream counted = new CountingInputStream(inputStream);
+        try (CloseableHttpClient httpClient = HttpClients.custom()
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setResponseTimeout(Timeout.ofSeconds(uploadTimeoutSeconds))
+                        .build())
+                .build()) {
+            String encoding = selectEncoding(mimeType);
+            CompressedContentBody compressed = encoding == null ? null : new CompressedContentBody(counted, fileName, encoding);
+            HttpPost httpPost = createUploadRequest(endpoint, documentId, syncFolderId, fileName, counted, compressed);
+            try {
+                String response = httpClient.execute(httpPost, this::handleUploadResponse);
+                concurrencyLimiter.onSuccess(recordUpload(start, "success"), counted.count);
+                return response;
+            } finally {
+                if (compressed != null) {
+                    recordCompression(compressed);
+                }
+            }
+        } catch (AIServiceOverloadedException | SocketTimeoutException e) {
+            recordUpload(start, "overloaded");
+            concurrencyLimiter.onOverload();
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            recordUpload(start, "error");
+            concurrencyLimiter.onError();
+            throw e;
         }
     }
 
+    /**
+     * Records the duration of an upload, including the transfer of the content from Alfresco.
+     *
+     * @return Upload duration in nanoseconds
+     */
+    private long recordUpload(long start, String outcome) {
+        long elapsed = System.nanoTime() - start;
+        Timer.builder("alfresco.sync.upload")
+                .description("Duration of document uploads to the AI service")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(elapsed, TimeUnit.NANOSECONDS);
+        return elapsed;
+    }
+
+    /**
+     * Returns the first configured encoding accepted by the AI service for a compressible mimetype, or null.
+     */
+    private String selectEncoding(String mimeType) {
+        if (!compressionEnabled || !ContentPolicy.matches(compressibleMimetypes, mimeType)) {
+            return null;
+        }
+        Set<String> accepted = acceptedEncodings;
+        return compressionEncodings.stream()
+                .map(encoding -> encoding.trim().toLowerCase(Locale.ROOT))
+                .filter(accepted::contains)
+                .findFirst()
+                .orElse(null);
+    }
+
+    private void recordCompression(CompressedContentBody body) {
+        if (body.getEncodedBytes() == 0) {
+            return;
+        }
+        meterRegistry.counter("alfresco.sync.upload.compression.raw", "encoding", body.getEncoding())
+                .increment(body.getRawBytes());
+        meterRegistry.counter("alfresco.sync.upload.compression.sent", "encoding", body.getEncoding())
+                .increment(body.getEncodedBytes());
+        meterRegistry.counter("alfresco.sync.upload.compression.saved", "encoding", body.getEncoding())
+                .increment(Math.max(0, body.getRawBytes() - body.getEncodedBytes()));
+    }
+
     /**
      * Deletes a document from the AI service.
      *
@@ -82,20 +272,124 @@ public class AIClient {
         }
     }
 
-    private HttpPost createUploadRequest(String documentId, String folderId, String fileName, InputStream inputStream) {
-        HttpPost httpPost = new HttpPost(aiBaseUrl + DOCUMENTS_ENDPOINT);
+    /**
+     * Lists the IDs of the documents indexed for a folder, one page at a time, in ascending order.
+     *
+     * @param folderId Unique identifier of the folder (required)
+     * @param after    Value returned by the previous page, or null for the first page
+     * @param size     Maximum number of IDs in the page
+     * @return Page of document IDs
+     * @throws IOException if there's an error during the request
+     */
+    public DocumentIdPage listDocumentIds(String folderId, String after, int size) throws IOException {
+        String uri = aiBaseUrl + FOLDER_DOCUMENTS_ENDPOINT + "?" + FOLDER_ID_PARAM + "=" + URLEncoder.encode(folderId, StandardCharsets.UTF_8)
+                + "&" + SIZE_PARAM + "=" + size
+                + (after == null ? "" : "&" + AFTER_PARAM + "=" + URLEncoder.encode(after, StandardCharsets.UTF_8));
+        try (CloseableHttpClient httpClient = HttpClients.createDefault()) {
+            String response = httpClient.execute(new HttpGet(uri), new BasicHttpClientResponseHandler());
+            return objectMapper.readValue(response, DocumentIdPage.class);
+        }
+    }
+
+    /**
+     * Holds or releases the bulk-load mode of the AI service index for a requester. The index stays in
+     * bulk-load mode while any requester holds it, each one for a lease renewed by holding it again.
+     * Once the last requester releases it, the index settings are restored and the indexed documents
+     * become searchable.
+     *
+     * @param enabled   Whether bulk-load mode should be held or released
+     * @param requester Identifier of the requester, such as the member ID of this replica
+     * @return Response from the AI service
+     * @throws IOException if there's an error during the request
+     */
+    public String setBulkMode(boolean enabled, String requester) throws IOException {
+        try (CloseableHttpClient httpClient = HttpClients.createDefault()) {
+            HttpPut httpPut = new HttpPut(aiBaseUrl + BULK_MODE_ENDPOINT + "?" + ENABLED_PARAM + "=" + enabled
+                    + "&" + REQUESTER_PARAM + "=" + URLEncoder.encode(requester, StandardCharsets.UTF_8));
+            return httpClient.execute(httpPut, new BasicHttpClientResponseHandler());
+        }
+    }
+
+    /**
+     * Turns 429 and 503 responses into an AIServiceOverloadedException carrying the Retry-After delay,
+     * and keeps the request encodings accepted by the AI service.
+     */
+    private String handleUploadResponse(ClassicHttpResponse response) throws IOException {
+        Header acceptEncoding = response.getFirstHeader(HttpHeaders.ACCEPT_ENCODING);
+        acceptedEncodings = acceptEncoding == null ? Set.of() : Arrays.stream(acceptEncoding.getValue().split(","))
+                .map(encoding -> encoding.trim().toLowerCase(Locale.ROOT))
+                .filter(encoding -> !encoding.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+        int status = response.getCode();
+        if (status == HttpStatus.SC_TOO_MANY_REQUESTS || status == HttpStatus.SC_SERVICE_UNAVAILABLE) {
+            EntityUtils.consume(response.getEntity());
+            throw new AIServiceOverloadedException("AI service overloaded: " + status, parseRetryAfter(response.getFirstHeader(HttpHeaders.RETRY_AFTER)));
+        }
+        return new BasicHttpClientResponseHandler().handleResponse(response);
+    }
+
+    private static Duration parseRetryAfter(Header header) {
+        try {
+            return header == null ? Duration.ZERO : Duration.ofSeconds(Long.parseLong(header.getValue().trim()));
+        } catch (NumberFormatException e) {
+            return Duration.ZERO;
+        }
+    }
+
+    private HttpPost createUploadRequest(String endpoint, String documentId, String folderId, String fileName,
+                                         InputStream inputStream, CompressedContentBody compressed) {
+        HttpPost httpPost = new HttpPost(aiBaseUrl + endpoint);
+        TraceContext traceContext = tracer.currentTraceContext().context();
+        if (traceContext != null) {
+            propagator.inject(traceContext, httpPost, HttpPost::setHeader);
+        }
         MultipartEntityBuilder builder = MultipartEntityBuilder.create()
                 .addTextBody(DOCUMENT_ID_PARAM, documentId, ContentType.TEXT_PLAIN)
                 .addTextBody(FOLDER_ID_PARAM, folderId, ContentType.TEXT_PLAIN)
-                .addTextBody(FILE_NAME_PARAM, fileName, ContentType.TEXT_PLAIN)
-                .addBinaryBody(
-                        FILE_PARAM,
-                        inputStream,
-                        ContentType.APPLICATION_OCTET_STREAM,
-                        fileName
-                );
+                .addTextBody(FILE_NAME_PARAM, fileName, ContentType.TEXT_PLAIN);
+        if (compressed != null) {
+            builder.addTextBody(ENCODING_PARAM, compressed.getEncoding(), ContentType.TEXT_PLAIN)
+                    .addPart(FILE_PARAM, compressed);
+        } else {
+            builder.addBinaryBody(
+                    FILE_PARAM,
+                    inputStream,
+                    ContentType.APPLICATION_OCTET_STREAM,
+                    fileName
+            );
+        }
         httpPost.setEntity(builder.build());
         return httpPost;
     }
 
+    /**
+     * Counts the bytes of the content read for an upload, so that its latency is compared with uploads
+     * of a similar size.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+    }
 }
\ No newline at end of file
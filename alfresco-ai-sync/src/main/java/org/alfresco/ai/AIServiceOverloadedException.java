@@ -0,0 +1,24 @@
+package org.alfresco.ai;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Signals that the AI service rejected a request because it is overloaded (429 or 503).
+ */
+public class AIServiceOverloadedException extends IOException {
+
+    private final Duration retryAfter;
+
+    public AIServiceOverloadedException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * Delay requested by the service before retrying, or zero if none was given.
+     */
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,119 @@
+package org.alfresco.ai;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * AIMD concurrency limiter for uploads to the AI service.
+ * The limit grows by one every {@code limit} successful uploads, and shrinks multiplicatively when the
+ * service signals overload (429, 503, timeouts) or when an upload takes much longer than the recent average
+ * of uploads of a similar size. Sizes are bucketed by powers of four, so a large file is only compared with
+ * other large files and is not mistaken for queueing.
+ */
+@Component
+public class AdaptiveConcurrencyLimiter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AdaptiveConcurrencyLimiter.class);
+
+    private static final double OVERLOAD_BACKOFF = 0.5;
+    private static final double LATENCY_BACKOFF = 0.9;
+    private static final double LATENCY_SMOOTHING = 0.05;
+    private static final int SIZE_BUCKETS = 16;
+
+    @Value("${alfresco.ai.upload.concurrency.initial:4}")
+    private int initialLimit;
+
+    @Value("${alfresco.ai.upload.concurrency.min:1}")
+    private int minLimit;
+
+    @Value("${alfresco.ai.upload.concurrency.max:32}")
+    private int maxLimit;
+
+    @Value("${alfresco.ai.upload.concurrency.latencyTolerance:2.0}")
+    private double latencyTolerance;
+
+    private double limit;
+    private int inFlight;
+    private final double[] averageLatencyNanos = new double[SIZE_BUCKETS];
+
+    @PostConstruct
+    public void initialize() {
+        limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        LOGGER.info("Upload concurrency limit initialized to {} (min: {}, max: {})", (int) limit, minLimit, maxLimit);
+    }
+
+    /**
+     * Waits until an upload slot is available.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public synchronized void acquire() throws InterruptedException {
+        while (inFlight >= (int) limit) {
+            wait();
+        }
+        inFlight++;
+    }
+
+    /**
+     * Releases the slot of a successful upload, growing the limit unless its latency shows queueing.
+     *
+     * @param latencyNanos Duration of the upload
+     * @param bytes        Size of the uploaded content
+     */
+    public synchronized void onSuccess(long latencyNanos, long bytes) {
+        release();
+        int bucket = sizeBucket(bytes);
+        double average = averageLatencyNanos[bucket];
+        if (average > 0 && latencyNanos > average * latencyTolerance) {
+            decrease(LATENCY_BACKOFF, "latency");
+        } else {
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+        averageLatencyNanos[bucket] = average == 0
+                ? latencyNanos
+                : average + LATENCY_SMOOTHING * (latencyNanos - average);
+    }
+
+    /**
+     * Releases the slot of an upload rejected or timed out by an overloaded service, halving the limit.
+     */
+    public synchronized void onOverload() {
+        release();
+        decrease(OVERLOAD_BACKOFF, "overload");
+    }
+
+    /**
+     * Releases the slot of an upload that failed for other reasons, leaving the limit unchanged.
+     */
+    public synchronized void onError() {
+        release();
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * Returns the power-of-four size bucket of an upload: up to 4 bytes, 16 bytes, 64 bytes, and so on.
+     */
+    private static int sizeBucket(long bytes) {
+        int log2 = bytes <= 1 ? 0 : 64 - Long.numberOfLeadingZeros(bytes - 1);
+        return Math.min(SIZE_BUCKETS - 1, log2 / 2);
+    }
+
+    private void release() {
+        inFlight--;
+        notifyAll();
+    }
+
+    private void decrease(double factor, String reason) {
+        double previous = limit;
+        limit = Math.max(minLimit, limit * factor);
+        if ((int) previous != (int) limit) {
+            LOGGER.info("Upload concurrency limit reduced from {} to {} ({})", (int) previous, (int) limit, reason);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package org.alfresco.ai;
+
+import com.github.luben.zstd.ZstdOutputStream;
+import org.apache.hc.client5.http.entity.mime.AbstractContentBody;
+import org.apache.hc.core5.http.ContentType;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Multipart body compressing a stream with gzip or zstd while it is written to the request,
+ * so the content is never held in memory. The sizes before and after compression are known
+ * once the body has been written.
+ */
+class CompressedContentBody extends AbstractContentBody {
+
+    static final String GZIP = "gzip";
+    static final String ZSTD = "zstd";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final InputStream inputStream;
+    private final String fileName;
+    private final String encoding;
+    private long rawBytes;
+    private long encodedBytes;
+
+    /**
+     * @param inputStream Content to compress
+     * @param fileName    Name of the file part
+     * @param encoding    {@link #GZIP} or {@link #ZSTD}
+     */
+    CompressedContentBody(InputStream inputStream, String fileName, String encoding) {
+        super(ContentType.APPLICATION_OCTET_STREAM);
+        this.inputStream = inputStream;
+        this.fileName = fileName;
+        this.encoding = encoding;
+    }
+
+    @Override
+    public String getFilename() {
+        return fileName;
+    }
+
+    @Override
+    public long getContentLength() {
+        return -1;
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        CountingOutputStream wire = new CountingOutputStream(out);
+        try (OutputStream encoder = ZSTD.equals(encoding) ? new ZstdOutputStream(wire) : new GZIPOutputStream(wire, BUFFER_SIZE)) {
+            rawBytes = inputStream.transferTo(encoder);
+        }
+        encodedBytes = wire.count;
+    }
+
+    String getEncoding() {
+        return encoding;
+    }
+
+    long getRawBytes() {
+        return rawBytes;
+    }
+
+    long getEncodedBytes() {
+        return encodedBytes;
+    }
+
+    /**
+     * Counts the compressed bytes and leaves the request stream open when the encoder is closed.
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) throws IOException {
+            out.write(buffer, offset, length);
+            count += length;
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package org.alfresco.ai;
+
+import java.util.List;
+
+/**
+ * Page of document IDs indexed by the AI service for a folder.
+ */
+public record DocumentIdPage(
+        List<String> documentIds,  // Document IDs in ascending order
+        String after               // Value to request the next page with, null on the last page
+) {
+}
@@ -0,0 +1,95 @@
+package org.alfresco.cluster;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Partition coordinator backed by a directory shared by all the replicas (a shared volume, or a local
+ * folder when several replicas run on the same host). Each member owns one JSON file holding its
+ * heartbeat time and published folder timestamp state; members whose heartbeat is older than the member
+ * timeout are considered gone. Replicas must have reasonably synchronized clocks.
+ */
+@Component
+@ConditionalOnProperty(name = "alfresco.ai.sync.partitioning.coordinator", havingValue = "file", matchIfMissing = true)
+public class FileCoordinator implements PartitionCoordinator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FileCoordinator.class);
+
+    private static final String MEMBER_FILE_SUFFIX = ".member.json";
+
+    @Value("${alfresco.ai.sync.partitioning.directory:./data/cluster}")
+    private Path directory;
+
+    @Value("${alfresco.ai.sync.partitioning.memberTimeout:15000}")
+    private long memberTimeoutMillis;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private String memberId;
+
+    @Override
+    public void join(String memberId) throws IOException {
+        this.memberId = memberId;
+        Files.createDirectories(directory);
+        heartbeat(Map.of());
+        LOGGER.info("Joined cluster directory {} as {}", directory, memberId);
+    }
+
+    @Override
+    public void heartbeat(Map<String, FolderWatermark> watermarks) throws IOException {
+        Path temp = directory.resolve(memberId + MEMBER_FILE_SUFFIX + ".tmp");
+        objectMapper.writeValue(temp.toFile(), new MemberState(Instant.now(), watermarks));
+        Files.move(temp, memberFile(memberId), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public Map<String, Map<String, FolderWatermark>> members() throws IOException {
+        Instant expiry = Instant.now().minus(Duration.ofMillis(memberTimeoutMillis));
+        Map<String, Map<String, FolderWatermark>> members = new HashMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + MEMBER_FILE_SUFFIX)) {
+            for (Path file : files) {
+                String id = file.getFileName().toString().replace(MEMBER_FILE_SUFFIX, "");
+                try {
+                    MemberState state = objectMapper.readValue(file.toFile(), MemberState.class);
+                    if (state.heartbeat().isAfter(expiry)) {
+                        members.put(id, state.watermarks() == null ? Map.of() : state.watermarks());
+                    }
+                } catch (IOException e) {
+                    // Deleted or replaced while reading, it will be read on the next heartbeat
+                    LOGGER.debug("Skipping unreadable member file {}", file, e);
+                }
+            }
+        }
+        return members;
+    }
+
+    @Override
+    public void leave() throws IOException {
+        Files.deleteIfExists(memberFile(memberId));
+        LOGGER.info("Left cluster directory {} as {}", directory, memberId);
+    }
+
+    private Path memberFile(String id) {
+        return directory.resolve(id + MEMBER_FILE_SUFFIX);
+    }
+
+    record MemberState(Instant heartbeat, Map<String, FolderWatermark> watermarks) {
+    }
+}
@@ -0,0 +1,41 @@
+package org.alfresco.cluster;
+
+import java.time.Instant;
+
+/**
+ * Folder timestamp state published by a replica for a synchronization folder.
+ *
+ * @param completed     Latest event time completed for the folder, null when none
+ * @param pendingBefore Time just before the oldest event in progress or failed, null when nothing is pending
+ */
+public record FolderWatermark(Instant completed, Instant pendingBefore) {
+
+    /**
+     * Combines the state of two replicas: the latest completed time and the earliest pending one.
+     * A replica with nothing pending does not hold back the others.
+     */
+    public FolderWatermark merge(FolderWatermark other) {
+        return new FolderWatermark(latest(completed, other.completed), earliest(pendingBefore, other.pendingBefore));
+    }
+
+    /**
+     * Timestamp that can be written for the folder: the latest completed time capped before the oldest
+     * pending event, or, with nothing completed yet, just before the oldest pending event.
+     * Null when there is no event at all.
+     */
+    public Instant timestamp() {
+        if (completed == null) {
+            return pendingBefore;
+        }
+        // Documents are searched with cm:modified after the folder timestamp
+        return earliest(completed, pendingBefore);
+    }
+
+    private static Instant latest(Instant a, Instant b) {
+        return a == null ? b : b == null || a.isAfter(b) ? a : b;
+    }
+
+    private static Instant earliest(Instant a, Instant b) {
+        return a == null ? b : b == null || a.isBefore(b) ? a : b;
+    }
+}
@@ -0,0 +1,36 @@
+package org.alfresco.cluster;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Membership of the alfresco-ai-sync replicas sharing the synchronization work.
+ * Every member publishes, with its heartbeat, the latest completed and oldest pending event times of
+ * each folder, so that the owner of a folder never advances it past an event pending on another replica.
+ */
+public interface PartitionCoordinator {
+
+    /**
+     * Registers this replica as a member.
+     *
+     * @param memberId Unique identifier of the replica
+     */
+    void join(String memberId) throws IOException;
+
+    /**
+     * Refreshes the liveness of this replica and publishes its folder timestamp state.
+     *
+     * @param watermarks Timestamp state per folder of the events handled by this replica
+     */
+    void heartbeat(Map<String, FolderWatermark> watermarks) throws IOException;
+
+    /**
+     * Returns the live members, including this replica, with the folder timestamp state they published.
+     */
+    Map<String, Map<String, FolderWatermark>> members() throws IOException;
+
+    /**
+     * Removes this replica from the members.
+     */
+    void leave() throws IOException;
+}
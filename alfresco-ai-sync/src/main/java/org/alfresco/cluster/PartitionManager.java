@@ -0,0 +1,204 @@
+package org.alfresco.cluster;
+
+import jakarta.annotation.PreDestroy;
+import org.alfresco.service.AlfrescoClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Assigns sync folders and live events (by node id) to the alfresco-ai-sync replicas with a consistent
+ * hash ring built from the members known to the PartitionCoordinator.
+ *
+ * When partitioning is disabled this replica owns everything. When members join or leave, the ring is
+ * rebuilt and a PartitionsChangedEvent lists the folders taken over by this replica, so they can be synced.
+ *
+ * Heartbeats run on a thread of their own rather than on the Spring scheduler, so that long scheduled
+ * tasks such as the nightly reconciliation cannot delay them past the member timeout and hand the
+ * partitions of a live replica to the others.
+ */
+@Component
+public class PartitionManager {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PartitionManager.class);
+
+    @Value("${alfresco.ai.sync.partitioning.enabled:false}")
+    private boolean enabled;
+
+    @Value("${alfresco.ai.sync.partitioning.memberId:}")
+    private String memberId;
+
+    @Value("${alfresco.ai.sync.partitioning.virtualNodes:64}")
+    private int virtualNodes;
+
+    @Value("${alfresco.ai.sync.partitioning.settleTime:10000}")
+    private long settleTimeMillis;
+
+    @Value("${alfresco.ai.sync.partitioning.heartbeatInterval:5000}")
+    private long heartbeatIntervalMillis;
+
+    @Autowired
+    private PartitionCoordinator coordinator;
+
+    @Autowired
+    private AlfrescoClient alfrescoClient;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private volatile boolean joined;
+    private volatile boolean started;
+    private volatile ConsistentHashRing ring;
+    private volatile Set<String> members = Set.of();
+    private volatile Map<String, Map<String, FolderWatermark>> remoteWatermarks = Map.of();
+    private volatile Map<String, FolderWatermark> localWatermarks = Map.of();
+
+    private final ScheduledExecutorService heartbeatExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "sync-partition-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Joins the cluster and starts the heartbeats. The other members are given the settle time to be
+     * discovered before node ownership is known, without blocking the caller.
+     *
+     * @return Future completed once the members are known, already completed when partitioning is disabled
+     */
+    public CompletableFuture<Void> start() throws IOException {
+        if (memberId.isEmpty()) {
+            memberId = UUID.randomUUID().toString();
+        }
+        if (!enabled) {
+            started = true;
+            return CompletableFuture.completedFuture(null);
+        }
+        coordinator.join(memberId);
+        joined = true;
+        heartbeatExecutor.scheduleWithFixedDelay(this::heartbeat, 0, heartbeatIntervalMillis, TimeUnit.MILLISECONDS);
+
+        CompletableFuture<Void> membersKnown = new CompletableFuture<>();
+        heartbeatExecutor.schedule(() -> {
+            heartbeat();
+            started = true;
+            LOGGER.info("Partitioning started as member {} of {}", memberId, members);
+            membersKnown.complete(null);
+        }, settleTimeMillis, TimeUnit.MILLISECONDS);
+        return membersKnown;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the identifier of this replica, set once started.
+     */
+    public String getMemberId() {
+        return memberId;
+    }
+
+    /**
+     * Returns whether the members are known, so that node ownership can be checked.
+     */
+    public boolean isStarted() {
+        return started;
+    }
+
+    /**
+     * Returns whether this replica synchronizes the folder and writes its timestamp.
+     */
+    public boolean ownsFolder(String folderId) {
+        return owns(folderId);
+    }
+
+    /**
+     * Returns whether this replica handles the live events of the node.
+     */
+    public boolean ownsNode(String nodeId) {
+        return owns(nodeId);
+    }
+
+    /**
+     * Sets the folder timestamp state this replica publishes with its next heartbeat.
+     */
+    public void publishWatermarks(Map<String, FolderWatermark> watermarks) {
+        localWatermarks = Map.copyOf(watermarks);
+    }
+
+    /**
+     * Returns the folder timestamp state published by the other members.
+     */
+    public Map<String, Map<String, FolderWatermark>> getRemoteWatermarks() {
+        return remoteWatermarks;
+    }
+
+    /**
+     * Publishes the state of this replica and refreshes the members, rebalancing when they changed.
+     * Runs on the heartbeat thread only.
+     */
+    private void heartbeat() {
+        if (!joined) {
+            return;
+        }
+        try {
+            coordinator.heartbeat(localWatermarks);
+            Map<String, Map<String, FolderWatermark>> state = coordinator.members();
+            state.putIfAbsent(memberId, localWatermarks);
+            remoteWatermarks = state.entrySet().stream()
+                    .filter(entry -> !entry.getKey().equals(memberId))
+                    .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+            if (!state.keySet().equals(members)) {
+                rebalance(Set.copyOf(state.keySet()));
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("Partition heartbeat failed for member {}", memberId, e);
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        heartbeatExecutor.shutdownNow();
+        if (joined) {
+            joined = false;
+            coordinator.leave();
+        }
+    }
+
+    private boolean owns(String key) {
+        ConsistentHashRing current = ring;
+        // Before the ring is built, events are queued and checked again once the members are known
+        return !enabled || current == null || memberId.equals(current.owner(key));
+    }
+
+    private void rebalance(Set<String> newMembers) {
+        ConsistentHashRing previous = ring;
+        ConsistentHashRing next = new ConsistentHashRing(newMembers, virtualNodes);
+        ring = next;
+        members = newMembers;
+        LOGGER.info("Cluster members changed: {}", newMembers);
+
+        if (previous != null) {
+            Set<String> acquired = alfrescoClient.getSyncFolders().stream()
+                    .filter(folderId -> memberId.equals(next.owner(folderId)) && !memberId.equals(previous.owner(folderId)))
+                    .collect(Collectors.toSet());
+            if (!acquired.isEmpty()) {
+                LOGGER.info("Member {} took over {} folders", memberId, acquired.size());
+                eventPublisher.publishEvent(new PartitionsChangedEvent(newMembers, acquired));
+            }
+        }
+    }
+}
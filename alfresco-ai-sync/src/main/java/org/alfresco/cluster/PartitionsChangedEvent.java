@@ -0,0 +1,12 @@
+package org.alfresco.cluster;
+
+import java.util.Set;
+
+/**
+ * Published when the members of the cluster change and this replica takes over folders from another one.
+ */
+public record PartitionsChangedEvent(
+        Set<String> members,          // Live members after the change
+        Set<String> acquiredFolders   // Sync folders now owned by this replica that were owned by another one
+) {
+}
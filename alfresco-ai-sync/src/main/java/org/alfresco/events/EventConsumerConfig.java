@@ -0,0 +1,60 @@
+package org.alfresco.events;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.alfresco.event.sdk.handling.EventHandlingExecutor;
+import org.alfresco.event.sdk.handling.EventHandlingRegistry;
+import org.alfresco.event.sdk.handling.SimpleEventHandlingExecutor;
+import org.alfresco.events.handler.ContentHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jms.activemq.ActiveMQConnectionFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+/**
+ * Configuration of the consumption of the Alfresco event stream.
+ * The events topic is read by a single subscriber, since every consumer of a topic receives every event,
+ * and the handlers run concurrently on lanes keyed by node id to keep the order of events of each node.
+ */
+@Configuration
+public class EventConsumerConfig {
+
+    @Value("${alfresco.ai.sync.events.consumers:4}")
+    private int consumers;
+
+    @Value("${alfresco.ai.sync.events.laneCapacity:1000}")
+    private int laneCapacity;
+
+    @Value("${alfresco.ai.sync.events.prefetch:1000}")
+    private int prefetch;
+
+    /**
+     * Replaces the single-threaded handler executor of the Alfresco Java Event API.
+     *
+     * @param eventHandlingRegistry Registry of the event handlers
+     * @param contentHandler        Handler holding the folder timestamps of the events waiting in the lanes
+     * @param meterRegistry         Registry for the lag and throughput metrics
+     * @return an {@link OrderedEventDispatcher} with the configured number of consumers
+     */
+    @Bean
+    @Primary
+    public EventHandlingExecutor orderedEventDispatcher(EventHandlingRegistry eventHandlingRegistry,
+                                                        ContentHandler contentHandler, MeterRegistry meterRegistry) {
+        return new OrderedEventDispatcher(new SimpleEventHandlingExecutor(eventHandlingRegistry),
+                contentHandler::holdFolderTimestamp, consumers, laneCapacity, meterRegistry);
+    }
+
+    /**
+     * Sets the number of events the broker pushes to the subscriber ahead of acknowledgement.
+     *
+     * @return a customizer of the ActiveMQ connection factory
+     */
+    @Bean
+    public ActiveMQConnectionFactoryCustomizer prefetchCustomizer() {
+        return connectionFactory -> {
+            connectionFactory.getPrefetchPolicy().setTopicPrefetch(prefetch);
+            connectionFactory.getPrefetchPolicy().setDurableTopicPrefetch(prefetch);
+            connectionFactory.getPrefetchPolicy().setQueuePrefetch(prefetch);
+        };
+    }
+}
@@ -0,0 +1,170 @@
+package org.alfresco.events;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.alfresco.event.sdk.handling.EventHandlingExecutor;
+import org.alfresco.repo.event.v1.model.DataAttributes;
+import org.alfresco.repo.event.v1.model.NodeResource;
+import org.alfresco.repo.event.v1.model.RepoEvent;
+import org.alfresco.repo.event.v1.model.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Event handling executor that runs the handlers of repository events on several lanes.
+ * Events are assigned to a lane by node id, so events of the same node are handled one at a time
+ * in the order they were received, while events of different nodes are handled concurrently.
+ *
+ * Each lane is a single thread with a bounded queue. When a lane is full, the JMS consumer blocks
+ * until there is room, so the broker prefetch and the lane capacity bound the events held in memory.
+ *
+ * The message of an event is acknowledged once the event is queued, so every event is registered
+ * with a {@link ReceivedEventListener} when it is dispatched and released once its handlers are done.
+ * This keeps the folder timestamps from moving past events still waiting in a lane, which would
+ * otherwise be lost on a crash.
+ */
+public class OrderedEventDispatcher implements EventHandlingExecutor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OrderedEventDispatcher.class);
+
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30L;
+
+    private final EventHandlingExecutor delegate;
+    private final ReceivedEventListener listener;
+    private final ThreadPoolExecutor[] lanes;
+    private final Timer lag;
+    private final Timer handling;
+    private final Counter failed;
+
+    /**
+     * @param delegate      Executor running the handlers of a single event
+     * @param listener      Registers each event from its dispatch until its handlers are done
+     * @param laneCount     Number of events handled concurrently
+     * @param laneCapacity  Events queued per lane before the consumer blocks
+     * @param meterRegistry Registry for the lag and throughput metrics
+     */
+    public OrderedEventDispatcher(EventHandlingExecutor delegate, ReceivedEventListener listener,
+                                  int laneCount, int laneCapacity, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.listener = listener;
+        this.lanes = new ThreadPoolExecutor[Math.max(1, laneCount)];
+        AtomicInteger threadCount = new AtomicInteger();
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(laneCapacity),
+                    runnable -> new Thread(runnable, "event-lane-" + threadCount.incrementAndGet()),
+                    OrderedEventDispatcher::waitForRoom);
+        }
+        this.lag = Timer.builder("alfresco.sync.events.lag")
+                .description("Time from the repository event to the start of its handling")
+                .register(meterRegistry);
+        this.handling = Timer.builder("alfresco.sync.events.handling")
+                .description("Handling time of repository events, its count gives the throughput")
+                .register(meterRegistry);
+        this.failed = Counter.builder("alfresco.sync.events.failed")
+                .description("Repository events whose handlers failed")
+                .register(meterRegistry);
+        Gauge.builder("alfresco.sync.events.pending", this, OrderedEventDispatcher::getPending)
+                .description("Repository events received and waiting for a lane")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void executeEventHandlers(RepoEvent<DataAttributes<Resource>> event) {
+        Runnable release = listener.received(event);
+        try {
+            lanes[Math.floorMod(getOrderingKey(event).hashCode(), lanes.length)].execute(() -> {
+                try {
+                    handle(event);
+                } finally {
+                    release.run();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            release.run();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the number of events waiting in all the lanes.
+     */
+    public int getPending() {
+        return Arrays.stream(lanes).mapToInt(lane -> lane.getQueue().size()).sum();
+    }
+
+    /**
+     * Stops accepting events and waits for the queued ones to be handled.
+     */
+    public void shutdown() throws InterruptedException {
+        LOGGER.info("Handling {} pending events before shutdown", getPending());
+        for (ThreadPoolExecutor lane : lanes) {
+            lane.shutdown();
+        }
+        for (ThreadPoolExecutor lane : lanes) {
+            if (!lane.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                LOGGER.warn("Dropping {} events not handled before shutdown", lane.shutdownNow().size());
+            }
+        }
+    }
+
+    private void handle(RepoEvent<DataAttributes<Resource>> event) {
+        ZonedDateTime eventTime = event.getTime();
+        if (eventTime != null) {
+            lag.record(Duration.between(eventTime.toInstant(), Instant.now()));
+        }
+        long start = System.nanoTime();
+        try {
+            delegate.executeEventHandlers(event);
+        } catch (Exception e) {
+            failed.increment();
+            LOGGER.error("Failed to handle {} event {}", event.getType(), event.getId(), e);
+        } finally {
+            handling.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static String getOrderingKey(RepoEvent<DataAttributes<Resource>> event) {
+        if (event.getData() != null && event.getData().getResource() instanceof NodeResource node && node.getId() != null) {
+            return node.getId();
+        }
+        return String.valueOf(event.getId());
+    }
+
+    /**
+     * Registration of the events received by the dispatcher.
+     */
+    @FunctionalInterface
+    public interface ReceivedEventListener {
+
+        /**
+         * Registers an event before it is queued on a lane.
+         *
+         * @return Action run once the handlers of the event are done, or the event is rejected
+         */
+        Runnable received(RepoEvent<DataAttributes<Resource>> event);
+    }
+
+    private static void waitForRoom(Runnable task, ThreadPoolExecutor lane) {
+        if (lane.isShutdown()) {
+            throw new RejectedExecutionException("Event lane is shut down");
+        }
+        try {
+            lane.getQueue().put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for an event lane", e);
+        }
+    }
+}
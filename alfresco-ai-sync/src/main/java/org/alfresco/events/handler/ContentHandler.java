@@ -1,6 +1,7 @@
 package org.alfresco.events.handler;
 
 import jakarta.annotation.PostConstruct;
+import org.alfresco.cluster.PartitionManager;
 import org.alfresco.ai.AIClient;
 import org.alfresco.event.sdk.handling.filter.EventFilter;
 import org.alfresco.event.sdk.handling.handler.OnNodeCreatedEventHandler;
@@ -8,20 +9,24 @@ import org.alfresco.event.sdk.handling.handler.OnNodeDeletedEventHandler;
 import org.alfresco.event.sdk.handling.handler.OnNodeUpdatedEventHandler;
 import org.alfresco.events.filter.ParentFolderFilter;
 import org.alfresco.repo.event.v1.model.*;
+import org.alfresco.retry.RetryScheduler;
+import org.alfresco.scheduler.WorkScheduler;
 import org.alfresco.service.AlfrescoClient;
+import org.alfresco.service.FolderTimestampWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.io.IOException;
+import java.time.Instant;
+import java.time.ZonedDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 /**
@@ -39,7 +44,10 @@ public class ContentHandler implements OnNodeCreatedEventHandler, OnNodeUpdatedE
 
     private static final String INITIALIZATION_ERROR = "Failed to initialize ContentHandler: {}";
 
-    private List<String> folderIdsList;
+    private volatile List<String> folderIdsList;
+
+    @Value("${alfresco.ai.sync.startup.async:false}")
+    private boolean asyncStartup;
 
     @Autowired
     private AIClient aiClient;
@@ -47,6 +55,18 @@ public class ContentHandler implements OnNodeCreatedEventHandler, OnNodeUpdatedE
     @Autowired
     private AlfrescoClient alfrescoClient;
 
+    @Autowired
+    private FolderTimestampWriter folderTimestampWriter;
+
+    @Autowired
+    private RetryScheduler retryScheduler;
+
+    @Autowired
+    private PartitionManager partitionManager;
+
+    @Autowired
+    private WorkScheduler workScheduler;
+
     @Autowired
     private BlockingQueue<RepoEvent<DataAttributes<Resource>>> eventQueue;
 
@@ -54,31 +74,53 @@ public class ContentHandler implements OnNodeCreatedEventHandler, OnNodeUpdatedE
     private AtomicBoolean isInitialSyncComplete;
 
     protected void addFolder(String folder) {
-        folderIdsList.add(folder);
+        getFolderIds().add(folder);
     }
 
     protected void removeFolder(String folder) {
-        folderIdsList.add(folder);
+        getFolderIds().add(folder);
     }
 
     /**
      * Initializes the handler by resolving the folder ID from the configured folder path.
-     * Executed after dependency injection is complete.
+     * Executed after dependency injection is complete. With asynchronous startup, the folders are
+     * resolved on first use instead, by the first event or the initial sync.
      */
     @PostConstruct
     public void initialize() {
+        if (asyncStartup) {
+            LOGGER.info("ContentHandler sync folders will be resolved on first use");
+            return;
+        }
         LOGGER.info("Initializing ContentHandler");
-        try {
-            folderIdsList = alfrescoClient.getSyncFolders();
-            LOGGER.info("Successfully initialized with folder ID: {}", folderIdsList);
-        } catch (Exception e) {
-            LOGGER.error(INITIALIZATION_ERROR, e.getMessage(), e);
-            throw new IllegalStateException("Failed to resolve folder ID", e);
+        getFolderIds();
+    }
+
+    private List<String> getFolderIds() {
+        List<String> folderIds = folderIdsList;
+        if (folderIds == null) {
+            synchronized (this) {
+                folderIds = folderIdsList;
+                if (folderIds == null) {
+                    try {
+                        folderIds = alfrescoClient.getSyncFolders();
+                        folderIdsList = folderIds;
+                        LOGGER.info("Successfully initialized with folder ID: {}", folderIds);
+                    } catch (Exception e) {
+                        LOGGER.error(INITIALIZATION_ERROR, e.getMessage(), e);
+                        throw new IllegalStateException("Failed to resolve folder ID", e);
+                    }
+                }
+            }
         }
+        return folderIds;
     }
 
     /**
      * Handles repository events based on their type and current sync status.
+     * Events run on the live lane of the {@link WorkScheduler}, ahead of the initial sync backlog.
+     * They are queued only until the cluster members are known; during the initial sync they are
+     * not registered in the folder timestamps, which the sync writes when each folder is done.
      *
      * @param event The repository event to handle
      */
@@ -90,16 +132,32 @@ public class ContentHandler implements OnNodeCreatedEventHandler, OnNodeUpdatedE
         LOGGER.info("Processing {} event for node ID: {}", event.getType(), uuid);
 
         try {
-            if (isInitialSyncComplete.get()) {
-                processEvent(event, nodeResource, uuid);
-
-                int index = IntStream.range(0, nodeResource.getPrimaryHierarchy().size())
-                        .filter(i -> folderIdsList.contains(nodeResource.getPrimaryHierarchy().get(i)))
-                        .findFirst()
-                        .orElse(-1);
-                alfrescoClient.updateTime(folderIdsList.get(index), false);
+            boolean initialSyncComplete = isInitialSyncComplete.get();
+            if (initialSyncComplete || partitionManager.isStarted()) {
+                if (!partitionManager.ownsNode(uuid)) {
+                    LOGGER.debug("Skipping event for node ID {} owned by another replica", uuid);
+                    return;
+                }
+                String syncFolderId = getSyncFolderId(nodeResource);
+                FolderTimestampWriter.Pending pending = initialSyncComplete
+                        ? folderTimestampWriter.begin(syncFolderId, getEventTime(event, nodeResource))
+                        : null;
+                try {
+                    processEvent(event, nodeResource, uuid);
+                    if (pending != null) {
+                        folderTimestampWriter.complete(pending);
+                    }
+                } catch (Exception e) {
+                    // The retry completes the folder timestamp registration when it succeeds
+                    LOGGER.error("Failed to process {} event for node ID {}: {}", event.getType(), uuid, e.getMessage(), e);
+                    if (DELETED.equals(event.getType())) {
+                        retryScheduler.deleteFailed(uuid, pending, e);
+                    } else {
+                        retryScheduler.uploadFailed(uuid, syncFolderId, nodeResource.getName(), pending, e);
+                    }
+                }
             } else {
-                LOGGER.warn("Initial sync pending. Queueing event for node ID: {}", uuid);
+                LOGGER.warn("Cluster members not known yet. Queueing event for node ID: {}", uuid);
                 eventQueue.add(event);
             }
         } catch (Exception e) {
@@ -109,6 +167,25 @@ public class ContentHandler implements OnNodeCreatedEventHandler, OnNodeUpdatedE
         }
     }
 
+    /**
+     * Registers a received event in the folder timestamps while it waits to be handled, so the folder
+     * watermark cannot move past it before {@link #handleEvent} registers it for processing. Events
+     * received during the initial sync, and events outside the sync folders, are not registered.
+     *
+     * @param event The repository event queued for handling
+     * @return Action releasing the registration once the event is handled
+     */
+    public Runnable holdFolderTimestamp(RepoEvent<DataAttributes<Resource>> event) {
+        if (!isInitialSyncComplete.get() || event.getData() == null
+                || !(event.getData().getResource() instanceof NodeResource nodeResource)
+                || nodeResource.getPrimaryHierarchy() == null) {
+            return () -> { };
+        }
+        FolderTimestampWriter.Pending pending =
+                folderTimestampWriter.begin(getSyncFolderId(nodeResource), getEventTime(event, nodeResource));
+        return () -> folderTimestampWriter.release(pending);
+    }
+
     @Override
     public Set<EventType> getHandledEventTypes() {
         Set<EventType> handledEventTypes = Stream.of(
@@ -125,7 +202,7 @@ public class ContentHandler implements OnNodeCreatedEventHandler, OnNodeUpdatedE
 
     @Override
     public EventFilter getEventFilter() {
-        return Optional.ofNullable(folderIdsList)
+        return Optional.ofNullable(getFolderIds())
                 .filter(ids -> !ids.isEmpty())
                 .map(ParentFolderFilter::of)
                 .orElseThrow(() -> new IllegalStateException("Folder IDs not initialized or list is empty"));
@@ -135,10 +212,10 @@ public class ContentHandler implements OnNodeCreatedEventHandler, OnNodeUpdatedE
      * Processes a repository event based on its type.
      */
     private void processEvent(RepoEvent<DataAttributes<Resource>> event, NodeResource nodeResource, String uuid)
-            throws IOException {
+            throws Exception {
         switch (event.getType()) {
             case CREATED:
-                alfrescoClient.processDocument(uuid, getSyncFolderId(nodeResource), nodeResource.getName());
+                uploadDocument(uuid, nodeResource, false);
                 break;
             case UPDATED:
                 handleUpdateEvent(event, uuid, nodeResource);
@@ -153,17 +230,27 @@ public class ContentHandler implements OnNodeCreatedEventHandler, OnNodeUpdatedE
 
     public String getSyncFolderId(NodeResource nodeResource) {
         return  nodeResource.getPrimaryHierarchy().stream()
-                .filter(folderIdsList::contains)
+                .filter(getFolderIds()::contains)
                 .findFirst().orElse("");
     }
 
+    /**
+     * Returns the modification time of the node, falling back to the time of the event.
+     */
+    private static Instant getEventTime(RepoEvent<DataAttributes<Resource>> event, NodeResource nodeResource) {
+        return Optional.ofNullable(nodeResource.getModifiedAt())
+                .or(() -> Optional.ofNullable(event.getTime()))
+                .map(ZonedDateTime::toInstant)
+                .orElseGet(Instant::now);
+    }
+
     /**
      * Handles update events by checking if content has changed.
      */
-    private void handleUpdateEvent(RepoEvent<DataAttributes<Resource>> event, String uuid, NodeResource nodeResource) throws IOException {
+    private void handleUpdateEvent(RepoEvent<DataAttributes<Resource>> event, String uuid, NodeResource nodeResource) throws Exception {
         NodeResource nodeResourceBefore = (NodeResource) event.getData().getResourceBefore();
         if (nodeResourceBefore != null && nodeResourceBefore.getContent() != null) {
-            alfrescoClient.processDocument(uuid, getSyncFolderId(nodeResource), nodeResource.getName());
+            uploadDocument(uuid, nodeResource, true);
         } else {
             LOGGER.info("Skipping update for node ID {} ({}): content unchanged",
                     uuid, nodeResource.getName());
@@ -171,12 +258,35 @@ public class ContentHandler implements OnNodeCreatedEventHandler, OnNodeUpdatedE
     }
 
     /**
-     * Handles delete events by removing the document from the AI service.
+     * Handles delete events by removing the document from the AI service, dropping a pending retry of the node.
      */
-    private void handleDeleteEvent(String uuid) throws IOException {
+    private void handleDeleteEvent(String uuid) throws Exception {
         LOGGER.info("Processing deletion for node ID: {}", uuid);
-        String response = aiClient.deleteDocument(uuid);
-        LOGGER.info("Deletion completed for node ID {}: {}", uuid, response);
+        workScheduler.run(WorkScheduler.Lane.LIVE, uuid, () -> {
+            String response = aiClient.deleteDocument(uuid);
+            LOGGER.info("Deletion completed for node ID {}: {}", uuid, response);
+            retryScheduler.documentSucceeded(uuid);
+        });
+    }
+
+    /**
+     * Uploads the document on the live lane of the scheduler, waiting for it so events of the node stay in order.
+     * When the content policy skips an updated document, its previous version is removed from the AI service.
+     * A pending retry of the node is dropped once this succeeds, as it would undo the newer event.
+     */
+    private void uploadDocument(String uuid, NodeResource nodeResource, boolean updated) throws Exception {
+        String syncFolderId = getSyncFolderId(nodeResource);
+        Optional<ContentInfo> content = Optional.ofNullable(nodeResource.getContent());
+        workScheduler.run(WorkScheduler.Lane.LIVE, uuid, () -> {
+            boolean ingested = alfrescoClient.processDocument(uuid, syncFolderId, nodeResource.getName(),
+                    content.map(ContentInfo::getMimeType).orElse(null),
+                    content.map(ContentInfo::getSizeInBytes).orElse(null));
+            if (!ingested && updated) {
+                LOGGER.info("Removing node ID {} ({}) skipped by the content policy", uuid, nodeResource.getName());
+                aiClient.deleteDocument(uuid);
+            }
+            retryScheduler.documentSucceeded(uuid);
+        });
     }
 
     /**
@@ -1,12 +1,14 @@
 package org.alfresco.events.handler;
 
 import org.alfresco.ai.AIClient;
+import org.alfresco.cluster.PartitionManager;
 import org.alfresco.event.sdk.handling.filter.EventFilter;
 import org.alfresco.event.sdk.handling.handler.OnNodeCreatedEventHandler;
 import org.alfresco.event.sdk.handling.handler.OnNodeDeletedEventHandler;
 import org.alfresco.event.sdk.handling.handler.OnNodeUpdatedEventHandler;
 import org.alfresco.events.filter.AspectFilter;
 import org.alfresco.repo.event.v1.model.*;
+import org.alfresco.retry.RetryScheduler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -31,6 +33,12 @@ public class FolderHandler implements OnNodeCreatedEventHandler, OnNodeUpdatedEv
     @Autowired
     private AIClient aiClient;
 
+    @Autowired
+    private RetryScheduler retryScheduler;
+
+    @Autowired
+    private PartitionManager partitionManager;
+
     @Value("${alfresco.ai.sync.aspect}")
     private String syncAspect;
 
@@ -47,11 +55,17 @@ public class FolderHandler implements OnNodeCreatedEventHandler, OnNodeUpdatedEv
             case DELETED:
                 LOGGER.info("A folder has been removed from synchronization: {}", uuid);
                 contentHandler.removeFolder(uuid);
+                if (!partitionManager.ownsFolder(uuid)) {
+                    LOGGER.debug("Documents of folder {} are removed by the replica owning it", uuid);
+                    break;
+                }
                 try {
                     String response = aiClient.deleteDocumentsFromFolder(uuid);
                     LOGGER.info("Deletion completed for folder ID {}: {}", uuid, response);
+                    retryScheduler.folderSucceeded(uuid);
                 } catch (IOException e) {
-                    LOGGER.error("Failed to remove documents for folder: {}", uuid);
+                    LOGGER.error("Failed to remove documents for folder: {}", uuid, e);
+                    retryScheduler.folderDeleteFailed(uuid, e);
                 }
                 break;
             default:
@@ -0,0 +1,233 @@
+package org.alfresco.extraction;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.alfresco.core.handler.RenditionsApi;
+import org.apache.tika.exception.TikaException;
+import org.apache.tika.exception.WriteLimitReachedException;
+import org.apache.tika.io.TikaInputStream;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.metadata.TikaCoreProperties;
+import org.apache.tika.parser.AutoDetectParser;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.sax.BodyContentHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+import org.xml.sax.SAXException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Extracts the text of documents in the sync service (edge extraction), so that the AI service receives
+ * compact text instead of binaries and parsing scales with the number of sync replicas. Enabled with
+ * {@code alfresco.ai.sync.extraction.mode=edge}.
+ *
+ * When {@code alfresco.ai.sync.extraction.rendition} names a plain text rendition defined in the
+ * repository, its content is used when it exists. Otherwise the content is downloaded to a temporary
+ * file by the calling worker and parsed with Apache Tika on a pool of
+ * {@code alfresco.ai.sync.extraction.threads} threads, which bounds the CPU used for parsing whatever
+ * the number of sync workers, without holding parsing threads during downloads.
+ */
+@Component
+public class TextExtractor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TextExtractor.class);
+
+    private static final String EDGE_MODE = "edge";
+
+    /**
+     * Opens the content of a document, called only when no text rendition is available.
+     */
+    @FunctionalInterface
+    public interface ContentSource {
+        InputStream open() throws IOException;
+    }
+
+    @Value("${alfresco.ai.sync.extraction.mode:remote}")
+    private String mode;
+
+    @Value("${alfresco.ai.sync.extraction.threads:0}")
+    private int threads;
+
+    @Value("${alfresco.ai.sync.extraction.rendition:}")
+    private String rendition;
+
+    @Value("${alfresco.ai.sync.extraction.maxChars:10000000}")
+    private int maxChars;
+
+    @Autowired
+    private RenditionsApi renditionsApi;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private AutoDetectParser parser;
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void initialize() {
+        if (!isEnabled()) {
+            return;
+        }
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(poolSize, runnable -> {
+            Thread thread = new Thread(runnable, "text-extractor-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        parser = new AutoDetectParser();
+        LOGGER.info("Edge text extraction enabled with {} threads, text rendition: {}",
+                poolSize, rendition.isEmpty() ? "none" : rendition);
+    }
+
+    /**
+     * Returns whether documents are sent to the AI service as extracted text.
+     */
+    public boolean isEnabled() {
+        return EDGE_MODE.equals(mode);
+    }
+
+    /**
+     * Returns the text of a document, from its text rendition when there is one, or parsed from its content.
+     *
+     * @param uuid     Document identifier
+     * @param fileName Document name, used to detect the content type
+     * @param mimeType Mimetype of the content, may be null
+     * @param content  Content of the document
+     * @return Extracted text, possibly empty
+     * @throws IOException If the content cannot be read or parsed
+     */
+    public String extract(String uuid, String fileName, String mimeType, ContentSource content) throws IOException {
+        if (!rendition.isEmpty()) {
+            String text = readRendition(uuid);
+            if (text != null) {
+                return text;
+            }
+        }
+
+        Path spooled = Files.createTempFile("extraction-", ".bin");
+        try {
+            try (InputStream in = content.open()) {
+                Files.copy(in, spooled, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return parse(fileName, mimeType, spooled);
+        } finally {
+            Files.deleteIfExists(spooled);
+        }
+    }
+
+    /**
+     * Parses downloaded content on the extraction pool.
+     */
+    private String parse(String fileName, String mimeType, Path content) throws IOException {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Future<String> parsed = executor.submit(() -> parseContent(fileName, mimeType, content));
+        try {
+            String text = parsed.get();
+            record(sample, "tika", text);
+            return text;
+        } catch (InterruptedException e) {
+            parsed.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while extracting text of " + fileName);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IOException("Failed to extract text of " + fileName, e.getCause());
+        }
+    }
+
+    /**
+     * Reads up to maxChars characters of the text rendition of a document, or returns null when it has not been created.
+     */
+    private String readRendition(String uuid) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            Resource body = renditionsApi.getRenditionContent(uuid, rendition, false, null, null, false).getBody();
+            if (body == null) {
+                return null;
+            }
+            try (Reader reader = new InputStreamReader(body.getInputStream(), StandardCharsets.UTF_8)) {
+                String text = read(reader, maxChars);
+                record(sample, "rendition", text);
+                return text;
+            }
+        } catch (Exception e) {
+            LOGGER.debug("No {} rendition for document {}, parsing its content: {}", rendition, uuid, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Reads up to a number of characters, leaving out a surrogate pair split by the limit.
+     */
+    private static String read(Reader reader, int maxChars) throws IOException {
+        StringBuilder text = new StringBuilder();
+        char[] buffer = new char[8192];
+        int read;
+        while (text.length() < maxChars
+                && (read = reader.read(buffer, 0, Math.min(buffer.length, maxChars - text.length()))) != -1) {
+            text.append(buffer, 0, read);
+        }
+        if (text.length() == maxChars && maxChars > 0 && Character.isHighSurrogate(text.charAt(maxChars - 1))) {
+            text.setLength(maxChars - 1);
+        }
+        return text.toString();
+    }
+
+    private String parseContent(String fileName, String mimeType, Path content) throws IOException, SAXException, TikaException {
+        Metadata metadata = new Metadata();
+        if (fileName != null) {
+            metadata.set(TikaCoreProperties.RESOURCE_NAME_KEY, fileName);
+        }
+        if (mimeType != null) {
+            metadata.set(Metadata.CONTENT_TYPE, mimeType);
+        }
+        BodyContentHandler handler = new BodyContentHandler(maxChars);
+        try (TikaInputStream stream = TikaInputStream.get(content)) {
+            parser.parse(stream, handler, metadata, new ParseContext());
+        } catch (SAXException e) {
+            if (!WriteLimitReachedException.isWriteLimitReached(e)) {
+                throw e;
+            }
+            LOGGER.debug("Text of {} truncated to {} characters", fileName, maxChars);
+        }
+        return handler.toString();
+    }
+
+    private void record(Timer.Sample sample, String source, String text) {
+        sample.stop(Timer.builder("alfresco.sync.extraction")
+                .description("Duration of edge text extraction, by source of the text")
+                .tag("source", source)
+                .register(meterRegistry));
+        meterRegistry.counter("alfresco.sync.extraction.chars", "source", source).increment(text.length());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package org.alfresco.policy;
+
+/**
+ * Outcome of the {@link ContentPolicy} for a document, taken before its content is downloaded.
+ *
+ * @param action   Whether the document is skipped, ingested or ingested up to a prefix
+ * @param reason   Rule that skipped or truncated the document, null when ingested
+ * @param maxBytes Bytes of content to ingest with {@link Action#PREFIX}, -1 otherwise
+ */
+public record ContentDecision(Action action, String reason, long maxBytes) {
+
+    public enum Action {
+        SKIP, INGEST, PREFIX
+    }
+
+    static final ContentDecision INGEST = new ContentDecision(Action.INGEST, null, -1);
+
+    static ContentDecision skip(String reason) {
+        return new ContentDecision(Action.SKIP, reason, -1);
+    }
+
+    static ContentDecision prefix(String reason, long maxBytes) {
+        return new ContentDecision(Action.PREFIX, reason, maxBytes);
+    }
+
+    public boolean isSkipped() {
+        return action == Action.SKIP;
+    }
+
+    public boolean isPrefix() {
+        return action == Action.PREFIX;
+    }
+}
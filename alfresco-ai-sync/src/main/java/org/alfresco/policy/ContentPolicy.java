@@ -0,0 +1,124 @@
+package org.alfresco.policy;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Decides whether a document is worth downloading and sending to the AI service, from the mimetype
+ * and size returned with search results and repository events, so that videos, images, CAD drawings
+ * or huge archives do not use bandwidth, sync workers and AI service time for no text.
+ *
+ * Rules are applied in order: empty content is skipped, then mimetypes of
+ * {@code alfresco.ai.sync.policy.skipMimetypes}, then content larger than
+ * {@code alfresco.ai.sync.policy.maxSize}, of which only text formats
+ * ({@code alfresco.ai.sync.policy.prefixMimetypes}) are ingested up to
+ * {@code alfresco.ai.sync.policy.prefixSize} bytes. Documents without mimetype or size are ingested.
+ *
+ * Mimetype patterns are exact or end with {@code /*}. Decisions other than ingest are counted in
+ * {@code alfresco.sync.policy.skipped} (by reason) and {@code alfresco.sync.policy.truncated}.
+ */
+@Component
+public class ContentPolicy {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ContentPolicy.class);
+
+    static final String REASON_EMPTY = "empty";
+    static final String REASON_MIMETYPE = "mimetype";
+    static final String REASON_SIZE = "size";
+
+    @Value("${alfresco.ai.sync.policy.enabled:true}")
+    private boolean enabled;
+
+    @Value("${alfresco.ai.sync.policy.skipMimetypes:video/*,audio/*,image/*}")
+    private List<String> skipMimetypes;
+
+    @Value("${alfresco.ai.sync.policy.maxSize:52428800}")
+    private long maxSize;
+
+    @Value("${alfresco.ai.sync.policy.prefixMimetypes:text/*}")
+    private List<String> prefixMimetypes;
+
+    @Value("${alfresco.ai.sync.policy.prefixSize:5242880}")
+    private long prefixSize;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Counter truncated;
+
+    @PostConstruct
+    public void initialize() {
+        truncated = Counter.builder("alfresco.sync.policy.truncated")
+                .description("Documents ingested up to a prefix of their content")
+                .register(meterRegistry);
+        LOGGER.info("Content policy {}: skipping {}, above {} bytes ingesting the first {} bytes of {}",
+                enabled ? "enabled" : "disabled", skipMimetypes, maxSize, prefixSize, prefixMimetypes);
+    }
+
+    /**
+     * Decides how a document is ingested.
+     *
+     * @param mimeType    Mimetype of the content, may be null
+     * @param sizeInBytes Size of the content, may be null
+     * @return Decision, counted in the policy metrics
+     */
+    public ContentDecision decide(String mimeType, Number sizeInBytes) {
+        ContentDecision decision = evaluate(mimeType, sizeInBytes);
+        if (decision.isSkipped()) {
+            Counter.builder("alfresco.sync.policy.skipped")
+                    .description("Documents not downloaded because of the content policy")
+                    .tag("reason", decision.reason())
+                    .register(meterRegistry)
+                    .increment();
+        } else if (decision.isPrefix()) {
+            truncated.increment();
+        }
+        return decision;
+    }
+
+    private ContentDecision evaluate(String mimeType, Number sizeInBytes) {
+        if (!enabled) {
+            return ContentDecision.INGEST;
+        }
+        if (sizeInBytes != null && sizeInBytes.longValue() == 0) {
+            return ContentDecision.skip(REASON_EMPTY);
+        }
+        if (matches(skipMimetypes, mimeType)) {
+            return ContentDecision.skip(REASON_MIMETYPE);
+        }
+        if (sizeInBytes != null && sizeInBytes.longValue() > maxSize) {
+            return matches(prefixMimetypes, mimeType)
+                    ? ContentDecision.prefix(REASON_SIZE, prefixSize)
+                    : ContentDecision.skip(REASON_SIZE);
+        }
+        return ContentDecision.INGEST;
+    }
+
+    /**
+     * Returns whether a mimetype matches one of the patterns, exact or ending with {@code /*}.
+     */
+    public static boolean matches(List<String> patterns, String mimeType) {
+        if (mimeType == null) {
+            return false;
+        }
+        String type = mimeType.toLowerCase(Locale.ROOT);
+        for (String pattern : patterns) {
+            String candidate = pattern.trim().toLowerCase(Locale.ROOT);
+            if (candidate.endsWith("/*")
+                    ? type.startsWith(candidate.substring(0, candidate.length() - 1))
+                    : type.equals(candidate)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
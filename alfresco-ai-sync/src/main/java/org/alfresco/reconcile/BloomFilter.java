@@ -0,0 +1,73 @@
+package org.alfresco.reconcile;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Bloom filter over strings, sized for an expected number of elements and false positive rate.
+ * Uses double hashing of a 64-bit FNV-1a hash mixed with a seed, so that consecutive runs with
+ * different seeds do not miss the same elements.
+ */
+class BloomFilter {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final long[] bits;
+    private final long bitCount;
+    private final int hashCount;
+    private final long seed;
+
+    BloomFilter(long expectedElements, double falsePositiveRate, long seed) {
+        long n = Math.max(1, expectedElements);
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bitCount = Math.max(64, m);
+        this.bits = new long[(int) ((bitCount + 63) / 64)];
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+        this.seed = seed;
+    }
+
+    void add(String value) {
+        long hash = hash(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            long index = Integer.toUnsignedLong(h1 + i * h2) % bitCount;
+            bits[(int) (index >>> 6)] |= 1L << index;
+        }
+    }
+
+    /**
+     * @return false if the value was definitely not added, true if it probably was
+     */
+    boolean mightContain(String value) {
+        long hash = hash(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            long index = Integer.toUnsignedLong(h1 + i * h2) % bitCount;
+            if ((bits[(int) (index >>> 6)] & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    long sizeInBytes() {
+        return bits.length * 8L;
+    }
+
+    private long hash(String value) {
+        long hash = FNV_OFFSET ^ seed;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= FNV_PRIME;
+        }
+        // Final avalanche (MurmurHash3 fmix64)
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb3fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
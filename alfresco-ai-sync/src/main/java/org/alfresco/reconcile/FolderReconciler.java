@@ -0,0 +1,148 @@
+package org.alfresco.reconcile;
+
+import org.alfresco.ai.AIClient;
+import org.alfresco.ai.DocumentIdPage;
+import org.alfresco.cluster.PartitionManager;
+import org.alfresco.retry.RetryScheduler;
+import org.alfresco.search.model.ResultNode;
+import org.alfresco.service.AlfrescoClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Periodically reconciles the documents of every sync folder in Alfresco with the documents indexed
+ * by the AI service, ingesting the missing ones and deleting the orphans.
+ *
+ * Both sides are paged and the diff uses one Bloom filter per side, so memory stays bounded by the
+ * filter size (about 1.8 MB per million documents at the default false positive rate) and one page.
+ * A false positive only hides a difference for the current run: every run uses a new hash seed.
+ * Orphan candidates are confirmed with Alfresco before being deleted, so documents created while the
+ * reconciliation runs are not removed.
+ */
+@Component
+public class FolderReconciler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FolderReconciler.class);
+
+    // Headroom for orphans when sizing the filter of indexed documents from the repository count
+    private static final double INDEX_HEADROOM = 1.1;
+    private static final long MIN_EXPECTED_ELEMENTS = 1000;
+
+    @Value("${alfresco.ai.sync.reconcile.pageSize:1000}")
+    private int pageSize;
+
+    @Value("${alfresco.ai.sync.reconcile.falsePositiveRate:0.001}")
+    private double falsePositiveRate;
+
+    @Autowired
+    private AlfrescoClient alfrescoClient;
+
+    @Autowired
+    private AIClient aiClient;
+
+    @Autowired
+    private RetryScheduler retryScheduler;
+
+    @Autowired
+    private PartitionManager partitionManager;
+
+    @Autowired
+    private AtomicBoolean isInitialSyncComplete;
+
+    /**
+     * Reconciles every sync folder owned by this replica. Skipped while the initial sync is running.
+     */
+    @Scheduled(cron = "${alfresco.ai.sync.reconcile.cron:0 0 3 * * *}")
+    public void reconcile() {
+        if (!isInitialSyncComplete.get()) {
+            LOGGER.info("Initial sync pending, skipping reconciliation");
+            return;
+        }
+        for (String folderId : alfrescoClient.getSyncFolders()) {
+            if (!partitionManager.ownsFolder(folderId)) {
+                continue;
+            }
+            try {
+                reconcile(folderId);
+            } catch (Exception e) {
+                LOGGER.error("Failed to reconcile folder {}", folderId, e);
+            }
+        }
+    }
+
+    /**
+     * Reconciles a single folder.
+     *
+     * @param folderId Sync folder to reconcile
+     * @throws IOException if the AI service cannot be queried
+     */
+    public void reconcile(String folderId) throws IOException {
+        long start = System.currentTimeMillis();
+        long seed = ThreadLocalRandom.current().nextLong();
+        long repositoryCount = alfrescoClient.countDocuments(folderId);
+
+        BloomFilter indexed = new BloomFilter(
+                Math.max(MIN_EXPECTED_ELEMENTS, (long) (repositoryCount * INDEX_HEADROOM)), falsePositiveRate, seed);
+        forEachIndexedDocument(folderId, indexed::add);
+
+        BloomFilter repository = new BloomFilter(Math.max(MIN_EXPECTED_ELEMENTS, repositoryCount), falsePositiveRate, seed);
+        AtomicLong missing = new AtomicLong();
+        alfrescoClient.forEachDocument(folderId, pageSize, node -> {
+            repository.add(node.getId());
+            if (!indexed.mightContain(node.getId())) {
+                missing.incrementAndGet();
+                ingest(node, folderId);
+            }
+        });
+
+        AtomicLong orphans = new AtomicLong();
+        forEachIndexedDocument(folderId, documentId -> {
+            if (!repository.mightContain(documentId) && !alfrescoClient.isDocumentInFolder(documentId, folderId)) {
+                orphans.incrementAndGet();
+                delete(documentId);
+            }
+        });
+
+        LOGGER.info("Reconciled folder {} ({} documents) in {} ms: {} missing ingested, {} orphans deleted, {} KB of filters",
+                folderId, repositoryCount, System.currentTimeMillis() - start, missing.get(), orphans.get(),
+                (indexed.sizeInBytes() + repository.sizeInBytes()) / 1024);
+    }
+
+    private void forEachIndexedDocument(String folderId, Consumer<String> consumer) throws IOException {
+        String after = null;
+        do {
+            DocumentIdPage page = aiClient.listDocumentIds(folderId, after, pageSize);
+            page.documentIds().forEach(consumer);
+            after = page.after();
+        } while (after != null);
+    }
+
+    private void ingest(ResultNode node, String folderId) {
+        try {
+            if (alfrescoClient.processDocument(node, folderId)) {
+                LOGGER.debug("Ingested missing document {} ({})", node.getName(), node.getId());
+            }
+        } catch (Exception e) {
+            retryScheduler.uploadFailed(node.getId(), folderId, node.getName(), null, e);
+        }
+    }
+
+    private void delete(String documentId) {
+        try {
+            aiClient.deleteDocument(documentId);
+            LOGGER.debug("Deleted orphan document {}", documentId);
+        } catch (Exception e) {
+            retryScheduler.deleteFailed(documentId, null, e);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package org.alfresco.retry;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Actuator endpoint ({@code /actuator/deadletters}) to inspect failed operations, replay dead letters
+ * (all of them, or one by key) and remove them.
+ */
+@Component
+@Endpoint(id = "deadletters")
+public class DeadLetterEndpoint {
+
+    @Autowired
+    private RetryStore retryStore;
+
+    @ReadOperation
+    public Map<String, Object> deadLetters() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("pending", retryStore.getPending());
+        result.put("deadLetters", retryStore.getDeadLetters());
+        return result;
+    }
+
+    @WriteOperation
+    public Map<String, Integer> replay(@Nullable String key) {
+        return Map.of("replayed", retryStore.replay(key));
+    }
+
+    @DeleteOperation
+    public Map<String, Integer> purge(@Nullable String key) {
+        return Map.of("purged", retryStore.purge(key));
+    }
+}
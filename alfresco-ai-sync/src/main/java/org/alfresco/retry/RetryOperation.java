@@ -0,0 +1,54 @@
+package org.alfresco.retry;
+
+import java.time.Instant;
+
+/**
+ * A failed synchronization operation waiting for a retry, or given up in the dead-letter list.
+ */
+public record RetryOperation(
+        Type type,                 // Kind of operation to replay
+        String documentId,         // Document to upload or delete, null for folder deletions
+        String folderId,           // Synchronization folder of the document, or folder to delete
+        String documentName,       // Name of the document to upload
+        int attempts,              // Failed attempts so far
+        Instant nextAttempt,       // Earliest time of the next attempt
+        Instant firstFailure,      // Time of the first failure
+        String lastError           // Message of the last failure
+) {
+
+    public enum Type {
+        UPLOAD_DOCUMENT,
+        DELETE_DOCUMENT,
+        DELETE_FOLDER
+    }
+
+    /**
+     * Identifies the synchronized item. A newer operation on the same document or folder replaces an older one.
+     */
+    public String key() {
+        return type == Type.DELETE_FOLDER ? folderKey(folderId) : documentKey(documentId);
+    }
+
+    /**
+     * Returns the node the operation applies to: the folder for folder deletions, the document otherwise.
+     */
+    public String nodeId() {
+        return type == Type.DELETE_FOLDER ? folderId : documentId;
+    }
+
+    static String documentKey(String documentId) {
+        return "document:" + documentId;
+    }
+
+    static String folderKey(String folderId) {
+        return "folder:" + folderId;
+    }
+
+    RetryOperation failed(Instant nextAttempt, String error) {
+        return new RetryOperation(type, documentId, folderId, documentName, attempts + 1, nextAttempt, firstFailure, error);
+    }
+
+    RetryOperation replay(Instant now) {
+        return new RetryOperation(type, documentId, folderId, documentName, 0, now, firstFailure, lastError);
+    }
+}
@@ -0,0 +1,234 @@
+package org.alfresco.retry;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.alfresco.ai.AIClient;
+import org.alfresco.ai.AIServiceOverloadedException;
+import org.alfresco.scheduler.WorkScheduler;
+import org.alfresco.service.AlfrescoClient;
+import org.alfresco.service.FolderTimestampWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.alfresco.retry.RetryOperation.Type.DELETE_DOCUMENT;
+import static org.alfresco.retry.RetryOperation.Type.DELETE_FOLDER;
+import static org.alfresco.retry.RetryOperation.Type.UPLOAD_DOCUMENT;
+
+/**
+ * Records failed synchronization operations in the RetryStore and replays them with exponential
+ * backoff and jitter, waiting at least the Retry-After delay requested by the AI service.
+ * Operations failing {@code alfresco.ai.sync.retry.maxAttempts} times are moved to the dead-letter list.
+ *
+ * Due operations run on the live lane of the WorkScheduler, keyed by their node, so a retry never runs
+ * concurrently with other work on the same node and runs after the work already queued for it. A newer upload or deletion of a node that
+ * succeeds drops its pending operation, which would otherwise undo it, e.g. delete a re-created document.
+ *
+ * Folder timestamp registrations of live events are completed when their operation succeeds, so the
+ * folder watermark stays behind a failed event, and released when it is moved to the dead letters, so
+ * that a document given up does not hold the watermark back for good. They are kept in memory only:
+ * after a restart, the initial sync picks up documents modified after the last written watermark anyway.
+ */
+@Component
+public class RetryScheduler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RetryScheduler.class);
+
+    @Value("${alfresco.ai.sync.retry.initialDelay:5000}")
+    private long initialDelayMillis;
+
+    @Value("${alfresco.ai.sync.retry.maxDelay:600000}")
+    private long maxDelayMillis;
+
+    @Value("${alfresco.ai.sync.retry.maxAttempts:10}")
+    private int maxAttempts;
+
+    @Value("${alfresco.ai.sync.retry.pollInterval:1000}")
+    private long pollIntervalMillis;
+
+    @Autowired
+    private RetryStore retryStore;
+
+    @Autowired
+    private AlfrescoClient alfrescoClient;
+
+    @Autowired
+    private AIClient aiClient;
+
+    @Autowired
+    private FolderTimestampWriter folderTimestampWriter;
+
+    @Autowired
+    private WorkScheduler workScheduler;
+
+    private final Map<String, List<FolderTimestampWriter.Pending>> pendingTimestamps = new ConcurrentHashMap<>();
+    // Keys of the operations queued on the work scheduler, not queued again until they have run
+    private final Set<String> queued = ConcurrentHashMap.newKeySet();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "sync-retry");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::retryDue, pollIntervalMillis, pollIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Records a failed document upload.
+     *
+     * @param pending Folder timestamp registration of the event, may be null
+     */
+    public void uploadFailed(String documentId, String syncFolderId, String documentName,
+                             FolderTimestampWriter.Pending pending, Exception cause) {
+        schedule(new RetryOperation(UPLOAD_DOCUMENT, documentId, syncFolderId, documentName,
+                0, null, Instant.now(), null), pending, cause);
+    }
+
+    /**
+     * Records a failed document deletion.
+     *
+     * @param pending Folder timestamp registration of the event, may be null
+     */
+    public void deleteFailed(String documentId, FolderTimestampWriter.Pending pending, Exception cause) {
+        schedule(new RetryOperation(DELETE_DOCUMENT, documentId, null, null,
+                0, null, Instant.now(), null), pending, cause);
+    }
+
+    /**
+     * Records a failed deletion of the documents of a folder.
+     */
+    public void folderDeleteFailed(String folderId, Exception cause) {
+        schedule(new RetryOperation(DELETE_FOLDER, null, folderId, null,
+                0, null, Instant.now(), null), null, cause);
+    }
+
+    /**
+     * Drops the pending operation of a document, superseded by a newer upload or deletion that succeeded.
+     * Must be called from work on the document queued on the WorkScheduler, so no retry of it runs meanwhile.
+     */
+    public void documentSucceeded(String documentId) {
+        superseded(RetryOperation.documentKey(documentId));
+    }
+
+    /**
+     * Drops the pending deletion of the documents of a folder, superseded by a newer one that succeeded.
+     */
+    public void folderSucceeded(String folderId) {
+        superseded(RetryOperation.folderKey(folderId));
+    }
+
+    private void superseded(String key) {
+        if (retryStore.remove(key)) {
+            List<FolderTimestampWriter.Pending> pending = pendingTimestamps.remove(key);
+            if (pending != null) {
+                pending.forEach(folderTimestampWriter::complete);
+            }
+            LOGGER.info("Dropped retry of {} superseded by a newer operation", key);
+        }
+    }
+
+    private void schedule(RetryOperation operation, FolderTimestampWriter.Pending pending, Exception cause) {
+        if (pending != null) {
+            folderTimestampWriter.fail(pending);
+            pendingTimestamps.computeIfAbsent(operation.key(), key -> new CopyOnWriteArrayList<>()).add(pending);
+        }
+        RetryOperation failed = operation.failed(nextAttempt(1, cause), String.valueOf(cause.getMessage()));
+        retryStore.schedule(failed);
+        LOGGER.warn("Scheduled retry of {} at {}: {}", failed.key(), failed.nextAttempt(), failed.lastError());
+    }
+
+    /**
+     * Queues every due operation on the live lane of the work scheduler, keyed by its node. Runs on the retry thread only.
+     */
+    private void retryDue() {
+        for (RetryOperation operation : retryStore.due(Instant.now())) {
+            if (!queued.add(operation.key())) {
+                continue;
+            }
+            try {
+                workScheduler.submit(WorkScheduler.Lane.LIVE, operation.nodeId(), () -> retry(operation))
+                        .whenComplete((result, error) -> queued.remove(operation.key()));
+            } catch (InterruptedException e) {
+                queued.remove(operation.key());
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Replays an operation, unless a newer operation on its node replaced or superseded it since it was due.
+     */
+    private void retry(RetryOperation operation) {
+        if (!retryStore.isPending(operation)) {
+            LOGGER.debug("Skipping retry of {} replaced by a newer operation", operation.key());
+            return;
+        }
+        try {
+            execute(operation);
+            // A replacing operation completes the registrations once it succeeds itself
+            if (retryStore.succeeded(operation)) {
+                List<FolderTimestampWriter.Pending> pending = pendingTimestamps.remove(operation.key());
+                if (pending != null) {
+                    pending.forEach(folderTimestampWriter::complete);
+                }
+            }
+            LOGGER.info("Retry of {} succeeded after {} failed attempts", operation.key(), operation.attempts());
+        } catch (Exception e) {
+            RetryOperation failed = operation.failed(nextAttempt(operation.attempts() + 1, e), String.valueOf(e.getMessage()));
+            if (failed.attempts() >= maxAttempts) {
+                retryStore.deadLetter(operation, failed);
+                List<FolderTimestampWriter.Pending> pending = pendingTimestamps.remove(operation.key());
+                if (pending != null) {
+                    pending.forEach(folderTimestampWriter::release);
+                }
+                LOGGER.error("Retry of {} failed {} times, moved to dead letters", failed.key(), failed.attempts(), e);
+            } else {
+                retryStore.failed(operation, failed);
+                LOGGER.warn("Retry of {} failed, next attempt at {}: {}", failed.key(), failed.nextAttempt(), failed.lastError());
+            }
+        }
+    }
+
+    private void execute(RetryOperation operation) throws Exception {
+        switch (operation.type()) {
+            case UPLOAD_DOCUMENT ->
+                    alfrescoClient.processDocument(operation.documentId(), operation.folderId(), operation.documentName());
+            case DELETE_DOCUMENT -> aiClient.deleteDocument(operation.documentId());
+            case DELETE_FOLDER -> aiClient.deleteDocumentsFromFolder(operation.folderId());
+        }
+    }
+
+    /**
+     * Exponential backoff with jitter, in the upper half of the delay, and at least the Retry-After delay.
+     */
+    private Instant nextAttempt(int attempt, Exception cause) {
+        long delay = Math.min(maxDelayMillis, initialDelayMillis << Math.min(attempt - 1, 30));
+        delay = delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+        if (cause instanceof AIServiceOverloadedException overloaded) {
+            delay = Math.max(delay, overloaded.getRetryAfter().toMillis());
+        }
+        return Instant.now().plusMillis(delay);
+    }
+}
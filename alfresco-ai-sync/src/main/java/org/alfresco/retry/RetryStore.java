@@ -0,0 +1,301 @@
+package org.alfresco.retry;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * File-backed store of pending retries and dead letters in {@code alfresco.ai.sync.retry.directory},
+ * so the content survives restarts and crashes.
+ *
+ * Every change is appended as one JSON line to a journal, so that recording a failure costs the same
+ * whatever the number of operations already stored. The journal is compacted into one JSON file of
+ * pending operations and one of dead letters, rewritten atomically, at startup and once it holds at least
+ * {@code alfresco.ai.sync.retry.compactionThreshold} entries and more entries than stored operations.
+ * A journal line left incomplete by a crash is ignored.
+ */
+@Component
+public class RetryStore {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RetryStore.class);
+
+    private static final String PENDING_FILE = "pending.json";
+    private static final String DEAD_LETTERS_FILE = "dead-letters.json";
+    private static final String JOURNAL_FILE = "journal.jsonl";
+    private static final String PENDING = "pending";
+    private static final String REMOVED = "removed";
+    private static final String DEAD = "dead";
+    private static final String PURGED = "purged";
+    private static final TypeReference<List<RetryOperation>> OPERATIONS_TYPE = new TypeReference<>() {
+    };
+
+    @Value("${alfresco.ai.sync.retry.directory:./data/retry}")
+    private Path directory;
+
+    @Value("${alfresco.ai.sync.retry.compactionThreshold:10000}")
+    private int compactionThreshold;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final Map<String, RetryOperation> pending = new LinkedHashMap<>();
+    private final Map<String, RetryOperation> deadLetters = new LinkedHashMap<>();
+    private BufferedWriter journal;
+    private int journalEntries;
+
+    /**
+     * Change appended to the journal.
+     *
+     * @param action    {@code pending}, {@code removed}, {@code dead} or {@code purged}
+     * @param key       Key of the operation
+     * @param operation Operation stored by the change, null for removals
+     */
+    record JournalEntry(String action, String key, RetryOperation operation) {
+    }
+
+    @PostConstruct
+    public synchronized void load() throws IOException {
+        Files.createDirectories(directory);
+        read(PENDING_FILE).forEach(operation -> pending.put(operation.key(), operation));
+        read(DEAD_LETTERS_FILE).forEach(operation -> deadLetters.put(operation.key(), operation));
+        int replayed = replayJournal();
+        compact();
+        LOGGER.info("Retry store loaded from {}: {} pending, {} dead letters ({} journal entries replayed)",
+                directory, pending.size(), deadLetters.size(), replayed);
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        if (journal != null) {
+            journal.close();
+            journal = null;
+        }
+    }
+
+    /**
+     * Adds or replaces the pending operation for the same document or folder.
+     */
+    public synchronized void schedule(RetryOperation operation) {
+        apply(new JournalEntry(PENDING, operation.key(), operation));
+    }
+
+    /**
+     * Returns the pending operations whose next attempt is due.
+     */
+    public synchronized List<RetryOperation> due(Instant now) {
+        return pending.values().stream()
+                .filter(operation -> !operation.nextAttempt().isAfter(now))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Removes an operation that succeeded, unless it was replaced by a newer one in the meantime.
+     *
+     * @return true if the operation was removed
+     */
+    public synchronized boolean succeeded(RetryOperation operation) {
+        if (operation.equals(pending.get(operation.key()))) {
+            apply(new JournalEntry(REMOVED, operation.key(), null));
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether an operation is still pending, neither replaced by a newer one nor removed.
+     */
+    public synchronized boolean isPending(RetryOperation operation) {
+        return operation.equals(pending.get(operation.key()));
+    }
+
+    /**
+     * Removes the pending operation for a document or folder, superseded by a newer operation that succeeded.
+     *
+     * @return true if an operation was removed
+     */
+    public synchronized boolean remove(String key) {
+        if (pending.containsKey(key)) {
+            apply(new JournalEntry(REMOVED, key, null));
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Records a new failure of a pending operation, unless it was replaced by a newer one in the meantime.
+     */
+    public synchronized void failed(RetryOperation previous, RetryOperation operation) {
+        if (previous.equals(pending.get(previous.key()))) {
+            apply(new JournalEntry(PENDING, operation.key(), operation));
+        }
+    }
+
+    /**
+     * Moves a pending operation to the dead-letter list, unless it was replaced by a newer one in the meantime.
+     */
+    public synchronized void deadLetter(RetryOperation previous, RetryOperation operation) {
+        if (previous.equals(pending.get(previous.key()))) {
+            apply(new JournalEntry(DEAD, operation.key(), operation));
+        }
+    }
+
+    public synchronized List<RetryOperation> getPending() {
+        return new ArrayList<>(pending.values());
+    }
+
+    public synchronized List<RetryOperation> getDeadLetters() {
+        return new ArrayList<>(deadLetters.values());
+    }
+
+    /**
+     * Moves dead letters back to the pending operations with a fresh attempt count.
+     *
+     * @param key Key of the dead letter to replay, or null to replay all of them
+     * @return Number of replayed operations
+     */
+    public synchronized int replay(String key) {
+        List<RetryOperation> replayed = deadLetters.values().stream()
+                .filter(operation -> key == null || operation.key().equals(key))
+                .collect(Collectors.toList());
+        Instant now = Instant.now();
+        replayed.forEach(operation -> apply(new JournalEntry(PENDING, operation.key(), operation.replay(now))));
+        return replayed.size();
+    }
+
+    /**
+     * Removes dead letters.
+     *
+     * @param key Key of the dead letter to remove, or null to remove all of them
+     * @return Number of removed operations
+     */
+    public synchronized int purge(String key) {
+        int before = deadLetters.size();
+        if (key == null) {
+            deadLetters.clear();
+            compact();
+        } else if (deadLetters.containsKey(key)) {
+            apply(new JournalEntry(PURGED, key, null));
+        }
+        return before - deadLetters.size();
+    }
+
+    private List<RetryOperation> read(String fileName) throws IOException {
+        Path file = directory.resolve(fileName);
+        return Files.exists(file) ? objectMapper.readValue(file.toFile(), OPERATIONS_TYPE) : List.of();
+    }
+
+    /**
+     * Applies a change in memory and appends it to the journal, compacting the journal when it has grown
+     * larger than the content it describes.
+     */
+    private void apply(JournalEntry entry) {
+        update(entry);
+        try {
+            journal.write(objectMapper.writeValueAsString(entry));
+            journal.newLine();
+            journal.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append to retry store journal", e);
+        }
+        journalEntries++;
+        if (journalEntries >= Math.max(compactionThreshold, pending.size() + deadLetters.size())) {
+            compact();
+        }
+    }
+
+    private void update(JournalEntry entry) {
+        switch (entry.action()) {
+            case PENDING -> {
+                pending.put(entry.key(), entry.operation());
+                deadLetters.remove(entry.key());
+            }
+            case REMOVED -> pending.remove(entry.key());
+            case DEAD -> {
+                pending.remove(entry.key());
+                deadLetters.put(entry.key(), entry.operation());
+            }
+            case PURGED -> deadLetters.remove(entry.key());
+            default -> throw new IllegalArgumentException("Unknown retry journal action " + entry.action());
+        }
+    }
+
+    /**
+     * Applies the journal written since the last compaction. Entries replace whole operations by key,
+     * so replaying entries already contained in the JSON files is harmless.
+     *
+     * @return Number of entries applied
+     */
+    private int replayJournal() throws IOException {
+        Path file = directory.resolve(JOURNAL_FILE);
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        int replayed = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    update(objectMapper.readValue(line, JournalEntry.class));
+                    replayed++;
+                } catch (IOException | RuntimeException e) {
+                    LOGGER.warn("Ignoring incomplete retry journal entry after {} entries: {}", replayed, e.getMessage());
+                    break;
+                }
+            }
+        }
+        return replayed;
+    }
+
+    /**
+     * Rewrites the JSON files from memory and starts an empty journal.
+     */
+    private void compact() {
+        write(PENDING_FILE, pending);
+        write(DEAD_LETTERS_FILE, deadLetters);
+        try {
+            if (journal != null) {
+                journal.close();
+            }
+            journal = Files.newBufferedWriter(directory.resolve(JOURNAL_FILE), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to reset retry store journal", e);
+        }
+        journalEntries = 0;
+    }
+
+    private void write(String fileName, Map<String, RetryOperation> operations) {
+        try {
+            Path temp = directory.resolve(fileName + ".tmp");
+            objectMapper.writeValue(temp.toFile(), operations.values());
+            Files.move(temp, directory.resolve(fileName), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write retry store file " + fileName, e);
+        }
+    }
+}
@@ -0,0 +1,326 @@
+package org.alfresco.scheduler;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Runs document uploads and deletions of live events and folder synchronizations on a shared pool
+ * of workers, taking work from three lanes: live events, then recently modified documents of the
+ * sync backlog, then the older ones.
+ *
+ * Lanes are served by smooth weighted round-robin among the lanes holding work, so with the default
+ * weights (8, 3, 1) a busy live lane gets two thirds of the workers and the backlog keeps making
+ * progress. The backlog lanes are bounded: a folder synchronization waits for room instead of
+ * loading a whole folder in memory.
+ *
+ * Work on the same node never runs concurrently: work taken while its node is being worked on is put
+ * aside and run next by the worker already busy with the node, so no worker waits on another.
+ *
+ * Backlog work on a node that a live event uploaded or deleted while the backlog is being worked on is
+ * skipped, since the live event already brought the document up to date.
+ */
+@Component
+public class WorkScheduler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WorkScheduler.class);
+
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30L;
+
+    /**
+     * Priority lanes, served in this order when their weights are equal.
+     */
+    public enum Lane {
+        LIVE, RECENT, BACKLOG
+    }
+
+    /**
+     * Work run by the scheduler, on a document or any other key.
+     */
+    @FunctionalInterface
+    public interface Task {
+        void run() throws Exception;
+    }
+
+    @Value("${alfresco.ai.sync.scheduler.threads:10}")
+    private int threads;
+
+    @Value("${alfresco.ai.sync.scheduler.weight.live:8}")
+    private int liveWeight;
+
+    @Value("${alfresco.ai.sync.scheduler.weight.recent:3}")
+    private int recentWeight;
+
+    @Value("${alfresco.ai.sync.scheduler.weight.backlog:1}")
+    private int backlogWeight;
+
+    @Value("${alfresco.ai.sync.scheduler.recentDays:7}")
+    private int recentDays;
+
+    @Value("${alfresco.ai.sync.scheduler.backlogCapacity:1000}")
+    private int backlogCapacity;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition workAvailable = lock.newCondition();
+    private final Condition roomAvailable = lock.newCondition();
+    private final Map<Lane, LaneState> lanes = new EnumMap<>(Lane.class);
+    // Nodes being worked on, with the work on the same node taken meanwhile, in order
+    private final Map<String, ArrayDeque<Work>> busyKeys = new HashMap<>();
+    // Nodes updated by live work while backlog work is queued, cleared once the backlog is drained
+    private final Set<String> liveKeys = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger backlogTasks = new AtomicInteger();
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running = true;
+    private Counter skipped;
+
+    @PostConstruct
+    public void start() {
+        lanes.put(Lane.LIVE, new LaneState(Lane.LIVE, Math.max(1, liveWeight), Integer.MAX_VALUE));
+        lanes.put(Lane.RECENT, new LaneState(Lane.RECENT, Math.max(1, recentWeight), backlogCapacity));
+        lanes.put(Lane.BACKLOG, new LaneState(Lane.BACKLOG, Math.max(1, backlogWeight), backlogCapacity));
+
+        skipped = Counter.builder("alfresco.sync.scheduler.skipped")
+                .description("Backlog work skipped because a live event already updated the node")
+                .register(meterRegistry);
+        for (LaneState lane : lanes.values()) {
+            Gauge.builder("alfresco.sync.scheduler.queued", lane, LaneState::size)
+                    .description("Work waiting for a worker in each lane")
+                    .tag("lane", lane.name)
+                    .register(meterRegistry);
+        }
+
+        for (int i = 1; i <= Math.max(1, threads); i++) {
+            Thread worker = new Thread(this::work, "sync-worker-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+        LOGGER.info("Work scheduler started with {} workers, lane weights live={} recent={} backlog={}",
+                workers.size(), liveWeight, recentWeight, backlogWeight);
+    }
+
+    /**
+     * Returns the backlog lane of a document by its modification time.
+     *
+     * @param modifiedAt Modification time of the document, may be null
+     * @return RECENT for documents modified within {@code alfresco.ai.sync.scheduler.recentDays}, BACKLOG otherwise
+     */
+    public Lane backlogLane(OffsetDateTime modifiedAt) {
+        return modifiedAt != null && modifiedAt.isAfter(OffsetDateTime.now().minusDays(recentDays))
+                ? Lane.RECENT
+                : Lane.BACKLOG;
+    }
+
+    /**
+     * Queues work on a lane, waiting for room when the lane is full.
+     *
+     * @param lane Lane of the work
+     * @param key  Node the work applies to
+     * @param task Work to run
+     * @return Future completed when the work has run, been skipped or failed
+     */
+    public CompletableFuture<Void> submit(Lane lane, String key, Task task) throws InterruptedException {
+        Work work = new Work(lane, key, task, System.nanoTime(), new CompletableFuture<>());
+        LaneState state = lanes.get(lane);
+        lock.lockInterruptibly();
+        try {
+            while (state.queue.size() >= state.capacity) {
+                roomAvailable.await();
+            }
+            state.queue.add(work);
+            if (lane != Lane.LIVE) {
+                backlogTasks.incrementAndGet();
+            }
+            workAvailable.signal();
+        } finally {
+            lock.unlock();
+        }
+        return work.done;
+    }
+
+    /**
+     * Queues work on a lane and waits for it to run.
+     *
+     * @param lane Lane of the work
+     * @param key  Node the work applies to
+     * @param task Work to run
+     * @throws Exception Thrown by the work
+     */
+    public void run(Lane lane, String key, Task task) throws Exception {
+        try {
+            submit(lane, key, task).get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+
+    private void work() {
+        while (running) {
+            Work work;
+            try {
+                work = next();
+            } catch (InterruptedException e) {
+                return;
+            }
+            while (work != null) {
+                execute(work);
+                work = nextForKey(work.key);
+            }
+        }
+    }
+
+    private void execute(Work work) {
+        lanes.get(work.lane).wait.record(System.nanoTime() - work.queuedAt, TimeUnit.NANOSECONDS);
+        try {
+            if (work.lane != Lane.LIVE && liveKeys.contains(work.key)) {
+                LOGGER.debug("Skipping {} work for node {} already updated by a live event", work.lane, work.key);
+                skipped.increment();
+            } else {
+                work.task.run();
+                if (work.lane == Lane.LIVE && backlogTasks.get() > 0) {
+                    liveKeys.add(work.key);
+                }
+            }
+            work.done.complete(null);
+        } catch (Throwable e) {
+            work.done.completeExceptionally(e);
+        } finally {
+            if (work.lane != Lane.LIVE && backlogTasks.decrementAndGet() == 0) {
+                liveKeys.clear();
+            }
+        }
+    }
+
+    /**
+     * Returns the work put aside for a node while it was being worked on, or releases the node.
+     */
+    private Work nextForKey(String key) {
+        lock.lock();
+        try {
+            Work next = busyKeys.get(key).poll();
+            if (next == null) {
+                busyKeys.remove(key);
+            }
+            return next;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Takes the next work, choosing its lane by smooth weighted round-robin among the lanes holding work.
+     * Work on a node that is being worked on is put aside for the worker busy with it.
+     */
+    private Work next() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (true) {
+                LaneState selected = null;
+                int totalWeight = 0;
+                for (LaneState lane : lanes.values()) {
+                    if (lane.queue.isEmpty()) {
+                        continue;
+                    }
+                    lane.current += lane.weight;
+                    totalWeight += lane.weight;
+                    if (selected == null || lane.current > selected.current) {
+                        selected = lane;
+                    }
+                }
+                if (selected != null) {
+                    selected.current -= totalWeight;
+                    roomAvailable.signalAll();
+                    Work work = selected.queue.poll();
+                    ArrayDeque<Work> waiting = busyKeys.get(work.key);
+                    if (waiting == null) {
+                        busyKeys.put(work.key, new ArrayDeque<>());
+                        return work;
+                    }
+                    waiting.add(work);
+                    continue;
+                }
+                workAvailable.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        workers.forEach(Thread::interrupt);
+        for (Thread worker : workers) {
+            worker.join(TimeUnit.SECONDS.toMillis(SHUTDOWN_TIMEOUT_SECONDS));
+        }
+        lock.lock();
+        try {
+            lanes.values().forEach(lane -> lane.queue.forEach(work -> work.done.cancel(false)));
+            busyKeys.values().forEach(waiting -> waiting.forEach(work -> work.done.cancel(false)));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private record Work(Lane lane, String key, Task task, long queuedAt, CompletableFuture<Void> done) {
+    }
+
+    /**
+     * Queue, weight and round-robin credit of a lane, guarded by the scheduler lock.
+     */
+    private final class LaneState {
+
+        private final String name;
+        private final int weight;
+        private final int capacity;
+        private final ArrayDeque<Work> queue = new ArrayDeque<>();
+        private final Timer wait;
+        private int current;
+
+        LaneState(Lane lane, int weight, int capacity) {
+            this.name = lane.name().toLowerCase();
+            this.weight = weight;
+            this.capacity = Math.max(1, capacity);
+            this.wait = Timer.builder("alfresco.sync.scheduler.wait")
+                    .description("Time from queueing work to a worker starting it")
+                    .tag("lane", name)
+                    .register(meterRegistry);
+        }
+
+        int size() {
+            lock.lock();
+            try {
+                return queue.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -1,25 +1,43 @@
 package org.alfresco.service;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 import org.alfresco.ai.AIClient;
 import org.alfresco.core.handler.NodesApi;
 import org.alfresco.core.model.NodeBodyUpdate;
+import org.alfresco.extraction.TextExtractor;
+import org.alfresco.policy.ContentDecision;
+import org.alfresco.policy.ContentPolicy;
+import org.alfresco.retry.RetryScheduler;
+import org.alfresco.scheduler.WorkScheduler;
 import org.alfresco.search.handler.SearchApi;
 import org.alfresco.search.model.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.io.Resource;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.time.Instant;
+import java.lang.management.ManagementFactory;
 import java.time.OffsetDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 /**
@@ -33,11 +51,31 @@ public class AlfrescoClient {
 
     private static final String PATH_QUERY_TEMPLATE =
             "ANCESTOR:\"workspace://SpacesStore/%s\" AND TYPE:\"cm:content\" AND cm:modified:[%s TO *]";
+    private static final String PATH_AFTER_QUERY_TEMPLATE = PATH_QUERY_TEMPLATE + " AND sys:node-dbid:<%d TO MAX]";
+    private static final String SYNC_FOLDERS_QUERY_TEMPLATE = "ASPECT:\"%s\" AND TYPE:\"cm:folder\"";
+    private static final String FOLDER_DOCUMENTS_QUERY_TEMPLATE =
+            "ANCESTOR:\"workspace://SpacesStore/%s\" AND TYPE:\"cm:content\"";
+    private static final String FOLDER_CHANGES_QUERY_TEMPLATE =
+            "ANCESTOR:\"workspace://SpacesStore/%s\" AND TYPE:\"cm:content\" AND cm:modified:<%s TO *]";
+    private static final String FOLDER_DOCUMENTS_AFTER_QUERY_TEMPLATE =
+            "ANCESTOR:\"workspace://SpacesStore/%s\" AND TYPE:\"cm:content\" AND sys:node-dbid:<%d TO MAX]";
     private static final String FIELD_MODIFIED = "cm:modified";
+    private static final String FIELD_NODE_DBID = "sys:node-dbid";
+    private static final String FOLDER_DETECTION_PROBE = "probe";
+    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSX");
 
     @Value("${alfresco.ai.sync.maxItems}")
     private int maxItems;
 
+    @Value("${alfresco.ai.sync.folderDetection:facet}")
+    private String folderDetection;
+
+    @Value("${alfresco.ai.sync.folderDetection.concurrency:8}")
+    private int probeConcurrency;
+
+    @Value("${alfresco.ai.sync.folderDetection.batchSize:50}")
+    private int facetBatchSize;
+
     @Value("${alfresco.ai.sync.aspect}")
     private String syncAspect;
 
@@ -47,6 +85,8 @@ public class AlfrescoClient {
     @Value("${alfresco.ai.sync.aspect.updated}")
     private String propUpdated;
 
+    private final AtomicBoolean firstDocumentProcessed = new AtomicBoolean(false);
+
     @Autowired
     private SearchApi searchApi;
 
@@ -56,17 +96,32 @@ public class AlfrescoClient {
     @Autowired
     private AIClient aiClient;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ObservationRegistry observationRegistry;
+
+    @Autowired
+    private WorkScheduler workScheduler;
+
+    @Autowired
+    private ContentPolicy contentPolicy;
+
+    @Autowired
+    private TextExtractor textExtractor;
+
+    @Lazy
+    @Autowired
+    private RetryScheduler retryScheduler;
+
     /**
      * Retrieves a list of folder IDs that are marked for synchronization.
      *
      * @return List of folder IDs
      */
     public List<String> getSyncFolders() {
-        SearchRequest request = new SearchRequest()
-                .query(new RequestQuery()
-                        .language(RequestQuery.LanguageEnum.AFTS)
-                        .query("ASPECT:\"" + syncAspect + "\" AND TYPE:\"cm:folder\""));
-        return searchApi.search(request).getBody().getList().getEntries().stream()
+        return searchSyncFolders(null).stream()
                 .map(ResultSetRowEntry::getEntry)
                 .map(ResultNode::getId)
                 .collect(Collectors.toList());
@@ -74,52 +129,262 @@ public class AlfrescoClient {
 
     /**
      * Retrieves a list of folders that need to be synchronized based on latest document updated.
+     * Depending on {@code alfresco.ai.sync.folderDetection}, changed folders are found with faceted
+     * queries grouping many folders per search ({@code facet}) or with one concurrent probe per folder
+     * ({@code probe}). Folders that were never synchronized are not included.
      *
      * @return List of folders that need synchronization
      */
     public List<AlfrescoSyncFolder> getFoldersToSync() {
+        return getFoldersToSync(folderId -> true);
+    }
+
+    /**
+     * Retrieves the folders that need to be synchronized among the ones accepted by a filter.
+     *
+     * @param folderFilter Filter on folder IDs, applied before detecting changes
+     * @return List of folders that need synchronization
+     */
+    public List<AlfrescoSyncFolder> getFoldersToSync(Predicate<String> folderFilter) {
         RequestInclude include = new RequestInclude();
         include.add("properties");
 
-        SearchRequest baseRequest = new SearchRequest()
-                .query(new RequestQuery()
-                        .language(RequestQuery.LanguageEnum.AFTS)
-                        .query("ASPECT:\"" + syncAspect + "\" AND TYPE:\"cm:folder\""))
-                .include(include);
+        List<ResultSetRowEntry> folders = searchSyncFolders(include).stream()
+                .filter(folder -> folderFilter.test(folder.getEntry().getId()))
+                .filter(folder -> getDateTime(folder, propUpdated) != null)
+                .collect(Collectors.toList());
 
-        List<ResultSetRowEntry> folders = searchApi.search(baseRequest).getBody().getList().getEntries();
-        List<AlfrescoSyncFolder> syncFolders = new ArrayList<>();
+        long start = System.currentTimeMillis();
+        List<AlfrescoSyncFolder> syncFolders = FOLDER_DETECTION_PROBE.equals(folderDetection)
+                ? probeFolders(folders, include)
+                : facetFolders(folders);
+        LOGGER.info("Folder change detection ({}) found {} of {} folders to sync in {} ms",
+                folderDetection, syncFolders.size(), folders.size(), System.currentTimeMillis() - start);
+        return syncFolders;
+    }
 
+    /**
+     * Pages through all the folders marked for synchronization.
+     *
+     * @param include Additional fields to include in the results, may be null
+     * @return All the folders marked for synchronization
+     */
+    private List<ResultSetRowEntry> searchSyncFolders(RequestInclude include) {
         RequestSortDefinition sort = new RequestSortDefinition();
         sort.add(new RequestSortDefinitionInner()
                 .type(RequestSortDefinitionInner.TypeEnum.FIELD)
-                .field("cm:modified")
-                .ascending(false));
+                .field("cm:created")
+                .ascending(true));
 
-        for (ResultSetRowEntry folder : folders) {
-            SearchRequest folderRequest = new SearchRequest()
+        List<ResultSetRowEntry> folders = new ArrayList<>();
+        boolean hasMoreItems;
+        do {
+            SearchRequest request = new SearchRequest()
                     .query(new RequestQuery()
                             .language(RequestQuery.LanguageEnum.AFTS)
-                            .query("ANCESTOR:\"workspace://SpacesStore/" + folder.getEntry().getId() + "\" AND TYPE:\"cm:content\""))
+                            .query(String.format(SYNC_FOLDERS_QUERY_TEMPLATE, syncAspect)))
                     .sort(sort)
-                    .paging(new RequestPagination().maxItems(1))
-                    .include(include);
+                    .include(include)
+                    .paging(new RequestPagination().maxItems(maxItems).skipCount(folders.size()));
 
-            List<ResultSetRowEntry> documents = searchApi.search(folderRequest).getBody().getList().getEntries();
+            ResultSetPagingList page = search("folders", request).getBody().getList();
+            folders.addAll(page.getEntries());
+            hasMoreItems = !page.getEntries().isEmpty() && Optional.ofNullable(page.getPagination())
+                    .map(Pagination::isHasMoreItems)
+                    .orElse(false);
+        } while (hasMoreItems);
+        return folders;
+    }
+
+    /**
+     * Finds changed folders with one search per batch of folders. Every folder of the batch gets a facet query
+     * counting the documents modified after its last synchronization, so the latest document date is not known.
+     *
+     * @param folders Folders marked for synchronization, with their properties
+     * @return Folders containing documents modified after their last synchronization
+     */
+    private List<AlfrescoSyncFolder> facetFolders(List<ResultSetRowEntry> folders) {
+        List<AlfrescoSyncFolder> syncFolders = new ArrayList<>();
+        for (int from = 0; from < folders.size(); from += facetBatchSize) {
+            List<ResultSetRowEntry> batch = folders.subList(from, Math.min(from + facetBatchSize, folders.size()));
 
-            if (!documents.isEmpty()) {
-                OffsetDateTime published = getDateTime(folder, propPublished);
+            RequestFacetQueries facetQueries = new RequestFacetQueries();
+            OffsetDateTime oldest = null;
+            for (ResultSetRowEntry folder : batch) {
                 OffsetDateTime updated = getDateTime(folder, propUpdated);
-                OffsetDateTime modified = documents.get(0).getEntry().getModifiedAt();
+                facetQueries.add(new RequestFacetQueriesInner()
+                        .label(folder.getEntry().getId())
+                        .query(String.format(FOLDER_CHANGES_QUERY_TEMPLATE, folder.getEntry().getId(), updated.format(DATE_TIME_FORMATTER))));
+                oldest = oldest == null || updated.isBefore(oldest) ? updated : oldest;
+            }
 
-                if (updated != null && updated.isBefore(modified)) {
-                    syncFolders.add(new AlfrescoSyncFolder(folder.getEntry().getId(), published, updated, modified));
+            SearchRequest request = new SearchRequest()
+                    .query(new RequestQuery()
+                            .language(RequestQuery.LanguageEnum.AFTS)
+                            .query("TYPE:\"cm:content\" AND cm:modified:[" + oldest.format(DATE_TIME_FORMATTER) + " TO *]"))
+                    .facetQueries(facetQueries)
+                    .paging(new RequestPagination().maxItems(1));
+
+            Map<String, Integer> changes = new HashMap<>();
+            Optional.ofNullable(search("facets", request).getBody().getList().getContext())
+                    .map(ResultSetContext::getFacetQueries)
+                    .ifPresent(counts -> counts.forEach(count -> changes.put(count.getLabel(), Optional.ofNullable(count.getCount()).orElse(0))));
+
+            for (ResultSetRowEntry folder : batch) {
+                if (changes.getOrDefault(folder.getEntry().getId(), 0) > 0) {
+                    syncFolders.add(new AlfrescoSyncFolder(folder.getEntry().getId(),
+                            getDateTime(folder, propPublished), getDateTime(folder, propUpdated), null));
                 }
             }
         }
         return syncFolders;
     }
 
+    /**
+     * Finds changed folders by searching the latest modified document of every folder, running at most
+     * {@code alfresco.ai.sync.folderDetection.concurrency} searches at the same time.
+     *
+     * @param folders Folders marked for synchronization, with their properties
+     * @param include Additional fields to include in the results
+     * @return Folders containing documents modified after their last synchronization
+     */
+    private List<AlfrescoSyncFolder> probeFolders(List<ResultSetRowEntry> folders, RequestInclude include) {
+        RequestSortDefinition sort = new RequestSortDefinition();
+        sort.add(new RequestSortDefinitionInner()
+                .type(RequestSortDefinitionInner.TypeEnum.FIELD)
+                .field(FIELD_MODIFIED)
+                .ascending(false));
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, probeConcurrency));
+        try {
+            List<CompletableFuture<Optional<AlfrescoSyncFolder>>> probes = folders.stream()
+                    .map(folder -> CompletableFuture.supplyAsync(() -> probeFolder(folder, sort, include), executor))
+                    .collect(Collectors.toList());
+            return probes.stream()
+                    .map(CompletableFuture::join)
+                    .flatMap(Optional::stream)
+                    .collect(Collectors.toList());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private Optional<AlfrescoSyncFolder> probeFolder(ResultSetRowEntry folder, RequestSortDefinition sort, RequestInclude include) {
+        SearchRequest folderRequest = new SearchRequest()
+                .query(new RequestQuery()
+                        .language(RequestQuery.LanguageEnum.AFTS)
+                        .query(String.format(FOLDER_DOCUMENTS_QUERY_TEMPLATE, folder.getEntry().getId())))
+                .sort(sort)
+                .paging(new RequestPagination().maxItems(1))
+                .include(include);
+
+        List<ResultSetRowEntry> documents = search("probe", folderRequest).getBody().getList().getEntries();
+        if (documents.isEmpty()) {
+            return Optional.empty();
+        }
+
+        OffsetDateTime published = getDateTime(folder, propPublished);
+        OffsetDateTime updated = getDateTime(folder, propUpdated);
+        OffsetDateTime modified = documents.get(0).getEntry().getModifiedAt();
+        return updated.isBefore(modified)
+                ? Optional.of(new AlfrescoSyncFolder(folder.getEntry().getId(), published, updated, modified))
+                : Optional.empty();
+    }
+
+    /**
+     * Counts the documents in a folder and its subfolders.
+     *
+     * @param folderId Folder to count documents in
+     * @return Number of documents
+     */
+    public long countDocuments(String folderId) {
+        SearchRequest request = new SearchRequest()
+                .query(new RequestQuery()
+                        .language(RequestQuery.LanguageEnum.AFTS)
+                        .query(String.format(FOLDER_DOCUMENTS_QUERY_TEMPLATE, folderId)))
+                .paging(new RequestPagination().maxItems(1));
+        return Optional.ofNullable(search("count", request).getBody().getList().getPagination())
+                .map(Pagination::getTotalItems)
+                .orElse(0L);
+    }
+
+    /**
+     * Pages through the documents of a folder and its subfolders, holding a single page in memory.
+     *
+     * Pages are read in node database ID order, each one with a range query starting after the last ID
+     * of the previous page rather than with an offset: Solr does not have to skip the documents already
+     * read, and documents deleted or added meanwhile do not shift the pages.
+     *
+     * @param folderId Folder to list documents from
+     * @param pageSize Number of documents per search
+     * @param consumer Called for every document
+     */
+    public void forEachDocument(String folderId, int pageSize, Consumer<ResultNode> consumer) {
+        RequestSortDefinition sort = createSortDefinition();
+        RequestInclude include = new RequestInclude();
+        include.add("properties");
+
+        Long lastDbid = null;
+        boolean hasMoreItems;
+        do {
+            String query = lastDbid == null
+                    ? String.format(FOLDER_DOCUMENTS_QUERY_TEMPLATE, folderId)
+                    : String.format(FOLDER_DOCUMENTS_AFTER_QUERY_TEMPLATE, folderId, lastDbid);
+            SearchRequest request = new SearchRequest()
+                    .query(new RequestQuery()
+                            .language(RequestQuery.LanguageEnum.AFTS)
+                            .query(query))
+                    .sort(sort)
+                    .paging(new RequestPagination().maxItems(pageSize))
+                    .include(include);
+
+            List<ResultSetRowEntry> entries = search("documents", request).getBody().getList().getEntries();
+            for (ResultSetRowEntry entry : entries) {
+                consumer.accept(entry.getEntry());
+            }
+            lastDbid = getLastDbid(entries, folderId);
+            hasMoreItems = entries.size() == pageSize;
+        } while (hasMoreItems);
+    }
+
+    /**
+     * Returns the node database ID of the last result of a page, to start the next page after it.
+     */
+    private static Long getLastDbid(List<ResultSetRowEntry> entries, String folderId) {
+        Long dbid = entries.isEmpty() ? null : getDbid(entries.get(entries.size() - 1));
+        if (dbid == null && !entries.isEmpty()) {
+            throw new IllegalStateException("Search results of folder " + folderId + " have no " + FIELD_NODE_DBID);
+        }
+        return dbid;
+    }
+
+    /**
+     * Returns the node database ID of a search result, from its properties.
+     */
+    private static Long getDbid(ResultSetRowEntry entry) {
+        return Optional.ofNullable(entry.getEntry().getProperties())
+                .map(props -> ((Map<?, ?>) props).get(FIELD_NODE_DBID))
+                .map(value -> value instanceof Number number ? number.longValue() : Long.parseLong(value.toString()))
+                .orElse(null);
+    }
+
+    /**
+     * Checks whether a document exists in a folder or its subfolders.
+     *
+     * @param documentId Document to look for
+     * @param folderId   Folder expected to contain it
+     * @return true if the document is in the folder
+     */
+    public boolean isDocumentInFolder(String documentId, String folderId) {
+        SearchRequest request = new SearchRequest()
+                .query(new RequestQuery()
+                        .language(RequestQuery.LanguageEnum.AFTS)
+                        .query(String.format(FOLDER_DOCUMENTS_QUERY_TEMPLATE, folderId)
+                                + " AND ID:\"workspace://SpacesStore/" + documentId + "\""))
+                .paging(new RequestPagination().maxItems(1));
+        return !search("membership", request).getBody().getList().getEntries().isEmpty();
+    }
+
     /**
      * Extracts a date-time value from the folder entry properties.
      *
@@ -141,70 +406,105 @@ public class AlfrescoClient {
      * @return Parsed OffsetDateTime object
      */
     private static OffsetDateTime parseDateTime(String dateTimeString) {
-        return OffsetDateTime.parse(dateTimeString, DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSX"));
+        return OffsetDateTime.parse(dateTimeString, DATE_TIME_FORMATTER);
     }
 
     /**
-     * Synchronizes documents in the given folder, processing them in batches.
+     * Synchronizes documents in the given folder and waits for all of them to be processed.
+     * Documents are queued in batches on the recent or backlog lane of the {@link WorkScheduler},
+     * so live events are not held behind the folder.
+     *
+     * Pages are read in node database ID order, starting after the last ID of the previous page as in
+     * {@link #forEachDocument}, so documents modified, added or deleted while the folder is being paged
+     * do not shift the pages; their live events update them.
      *
      * @param processedCount Atomic integer to keep track of processed documents
      * @param folder         The folder to synchronize
      */
     public void synchronizeDocuments(AtomicInteger processedCount, AlfrescoSyncFolder folder) {
         RequestSortDefinition sortDefinition = createSortDefinition();
+        List<CompletableFuture<Void>> processed = new ArrayList<>();
         boolean hasMoreItems;
+        Long lastDbid = null;
 
         do {
-            ResultSetPaging results = fetchAndProcessBatch(sortDefinition, processedCount, folder);
-            hasMoreItems = Optional.ofNullable(results)
-                    .map(ResultSetPaging::getList)
-                    .map(ResultSetPagingList::getPagination)
+            ResultSetPaging results = fetchAndProcessBatch(sortDefinition, lastDbid, processedCount, folder, processed);
+            List<ResultSetRowEntry> entries = results.getList().getEntries();
+            lastDbid = getLastDbid(entries, folder.id());
+            hasMoreItems = !entries.isEmpty() && Optional.ofNullable(results.getList().getPagination())
                     .map(Pagination::isHasMoreItems)
                     .orElse(false);
 
-            LOGGER.debug("Batch processing complete. More items available: {}", hasMoreItems);
+            LOGGER.debug("Batch queued. More items available: {}", hasMoreItems);
         } while (hasMoreItems);
+
+        CompletableFuture.allOf(processed.toArray(CompletableFuture[]::new)).join();
     }
 
     /**
      * Fetches a batch of documents to process and handles their processing.
      *
      * @param sortDefinition Sort definition to apply during the fetch
+     * @param lastDbid       Node database ID of the last document of the previous batch, null for the first batch
      * @param processedCount Atomic integer to track processed documents
      * @param folder         Folder to synchronize
+     * @param processed      Completion of the queued documents
      * @return ResultSetPaging containing the fetched documents
      */
-    private ResultSetPaging fetchAndProcessBatch(RequestSortDefinition sortDefinition, AtomicInteger processedCount, AlfrescoSyncFolder folder) {
-        LOGGER.debug("Fetching batch of documents (max: {})", maxItems);
+    private ResultSetPaging fetchAndProcessBatch(RequestSortDefinition sortDefinition, Long lastDbid, AtomicInteger processedCount,
+                                                 AlfrescoSyncFolder folder, List<CompletableFuture<Void>> processed) {
+        LOGGER.debug("Fetching batch of documents (after: {}, max: {})", lastDbid, maxItems);
 
-        ResponseEntity<ResultSetPaging> searchResponse = executeSearch(sortDefinition, folder);
+        ResponseEntity<ResultSetPaging> searchResponse = executeSearch(sortDefinition, lastDbid, folder);
         List<ResultSetRowEntry> entries = searchResponse.getBody().getList().getEntries();
 
-        processDocumentBatch(entries, folder, processedCount);
+        processDocumentBatch(entries, folder, processedCount, processed);
 
         return searchResponse.getBody();
     }
 
     /**
-     * Processes a batch of documents in parallel.
+     * Queues a batch of documents on the scheduler lane matching their modification time,
+     * waiting when the lane is full. Failed documents are scheduled for retry.
      *
      * @param entries        Documents to process
      * @param folder         Folder to synchronize
      * @param processedCount Counter for processed documents
+     * @param processed      Completion of the queued documents
      */
-    private void processDocumentBatch(List<ResultSetRowEntry> entries, AlfrescoSyncFolder folder, AtomicInteger processedCount) {
-        entries.parallelStream().forEach(entry -> {
-            String uuid = entry.getEntry().getId();
-            String name = entry.getEntry().getName();
-
+    private void processDocumentBatch(List<ResultSetRowEntry> entries, AlfrescoSyncFolder folder, AtomicInteger processedCount,
+                                      List<CompletableFuture<Void>> processed) {
+        for (ResultSetRowEntry entry : entries) {
+            ResultNode node = entry.getEntry();
             try {
-                processDocument(uuid, folder.id(), name);
-                processedCount.incrementAndGet();
-                LOGGER.debug("Processed document: {} ({})", name, uuid);
-            } catch (Exception e) {
-                LOGGER.error("Failed to process document: {} ({})", name, uuid, e);
+                processed.add(workScheduler.submit(workScheduler.backlogLane(node.getModifiedAt()), node.getId(),
+                        () -> processBacklogDocument(node, folder, processedCount)));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while synchronizing folder " + folder.id(), e);
+            }
+        }
+    }
+
+    private void processBacklogDocument(ResultNode node, AlfrescoSyncFolder folder, AtomicInteger processedCount) {
+        String uuid = node.getId();
+        String name = node.getName();
+        try {
+            boolean ingested = processDocument(node, folder.id());
+            retryScheduler.documentSucceeded(uuid);
+            if (!ingested) {
+                return;
             }
-        });
+            processedCount.incrementAndGet();
+            if (firstDocumentProcessed.compareAndSet(false, true)) {
+                LOGGER.info("First document synchronized {} ms after startup",
+                        ManagementFactory.getRuntimeMXBean().getUptime());
+            }
+            LOGGER.debug("Processed document: {} ({})", name, uuid);
+        } catch (Exception e) {
+            LOGGER.error("Failed to process document: {} ({})", name, uuid, e);
+            retryScheduler.uploadFailed(uuid, folder.id(), name, null, e);
+        }
     }
 
     /**
@@ -216,25 +516,106 @@ public class AlfrescoClient {
      * @throws IOException If processing fails
      */
     public void processDocument(String uuid, String syncFolderId, String documentName) throws IOException {
-        try (InputStream content = nodesApi.getNodeContent(uuid, true, null, null)
-                .getBody()
-                .getInputStream()) {
+        processDocument(uuid, syncFolderId, documentName, null, null);
+    }
+
+    /**
+     * Processes a document found by a search, applying the content policy to its mimetype and size.
+     *
+     * @param node         Document search result
+     * @param syncFolderId Synchronization folder id
+     * @return false if the content policy skipped the document
+     * @throws IOException If processing fails
+     */
+    public boolean processDocument(ResultNode node, String syncFolderId) throws IOException {
+        Optional<ContentInfo> content = Optional.ofNullable(node.getContent());
+        return processDocument(node.getId(), syncFolderId, node.getName(),
+                content.map(ContentInfo::getMimeType).orElse(null),
+                content.map(ContentInfo::getSizeInBytes).orElse(null));
+    }
+
+    /**
+     * Processes a single document unless the content policy skips it, downloading only a prefix of the
+     * content when the policy truncates it. With edge extraction, the text of the document is sent instead.
+     * The document is processed within an {@code alfresco.sync.document} observation, whose tracing span
+     * carries the document id and is propagated to the AI service.
+     *
+     * @param uuid         Document identifier
+     * @param syncFolderId Synchronization folder id
+     * @param documentName Document name
+     * @param mimeType     Mimetype of the content, may be null
+     * @param sizeInBytes  Size of the content, may be null
+     * @return false if the content policy skipped the document
+     * @throws IOException If processing fails
+     */
+    public boolean processDocument(String uuid, String syncFolderId, String documentName, String mimeType, Number sizeInBytes)
+            throws IOException {
+        return Observation.createNotStarted("alfresco.sync.document", observationRegistry)
+                .contextualName("sync document")
+                .highCardinalityKeyValue("documentId", uuid)
+                .observeChecked(() -> syncDocument(uuid, syncFolderId, documentName, mimeType, sizeInBytes));
+    }
+
+    private boolean syncDocument(String uuid, String syncFolderId, String documentName, String mimeType, Number sizeInBytes)
+            throws IOException {
+        ContentDecision decision = contentPolicy.decide(mimeType, sizeInBytes);
+        if (decision.isSkipped()) {
+            LOGGER.debug("Skipping document {} ({}): {} {} bytes, by {}", documentName, uuid, mimeType, sizeInBytes, decision.reason());
+            return false;
+        }
 
-            String response = aiClient.uploadDocument(uuid, syncFolderId, documentName, content);
+        if (textExtractor.isEnabled()) {
+            String text = textExtractor.extract(uuid, documentName, mimeType, () -> downloadContent(uuid, decision));
+            String response = aiClient.uploadText(uuid, syncFolderId, documentName, text);
+            LOGGER.debug("Document text uploaded: {} - Response: {}", documentName, response);
+            return true;
+        }
+
+        try (InputStream content = downloadContent(uuid, decision)) {
+            String response = aiClient.uploadDocument(uuid, syncFolderId, documentName, mimeType, content);
             LOGGER.debug("Document uploaded: {} - Response: {}", documentName, response);
         }
+        return true;
+    }
+
+    /**
+     * Opens the content of a document, or only its prefix when the content policy truncates it.
+     */
+    private InputStream downloadContent(String uuid, ContentDecision decision) throws IOException {
+        String range = decision.isPrefix() ? "bytes=0-" + (decision.maxBytes() - 1) : null;
+        Timer.Sample download = Timer.start(meterRegistry);
+        Resource body = nodesApi.getNodeContent(uuid, true, null, range).getBody();
+        download.stop(meterRegistry.timer("alfresco.sync.download"));
+        return decision.isPrefix()
+                ? new PrefixInputStream(body.getInputStream(), decision.maxBytes())
+                : body.getInputStream();
+    }
+
+    /**
+     * Runs a search, timing it as one page of the given kind of query.
+     *
+     * @param query   Kind of query, used as metric tag
+     * @param request Search request
+     * @return ResponseEntity containing the search results
+     */
+    private ResponseEntity<ResultSetPaging> search(String query, SearchRequest request) {
+        return Timer.builder("alfresco.sync.search.page")
+                .description("Duration of Alfresco search requests, one per page")
+                .tag("query", query)
+                .register(meterRegistry)
+                .record(() -> searchApi.search(request));
     }
 
     /**
      * Creates the sort definition used for sorting document queries.
      *
-     * @return A RequestSortDefinition configured for sorting by modification date
+     * @return A RequestSortDefinition configured for sorting by node database ID, ascending
      */
     private RequestSortDefinition createSortDefinition() {
         RequestSortDefinition sortDefinition = new RequestSortDefinition();
         sortDefinition.add(new RequestSortDefinitionInner()
                 .type(RequestSortDefinitionInner.TypeEnum.FIELD)
-                .field(FIELD_MODIFIED)
+                .field(FIELD_NODE_DBID)
                 .ascending(true));
         return sortDefinition;
     }
@@ -243,20 +624,26 @@ public class AlfrescoClient {
      * Executes a search query to fetch documents for synchronization.
      *
      * @param sortDefinition Sort definition to apply during the search
+     * @param lastDbid       Node database ID to start after, null to start from the first document
      * @param folder         Folder to search within
      * @return ResponseEntity containing the search results
      */
-    private ResponseEntity<ResultSetPaging> executeSearch(RequestSortDefinition sortDefinition, AlfrescoSyncFolder folder) {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSX");
-
+    private ResponseEntity<ResultSetPaging> executeSearch(RequestSortDefinition sortDefinition, Long lastDbid, AlfrescoSyncFolder folder) {
+        String updated = folder.updatedDate().format(DATE_TIME_FORMATTER);
+        String query = lastDbid == null
+                ? String.format(PATH_QUERY_TEMPLATE, folder.id(), updated)
+                : String.format(PATH_AFTER_QUERY_TEMPLATE, folder.id(), updated, lastDbid);
+        RequestInclude include = new RequestInclude();
+        include.add("properties");
         SearchRequest request = new SearchRequest()
                 .query(new RequestQuery()
                         .language(RequestQuery.LanguageEnum.AFTS)
-                        .query(String.format(PATH_QUERY_TEMPLATE, folder.id(), folder.updatedDate().format(formatter))))
+                        .query(query))
                 .sort(sortDefinition)
-                .paging(new RequestPagination().maxItems(maxItems).skipCount(0));
+                .paging(new RequestPagination().maxItems(maxItems))
+                .include(include);
 
-        return searchApi.search(request);
+        return search("sync", request);
     }
 
     /**
@@ -266,15 +653,78 @@ public class AlfrescoClient {
      * @param published If true, the published time is also updated
      */
     public void updateTime(String folder, boolean published) {
-        String currentTime = Instant.now()
-                .atZone(ZoneId.systemDefault())
-                .format(DateTimeFormatter.ISO_OFFSET_DATE_TIME);
+        updateTime(folder, OffsetDateTime.now(ZoneId.systemDefault()), published);
+    }
 
-        Map<String, Object> properties = new HashMap<>(Map.of(propUpdated, currentTime));
+    /**
+     * Updates the modification time of a folder to the given time. Optionally updates the published time.
+     *
+     * @param folder    The folder to update
+     * @param time      The time to set
+     * @param published If true, the published time is also updated
+     */
+    public void updateTime(String folder, OffsetDateTime time, boolean published) {
+        String formattedTime = time.format(DateTimeFormatter.ISO_OFFSET_DATE_TIME);
+
+        Map<String, Object> properties = new HashMap<>(Map.of(propUpdated, formattedTime));
         if (published) {
-            properties.put(propPublished, currentTime);
+            properties.put(propPublished, formattedTime);
         }
 
         nodesApi.updateNode(folder, new NodeBodyUpdate().properties(properties), null, null);
     }
+
+    /**
+     * Stream ending after a number of bytes, in case the repository ignores the requested range.
+     */
+    private static final class PrefixInputStream extends FilterInputStream {
+
+        private long remaining;
+
+        PrefixInputStream(InputStream in, long maxBytes) {
+            super(in);
+            this.remaining = maxBytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int value = super.read();
+            if (value >= 0) {
+                remaining--;
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = super.read(buffer, offset, (int) Math.min(length, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(Math.min(n, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(super.available(), remaining);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
 }
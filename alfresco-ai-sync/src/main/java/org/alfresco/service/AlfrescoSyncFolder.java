@@ -10,7 +10,7 @@ public record AlfrescoSyncFolder(
         String id,                    // The unique identifier of the folder
         OffsetDateTime publishedDate,  // The published date of the folder
         OffsetDateTime updatedDate,    // The last updated date of the folder
-        OffsetDateTime docLastUpdatedDate // The last updated date of the documents in the folder
+        OffsetDateTime docLastUpdatedDate // The last updated date of the documents in the folder, null when not probed
 ) {
 }
 
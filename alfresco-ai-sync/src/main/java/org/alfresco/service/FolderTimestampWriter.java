@@ -0,0 +1,173 @@
+package org.alfresco.service;
+
+import jakarta.annotation.PreDestroy;
+import org.alfresco.cluster.FolderWatermark;
+import org.alfresco.cluster.PartitionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Write-behind coalescer for the "updated" timestamp of synchronization folders.
+ * Live events register the modification time of their node when they are received and again when
+ * processing starts, reporting its outcome; the folder node is written at most once per flush interval,
+ * and at shutdown.
+ *
+ * The timestamp written for a folder (its watermark) never goes past an event that is still in
+ * progress or has failed: it is the latest completed event time, capped just before the oldest
+ * pending one. A failed event keeps capping the watermark until a later attempt for it completes.
+ */
+@Service
+public class FolderTimestampWriter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FolderTimestampWriter.class);
+
+    private final Map<String, FolderState> folders = new ConcurrentHashMap<>();
+    private final Map<String, Instant> flushed = new ConcurrentHashMap<>();
+
+    @Autowired
+    private AlfrescoClient alfrescoClient;
+
+    @Autowired
+    private PartitionManager partitionManager;
+
+    /**
+     * Registers an event for a folder before it is processed.
+     *
+     * @param folderId  Synchronization folder containing the node, ignored when empty
+     * @param eventTime Modification time of the node
+     * @return Handle to report the outcome of the event
+     */
+    public Pending begin(String folderId, Instant eventTime) {
+        Pending pending = new Pending(folderId, eventTime);
+        if (!folderId.isEmpty()) {
+            folders.computeIfAbsent(folderId, id -> new FolderState()).begin(eventTime);
+        }
+        return pending;
+    }
+
+    /**
+     * Records that an event was processed, so the folder watermark can move up to its time.
+     */
+    public void complete(Pending pending) {
+        if (!pending.folderId().isEmpty()) {
+            folders.get(pending.folderId()).complete(pending.eventTime());
+        }
+    }
+
+    /**
+     * Records that an event failed. It keeps capping the folder watermark until it is completed.
+     */
+    public void fail(Pending pending) {
+        if (!pending.folderId().isEmpty()) {
+            LOGGER.warn("Folder {} timestamp held before {} until the failed event is processed",
+                    pending.folderId(), pending.eventTime());
+        }
+    }
+
+    /**
+     * Drops an event given up after failing, so that it no longer caps the folder watermark. Unlike
+     * {@link #complete(Pending)}, the watermark does not move up to its time.
+     */
+    public void release(Pending pending) {
+        if (!pending.folderId().isEmpty()) {
+            folders.get(pending.folderId()).release(pending.eventTime());
+        }
+    }
+
+    /**
+     * Writes the watermark of every owned folder that moved since the previous flush.
+     * Folders failing to update are retried on the next flush.
+     *
+     * With partitioning, the completed and pending event times of this replica are published to the
+     * other members. The owner of a folder writes the latest time completed by any member, capped before
+     * the oldest event pending on any member, so idle members do not hold the folder back.
+     */
+    @Scheduled(fixedDelayString = "${alfresco.ai.sync.folderTimestamp.flushInterval:30000}")
+    public void flush() {
+        Map<String, FolderWatermark> watermarks = new HashMap<>();
+        folders.forEach((folderId, state) -> {
+            FolderWatermark watermark = state.watermark();
+            if (watermark != null) {
+                watermarks.put(folderId, watermark);
+            }
+        });
+        partitionManager.publishWatermarks(watermarks);
+
+        Map<String, FolderWatermark> clusterWatermarks = new HashMap<>(watermarks);
+        partitionManager.getRemoteWatermarks().values().forEach(remote ->
+                remote.forEach((folderId, watermark) -> clusterWatermarks.merge(folderId, watermark, FolderWatermark::merge)));
+
+        clusterWatermarks.forEach((folderId, state) -> {
+            Instant watermark = state.timestamp();
+            Instant previous = flushed.get(folderId);
+            if (watermark != null && partitionManager.ownsFolder(folderId)
+                    && (previous == null || watermark.isAfter(previous))) {
+                try {
+                    alfrescoClient.updateTime(folderId, OffsetDateTime.ofInstant(watermark, ZoneId.systemDefault()), false);
+                    flushed.put(folderId, watermark);
+                    LOGGER.debug("Folder {} timestamp updated to {}", folderId, watermark);
+                } catch (Exception e) {
+                    LOGGER.error("Failed to update timestamp of folder {} to {}", folderId, watermark, e);
+                }
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        LOGGER.info("Flushing folder timestamps before shutdown");
+        flush();
+    }
+
+    /**
+     * Event registered for a folder.
+     *
+     * @param folderId  Synchronization folder
+     * @param eventTime Modification time of the node
+     */
+    public record Pending(String folderId, Instant eventTime) {
+    }
+
+    /**
+     * Pending event times (with multiplicity) and latest completed time of a folder.
+     */
+    private static final class FolderState {
+
+        private final TreeMap<Instant, Integer> pending = new TreeMap<>();
+        private Instant completed;
+
+        synchronized void begin(Instant eventTime) {
+            pending.merge(eventTime, 1, Integer::sum);
+        }
+
+        synchronized void complete(Instant eventTime) {
+            release(eventTime);
+            if (completed == null || eventTime.isAfter(completed)) {
+                completed = eventTime;
+            }
+        }
+
+        synchronized void release(Instant eventTime) {
+            pending.computeIfPresent(eventTime, (time, count) -> count == 1 ? null : count - 1);
+        }
+
+        /**
+         * Latest completed event time and time just before the oldest pending one. Null when there is no event at all.
+         */
+        synchronized FolderWatermark watermark() {
+            Instant oldestPending = pending.isEmpty() ? null : pending.firstKey().minusMillis(1);
+            return completed == null && oldestPending == null ? null : new FolderWatermark(completed, oldestPending);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package org.alfresco.ai_framework;
+
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * In-process stand-ins for the Ollama models, so the service code around them can be measured
+ * without the cost and variance of a real model.
+ */
+public final class StubModels {
+
+    private StubModels() {
+    }
+
+    /**
+     * Embedding model returning a deterministic pseudo-random unit vector per text.
+     */
+    public static final class StubEmbeddingModel implements EmbeddingModel {
+
+        private final int dimensions;
+
+        public StubEmbeddingModel(int dimensions) {
+            this.dimensions = dimensions;
+        }
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            List<Embedding> embeddings = new ArrayList<>();
+            List<String> texts = request.getInstructions();
+            for (int i = 0; i < texts.size(); i++) {
+                embeddings.add(new Embedding(vector(texts.get(i)), i));
+            }
+            return new EmbeddingResponse(embeddings);
+        }
+
+        @Override
+        public float[] embed(Document document) {
+            return vector(document.getText());
+        }
+
+        @Override
+        public int dimensions() {
+            return dimensions;
+        }
+
+        private float[] vector(String text) {
+            SplittableRandom random = new SplittableRandom(text == null ? 0 : text.hashCode());
+            float[] vector = new float[dimensions];
+            double norm = 0;
+            for (int i = 0; i < dimensions; i++) {
+                vector[i] = (float) random.nextGaussian();
+                norm += vector[i] * vector[i];
+            }
+            float scale = (float) (1 / Math.sqrt(norm));
+            for (int i = 0; i < dimensions; i++) {
+                vector[i] *= scale;
+            }
+            return vector;
+        }
+    }
+
+    /**
+     * Chat model answering every prompt with a fixed text.
+     */
+    public static final class StubChatModel implements ChatModel {
+
+        private final String answer;
+
+        public StubChatModel(String answer) {
+            this.answer = answer;
+        }
+
+        @Override
+        public ChatResponse call(Prompt prompt) {
+            return new ChatResponse(List.of(new Generation(new AssistantMessage(answer))));
+        }
+    }
+
+    /**
+     * Sets a field normally injected by Spring with {@code @Value}.
+     */
+    public static void setField(Object target, String name, Object value) {
+        try {
+            Field field = target.getClass().getDeclaredField(name);
+            field.setAccessible(true);
+            field.set(target, value);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot set field " + name + " of " + target.getClass(), e);
+        }
+    }
+
+    /**
+     * Returns a provider of a single bean, for constructor arguments injected as {@code ObjectProvider}.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> ObjectProvider<T> provider(T bean) {
+        return new StaticListableBeanFactory(Map.of("bean", bean)).getBeanProvider((Class<T>) bean.getClass());
+    }
+}
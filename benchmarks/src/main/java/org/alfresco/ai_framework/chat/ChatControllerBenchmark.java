@@ -0,0 +1,95 @@
+package org.alfresco.ai_framework.chat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.alfresco.ai_framework.StubModels;
+import org.alfresco.ai_framework.index.KnnSearcher;
+import org.alfresco.ai_framework.ingestion.TextChunkerBenchmark.SyntheticText;
+import org.alfresco.ai_framework.observation.StageObserver;
+import org.apache.http.HttpHost;
+import org.elasticsearch.client.RestClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SimpleVectorStore;
+import org.springframework.http.ResponseEntity;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ChatController.chat with a stub chat model over an in-memory SimpleVectorStore holding 1,000 or
+ * 10,000 chunks: measures retrieval, context assembly and response mapping without the LLM.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChatControllerBenchmark {
+
+    private static final int DIMENSIONS = 768;
+    private static final int CHUNK_SIZE = 3000;
+
+    @Param({"1000", "10000"})
+    private int chunks;
+
+    private RestClient restClient;
+    private ChatController chatController;
+
+    @Setup
+    public void setUp() {
+        EmbeddingModel embeddingModel = new StubModels.StubEmbeddingModel(DIMENSIONS);
+        SimpleVectorStore vectorStore = SimpleVectorStore.builder(embeddingModel).build();
+        Random random = new Random(42);
+        List<Document> documents = new ArrayList<>();
+        for (int i = 0; i < chunks; i++) {
+            documents.add(new Document(SyntheticText.prose(CHUNK_SIZE, random),
+                    Map.of("documentId", "document-" + i / 10, "folderId", "folder-1")));
+        }
+        vectorStore.add(documents);
+
+        ContextAssembler contextAssembler = new ContextAssembler();
+        StubModels.setField(contextAssembler, "maxTokens", 2048);
+        StubModels.setField(contextAssembler, "maxSentencesPerChunk", 6);
+
+        // Only used when chat.retrieval.num-candidates is set, which the benchmark does not do
+        restClient = RestClient.builder(HttpHost.create("http://localhost:9200")).build();
+        KnnSearcher knnSearcher = new KnnSearcher(restClient, new ObjectMapper(), embeddingModel, "benchmark");
+
+        ChatService chatService = new ChatService(ChatClient.builder(new StubModels.StubChatModel("Stub answer.")),
+                vectorStore, contextAssembler, StubModels.provider(knnSearcher), new StageObserver(ObservationRegistry.NOOP),
+                new SimpleMeterRegistry());
+        StubModels.setField(chatService, "topK", 4);
+        StubModels.setField(chatService, "similarityThreshold", 0.0);
+        chatController = new ChatController(chatService);
+    }
+
+    @Benchmark
+    public ResponseEntity<ChatResponseDTO> chat() {
+        return chatController.chat("Which documents describe the onboarding process for new employees?");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        restClient.close();
+    }
+}
@@ -0,0 +1,216 @@
+package org.alfresco.ai_framework.embedding;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.alfresco.ai_framework.StubModels;
+import org.alfresco.ai_framework.embedding.dedup.ChunkDeduplicator;
+import org.alfresco.ai_framework.embedding.dedup.DeduplicatingEmbeddingModel;
+import org.alfresco.ai_framework.ingestion.TextChunker;
+import org.alfresco.ai_framework.ingestion.TextChunkerBenchmark;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures the embedding calls and index size saved by {@link ChunkDeduplicator} on a synthetic
+ * corpus shaped like an enterprise repository.
+ *
+ * Every document starts with the same boilerplate (disclaimer, template header); a share of the
+ * documents are exact copies of an earlier document (the same file in several folders) and another
+ * share are edited versions of one, with a fraction of their words replaced. Documents are chunked
+ * with {@link TextChunker} as in the ingestion and embedded through a {@link DeduplicatingEmbeddingModel}
+ * wrapping a stub model that counts the texts it embeds. The corpus is run without deduplication,
+ * with exact duplicates only (distance 0) and with near duplicates. The index bytes saved are those
+ * of the vectors that would be stored as references to an existing chunk. Results are printed as a
+ * table and written to {@code target/dedup-eval.json}.
+ *
+ * Options (system properties): {@code eval.documents} (1000), {@code eval.size-kb} (16),
+ * {@code eval.copies} (0.2), {@code eval.edits} (0.3), {@code eval.edit-rate} (0.005),
+ * {@code eval.dims} (768), {@code eval.max-distance} (3), {@code eval.min-tokens} (32),
+ * {@code eval.max-entries} (10000).
+ */
+public class DedupEvaluation {
+
+    private static final String BOILERPLATE_SEED = "boilerplate";
+    private static final int BOILERPLATE_SIZE = 4 * 1024;
+
+    private final List<String> corpus;
+    private final int dimensions;
+    private final int minTokens;
+    private final int maxEntries;
+    private final TextChunker textChunker = new TextChunker(800, 0);
+
+    DedupEvaluation(List<String> corpus, int dimensions, int minTokens, int maxEntries) {
+        this.corpus = corpus;
+        this.dimensions = dimensions;
+        this.minTokens = minTokens;
+        this.maxEntries = maxEntries;
+    }
+
+    public static void main(String[] args) throws IOException {
+        List<String> corpus = corpus(
+                Integer.getInteger("eval.documents", 1000),
+                Integer.getInteger("eval.size-kb", 16) * 1024,
+                Double.parseDouble(System.getProperty("eval.copies", "0.2")),
+                Double.parseDouble(System.getProperty("eval.edits", "0.3")),
+                Double.parseDouble(System.getProperty("eval.edit-rate", "0.005")),
+                new Random(42));
+        DedupEvaluation evaluation = new DedupEvaluation(corpus,
+                Integer.getInteger("eval.dims", 768),
+                Integer.getInteger("eval.min-tokens", 32),
+                Integer.getInteger("eval.max-entries", 10000));
+
+        List<Map<String, Object>> results = new ArrayList<>();
+        results.add(evaluation.evaluate("disabled", false, 0));
+        results.add(evaluation.evaluate("exact", true, 0));
+        results.add(evaluation.evaluate("near", true, Integer.getInteger("eval.max-distance", 3)));
+
+        System.out.printf("%-10s %8s %8s %8s %8s %12s %12s%n",
+                "mode", "chunks", "exact", "embedded", "saved%", "indexBytes", "vectorBytes");
+        for (Map<String, Object> result : results) {
+            System.out.printf("%-10s %8d %8d %8d %8.1f %12d %12d%n",
+                    result.get("mode"), result.get("chunks"), result.get("exactDuplicates"),
+                    result.get("embedded"), result.get("savedPercent"),
+                    result.get("signatureIndexBytes"), result.get("vectorBytesSaved"));
+        }
+
+        Path output = Path.of("target", "dedup-eval.json");
+        Files.createDirectories(output.getParent());
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(output.toFile(), results);
+        System.out.println("Results written to " + output.toAbsolutePath());
+    }
+
+    /**
+     * Chunks and embeds the whole corpus with one deduplication setting.
+     */
+    Map<String, Object> evaluate(String mode, boolean enabled, int maxDistance) {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ChunkDeduplicator deduplicator = new ChunkDeduplicator(meterRegistry, enabled, maxDistance, minTokens, maxEntries);
+        CountingEmbeddingModel counting = new CountingEmbeddingModel(new StubModels.StubEmbeddingModel(dimensions));
+        EmbeddingModel model = new DeduplicatingEmbeddingModel(counting);
+
+        long chunks = 0;
+        long exactDuplicates = 0;
+        Set<String> seen = new HashSet<>();
+        long start = System.nanoTime();
+        for (String text : corpus) {
+            List<String> texts = textChunker.split(List.of(new Document(text))).stream()
+                    .map(Document::getText)
+                    .toList();
+            chunks += texts.size();
+            for (String chunk : texts) {
+                if (!seen.add(chunk)) {
+                    exactDuplicates++;
+                }
+            }
+            deduplicator.run(() -> model.embed(texts));
+        }
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        long embedded = counting.texts.get();
+        long saved = chunks - embedded;
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("mode", mode);
+        result.put("maxDistance", maxDistance);
+        result.put("documents", corpus.size());
+        result.put("chunks", chunks);
+        result.put("exactDuplicates", exactDuplicates);
+        result.put("embedded", embedded);
+        result.put("embeddingCallsSaved", saved);
+        result.put("savedPercent", chunks == 0 ? 0.0 : 100.0 * saved / chunks);
+        result.put("signatureIndexEntries", gauge(meterRegistry, "ai.ingestion.dedup.index.entries"));
+        result.put("signatureIndexBytes", gauge(meterRegistry, "ai.ingestion.dedup.index.bytes"));
+        result.put("vectorBytesSaved", saved * dimensions * Float.BYTES);
+        result.put("elapsedMs", elapsedMs);
+        return result;
+    }
+
+    private static long gauge(SimpleMeterRegistry meterRegistry, String name) {
+        Gauge gauge = meterRegistry.find(name).gauge();
+        return gauge == null ? 0 : (long) gauge.value();
+    }
+
+    /**
+     * Generates the corpus: unique documents, exact copies and edited versions of earlier documents,
+     * all starting with the same boilerplate.
+     */
+    static List<String> corpus(int documents, int size, double copies, double edits, double editRate, Random random) {
+        String boilerplate = TextChunkerBenchmark.SyntheticText.prose(BOILERPLATE_SIZE, new Random(BOILERPLATE_SEED.hashCode()));
+        List<String> bodies = new ArrayList<>();
+        List<String> corpus = new ArrayList<>();
+        for (int i = 0; i < documents; i++) {
+            double kind = random.nextDouble();
+            String body;
+            if (!bodies.isEmpty() && kind < copies) {
+                body = bodies.get(random.nextInt(bodies.size()));
+            } else if (!bodies.isEmpty() && kind < copies + edits) {
+                body = edit(bodies.get(random.nextInt(bodies.size())), editRate, random);
+            } else {
+                body = TextChunkerBenchmark.SyntheticText.prose(size, random);
+            }
+            bodies.add(body);
+            corpus.add(boilerplate + body);
+        }
+        return corpus;
+    }
+
+    /**
+     * Replaces a fraction of the words of a text with random words of the same length.
+     */
+    private static String edit(String text, double editRate, Random random) {
+        StringBuilder sb = new StringBuilder(text);
+        for (int i = 0; i < sb.length(); i++) {
+            if (Character.isLetter(sb.charAt(i)) && (i == 0 || !Character.isLetter(sb.charAt(i - 1)))
+                    && random.nextDouble() < editRate) {
+                for (int j = i; j < sb.length() && Character.isLetter(sb.charAt(j)); j++) {
+                    sb.setCharAt(j, (char) ('a' + random.nextInt(26)));
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Counts the texts actually sent to the embedding model.
+     */
+    private static final class CountingEmbeddingModel implements EmbeddingModel {
+
+        private final EmbeddingModel delegate;
+        private final AtomicLong texts = new AtomicLong();
+
+        CountingEmbeddingModel(EmbeddingModel delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            texts.addAndGet(request.getInstructions().size());
+            return delegate.call(request);
+        }
+
+        @Override
+        public float[] embed(Document document) {
+            texts.incrementAndGet();
+            return delegate.embed(document);
+        }
+
+        @Override
+        public int dimensions() {
+            return delegate.dimensions();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package org.alfresco.ai_framework.embedding;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.alfresco.ai_framework.ingestion.TextChunkerBenchmark.SyntheticText;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.ollama.OllamaEmbeddingModel;
+import org.springframework.ai.ollama.api.OllamaApi;
+import org.springframework.ai.ollama.api.OllamaOptions;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Embedding throughput in chunks per second of the in-process ONNX backend against Ollama on the
+ * same machine, for chunks of about 800 tokens sent in batches as IngestionService does.
+ *
+ * Needs a running Ollama with nomic-embed-text ({@code ollama.base-url}, http://localhost:11434)
+ * and the ONNX export of the same model ({@code onnx.model}, {@code onnx.tokenizer}). Run it alone
+ * with {@code mvn compile exec:exec -Djmh.args="EmbeddingModelBenchmark -jvmArgsAppend
+ * -Donnx.model=/models/model.onnx -jvmArgsAppend -Donnx.tokenizer=/models/tokenizer.json"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+@OperationsPerInvocation(EmbeddingModelBenchmark.BATCH_SIZE)
+public class EmbeddingModelBenchmark {
+
+    static final int BATCH_SIZE = 32;
+    private static final int CHUNK_SIZE = 3000;
+
+    @Param({"onnx", "ollama"})
+    private String backend;
+
+    private EmbeddingModel embeddingModel;
+    private List<String> chunks;
+
+    @Setup
+    public void setUp() throws Exception {
+        if ("onnx".equals(backend)) {
+            embeddingModel = new OnnxEmbeddingModel(
+                    Path.of(System.getProperty("onnx.model", "models/nomic-embed-text/model.onnx")),
+                    Path.of(System.getProperty("onnx.tokenizer", "models/nomic-embed-text/tokenizer.json")),
+                    1024, 16, Runtime.getRuntime().availableProcessors(), 1, new SimpleMeterRegistry());
+        } else {
+            embeddingModel = OllamaEmbeddingModel.builder()
+                    .ollamaApi(new OllamaApi(System.getProperty("ollama.base-url", "http://localhost:11434")))
+                    .defaultOptions(OllamaOptions.builder().model("nomic-embed-text").build())
+                    .build();
+        }
+
+        Random random = new Random(42);
+        chunks = new ArrayList<>();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            chunks.add(SyntheticText.prose(CHUNK_SIZE, random));
+        }
+    }
+
+    @Benchmark
+    public List<float[]> embedChunks() {
+        return embeddingModel.embed(chunks);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        if (embeddingModel instanceof OnnxEmbeddingModel onnxEmbeddingModel) {
+            onnxEmbeddingModel.close();
+        }
+    }
+}
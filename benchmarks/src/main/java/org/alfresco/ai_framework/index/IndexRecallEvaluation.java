@@ -0,0 +1,354 @@
+package org.alfresco.ai_framework.index;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.alfresco.ai_framework.embedding.EmbeddingModelOverride;
+import org.alfresco.ai_framework.index.embedded.EmbeddedVectorStore;
+import org.apache.http.HttpHost;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.client.RestClient;
+import org.springframework.ai.document.Document;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Compares recall and latency of vector index configurations against exact kNN.
+ *
+ * A deterministic corpus of clustered unit vectors is loaded into one index per configuration,
+ * created through {@link DocumentIndexManager} so the mapping is the one used in production.
+ * Every query is then run with several {@code num_candidates} values and its hits are compared with
+ * the exact top-k computed by brute force. The {@code embedded} type loads the corpus into the
+ * in-process {@link EmbeddedVectorStore} instead, with {@code num_candidates} used as its
+ * {@code ef-search}, so that it can be compared with Elasticsearch on the same queries. Results are
+ * printed as a table and written to {@code target/recall-eval.json}.
+ *
+ * Options (system properties): {@code es.uris} (http://localhost:9200), {@code eval.docs} (20000),
+ * {@code eval.dims} (768), {@code eval.queries} (200), {@code eval.k} (10),
+ * {@code eval.types} (hnsw,int8_hnsw,int4_hnsw,bbq_hnsw,embedded), {@code eval.m} (16),
+ * {@code eval.ef-construction} (100), {@code eval.num-candidates} (10,50,100,200).
+ */
+public class IndexRecallEvaluation {
+
+    private static final String INDEX_PREFIX = "recall-eval-";
+    private static final int CLUSTERS = 64;
+    private static final int BULK_SIZE = 500;
+    private static final String EMBEDDED = "embedded";
+
+    /**
+     * Runs one kNN query against the configuration being evaluated.
+     */
+    private interface Searcher {
+
+        Set<Integer> search(float[] vector, int candidates) throws IOException;
+    }
+
+    private final RestClient restClient;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final int k;
+    private final int m;
+    private final int efConstruction;
+    private final int[] numCandidates;
+    private final float[][] corpus;
+    private final float[][] queries;
+    private final int[][] exact;
+
+    IndexRecallEvaluation(RestClient restClient, int docs, int dims, int queryCount, int k,
+                          int m, int efConstruction, int[] numCandidates) {
+        this.restClient = restClient;
+        this.k = k;
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.numCandidates = numCandidates;
+
+        Random random = new Random(42);
+        float[][] centroids = new float[CLUSTERS][];
+        for (int c = 0; c < CLUSTERS; c++) {
+            centroids[c] = gaussian(random, dims, 1.0f, null);
+        }
+        this.corpus = new float[docs][];
+        for (int i = 0; i < docs; i++) {
+            corpus[i] = normalize(gaussian(random, dims, 0.35f, centroids[random.nextInt(CLUSTERS)]));
+        }
+        this.queries = new float[queryCount][];
+        for (int q = 0; q < queryCount; q++) {
+            queries[q] = normalize(gaussian(random, dims, 0.35f, centroids[random.nextInt(CLUSTERS)]));
+        }
+        this.exact = new int[queryCount][];
+        for (int q = 0; q < queryCount; q++) {
+            exact[q] = exactTopK(queries[q]);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        String uri = System.getProperty("es.uris", "http://localhost:9200");
+        List<String> types = List.of(System.getProperty("eval.types", "hnsw,int8_hnsw,int4_hnsw,bbq_hnsw,embedded").split(","));
+        int[] numCandidates = Arrays.stream(System.getProperty("eval.num-candidates", "10,50,100,200").split(","))
+                .mapToInt(Integer::parseInt)
+                .toArray();
+
+        try (RestClient restClient = RestClient.builder(HttpHost.create(uri)).build()) {
+            IndexRecallEvaluation evaluation = new IndexRecallEvaluation(restClient,
+                    Integer.getInteger("eval.docs", 20000),
+                    Integer.getInteger("eval.dims", 768),
+                    Integer.getInteger("eval.queries", 200),
+                    Integer.getInteger("eval.k", 10),
+                    Integer.getInteger("eval.m", 16),
+                    Integer.getInteger("eval.ef-construction", 100),
+                    numCandidates);
+
+            List<Map<String, Object>> results = new ArrayList<>();
+            for (String type : types) {
+                results.addAll(evaluation.evaluate(type.trim()));
+            }
+
+            Path output = Path.of("target", "recall-eval.json");
+            Files.createDirectories(output.getParent());
+            evaluation.objectMapper.writerWithDefaultPrettyPrinter().writeValue(output.toFile(), results);
+            System.out.println("Results written to " + output.toAbsolutePath());
+        }
+    }
+
+    /**
+     * Loads the corpus into an index with the given vector type and measures every num_candidates value.
+     */
+    List<Map<String, Object>> evaluate(String vectorType) throws IOException {
+        if (EMBEDDED.equals(vectorType)) {
+            return evaluateEmbedded();
+        }
+        int dims = corpus[0].length;
+        String index = INDEX_PREFIX + vectorType.replace('_', '-');
+        DocumentIndexManager indexManager = new DocumentIndexManager(
+                restClient, objectMapper, new EmbeddingModelOverride(), index, dims, "cosine", vectorType, m, efConstruction,
+                "blocking", "ollama");
+
+        List<Map<String, Object>> results = new ArrayList<>();
+        try {
+            deleteIndex(index);
+            indexManager.createIndex(index, dims);
+        } catch (ResponseException e) {
+            // e.g. bbq_hnsw on Elasticsearch versions older than 8.16
+            System.out.printf("%-10s skipped: %s%n", vectorType, e.getResponse().getStatusLine());
+            return results;
+        }
+
+        try {
+            long loadStart = System.nanoTime();
+            load(index);
+            long loadMillis = (System.nanoTime() - loadStart) / 1_000_000;
+            long sizeBytes = storeSize(index);
+            results.addAll(measure(vectorType, loadMillis, sizeBytes, (vector, candidates) -> search(index, vector, candidates)));
+        } finally {
+            deleteIndex(index);
+        }
+        return results;
+    }
+
+    /**
+     * Loads the corpus into a single segment of the embedded vector store and measures every
+     * num_candidates value as ef-search.
+     */
+    List<Map<String, Object>> evaluateEmbedded() throws IOException {
+        Path directory = Files.createTempDirectory(INDEX_PREFIX);
+        List<Document> documents = new ArrayList<>(corpus.length);
+        for (int i = 0; i < corpus.length; i++) {
+            documents.add(Document.builder().id(String.valueOf(i)).text("fixture " + i).build());
+        }
+        EmbeddedVectorStore store = new EmbeddedVectorStore(null, objectMapper, new SimpleMeterRegistry(),
+                directory, corpus[0].length, m, efConstruction, k, corpus.length, Integer.MAX_VALUE,
+                corpus.length, Duration.ofHours(1));
+        try {
+            long loadStart = System.nanoTime();
+            store.add(documents, Arrays.asList(corpus));
+            store.commit();
+            long loadMillis = (System.nanoTime() - loadStart) / 1_000_000;
+            long sizeBytes;
+            try (Stream<Path> files = Files.list(directory)) {
+                sizeBytes = files.mapToLong(file -> file.toFile().length()).sum();
+            }
+            return measure(EMBEDDED, loadMillis, sizeBytes, (vector, candidates) -> {
+                Set<Integer> hits = new HashSet<>();
+                for (Document document : store.search(vector, k, candidates, 0, null)) {
+                    hits.add(Integer.parseInt(document.getId()));
+                }
+                return hits;
+            });
+        } finally {
+            try {
+                store.close();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            FileSystemUtils.deleteRecursively(directory);
+        }
+    }
+
+    private List<Map<String, Object>> measure(String vectorType, long loadMillis, long sizeBytes,
+                                              Searcher searcher) throws IOException {
+        System.out.printf("%-10s loaded %d vectors in %d ms, store size %d KB%n",
+                vectorType, corpus.length, loadMillis, sizeBytes / 1024);
+        System.out.printf("%-10s %8s %8s %10s %10s%n", "type", "n_cand", "recall", "p50 (ms)", "p95 (ms)");
+
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (int candidates : numCandidates) {
+            double recall = 0;
+            long[] latencies = new long[queries.length];
+            for (int q = 0; q < queries.length; q++) {
+                long start = System.nanoTime();
+                Set<Integer> hits = searcher.search(queries[q], Math.max(k, candidates));
+                latencies[q] = System.nanoTime() - start;
+                recall += recall(hits, exact[q]);
+            }
+            recall /= queries.length;
+            Arrays.sort(latencies);
+            double p50 = percentile(latencies, 0.50);
+            double p95 = percentile(latencies, 0.95);
+            System.out.printf("%-10s %8d %8.4f %10.2f %10.2f%n", vectorType, candidates, recall, p50, p95);
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("vectorType", vectorType);
+            result.put("m", m);
+            result.put("efConstruction", efConstruction);
+            result.put("numCandidates", candidates);
+            result.put("k", k);
+            result.put("recall", recall);
+            result.put("p50Millis", p50);
+            result.put("p95Millis", p95);
+            result.put("loadMillis", loadMillis);
+            result.put("storeSizeBytes", sizeBytes);
+            results.add(result);
+        }
+        return results;
+    }
+
+    private void load(String index) throws IOException {
+        StringBuilder bulk = new StringBuilder();
+        for (int i = 0; i < corpus.length; i++) {
+            bulk.append("{\"index\":{\"_index\":\"").append(index).append("\",\"_id\":\"").append(i).append("\"}}\n");
+            bulk.append(objectMapper.writeValueAsString(Map.of(
+                    "id", String.valueOf(i),
+                    "content", "fixture " + i,
+                    "embedding", corpus[i]))).append('\n');
+            if ((i + 1) % BULK_SIZE == 0 || i == corpus.length - 1) {
+                Request request = new Request("POST", "/_bulk");
+                request.setJsonEntity(bulk.toString());
+                JsonNode response = objectMapper.readTree(restClient.performRequest(request).getEntity().getContent());
+                if (response.path("errors").asBoolean()) {
+                    throw new IllegalStateException("Bulk load failed: " + response.path("items").get(0));
+                }
+                bulk.setLength(0);
+            }
+        }
+        restClient.performRequest(new Request("POST", "/" + index + "/_refresh"));
+        // A single segment per shard keeps the measurement independent of the merge state
+        Request forceMerge = new Request("POST", "/" + index + "/_forcemerge");
+        forceMerge.addParameter("max_num_segments", "1");
+        restClient.performRequest(forceMerge);
+    }
+
+    private Set<Integer> search(String index, float[] vector, int candidates) throws IOException {
+        Map<String, Object> knn = new LinkedHashMap<>();
+        knn.put("field", "embedding");
+        knn.put("query_vector", vector);
+        knn.put("k", k);
+        knn.put("num_candidates", candidates);
+
+        Request request = new Request("POST", "/" + index + "/_search");
+        request.setJsonEntity(objectMapper.writeValueAsString(Map.of("knn", knn, "size", k, "_source", false)));
+        JsonNode response = objectMapper.readTree(restClient.performRequest(request).getEntity().getContent());
+
+        Set<Integer> hits = new HashSet<>();
+        for (JsonNode hit : response.path("hits").path("hits")) {
+            hits.add(hit.path("_id").asInt());
+        }
+        return hits;
+    }
+
+    private long storeSize(String index) throws IOException {
+        Request request = new Request("GET", "/" + index + "/_stats/store");
+        JsonNode response = objectMapper.readTree(restClient.performRequest(request).getEntity().getContent());
+        return response.path("_all").path("primaries").path("store").path("size_in_bytes").asLong();
+    }
+
+    private void deleteIndex(String index) throws IOException {
+        Request request = new Request("DELETE", "/" + index);
+        request.addParameter("ignore_unavailable", "true");
+        restClient.performRequest(request);
+    }
+
+    /**
+     * Exact top-k by cosine similarity; vectors are normalized, so the dot product is enough.
+     */
+    private int[] exactTopK(float[] query) {
+        int[] top = new int[k];
+        float[] scores = new float[k];
+        Arrays.fill(scores, Float.NEGATIVE_INFINITY);
+        for (int i = 0; i < corpus.length; i++) {
+            float score = dot(query, corpus[i]);
+            if (score > scores[k - 1]) {
+                int pos = k - 1;
+                while (pos > 0 && scores[pos - 1] < score) {
+                    scores[pos] = scores[pos - 1];
+                    top[pos] = top[pos - 1];
+                    pos--;
+                }
+                scores[pos] = score;
+                top[pos] = i;
+            }
+        }
+        return top;
+    }
+
+    private double recall(Set<Integer> hits, int[] expected) {
+        int found = 0;
+        for (int id : expected) {
+            if (hits.contains(id)) {
+                found++;
+            }
+        }
+        return (double) found / expected.length;
+    }
+
+    private static double percentile(long[] sortedNanos, double percentile) {
+        int index = (int) Math.ceil(percentile * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(0, index)] / 1_000_000.0;
+    }
+
+    private static float[] gaussian(Random random, int dims, float sigma, float[] mean) {
+        float[] vector = new float[dims];
+        for (int i = 0; i < dims; i++) {
+            vector[i] = (float) random.nextGaussian() * sigma + (mean == null ? 0 : mean[i]);
+        }
+        return vector;
+    }
+
+    private static float[] normalize(float[] vector) {
+        float norm = (float) Math.sqrt(dot(vector, vector));
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] /= norm;
+        }
+        return vector;
+    }
+
+    private static float dot(float[] a, float[] b) {
+        float sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+}
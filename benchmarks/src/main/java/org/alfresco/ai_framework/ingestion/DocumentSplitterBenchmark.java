@@ -0,0 +1,66 @@
+package org.alfresco.ai_framework.ingestion;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.document.Document;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DocumentSplitter.splitLargeDocuments on 100 KB to 10 MB of text shaped as prose (paragraph breaks
+ * within reach), a single line of sentences (sentence breaks only) and unbroken text (no break at all,
+ * the worst case for the backwards scan).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DocumentSplitterBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    private int sizeKb;
+
+    @Param({"prose", "single-line", "unbroken"})
+    private String shape;
+
+    private List<Document> documents;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        int size = sizeKb * 1024;
+        String text = switch (shape) {
+            case "prose" -> TextChunkerBenchmark.SyntheticText.prose(size, random);
+            case "single-line" -> TextChunkerBenchmark.SyntheticText.prose(size, random).replace('\n', ' ');
+            case "unbroken" -> unbroken(size, random);
+            default -> throw new IllegalArgumentException("Unknown shape: " + shape);
+        };
+        documents = List.of(new Document(text));
+    }
+
+    @Benchmark
+    public List<Document> splitLargeDocuments() {
+        return DocumentSplitter.splitLargeDocuments(documents);
+    }
+
+    private static String unbroken(int size, Random random) {
+        StringBuilder sb = new StringBuilder(size);
+        while (sb.length() < size) {
+            sb.append((char) ('a' + random.nextInt(26)));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,145 @@
+package org.alfresco.ai_framework.ingestion;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.alfresco.ai_framework.StubModels;
+import org.alfresco.ai_framework.embedding.dedup.ChunkDeduplicator;
+import org.alfresco.ai_framework.index.BulkIndexer;
+import org.alfresco.ai_framework.index.ChunkStore;
+import org.alfresco.ai_framework.index.ReindexJob;
+import org.alfresco.ai_framework.observation.StageObserver;
+import org.apache.http.HttpHost;
+import org.elasticsearch.client.RestClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.SimpleVectorStore;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * IngestionService.ingest of a plain text file end to end (Tika parse, chunking, delete of the
+ * previous version, bulk add) with a stub embedding model and the in-memory SimpleVectorStore.
+ * Re-ingesting the same document keeps the store at a steady size between invocations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IngestionServiceBenchmark {
+
+    private static final int DIMENSIONS = 768;
+
+    @Param({"100", "1000"})
+    private int sizeKb;
+
+    @Param({"single-pass", "legacy"})
+    private String chunkingStrategy;
+
+    private byte[] content;
+    private RestClient restClient;
+    private BulkIndexer bulkIndexer;
+    private ContentExtractor contentExtractor;
+    private IngestionService ingestionService;
+
+    @Setup
+    public void setUp() {
+        content = TextChunkerBenchmark.SyntheticText.prose(sizeKb * 1024, new Random(42)).getBytes(StandardCharsets.UTF_8);
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        SimpleVectorStore vectorStore = SimpleVectorStore.builder(new StubModels.StubEmbeddingModel(DIMENSIONS)).build();
+        // Only used to switch bulk-load mode, which the benchmark does not do
+        restClient = RestClient.builder(HttpHost.create("http://localhost:9200")).build();
+        bulkIndexer = new BulkIndexer(vectorStore, StubModels.provider(restClient), new ObjectMapper(), meterRegistry,
+                "benchmark", DIMENSIONS, DataSize.ofMegabytes(5), DataSize.ofMegabytes(20));
+        contentExtractor = new ContentExtractor(meterRegistry, 0, DataSize.ofMegabytes(100), DataSize.ofMegabytes(1000),
+                1000, 5, 50_000_000);
+        ingestionService = new IngestionService(new SimpleChunkStore(vectorStore), bulkIndexer, contentExtractor,
+                new StageObserver(ObservationRegistry.NOOP), new ChunkDeduplicator(meterRegistry, false, 3, 32, 1),
+                new StaticListableBeanFactory().getBeanProvider(ReindexJob.class), meterRegistry, chunkingStrategy, 800, 0);
+    }
+
+    @Benchmark
+    public void ingest() throws IOException {
+        ingestionService.ingest("document-1", "folder-1", "benchmark.txt", new ByteArrayResource(content) {
+            @Override
+            public String getFilename() {
+                return "benchmark.txt";
+            }
+        });
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        contentExtractor.destroy();
+        bulkIndexer.destroy();
+        restClient.close();
+    }
+
+    /**
+     * Deletes from the in-memory store like the chunk stores do, by filter whatever the number of matches.
+     * Only deletion is used by IngestionService.
+     */
+    private static final class SimpleChunkStore implements ChunkStore {
+
+        private final SimpleVectorStore vectorStore;
+
+        SimpleChunkStore(SimpleVectorStore vectorStore) {
+            this.vectorStore = vectorStore;
+        }
+
+        @Override
+        public void delete(String key, String value) {
+            List<Document> documents = vectorStore.similaritySearch(SearchRequest.builder()
+                    .topK(Integer.MAX_VALUE)
+                    .filterExpression("'" + key + "' == '" + value + "'")
+                    .build());
+            vectorStore.delete(documents.stream().map(Document::getId).toList());
+        }
+
+        @Override
+        public int dimensions() {
+            return DIMENSIONS;
+        }
+
+        @Override
+        public long count() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void read(int pageSize, PageConsumer consumer) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void write(List<StoredChunk> chunks) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void commit() {
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package org.alfresco.ai_framework.ingestion;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.transformer.splitter.TokenTextSplitter;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the single-pass TextChunker with the legacy TokenTextSplitter + DocumentSplitter path
+ * on synthetic prose of 1, 10 and 100 MB.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx8g"})
+public class TextChunkerBenchmark {
+
+    @Param({"1", "10", "100"})
+    private int sizeMb;
+
+    private String text;
+
+    private final TextChunker textChunker = new TextChunker(800, 0);
+
+    @Setup
+    public void setUp() {
+        text = SyntheticText.prose(sizeMb * 1024 * 1024, new Random(42));
+    }
+
+    @Benchmark
+    public List<Document> singlePass() {
+        return textChunker.split(List.of(new Document(text)));
+    }
+
+    @Benchmark
+    public List<Document> twoStage() {
+        List<Document> tokenChunks = TokenTextSplitter.builder().build().apply(List.of(new Document(text)));
+        return DocumentSplitter.splitLargeDocuments(tokenChunks);
+    }
+
+    /**
+     * Generates deterministic text made of sentences and paragraphs of pseudo-words.
+     */
+    public static final class SyntheticText {
+
+        private static final String LETTERS = "etaoinshrdlucmfwypvbgkjqxz";
+
+        private SyntheticText() {
+        }
+
+        public static String prose(int size, Random random) {
+            StringBuilder sb = new StringBuilder(size + 256);
+            while (sb.length() < size) {
+                int sentences = 2 + random.nextInt(8);
+                for (int s = 0; s < sentences; s++) {
+                    int words = 4 + random.nextInt(24);
+                    for (int w = 0; w < words; w++) {
+                        int length = 1 + random.nextInt(10);
+                        for (int c = 0; c < length; c++) {
+                            sb.append(LETTERS.charAt(random.nextInt(LETTERS.length())));
+                        }
+                        sb.append(w == words - 1 ? ". " : " ");
+                    }
+                }
+                sb.append("\n\n");
+            }
+            return sb.toString();
+        }
+    }
+}
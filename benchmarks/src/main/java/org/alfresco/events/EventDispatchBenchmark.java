@@ -0,0 +1,153 @@
+package org.alfresco.events;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.jms.Connection;
+import jakarta.jms.DeliveryMode;
+import jakarta.jms.JMSException;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+import jakarta.jms.TextMessage;
+import jakarta.jms.Topic;
+import org.alfresco.repo.event.v1.model.DataAttributes;
+import org.alfresco.repo.event.v1.model.EventData;
+import org.alfresco.repo.event.v1.model.NodeResource;
+import org.alfresco.repo.event.v1.model.RepoEvent;
+import org.alfresco.repo.event.v1.model.Resource;
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.apache.activemq.broker.BrokerService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.ZonedDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Throughput of the live event path with an embedded ActiveMQ broker: events are published to a topic,
+ * read by a single subscriber and handled by the OrderedEventDispatcher with 1 to 8 consumers.
+ * The handler sleeps to simulate the calls to Alfresco and the AI service, and checks that events of
+ * the same node are handled in publishing order.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class EventDispatchBenchmark {
+
+    private static final int EVENTS = 2000;
+    private static final int NODES = 200;
+    private static final String TOPIC = "alfresco.repo.event2";
+
+    @Param({"1", "2", "4", "8"})
+    private int consumers;
+
+    // Simulated handling latency per event
+    @Param({"2"})
+    private long handlerMillis;
+
+    private final Map<String, Integer> lastSequence = new ConcurrentHashMap<>();
+    private final AtomicInteger orderViolations = new AtomicInteger();
+    private final Semaphore handled = new Semaphore(0);
+
+    private BrokerService broker;
+    private Connection connection;
+    private Session producerSession;
+    private MessageProducer producer;
+    private OrderedEventDispatcher dispatcher;
+    private int sequence;
+
+    @Setup
+    public void setUp() throws Exception {
+        broker = new BrokerService();
+        broker.setBrokerName("benchmark");
+        broker.setPersistent(false);
+        broker.setUseJmx(false);
+        broker.start();
+
+        ActiveMQConnectionFactory connectionFactory = new ActiveMQConnectionFactory("vm://benchmark?create=false");
+        connectionFactory.getPrefetchPolicy().setTopicPrefetch(1000);
+        connection = connectionFactory.createConnection();
+
+        dispatcher = new OrderedEventDispatcher(this::handle, consumers, 1000, new SimpleMeterRegistry());
+
+        Session consumerSession = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Topic topic = consumerSession.createTopic(TOPIC);
+        consumerSession.createConsumer(topic).setMessageListener(message -> {
+            try {
+                dispatcher.executeEventHandlers(toEvent(((TextMessage) message).getText()));
+            } catch (JMSException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        producerSession = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        producer = producerSession.createProducer(producerSession.createTopic(TOPIC));
+        producer.setDeliveryMode(DeliveryMode.NON_PERSISTENT);
+        connection.start();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public void publishAndHandle() throws Exception {
+        for (int i = 0; i < EVENTS; i++) {
+            int seq = sequence++;
+            producer.send(producerSession.createTextMessage("node-" + (seq % NODES) + ":" + seq));
+        }
+        handled.acquire(EVENTS);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        dispatcher.shutdown();
+        connection.close();
+        broker.stop();
+        if (orderViolations.get() > 0) {
+            throw new IllegalStateException(orderViolations.get() + " events handled out of order");
+        }
+    }
+
+    private void handle(RepoEvent<DataAttributes<Resource>> event) {
+        NodeResource node = (NodeResource) event.getData().getResource();
+        int seq = Integer.parseInt(node.getName());
+        Integer previous = lastSequence.put(node.getId(), seq);
+        if (previous != null && previous > seq) {
+            orderViolations.incrementAndGet();
+        }
+        try {
+            Thread.sleep(handlerMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        handled.release();
+    }
+
+    private static RepoEvent<DataAttributes<Resource>> toEvent(String text) {
+        int separator = text.indexOf(':');
+        NodeResource node = NodeResource.builder()
+                .setId(text.substring(0, separator))
+                .setName(text.substring(separator + 1))
+                .build();
+        return RepoEvent.<DataAttributes<Resource>>builder()
+                .setId(text)
+                .setType("org.alfresco.event.node.Updated")
+                .setTime(ZonedDateTime.now())
+                .setData(EventData.builder().setResource(node).build())
+                .build();
+    }
+}
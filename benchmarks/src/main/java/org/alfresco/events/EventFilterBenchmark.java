@@ -0,0 +1,100 @@
+package org.alfresco.events;
+
+import org.alfresco.events.filter.ParentFolderFilter;
+import org.alfresco.events.handler.ContentHandler;
+import org.alfresco.repo.event.v1.model.DataAttributes;
+import org.alfresco.repo.event.v1.model.EventData;
+import org.alfresco.repo.event.v1.model.NodeResource;
+import org.alfresco.repo.event.v1.model.RepoEvent;
+import org.alfresco.repo.event.v1.model.Resource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-event folder matching of alfresco-ai-sync: ParentFolderFilter.test and
+ * ContentHandler.getSyncFolderId for hierarchies of 5 to 50 levels against 10 to 10,000 sync folders.
+ * The matching sync folder is the root-most ancestor, or absent, which are the slowest cases.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventFilterBenchmark {
+
+    @Param({"5", "20", "50"})
+    private int depth;
+
+    @Param({"10", "1000", "10000"})
+    private int folders;
+
+    @Param({"true", "false"})
+    private boolean match;
+
+    private ParentFolderFilter filter;
+    private ContentHandler contentHandler;
+    private RepoEvent<DataAttributes<Resource>> event;
+    private NodeResource node;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        List<String> syncFolders = new ArrayList<>();
+        for (int i = 0; i < folders; i++) {
+            syncFolders.add(UUID.randomUUID().toString());
+        }
+
+        // Primary hierarchy is ordered from the parent to the root
+        List<String> hierarchy = new ArrayList<>();
+        for (int i = 0; i < depth; i++) {
+            hierarchy.add(UUID.randomUUID().toString());
+        }
+        if (match) {
+            hierarchy.set(depth - 1, syncFolders.get(folders - 1));
+        }
+
+        node = NodeResource.builder()
+                .setId(UUID.randomUUID().toString())
+                .setName("document.pdf")
+                .setPrimaryHierarchy(hierarchy)
+                .build();
+        event = RepoEvent.<DataAttributes<Resource>>builder()
+                .setId(UUID.randomUUID().toString())
+                .setType("org.alfresco.event.node.Updated")
+                .setData(EventData.builder().setResource(node).build())
+                .build();
+
+        filter = ParentFolderFilter.of(syncFolders);
+
+        // The folder list is loaded from Alfresco when the handler is initialized by Spring
+        contentHandler = new ContentHandler();
+        Field folderIdsList = ContentHandler.class.getDeclaredField("folderIdsList");
+        folderIdsList.setAccessible(true);
+        folderIdsList.set(contentHandler, syncFolders);
+    }
+
+    @Benchmark
+    public boolean parentFolderFilter() {
+        return filter.test(event);
+    }
+
+    @Benchmark
+    public String getSyncFolderId() {
+        return contentHandler.getSyncFolderId(node);
+    }
+}
@@ -0,0 +1,385 @@
+package org.alfresco.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import jakarta.jms.Connection;
+import jakarta.jms.JMSException;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+import org.apache.activemq.ActiveMQConnectionFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Stand-in for the Alfresco REST and search APIs used by alfresco-ai-sync, plus a publisher of repository
+ * events to ActiveMQ. The repository holds synthetic plain-text documents spread over sync folders.
+ * <p>
+ * Only the AFTS queries sent by AlfrescoClient are understood: sync folders by aspect, folder documents by
+ * ANCESTOR with an optional cm:modified lower bound and ID, and the facet queries of folder detection.
+ * Results are always sorted by cm:modified ascending, as requested by the sync.
+ */
+class FakeAlfresco extends StandInServer {
+
+    static final String SYNC_ASPECT = "cm:syndication";
+    private static final String EVENT_TOPIC = "alfresco.repo.event2";
+    private static final String STORE_PREFIX = "workspace://SpacesStore/";
+    private static final DateTimeFormatter DATE_TIME_FORMATTER =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSX").withZone(ZoneOffset.UTC);
+    private static final Instant NEVER_SYNCHRONIZED = Instant.parse("2000-01-01T00:00:00Z");
+
+    private static final Pattern ANCESTOR = Pattern.compile("ANCESTOR:\"" + STORE_PREFIX + "([^\"]+)\"");
+    private static final Pattern MODIFIED = Pattern.compile("cm:modified:([\\[<])(\\S+) TO \\*]");
+    private static final Pattern ID = Pattern.compile("\\bID:\"" + STORE_PREFIX + "([^\"]+)\"");
+    private static final Pattern NODE_PATH = Pattern.compile(".*/nodes/([^/]+)(/content)?$");
+
+    private static final String[] WORDS = {"alfresco", "content", "repository", "document", "folder",
+            "metadata", "workflow", "retention", "policy", "contract", "invoice", "employee", "onboarding",
+            "project", "report", "quarterly", "review", "approval", "archive", "records", "the", "of", "and",
+            "to", "in", "for", "with", "is", "on", "by"};
+
+    private record Doc(String id, String name, String folderId, Instant modified) {
+    }
+
+    private static final class Folder {
+        private final String id;
+        private final NavigableSet<Doc> docs = new ConcurrentSkipListSet<>(
+                Comparator.comparing(Doc::modified).thenComparing(Doc::id));
+        private volatile Instant updated = NEVER_SYNCHRONIZED;
+        private volatile Instant published = NEVER_SYNCHRONIZED;
+
+        private Folder(String id) {
+            this.id = id;
+        }
+    }
+
+    private final Map<String, Folder> folders = new ConcurrentHashMap<>();
+    private final List<String> folderIds = new ArrayList<>();
+    private final Map<String, Doc> docs = new ConcurrentHashMap<>();
+    private final List<String> docIds = new ArrayList<>();
+    private final Map<String, Long> servedAt = new ConcurrentHashMap<>();
+    private final Map<String, Long> publishedAt = new ConcurrentHashMap<>();
+    private final int documentSize;
+
+    private Connection connection;
+    private Session session;
+    private MessageProducer producer;
+
+    /**
+     * @param folderCount   Number of sync folders
+     * @param documentCount Number of documents, spread evenly over the folders
+     * @param documentSize  Size of every document in bytes
+     */
+    FakeAlfresco(int folderCount, int documentCount, int documentSize) throws IOException {
+        super(64);
+        this.documentSize = documentSize;
+        for (int i = 0; i < folderCount; i++) {
+            String id = uuid("folder-" + i);
+            folders.put(id, new Folder(id));
+            folderIds.add(id);
+        }
+        // Documents were modified one millisecond apart over the last days
+        Instant modified = Instant.now().minus(1, ChronoUnit.DAYS).minusMillis(documentCount);
+        for (int i = 0; i < documentCount; i++) {
+            Doc doc = new Doc(uuid("document-" + i), "document-" + i + ".txt", folderIds.get(i % folderCount),
+                    modified.plusMillis(i));
+            docs.put(doc.id(), doc);
+            docIds.add(doc.id());
+            folders.get(doc.folderId()).docs.add(doc);
+        }
+    }
+
+    /**
+     * Connects the event publisher to the broker the sync service listens to.
+     */
+    void connect(String brokerUrl) throws JMSException {
+        connection = new ActiveMQConnectionFactory(brokerUrl).createConnection();
+        connection.start();
+        session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        producer = session.createProducer(session.createTopic(EVENT_TOPIC));
+    }
+
+    List<String> documentIds() {
+        return docIds;
+    }
+
+    /**
+     * Nanosecond timestamp of the last content download of a document, or null if it was never downloaded.
+     */
+    Long servedAt(String documentId) {
+        return servedAt.get(documentId);
+    }
+
+    /**
+     * Nanosecond timestamp of the last update event published for a document, or null if there was none.
+     */
+    Long publishedAt(String documentId) {
+        return publishedAt.get(documentId);
+    }
+
+    /**
+     * Modifies the content of a document and publishes the corresponding node updated event.
+     */
+    void publishUpdate(String documentId) throws JMSException, IOException {
+        Instant now = Instant.now();
+        Doc before = docs.get(documentId);
+        Doc after = new Doc(before.id(), before.name(), before.folderId(), now);
+        Folder folder = folders.get(before.folderId());
+        folder.docs.remove(before);
+        folder.docs.add(after);
+        docs.put(documentId, after);
+
+        ObjectNode event = MAPPER.createObjectNode();
+        event.put("specversion", "1.0");
+        event.put("type", "org.alfresco.event.node.Updated");
+        event.put("id", UUID.randomUUID().toString());
+        event.put("source", "/" + UUID.nameUUIDFromBytes("load-test".getBytes(StandardCharsets.UTF_8)));
+        event.put("time", DATE_TIME_FORMATTER.format(now));
+        event.put("dataschema", "https://api.alfresco.com/schema/event/repo/v1/nodeUpdated");
+        event.put("datacontenttype", "application/json");
+        ObjectNode data = event.putObject("data");
+        data.put("eventGroupId", UUID.randomUUID().toString());
+        ObjectNode resource = data.putObject("resource");
+        resource.put("@type", "NodeResource");
+        resource.put("id", after.id());
+        resource.put("name", after.name());
+        resource.put("nodeType", "cm:content");
+        resource.put("isFile", true);
+        resource.put("isFolder", false);
+        resource.put("createdAt", DATE_TIME_FORMATTER.format(NEVER_SYNCHRONIZED));
+        resource.put("modifiedAt", DATE_TIME_FORMATTER.format(now));
+        resource.putArray("primaryHierarchy").add(after.folderId()).add(uuid("company-home")).add(uuid("root"));
+        resource.putArray("aspectNames").add("cm:auditable").add("cm:titled");
+        content(resource);
+        ObjectNode resourceBefore = data.putObject("resourceBefore");
+        resourceBefore.put("@type", "NodeResource");
+        resourceBefore.put("modifiedAt", DATE_TIME_FORMATTER.format(before.modified()));
+        content(resourceBefore);
+
+        String message = MAPPER.writeValueAsString(event);
+        synchronized (this) {
+            publishedAt.put(documentId, System.nanoTime());
+            producer.send(session.createTextMessage(message));
+        }
+    }
+
+    private void content(ObjectNode resource) {
+        resource.putObject("content")
+                .put("mimeType", "text/plain")
+                .put("sizeInBytes", documentSize)
+                .put("encoding", "UTF-8");
+    }
+
+    @Override
+    protected void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        Matcher node = NODE_PATH.matcher(path);
+        if (path.endsWith("/search") && "POST".equals(exchange.getRequestMethod())) {
+            search(exchange, readJson(exchange));
+        } else if (node.matches() && node.group(2) != null) {
+            content(exchange, node.group(1));
+        } else if (node.matches() && "PUT".equals(exchange.getRequestMethod())) {
+            updateFolder(exchange, node.group(1));
+        } else {
+            sendJson(exchange, 404, error(404, "Unsupported " + exchange.getRequestMethod() + " " + path));
+        }
+    }
+
+    private void content(HttpExchange exchange, String documentId) throws IOException {
+        if (!docs.containsKey(documentId)) {
+            sendJson(exchange, 404, error(404, "Node not found: " + documentId));
+            return;
+        }
+        byte[] body = text(docs.get(documentId)).getBytes(StandardCharsets.UTF_8);
+        servedAt.put(documentId, System.nanoTime());
+        send(exchange, 200, "text/plain;charset=UTF-8", body);
+    }
+
+    private void updateFolder(HttpExchange exchange, String folderId) throws IOException {
+        Folder folder = folders.get(folderId);
+        if (folder == null) {
+            sendJson(exchange, 404, error(404, "Node not found: " + folderId));
+            return;
+        }
+        JsonNode properties = readJson(exchange).path("properties");
+        // The sync service writes ISO offset date-times, Alfresco returns them normalized to UTC
+        if (properties.has("cm:updated")) {
+            folder.updated = OffsetDateTime.parse(properties.get("cm:updated").asText()).toInstant();
+        }
+        if (properties.has("cm:published")) {
+            folder.published = OffsetDateTime.parse(properties.get("cm:published").asText()).toInstant();
+        }
+        ObjectNode response = MAPPER.createObjectNode();
+        response.set("entry", folderEntry(folder));
+        sendJson(exchange, 200, response);
+    }
+
+    private void search(HttpExchange exchange, JsonNode request) throws IOException {
+        String query = request.path("query").path("query").asText();
+        int skipCount = request.path("paging").path("skipCount").asInt(0);
+        int maxItems = request.path("paging").path("maxItems").asInt(100);
+
+        if (query.startsWith("ASPECT:")) {
+            List<JsonNode> entries = new ArrayList<>();
+            for (int i = skipCount; i < folderIds.size() && entries.size() < maxItems; i++) {
+                entries.add(folderEntry(folders.get(folderIds.get(i))));
+            }
+            sendJson(exchange, 200, resultSet(entries, skipCount, maxItems, folderIds.size(), null));
+            return;
+        }
+
+        if (request.has("facetQueries")) {
+            ArrayNode facetQueries = MAPPER.createArrayNode();
+            for (JsonNode facet : request.path("facetQueries")) {
+                String filterQuery = facet.path("query").asText();
+                facetQueries.addObject()
+                        .put("label", facet.path("label").asText())
+                        .put("filterQuery", filterQuery)
+                        .put("count", matches(filterQuery).size());
+            }
+            sendJson(exchange, 200, resultSet(List.of(), 0, maxItems, 0, facetQueries));
+            return;
+        }
+
+        List<Doc> matches = matches(query);
+        List<JsonNode> entries = new ArrayList<>();
+        for (int i = skipCount; i < matches.size() && entries.size() < maxItems; i++) {
+            entries.add(documentEntry(matches.get(i)));
+        }
+        sendJson(exchange, 200, resultSet(entries, skipCount, maxItems, matches.size(), null));
+    }
+
+    /**
+     * Documents of the folder named by ANCESTOR, filtered by cm:modified and ID when present.
+     */
+    private List<Doc> matches(String query) {
+        Matcher ancestor = ANCESTOR.matcher(query);
+        Folder folder = ancestor.find() ? folders.get(ancestor.group(1)) : null;
+        if (folder == null) {
+            return List.of();
+        }
+        NavigableSet<Doc> candidates = folder.docs;
+        Matcher modified = MODIFIED.matcher(query);
+        if (modified.find()) {
+            Instant from = OffsetDateTime.parse(modified.group(2), DATE_TIME_FORMATTER).toInstant();
+            // Dates have millisecond precision, so an exclusive bound starts one millisecond later
+            Instant lower = "[".equals(modified.group(1)) ? from : from.plusMillis(1);
+            candidates = candidates.tailSet(new Doc("", "", folder.id, lower), true);
+        }
+        Matcher id = ID.matcher(query);
+        if (id.find()) {
+            Doc doc = docs.get(id.group(1));
+            return doc != null && candidates.contains(doc) ? List.of(doc) : List.of();
+        }
+        return new ArrayList<>(candidates);
+    }
+
+    private ObjectNode resultSet(List<JsonNode> entries, int skipCount, int maxItems, int totalItems, ArrayNode facetQueries) {
+        ObjectNode response = MAPPER.createObjectNode();
+        ObjectNode list = response.putObject("list");
+        list.putObject("pagination")
+                .put("count", entries.size())
+                .put("hasMoreItems", skipCount + entries.size() < totalItems)
+                .put("totalItems", totalItems)
+                .put("skipCount", skipCount)
+                .put("maxItems", maxItems);
+        if (facetQueries != null) {
+            list.putObject("context").set("facetQueries", facetQueries);
+        }
+        ArrayNode array = list.putArray("entries");
+        entries.forEach(entry -> array.addObject().set("entry", entry));
+        return response;
+    }
+
+    private ObjectNode folderEntry(Folder folder) {
+        ObjectNode entry = MAPPER.createObjectNode();
+        entry.put("id", folder.id);
+        entry.put("name", "Folder " + folderIds.indexOf(folder.id));
+        entry.put("nodeType", "cm:folder");
+        entry.put("isFolder", true);
+        entry.put("isFile", false);
+        entry.put("createdAt", DATE_TIME_FORMATTER.format(NEVER_SYNCHRONIZED));
+        entry.put("modifiedAt", DATE_TIME_FORMATTER.format(folder.updated));
+        entry.putArray("aspectNames").add(SYNC_ASPECT);
+        entry.putObject("properties")
+                .put("cm:updated", DATE_TIME_FORMATTER.format(folder.updated))
+                .put("cm:published", DATE_TIME_FORMATTER.format(folder.published));
+        return entry;
+    }
+
+    private ObjectNode documentEntry(Doc doc) {
+        ObjectNode entry = MAPPER.createObjectNode();
+        entry.put("id", doc.id());
+        entry.put("name", doc.name());
+        entry.put("nodeType", "cm:content");
+        entry.put("isFolder", false);
+        entry.put("isFile", true);
+        entry.put("parentId", doc.folderId());
+        entry.put("createdAt", DATE_TIME_FORMATTER.format(NEVER_SYNCHRONIZED));
+        entry.put("modifiedAt", DATE_TIME_FORMATTER.format(doc.modified()));
+        entry.putObject("content")
+                .put("mimeType", "text/plain")
+                .put("sizeInBytes", documentSize)
+                .put("encoding", "UTF-8");
+        entry.putObject("search").put("score", 1.0);
+        return entry;
+    }
+
+    /**
+     * Generates the content of a document, which changes with every modification.
+     */
+    private String text(Doc doc) {
+        SplittableRandom random = new SplittableRandom(doc.id().hashCode() * 31L + doc.modified().toEpochMilli());
+        StringBuilder text = new StringBuilder(documentSize + 16).append(doc.name()).append(". ");
+        int sentenceLength = 0;
+        while (text.length() < documentSize) {
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+            if (++sentenceLength == 12) {
+                text.append(". ");
+                sentenceLength = 0;
+            } else {
+                text.append(' ');
+            }
+        }
+        return text.substring(0, documentSize);
+    }
+
+    private static Map<String, Object> error(int status, String message) {
+        return Map.of("error", Map.of("statusCode", status, "briefSummary", message));
+    }
+
+    private static String uuid(String name) {
+        return UUID.nameUUIDFromBytes(name.getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        Optional.ofNullable(connection).ifPresent(jmsConnection -> {
+            try {
+                jmsConnection.close();
+            } catch (JMSException e) {
+                // Broker is stopped by the harness right after
+            }
+        });
+    }
+}
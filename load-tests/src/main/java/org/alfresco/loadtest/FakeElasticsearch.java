@@ -0,0 +1,301 @@
+package org.alfresco.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory stand-in for the Elasticsearch endpoints used by ai-rag-framework: index management,
+ * settings, refresh, bulk and search (brute-force kNN, query_string filters on metadata fields and the
+ * composite aggregation of DocumentIdReader).
+ * <p>
+ * Every indexed chunk records the time its document was last written, which the harness uses to measure
+ * end-to-end latency.
+ */
+class FakeElasticsearch extends StandInServer {
+
+    private final Map<String, Chunk> chunks = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> chunksByDocument = new ConcurrentHashMap<>();
+    private final Map<String, Long> indexedAt = new ConcurrentHashMap<>();
+    private final Map<String, ObjectNode> indices = new ConcurrentHashMap<>();
+
+    private record Chunk(String id, String documentId, String folderId, ObjectNode source, float[] vector) {
+    }
+
+    private record Scored(Chunk chunk, double score) {
+    }
+
+    FakeElasticsearch() throws IOException {
+        super(64);
+    }
+
+    @Override
+    protected void addHeaders(Headers headers) {
+        headers.set("X-Elastic-Product", "Elasticsearch");
+    }
+
+    @Override
+    protected void handle(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getPath();
+        String[] segments = path.substring(1).split("/");
+
+        if (path.endsWith("/_bulk")) {
+            bulk(exchange);
+        } else if (path.endsWith("/_search")) {
+            search(exchange);
+        } else if (path.endsWith("/_refresh")) {
+            sendJson(exchange, 200, Map.of("_shards", Map.of("total", 1, "successful", 1, "failed", 0)));
+        } else if (path.endsWith("/_settings")) {
+            settings(exchange, segments[0]);
+        } else if (segments.length == 1 && "HEAD".equals(method)) {
+            send(exchange, indices.containsKey(segments[0]) ? 200 : 404, "application/json", new byte[0]);
+        } else if (segments.length == 1 && "PUT".equals(method)) {
+            readBody(exchange);
+            indices.put(segments[0], MAPPER.createObjectNode());
+            sendJson(exchange, 200, Map.of("acknowledged", true, "shards_acknowledged", true, "index", segments[0]));
+        } else {
+            sendJson(exchange, 404, Map.of("error", "unsupported " + method + " " + path));
+        }
+    }
+
+    /**
+     * Nanosecond timestamp of the last bulk write of a document, or null if it was never indexed.
+     */
+    Long indexedAt(String documentId) {
+        return indexedAt.get(documentId);
+    }
+
+    int documentCount() {
+        return chunksByDocument.size();
+    }
+
+    int chunkCount() {
+        return chunks.size();
+    }
+
+    private void settings(HttpExchange exchange, String index) throws IOException {
+        ObjectNode settings = indices.computeIfAbsent(index, name -> MAPPER.createObjectNode());
+        if ("PUT".equals(exchange.getRequestMethod())) {
+            readJson(exchange).fields().forEachRemaining(entry -> {
+                if (entry.getValue().isNull()) {
+                    settings.remove(entry.getKey());
+                } else {
+                    settings.put(entry.getKey(), entry.getValue().asText());
+                }
+            });
+            sendJson(exchange, 200, Map.of("acknowledged", true));
+        } else {
+            ObjectNode response = MAPPER.createObjectNode();
+            response.putObject(index).set("settings", settings);
+            sendJson(exchange, 200, response);
+        }
+    }
+
+    private void bulk(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        ArrayNode items = MAPPER.createArrayNode();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                JsonNode action = MAPPER.readTree(line);
+                String operation = action.fieldNames().next();
+                JsonNode target = action.get(operation);
+                String id = target.path("_id").asText();
+                int status;
+                String result;
+                if ("delete".equals(operation)) {
+                    status = remove(id) ? 200 : 404;
+                    result = status == 200 ? "deleted" : "not_found";
+                } else {
+                    ObjectNode source = (ObjectNode) MAPPER.readTree(reader.readLine());
+                    status = store(id, source) ? 200 : 201;
+                    result = status == 200 ? "updated" : "created";
+                }
+                ObjectNode item = items.addObject().putObject(operation);
+                item.put("_index", target.path("_index").asText());
+                item.put("_id", id);
+                item.put("_version", 1);
+                item.put("result", result);
+                item.putObject("_shards").put("total", 1).put("successful", 1).put("failed", 0);
+                item.put("_seq_no", 0);
+                item.put("_primary_term", 1);
+                item.put("status", status);
+            }
+        }
+        ObjectNode response = MAPPER.createObjectNode();
+        response.put("took", (System.nanoTime() - start) / 1_000_000);
+        response.put("errors", false);
+        response.set("items", items);
+        sendJson(exchange, 200, response);
+    }
+
+    private boolean store(String id, ObjectNode source) {
+        JsonNode metadata = source.path("metadata");
+        String documentId = metadata.path("documentId").asText();
+        JsonNode embedding = source.path("embedding");
+        float[] vector = new float[embedding.size()];
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = (float) embedding.get(i).asDouble();
+        }
+        Chunk previous = chunks.put(id, new Chunk(id, documentId, metadata.path("folderId").asText(), source, vector));
+        chunksByDocument.computeIfAbsent(documentId, key -> ConcurrentHashMap.newKeySet()).add(id);
+        indexedAt.put(documentId, System.nanoTime());
+        return previous != null;
+    }
+
+    private boolean remove(String id) {
+        Chunk chunk = chunks.remove(id);
+        if (chunk == null) {
+            return false;
+        }
+        chunksByDocument.computeIfPresent(chunk.documentId(), (key, ids) -> {
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+        });
+        return true;
+    }
+
+    private void search(HttpExchange exchange) throws IOException {
+        JsonNode request = readJson(exchange);
+        if (request.has("aggs")) {
+            compositeDocumentIds(exchange, request);
+            return;
+        }
+
+        JsonNode knn = request.path("knn");
+        int k = knn.path("k").asInt(10);
+        int size = Math.min(k, request.path("size").asInt(k));
+        JsonNode similarity = knn.path("similarity");
+        float[] query = new float[knn.path("query_vector").size()];
+        for (int i = 0; i < query.length; i++) {
+            query[i] = (float) knn.path("query_vector").get(i).asDouble();
+        }
+
+        List<Scored> hits = candidates(queryString(knn.path("filter"))).stream()
+                .map(chunk -> new Scored(chunk, cosine(query, chunk.vector())))
+                .filter(scored -> similarity.isMissingNode() || scored.score() >= similarity.asDouble())
+                .sorted(Comparator.comparingDouble(Scored::score).reversed())
+                .limit(size)
+                .toList();
+
+        boolean excludeEmbedding = request.path("_source").path("excludes").toString().contains("embedding");
+        ObjectNode response = MAPPER.createObjectNode();
+        response.put("took", 1);
+        response.put("timed_out", false);
+        ObjectNode hitsNode = response.putObject("hits");
+        hitsNode.putObject("total").put("value", hits.size()).put("relation", "eq");
+        ArrayNode hitArray = hitsNode.putArray("hits");
+        for (Scored scored : hits) {
+            ObjectNode hit = hitArray.addObject();
+            hit.put("_index", exchange.getRequestURI().getPath().split("/")[1]);
+            hit.put("_id", scored.chunk().id());
+            // Elasticsearch scores cosine similarity as (1 + cosine) / 2
+            hit.put("_score", (1 + scored.score()) / 2);
+            ObjectNode source = scored.chunk().source().deepCopy();
+            if (excludeEmbedding) {
+                source.remove("embedding");
+            }
+            hit.set("_source", source);
+        }
+        sendJson(exchange, 200, response);
+    }
+
+    /**
+     * Serves DocumentIdReader: distinct document IDs of a folder, in ascending order, after a given key.
+     */
+    private void compositeDocumentIds(HttpExchange exchange, JsonNode request) throws IOException {
+        String folderId = request.path("query").path("term").elements().next().asText();
+        JsonNode composite = request.path("aggs").path("ids").path("composite");
+        int size = composite.path("size").asInt(1000);
+        String after = composite.path("after").path("documentId").asText(null);
+
+        TreeSet<String> documentIds = chunks.values().stream()
+                .filter(chunk -> chunk.folderId().equals(folderId))
+                .map(Chunk::documentId)
+                .filter(id -> after == null || id.compareTo(after) > 0)
+                .collect(Collectors.toCollection(TreeSet::new));
+
+        ObjectNode response = MAPPER.createObjectNode();
+        ObjectNode ids = response.putObject("aggregations").putObject("ids");
+        ArrayNode buckets = ids.putArray("buckets");
+        String last = null;
+        for (String documentId : documentIds) {
+            if (buckets.size() == size) {
+                break;
+            }
+            buckets.addObject().put("doc_count", 1).putObject("key").put("documentId", documentId);
+            last = documentId;
+        }
+        if (last != null) {
+            ids.putObject("after_key").put("documentId", last);
+        }
+        sendJson(exchange, 200, response);
+    }
+
+    /**
+     * Extracts the query_string of a kNN filter, which Spring AI sends as a single clause or a list.
+     */
+    private static String queryString(JsonNode filter) {
+        JsonNode clause = filter.isArray() ? filter.path(0) : filter;
+        return clause.path("query_string").path("query").asText("*");
+    }
+
+    /**
+     * Chunks matching a filter of the form {@code metadata.<field>:<value>} as produced by Spring AI for
+     * equality expressions; document filters use the per-document index instead of a full scan.
+     */
+    private Collection<Chunk> candidates(String query) {
+        if (query.isBlank() || "*".equals(query)) {
+            return chunks.values();
+        }
+        int separator = query.indexOf(':');
+        String field = query.substring(0, separator).replace("metadata.", "");
+        String value = query.substring(separator + 1).replace("\\", "").replace("\"", "");
+        if ("documentId".equals(field)) {
+            return chunksByDocument.getOrDefault(value, Set.of()).stream()
+                    .map(chunks::get)
+                    .filter(chunk -> chunk != null)
+                    .toList();
+        }
+        List<Chunk> matches = new ArrayList<>();
+        for (Chunk chunk : chunks.values()) {
+            if (value.equals(chunk.source().path("metadata").path(field).asText())) {
+                matches.add(chunk);
+            }
+        }
+        return matches;
+    }
+
+    private static double cosine(float[] a, float[] b) {
+        if (a.length != b.length || a.length == 0) {
+            return 0;
+        }
+        double dot = 0, normA = 0, normB = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        return dot / Math.sqrt(normA * normB);
+    }
+}
@@ -0,0 +1,118 @@
+package org.alfresco.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Stand-in for the Ollama API used by Spring AI: {@code /api/embed} returns a deterministic unit vector
+ * per input text and {@code /api/chat} a fixed answer, each after a configurable latency.
+ */
+class FakeOllama extends StandInServer {
+
+    private static final String ANSWER = "This is a stub answer based on the provided context.";
+
+    private final int dimensions;
+    private final long embedLatencyMillis;
+    private final long chatLatencyMillis;
+
+    /**
+     * @param dimensions         Size of the returned vectors, must match the index dimensions
+     * @param embedLatencyMillis Latency per embedded text
+     * @param chatLatencyMillis  Latency per chat completion
+     */
+    FakeOllama(int dimensions, long embedLatencyMillis, long chatLatencyMillis) throws IOException {
+        super(256);
+        this.dimensions = dimensions;
+        this.embedLatencyMillis = embedLatencyMillis;
+        this.chatLatencyMillis = chatLatencyMillis;
+    }
+
+    @Override
+    protected void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        switch (path) {
+            case "/api/embed" -> embed(exchange);
+            case "/api/chat" -> chat(exchange);
+            case "/api/tags" -> sendJson(exchange, 200, Map.of("models", List.of()));
+            default -> sendJson(exchange, 404, Map.of("error", "unsupported path " + path));
+        }
+    }
+
+    private void embed(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        JsonNode request = readJson(exchange);
+        List<String> inputs = new ArrayList<>();
+        JsonNode input = request.path("input");
+        if (input.isArray()) {
+            input.forEach(text -> inputs.add(text.asText()));
+        } else {
+            inputs.add(input.asText());
+        }
+        sleep(embedLatencyMillis * inputs.size());
+
+        ObjectNode response = MAPPER.createObjectNode();
+        response.put("model", request.path("model").asText());
+        ArrayNode embeddings = response.putArray("embeddings");
+        for (String text : inputs) {
+            ArrayNode vector = embeddings.addArray();
+            for (float value : vector(text)) {
+                vector.add(value);
+            }
+        }
+        response.put("total_duration", System.nanoTime() - start);
+        response.put("load_duration", 0);
+        response.put("prompt_eval_count", inputs.stream().mapToInt(text -> text.length() / 4).sum());
+        sendJson(exchange, 200, response);
+    }
+
+    private void chat(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        JsonNode request = readJson(exchange);
+        int promptChars = 0;
+        for (JsonNode message : request.path("messages")) {
+            promptChars += message.path("content").asText().length();
+        }
+        sleep(chatLatencyMillis);
+
+        long duration = System.nanoTime() - start;
+        ObjectNode response = MAPPER.createObjectNode();
+        response.put("model", request.path("model").asText());
+        response.put("created_at", Instant.now().toString());
+        ObjectNode message = response.putObject("message");
+        message.put("role", "assistant");
+        message.put("content", ANSWER);
+        response.put("done_reason", "stop");
+        response.put("done", true);
+        response.put("total_duration", duration);
+        response.put("load_duration", 0);
+        response.put("prompt_eval_count", promptChars / 4);
+        response.put("prompt_eval_duration", duration / 2);
+        response.put("eval_count", ANSWER.length() / 4);
+        response.put("eval_duration", duration / 2);
+        sendJson(exchange, 200, response);
+    }
+
+    private float[] vector(String text) {
+        SplittableRandom random = new SplittableRandom(text.hashCode());
+        float[] vector = new float[dimensions];
+        double norm = 0;
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] = (float) random.nextGaussian();
+            norm += vector[i] * vector[i];
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] *= scale;
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,57 @@
+package org.alfresco.loadtest;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Collects latency samples in milliseconds and summarizes them as percentiles.
+ */
+class LatencyRecorder {
+
+    private double[] samples = new double[1024];
+    private int count;
+
+    synchronized void record(double millis) {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, count * 2);
+        }
+        samples[count++] = millis;
+    }
+
+    void recordNanos(long nanos) {
+        record(nanos / 1_000_000.0);
+    }
+
+    synchronized int count() {
+        return count;
+    }
+
+    /**
+     * Returns count, mean, p50, p95, p99 and max, with latencies in milliseconds.
+     */
+    synchronized Map<String, Object> summary() {
+        double[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("count", count);
+        summary.put("mean", round(Arrays.stream(sorted).average().orElse(0)));
+        summary.put("p50", round(percentile(sorted, 0.50)));
+        summary.put("p95", round(percentile(sorted, 0.95)));
+        summary.put("p99", round(percentile(sorted, 0.99)));
+        summary.put("max", round(count == 0 ? 0 : sorted[count - 1]));
+        return summary;
+    }
+
+    private static double percentile(double[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 10) / 10.0;
+    }
+}
@@ -0,0 +1,322 @@
+package org.alfresco.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.apache.activemq.broker.BrokerService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Runs alfresco-ai-sync and ai-rag-framework from their executable jars against local stand-ins for
+ * Alfresco, ActiveMQ, Ollama and Elasticsearch, drives one scenario and reports throughput, latency
+ * percentiles and the peak heap of both services.
+ * <p>
+ * Scenarios, selected with {@code -Dloadtest.scenario}:
+ * <ul>
+ *     <li>{@code initial-sync}: synchronizes {@code loadtest.documents} documents; latency is measured from
+ *     the content download to the bulk write of the document chunks</li>
+ *     <li>{@code event-storm}: the initial sync plus {@code loadtest.events} update events published at
+ *     {@code loadtest.eventRate} per second while it runs; latency is measured from the event to the
+ *     re-indexing of the document</li>
+ *     <li>{@code chat}: synchronizes a small repository, then {@code loadtest.users} concurrent users send
+ *     chat requests for {@code loadtest.duration} seconds</li>
+ * </ul>
+ * The report is printed and written to {@code target/load-test-<scenario>.json}.
+ */
+public class LoadTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadTest.class);
+
+    private static final int DIMENSIONS = 768;
+    private static final List<String> QUESTIONS = List.of(
+            "Which documents describe the onboarding process for new employees?",
+            "What is the retention policy for quarterly reports?",
+            "Summarize the approval workflow for contracts.",
+            "Where are archived invoices stored?");
+
+    private final String scenario = System.getProperty("loadtest.scenario", "initial-sync");
+    private final int documents = Integer.getInteger("loadtest.documents", "chat".equals(scenario) ? 1000 : 100_000);
+    private final int folders = Integer.getInteger("loadtest.folders", 100);
+    private final int documentSizeKb = Integer.getInteger("loadtest.documentSizeKb", 2);
+    private final int events = Integer.getInteger("loadtest.events", 10_000);
+    private final int eventRate = Integer.getInteger("loadtest.eventRate", 500);
+    private final int users = Integer.getInteger("loadtest.users", 200);
+    private final int durationSeconds = Integer.getInteger("loadtest.duration", 60);
+    private final long embedLatencyMillis = Long.getLong("loadtest.embedLatencyMs", 5);
+    private final long chatLatencyMillis = Long.getLong("loadtest.chatLatencyMs", 500);
+    private final int timeoutMinutes = Integer.getInteger("loadtest.timeout", 60);
+    private final String heap = System.getProperty("loadtest.heap", "1g");
+    private final Path syncJar = Path.of(System.getProperty("loadtest.syncJar",
+            "../alfresco-ai-sync/target/alfresco-ai-sync-0.8.0-exec.jar"));
+    private final Path ragJar = Path.of(System.getProperty("loadtest.ragJar",
+            "../ai-rag-framework/target/ai-rag-framework-0.0.1-SNAPSHOT-exec.jar"));
+    private final Path workDir = Path.of("target", "loadtest");
+
+    private final Map<String, Object> report = new LinkedHashMap<>();
+    private final List<ServiceProcess> services = new ArrayList<>();
+
+    public static void main(String[] args) throws Exception {
+        new LoadTest().run();
+    }
+
+    private void run() throws Exception {
+        if (!List.of("initial-sync", "event-storm", "chat").contains(scenario)) {
+            throw new IllegalArgumentException("Unknown scenario: " + scenario);
+        }
+        report.put("scenario", scenario);
+        report.put("config", config());
+
+        BrokerService broker = new BrokerService();
+        broker.setPersistent(false);
+        broker.setUseJmx(false);
+        String brokerUrl = broker.addConnector("tcp://localhost:" + freePort()).getUri().toString();
+        broker.start();
+
+        ScheduledExecutorService heapSampler = Executors.newSingleThreadScheduledExecutor();
+        try (FakeElasticsearch elasticsearch = new FakeElasticsearch();
+             FakeOllama ollama = new FakeOllama(DIMENSIONS, embedLatencyMillis, chatLatencyMillis);
+             FakeAlfresco alfresco = new FakeAlfresco(folders, documents, documentSizeKb * 1024)) {
+            alfresco.connect(brokerUrl);
+
+            ServiceProcess rag = start(new ServiceProcess("rag", ragJar, heap, freePort(), workDir, List.of(
+                    "--spring.elasticsearch.uris=" + elasticsearch.url(),
+                    "--spring.ai.ollama.base-url=" + ollama.url(),
+                    "--spring.ai.ollama.init.pull-model-strategy=never",
+                    "--spring.ai.vectorstore.elasticsearch.dimensions=" + DIMENSIONS)));
+            rag.awaitHealthy(Duration.ofMinutes(2));
+            heapSampler.scheduleAtFixedRate(() -> services.forEach(ServiceProcess::sampleHeap), 0, 1, TimeUnit.SECONDS);
+
+            long syncStart = System.nanoTime();
+            start(new ServiceProcess("sync", syncJar, heap, freePort(), workDir, List.of(
+                    "--content.service.url=" + alfresco.url(),
+                    "--spring.activemq.brokerUrl=" + brokerUrl,
+                    "--alfresco.ai.base.url=" + rag.url(),
+                    "--alfresco.ai.sync.aspect=" + FakeAlfresco.SYNC_ASPECT,
+                    "--alfresco.ai.sync.retry.directory=" + workDir.resolve("retry").toAbsolutePath(),
+                    "--alfresco.ai.sync.partitioning.directory=" + workDir.resolve("cluster").toAbsolutePath(),
+                    // Reconciliation would compete with the measured work
+                    "--alfresco.ai.sync.reconcile.cron=-")));
+
+            switch (scenario) {
+                case "initial-sync" -> initialSync(alfresco, elasticsearch, syncStart);
+                case "event-storm" -> eventStorm(alfresco, elasticsearch, syncStart);
+                case "chat" -> {
+                    awaitSynchronized(alfresco, elasticsearch);
+                    chat(rag);
+                }
+            }
+
+            services.forEach(ServiceProcess::sampleHeap);
+            Map<String, Object> heapMb = new LinkedHashMap<>();
+            services.forEach(service -> heapMb.put(service.name(), service.maxHeapBytes() / (1024 * 1024)));
+            report.put("maxHeapMb", heapMb);
+        } finally {
+            heapSampler.shutdownNow();
+            for (ServiceProcess service : services) {
+                service.close();
+            }
+            broker.stop();
+        }
+
+        ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        String json = mapper.writeValueAsString(report);
+        Path file = Path.of("target", "load-test-" + scenario + ".json");
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, json);
+        System.out.println(json);
+        logger.info("Report written to {}", file.toAbsolutePath());
+    }
+
+    private void initialSync(FakeAlfresco alfresco, FakeElasticsearch elasticsearch, long syncStart) throws InterruptedException {
+        awaitSynchronized(alfresco, elasticsearch);
+        double seconds = (System.nanoTime() - syncStart) / 1e9;
+        report.put("initialSync", syncSummary(alfresco, elasticsearch, seconds));
+    }
+
+    private void eventStorm(FakeAlfresco alfresco, FakeElasticsearch elasticsearch, long syncStart) throws Exception {
+        await("first document indexed", () -> elasticsearch.documentCount() > 0);
+
+        List<String> documentIds = alfresco.documentIds();
+        Random random = new Random(42);
+        List<String> updated = new ArrayList<>();
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / Math.max(1, eventRate);
+        long publishStart = System.nanoTime();
+        for (int i = 0; i < events; i++) {
+            String documentId = documentIds.get(random.nextInt(documentIds.size()));
+            alfresco.publishUpdate(documentId);
+            updated.add(documentId);
+            long next = publishStart + (i + 1) * intervalNanos;
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+        }
+        double publishSeconds = (System.nanoTime() - publishStart) / 1e9;
+        logger.info("Published {} events in {} s", events, Math.round(publishSeconds));
+
+        awaitSynchronized(alfresco, elasticsearch);
+        double syncSeconds = (System.nanoTime() - syncStart) / 1e9;
+        await("events processed", () -> updated.stream().allMatch(id -> isReindexed(alfresco, elasticsearch, id)));
+        double eventSeconds = (System.nanoTime() - publishStart) / 1e9;
+
+        LatencyRecorder latency = new LatencyRecorder();
+        updated.stream().distinct().forEach(id -> latency.recordNanos(elasticsearch.indexedAt(id) - alfresco.publishedAt(id)));
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("events", events);
+        summary.put("publishSeconds", round(publishSeconds));
+        summary.put("seconds", round(eventSeconds));
+        summary.put("eventsPerSecond", round(events / eventSeconds));
+        summary.put("latencyMs", latency.summary());
+        report.put("initialSync", syncSummary(alfresco, elasticsearch, syncSeconds));
+        report.put("events", summary);
+    }
+
+    private void chat(ServiceProcess rag) throws InterruptedException {
+        HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newFixedThreadPool(Math.max(4, users / 4)))
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        LatencyRecorder latency = new LatencyRecorder();
+        AtomicInteger errors = new AtomicInteger();
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(durationSeconds);
+
+        ExecutorService userThreads = Executors.newFixedThreadPool(users);
+        long start = System.nanoTime();
+        for (int user = 0; user < users; user++) {
+            int seed = user;
+            userThreads.execute(() -> {
+                int question = seed;
+                while (System.nanoTime() < end) {
+                    HttpRequest request = HttpRequest.newBuilder(URI.create(rag.url() + "/chat"))
+                            .timeout(Duration.ofMinutes(2))
+                            .header("Content-Type", "text/plain")
+                            .POST(HttpRequest.BodyPublishers.ofString(QUESTIONS.get(question++ % QUESTIONS.size())))
+                            .build();
+                    long requestStart = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() == 200) {
+                            latency.recordNanos(System.nanoTime() - requestStart);
+                        } else {
+                            errors.incrementAndGet();
+                        }
+                    } catch (IOException e) {
+                        errors.incrementAndGet();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            });
+        }
+        userThreads.shutdown();
+        userThreads.awaitTermination(durationSeconds + 180L, TimeUnit.SECONDS);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("users", users);
+        summary.put("requests", latency.count());
+        summary.put("errors", errors.get());
+        summary.put("seconds", round(seconds));
+        summary.put("requestsPerSecond", round(latency.count() / seconds));
+        summary.put("latencyMs", latency.summary());
+        report.put("chat", summary);
+    }
+
+    private Map<String, Object> syncSummary(FakeAlfresco alfresco, FakeElasticsearch elasticsearch, double seconds) {
+        LatencyRecorder latency = new LatencyRecorder();
+        for (String id : alfresco.documentIds()) {
+            Long served = alfresco.servedAt(id);
+            Long indexed = elasticsearch.indexedAt(id);
+            if (served != null && indexed != null && indexed >= served) {
+                latency.recordNanos(indexed - served);
+            }
+        }
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("documents", elasticsearch.documentCount());
+        summary.put("chunks", elasticsearch.chunkCount());
+        summary.put("seconds", round(seconds));
+        summary.put("documentsPerSecond", round(elasticsearch.documentCount() / seconds));
+        summary.put("latencyMs", latency.summary());
+        return summary;
+    }
+
+    private void awaitSynchronized(FakeAlfresco alfresco, FakeElasticsearch elasticsearch) throws InterruptedException {
+        await("initial sync", () -> elasticsearch.documentCount() >= alfresco.documentIds().size());
+    }
+
+    private static boolean isReindexed(FakeAlfresco alfresco, FakeElasticsearch elasticsearch, String documentId) {
+        Long indexed = elasticsearch.indexedAt(documentId);
+        return indexed != null && indexed > alfresco.publishedAt(documentId);
+    }
+
+    private void await(String description, BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(timeoutMinutes);
+        long nextLog = System.nanoTime();
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("Timed out waiting for " + description + ", see the logs in " + workDir);
+            }
+            if (System.nanoTime() > nextLog) {
+                logger.info("Waiting for {}", description);
+                nextLog = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            }
+            TimeUnit.MILLISECONDS.sleep(200);
+        }
+    }
+
+    private ServiceProcess start(ServiceProcess service) {
+        services.add(service);
+        return service;
+    }
+
+    private Map<String, Object> config() {
+        Map<String, Object> config = new LinkedHashMap<>();
+        config.put("documents", documents);
+        config.put("folders", folders);
+        config.put("documentSizeKb", documentSizeKb);
+        if ("event-storm".equals(scenario)) {
+            config.put("events", events);
+            config.put("eventRate", eventRate);
+        }
+        if ("chat".equals(scenario)) {
+            config.put("users", users);
+            config.put("durationSeconds", durationSeconds);
+        }
+        config.put("embedLatencyMs", embedLatencyMillis);
+        config.put("chatLatencyMs", chatLatencyMillis);
+        config.put("heap", heap);
+        return config;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 10) / 10.0;
+    }
+}
@@ -0,0 +1,129 @@
+package org.alfresco.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One of the services under test, started from its executable jar as a child process and monitored through
+ * its actuator endpoints.
+ */
+class ServiceProcess implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ServiceProcess.class);
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final HttpClient HTTP = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+
+    private final String name;
+    private final int port;
+    private final Process process;
+    private volatile long maxHeapBytes;
+
+    /**
+     * @param name    Name used for the log file and in the report
+     * @param jar     Executable jar of the service
+     * @param heap    Maximum heap, as passed to -Xmx
+     * @param port    HTTP port of the service
+     * @param logDir  Directory receiving the output of the process
+     * @param args    Spring Boot arguments overriding the application properties
+     */
+    ServiceProcess(String name, Path jar, String heap, int port, Path logDir, List<String> args) throws IOException {
+        if (!Files.isRegularFile(jar)) {
+            throw new IllegalStateException("Executable jar not found: " + jar.toAbsolutePath()
+                    + ", build it with mvn package or set -D" + name + "Jar");
+        }
+        this.name = name;
+        this.port = port;
+
+        List<String> command = new ArrayList<>(List.of(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-Xmx" + heap, "-jar", jar.toAbsolutePath().toString(),
+                "--server.port=" + port,
+                "--management.endpoints.web.exposure.include=health,metrics",
+                "--logging.level.org.alfresco=WARN"));
+        command.addAll(args);
+
+        Files.createDirectories(logDir);
+        Path log = logDir.resolve(name + ".log");
+        process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+        logger.info("Started {} (pid {}) on port {}, logging to {}", name, process.pid(), port, log);
+    }
+
+    String name() {
+        return name;
+    }
+
+    String url() {
+        return "http://localhost:" + port;
+    }
+
+    /**
+     * Waits until the actuator health endpoint reports UP.
+     */
+    void awaitHealthy(Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException(name + " exited with code " + process.exitValue());
+            }
+            try {
+                JsonNode health = get("/actuator/health");
+                if ("UP".equals(health.path("status").asText())) {
+                    logger.info("{} is up", name);
+                    return;
+                }
+            } catch (IOException e) {
+                // Not listening yet
+            }
+            TimeUnit.MILLISECONDS.sleep(500);
+        }
+        throw new IllegalStateException(name + " did not become healthy within " + timeout);
+    }
+
+    /**
+     * Samples the used heap, keeping the maximum seen so far.
+     */
+    void sampleHeap() {
+        try {
+            JsonNode metric = get("/actuator/metrics/jvm.memory.used?tag=area:heap");
+            long used = (long) metric.path("measurements").path(0).path("value").asDouble();
+            maxHeapBytes = Math.max(maxHeapBytes, used);
+        } catch (IOException | InterruptedException e) {
+            logger.debug("Heap sample of {} failed: {}", name, e.getMessage());
+        }
+    }
+
+    long maxHeapBytes() {
+        return maxHeapBytes;
+    }
+
+    private JsonNode get(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url() + path)).timeout(Duration.ofSeconds(5)).GET().build();
+        return MAPPER.readTree(HTTP.send(request, HttpResponse.BodyHandlers.ofByteArray()).body());
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        process.destroy();
+        if (!process.waitFor(30, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package org.alfresco.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Base class of the HTTP stand-ins, built on the JDK HTTP server so the harness has no web framework.
+ */
+abstract class StandInServer implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(StandInServer.class);
+
+    protected static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    StandInServer(int threads) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        executor = Executors.newFixedThreadPool(threads);
+        server.setExecutor(executor);
+        server.createContext("/", exchange -> {
+            try {
+                handle(exchange);
+            } catch (Exception e) {
+                logger.warn("{} failed on {} {}", getClass().getSimpleName(), exchange.getRequestMethod(), exchange.getRequestURI(), e);
+                sendJson(exchange, 500, Map.of("error", String.valueOf(e.getMessage())));
+            } finally {
+                exchange.close();
+            }
+        });
+        server.start();
+    }
+
+    public String url() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    protected abstract void handle(HttpExchange exchange) throws IOException;
+
+    /**
+     * Headers added to every response, e.g. the product header checked by the Elasticsearch client.
+     */
+    protected void addHeaders(Headers headers) {
+    }
+
+    protected static byte[] readBody(HttpExchange exchange) throws IOException {
+        return exchange.getRequestBody().readAllBytes();
+    }
+
+    protected static JsonNode readJson(HttpExchange exchange) throws IOException {
+        byte[] body = readBody(exchange);
+        return body.length == 0 ? MAPPER.createObjectNode() : MAPPER.readTree(body);
+    }
+
+    protected void sendJson(HttpExchange exchange, int status, Object body) throws IOException {
+        send(exchange, status, "application/json", MAPPER.writeValueAsBytes(body));
+    }
+
+    protected void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        addHeaders(exchange.getResponseHeaders());
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        if ("HEAD".equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Simulates the service time of a remote call.
+     */
+    protected static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}